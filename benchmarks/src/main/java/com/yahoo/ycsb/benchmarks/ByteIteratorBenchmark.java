@@ -0,0 +1,132 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.FastRandomByteIterator;
+import com.yahoo.ycsb.InputStreamByteIterator;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.StringByteIterator;
+
+/**
+ * Cost of producing and draining one field value with each ByteIterator
+ * implementation. toArray() is what most bindings call; nextByte() is the
+ * byte-at-a-time path the rest use.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteIteratorBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int fieldLength;
+
+    private byte[] bytes;
+    private String string;
+    private RandomByteIterator reused;
+    private FastRandomByteIterator fastReused;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bytes = new RandomByteIterator(fieldLength).toArray();
+        string = new String(bytes);
+        reused = new RandomByteIterator(fieldLength);
+        fastReused = new FastRandomByteIterator(fieldLength);
+    }
+
+    @Benchmark
+    public byte[] randomToArray() {
+        return new RandomByteIterator(fieldLength).toArray();
+    }
+
+    @Benchmark
+    public byte[] randomResetToArray() {
+        return reused.reset(fieldLength).toArray();
+    }
+
+    @Benchmark
+    public void randomNextByte(Blackhole bh) {
+        drain(new RandomByteIterator(fieldLength), bh);
+    }
+
+    @Benchmark
+    public byte[] fastRandomToArray() {
+        return new FastRandomByteIterator(fieldLength).toArray();
+    }
+
+    @Benchmark
+    public byte[] fastRandomResetToArray() {
+        return fastReused.reset(fieldLength).toArray();
+    }
+
+    @Benchmark
+    public void fastRandomNextByte(Blackhole bh) {
+        drain(new FastRandomByteIterator(fieldLength), bh);
+    }
+
+    @Benchmark
+    public byte[] byteArrayToArray() {
+        return new ByteArrayByteIterator(bytes).toArray();
+    }
+
+    @Benchmark
+    public void byteArrayNextByte(Blackhole bh) {
+        drain(new ByteArrayByteIterator(bytes), bh);
+    }
+
+    @Benchmark
+    public byte[] stringToArray() {
+        return new StringByteIterator(string).toArray();
+    }
+
+    @Benchmark
+    public String stringToString() {
+        return new StringByteIterator(string).toString();
+    }
+
+    @Benchmark
+    public byte[] inputStreamToArray() {
+        return new InputStreamByteIterator(new ByteArrayInputStream(bytes), bytes.length).toArray();
+    }
+
+    private static void drain(ByteIterator it, Blackhole bh) {
+        while (it.hasNext()) {
+            bh.consume(it.nextByte());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import com.yahoo.ycsb.BasicDB;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.DBWrapper;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+/**
+ * The client-side cost of one CoreWorkload operation, end to end: choosing
+ * the operation, key and fields, building values, and timing the call
+ * through DBWrapper against a silent BasicDB. Nothing here waits on a
+ * database, so the score is the ceiling the client itself puts on
+ * throughput; track it from release to release. Run with -prof gc to see
+ * the allocation per operation as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoreWorkloadBenchmark {
+    @State(Scope.Benchmark)
+    public static class Workload {
+        /** One of the mixes of the bundled workloads a, b, c, e and f. */
+        @Param({"a", "b", "c", "e", "f"})
+        public String mix;
+
+        @Param({"1000000"})
+        public int recordCount;
+
+        Properties props;
+        CoreWorkload workload;
+
+        @Setup(Level.Trial)
+        public void setUp() throws WorkloadException {
+            props = new Properties();
+            props.setProperty(Client.RECORD_COUNT_PROPERTY, String.valueOf(recordCount));
+            props.setProperty(Client.OPERATION_COUNT_PROPERTY, String.valueOf(recordCount));
+            props.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "zipfian");
+            props.setProperty(BasicDB.VERBOSE, "false");
+            if (mix.equals("a")) {
+                setMix(0.5, 0.5, 0, 0, 0);
+            } else if (mix.equals("b")) {
+                setMix(0.95, 0.05, 0, 0, 0);
+            } else if (mix.equals("c")) {
+                setMix(1, 0, 0, 0, 0);
+            } else if (mix.equals("e")) {
+                setMix(0, 0, 0.95, 0.05, 0);
+                props.setProperty(CoreWorkload.MAX_SCAN_LENGTH_PROPERTY, "100");
+                props.setProperty(CoreWorkload.SCAN_LENGTH_DISTRIBUTION_PROPERTY, "uniform");
+            } else if (mix.equals("f")) {
+                setMix(0.5, 0, 0, 0, 0.5);
+            } else {
+                throw new WorkloadException("Unknown mix: " + mix);
+            }
+            Measurements.setProperties(props);
+            workload = new CoreWorkload();
+            workload.init(props);
+        }
+
+        private void setMix(double read, double update, double scan, double insert, double readModifyWrite) {
+            props.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, String.valueOf(read));
+            props.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, String.valueOf(update));
+            props.setProperty(CoreWorkload.SCAN_PROPORTION_PROPERTY, String.valueOf(scan));
+            props.setProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY, String.valueOf(insert));
+            props.setProperty(CoreWorkload.READMODIFYWRITE_PROPORTION_PROPERTY, String.valueOf(readModifyWrite));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws WorkloadException {
+            workload.cleanup();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        DB db;
+        Object state;
+
+        @Setup(Level.Trial)
+        public void setUp(Workload workload, ThreadParams threads) throws DBException, WorkloadException {
+            db = new DBWrapper(new BasicDB());
+            db.setProperties(workload.props);
+            db.init();
+            state = workload.workload.initThread(workload.props, threads.getThreadIndex(), threads.getThreadCount());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws DBException {
+            db.cleanup();
+        }
+    }
+
+    @Benchmark
+    public boolean doTransaction(Workload workload, ClientState client) {
+        return workload.workload.doTransaction(client.db, client.state);
+    }
+
+    @Benchmark
+    public boolean doInsert(Workload workload, ClientState client) {
+        return workload.workload.doInsert(client.db, client.state);
+    }
+}
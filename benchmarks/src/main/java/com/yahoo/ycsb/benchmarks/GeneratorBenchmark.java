@@ -0,0 +1,222 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
+import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.generator.DiscreteEnumGenerator;
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.ExponentialGenerator;
+import com.yahoo.ycsb.generator.FileGenerator;
+import com.yahoo.ycsb.generator.HistogramGenerator;
+import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.SkewedLatestGenerator;
+import com.yahoo.ycsb.generator.SlidingHotspotIntegerGenerator;
+import com.yahoo.ycsb.generator.UniformGenerator;
+import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+import com.yahoo.ycsb.measurements.Operation;
+
+/**
+ * Single-threaded cost of drawing one value from each generator in
+ * com.yahoo.ycsb.generator. The key space matches a typical load of
+ * ten million records so the zipfian constants are realistic.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+    private static final int ITEMS = 10000000;
+
+    private ConstantIntegerGenerator constant;
+    private CounterGenerator counter;
+    private DiscreteGenerator discrete;
+    private DiscreteEnumGenerator<Operation> discreteEnum;
+    private ExponentialGenerator exponential;
+    private FileGenerator file;
+    private File fileInput;
+    private HistogramGenerator histogram;
+    private HotspotIntegerGenerator hotspot;
+    private ScrambledZipfianGenerator scrambledZipfian;
+    private SkewedLatestGenerator skewedLatest;
+    private SlidingHotspotIntegerGenerator slidingHotspot;
+    private UniformGenerator uniform;
+    private UniformIntegerGenerator uniformInteger;
+    private ZipfianGenerator zipfian;
+    private long hashInput;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        constant = new ConstantIntegerGenerator(100);
+        counter = new CounterGenerator(0);
+
+        discrete = new DiscreteGenerator();
+        discrete.addValue(0.5, "READ");
+        discrete.addValue(0.45, "UPDATE");
+        discrete.addValue(0.05, "SCAN");
+
+        discreteEnum = new DiscreteEnumGenerator<Operation>();
+        discreteEnum.addValue(0.5, Operation.READ);
+        discreteEnum.addValue(0.45, Operation.UPDATE);
+        discreteEnum.addValue(0.05, Operation.SCAN);
+
+        exponential = new ExponentialGenerator(95, ITEMS * 0.1);
+
+        fileInput = File.createTempFile("ycsb-generator", ".txt");
+        fileInput.deleteOnExit();
+        FileWriter writer = new FileWriter(fileInput);
+        try {
+            for (int i = 0; i < 100000; i++) {
+                writer.write("user" + i + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+        file = new FileGenerator(fileInput.getPath());
+
+        long[] buckets = new long[64];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = buckets.length - i;
+        }
+        histogram = new HistogramGenerator(buckets, 1024);
+
+        hotspot = new HotspotIntegerGenerator(0, ITEMS - 1, 0.2, 0.8);
+        scrambledZipfian = new ScrambledZipfianGenerator(ITEMS);
+        CounterGenerator inserted = new CounterGenerator(ITEMS);
+        skewedLatest = new SkewedLatestGenerator(inserted);
+        slidingHotspot = new SlidingHotspotIntegerGenerator(0, ITEMS - 1, 0.2, 0.8, 1000);
+        slidingHotspot.startSliding();
+
+        Vector<String> values = new Vector<String>();
+        for (int i = 0; i < 10; i++) {
+            values.add("field" + i);
+        }
+        uniform = new UniformGenerator(values);
+        uniformInteger = new UniformIntegerGenerator(0, ITEMS - 1);
+        zipfian = new ZipfianGenerator(ITEMS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        slidingHotspot.stopSliding();
+        fileInput.delete();
+    }
+
+    @Benchmark
+    public int constantInteger() {
+        return constant.nextInt();
+    }
+
+    @Benchmark
+    public int counter() {
+        return counter.nextInt();
+    }
+
+    @Benchmark
+    public String discrete() {
+        return discrete.nextString();
+    }
+
+    @Benchmark
+    public Operation discreteEnum() {
+        return discreteEnum.nextValue();
+    }
+
+    @Benchmark
+    public long exponential() {
+        return exponential.nextLong();
+    }
+
+    @Benchmark
+    public String file() {
+        String line = file.nextString();
+        if (line == null) {
+            file.reloadFile();
+        }
+        return line;
+    }
+
+    @Benchmark
+    public int histogram() {
+        return histogram.nextInt();
+    }
+
+    @Benchmark
+    public int hotspot() {
+        return hotspot.nextInt();
+    }
+
+    @Benchmark
+    public long scrambledZipfian() {
+        return scrambledZipfian.nextLong();
+    }
+
+    @Benchmark
+    public int skewedLatest() {
+        return skewedLatest.nextInt();
+    }
+
+    @Benchmark
+    public int slidingHotspot() {
+        return slidingHotspot.nextInt();
+    }
+
+    @Benchmark
+    public String uniform() {
+        return uniform.nextString();
+    }
+
+    @Benchmark
+    public int uniformInteger() {
+        return uniformInteger.nextInt();
+    }
+
+    @Benchmark
+    public long zipfian() {
+        return zipfian.nextLong();
+    }
+
+    @Benchmark
+    public long fnvHash64() {
+        return Utils.FNVhash64(hashInput++);
+    }
+}
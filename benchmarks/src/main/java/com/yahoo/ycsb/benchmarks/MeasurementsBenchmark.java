@@ -0,0 +1,142 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.BasicDB;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.DBWrapper;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.Operation;
+
+/**
+ * Overhead the measurement path adds to every operation when many client
+ * threads share one Measurements instance. Run with -t to vary the thread
+ * count.
+ * <p>
+ * Measurements is a process-wide singleton that reads its properties once,
+ * so every parameter combination must run in its own fork; do not run this
+ * benchmark with -f 0.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class MeasurementsBenchmark {
+    @State(Scope.Benchmark)
+    public static class Config {
+        @Param({"histogram", "hdrhistogram", "timeseries"})
+        public String measurementType;
+
+        @Param({"false", "true"})
+        public boolean threadLocal;
+
+        Properties props;
+        Measurements measurements;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            props = new Properties();
+            props.setProperty("measurementtype", measurementType);
+            props.setProperty(Measurements.MEASUREMENT_THREADLOCAL, String.valueOf(threadLocal));
+            props.setProperty(BasicDB.VERBOSE, "false");
+            Measurements.setProperties(props);
+            measurements = Measurements.getMeasurements();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        DB db;
+        HashMap<String, ByteIterator> result;
+        int latency;
+
+        @Setup(Level.Trial)
+        public void setUp(Config config) throws DBException {
+            db = new DBWrapper(new BasicDB());
+            db.setProperties(config.props);
+            db.init();
+            result = new HashMap<String, ByteIterator>();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws DBException {
+            db.cleanup();
+        }
+    }
+
+    /**
+     * Records a synthetic latency, spread over the first few histogram buckets.
+     */
+    @Benchmark
+    public void measure(Config config, ClientState client) {
+        client.latency = (client.latency + 7) & 1023;
+        config.measurements.measure(Operation.READ, client.latency);
+    }
+
+    /**
+     * A read through DBWrapper: two clock reads, the latency and intended
+     * latency measurements and the return code count.
+     */
+    @Benchmark
+    public int wrappedRead(ClientState client) {
+        return client.db.read("usertable", "user1", null, client.result);
+    }
+
+    /**
+     * Reads as above while one thread of the group keeps taking the
+     * summaries the status thread prints.
+     */
+    @Benchmark
+    @Group("withStatus")
+    @GroupThreads(7)
+    public int readDuringSummary(ClientState client) {
+        return client.db.read("usertable", "user1", null, client.result);
+    }
+
+    @Benchmark
+    @Group("withStatus")
+    @GroupThreads(1)
+    public String summary(Config config) {
+        return config.measurements.getSummary();
+    }
+}
@@ -7,7 +7,7 @@ def parse(line):
   time,rest = line.split("sec:")
   time = int(time.strip())
   try:
-    avg_latency = rest.split("READ AverageLatency(us)=")[1].replace("]", "")
+    avg_latency = rest.split("[READ AverageLatency(us)=")[1].split("]")[0].split()[0]
   except IndexError: #no ops
     avg_latency = -1
   return (time, avg_latency)
@@ -17,7 +17,6 @@ def dummy_emitter(start, end):
     print "%s\t%s"%(i, -1)
 
 def main(file_name, delta_time):
-  delta_time = 10
   count = 0 - delta_time
   for line in open(file_name):
     count += delta_time
@@ -34,7 +33,7 @@ if __name__ == '__main__':
   parser = optparse.OptionParser()
   parser.add_option('-f', '--file', help='file name',
                     dest='f')
-  parser.add_option('-d', '--delta', help='time step',
+  parser.add_option('-d', '--delta', help='time step, the status.interval of the run',
                     dest='d', default=10)
   (opts, args) = parser.parse_args()
   main(opts.f, int(opts.d))
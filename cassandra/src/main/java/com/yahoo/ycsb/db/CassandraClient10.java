@@ -47,6 +47,7 @@ public class CassandraClient10 extends DB
   static Random random = new Random();
   public static final int Ok = 0;
   public static final int Error = -1;
+  public static final int NotFound = -2;
   public static final ByteBuffer emptyByteBuffer = ByteBuffer.wrap(new byte[0]);
 
   public int ConnectionRetries;
@@ -288,6 +289,108 @@ public class CassandraClient10 extends DB
 
   }
 
+  /**
+   * Read several records from the database with one multiget_slice call. Each
+   * field/value pair from the result will be stored in the HashMap at the
+   * record's position.
+   *
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to read.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param results
+   *          For each record, a HashMap of field/value pairs for the result
+   * @return Zero on success, a non-zero error code on error or NotFound if any
+   *         of the records was not found
+   */
+  public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String, ByteIterator>> results)
+  {
+    if (!_table.equals(table)) {
+      try
+      {
+        client.set_keyspace(table);
+        _table = table;
+      }
+      catch (Exception e)
+      {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+        return Error;
+      }
+    }
+
+    for (int i = 0; i < OperationRetries; i++)
+    {
+
+      try
+      {
+        SlicePredicate predicate;
+        if (fields == null)
+        {
+          predicate = new SlicePredicate().setSlice_range(new SliceRange(emptyByteBuffer, emptyByteBuffer, false, 1000000));
+
+        } else {
+          ArrayList<ByteBuffer> fieldlist = new ArrayList<ByteBuffer>(fields.size());
+          for (String s : fields)
+          {
+            fieldlist.add(ByteBuffer.wrap(s.getBytes("UTF-8")));
+          }
+
+          predicate = new SlicePredicate().setColumn_names(fieldlist);
+        }
+
+        List<ByteBuffer> keylist = new ArrayList<ByteBuffer>(keys.size());
+        for (String key : keys)
+        {
+          keylist.add(ByteBuffer.wrap(key.getBytes("UTF-8")));
+        }
+
+        Map<ByteBuffer, List<ColumnOrSuperColumn>> rows = client.multiget_slice(keylist, parent, predicate, readConsistencyLevel);
+
+        if (_debug)
+        {
+          System.out.println("Reading " + keys.size() + " keys, found " + rows.size());
+        }
+
+        int ret = Ok;
+        for (int k = 0; k < keylist.size(); k++)
+        {
+          List<ColumnOrSuperColumn> row = rows.get(keylist.get(k));
+          if (row == null || row.isEmpty())
+          {
+            ret = NotFound;
+            continue;
+          }
+          HashMap<String, ByteIterator> result = results.get(k);
+          for (ColumnOrSuperColumn oneresult : row)
+          {
+            Column column = oneresult.column;
+            String name = new String(column.name.array(), column.name.position()+column.name.arrayOffset(), column.name.remaining());
+            result.put(name, new ByteArrayByteIterator(column.value.array(), column.value.position()+column.value.arrayOffset(), column.value.remaining()));
+          }
+        }
+
+        return ret;
+      } catch (Exception e)
+      {
+        errorexception = e;
+      }
+
+      try
+      {
+        Thread.sleep(500);
+      } catch (InterruptedException e)
+      {
+      }
+    }
+    errorexception.printStackTrace();
+    errorexception.printStackTrace(System.out);
+    return Error;
+
+  }
+
   /**
    * Perform a range scan for a set of records in the database. Each field/value
    * pair from the result will be stored in a HashMap.
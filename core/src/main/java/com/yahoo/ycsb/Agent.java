@@ -0,0 +1,457 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.yahoo.ycsb.measurements.LatencyLogWriter;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+import com.yahoo.ycsb.workloads.TraceReplayWorkload;
+
+/**
+ * Runs the phases a Coordinator sends it, so that one coordinator can drive clients on many hosts.
+ *
+ * An agent listens on a port and serves one coordinator at a time. For each phase the coordinator sends the
+ * properties of this agent's part of the run; the agent starts a client for them in a new JVM, so every phase starts
+ * with fresh measurements, and forwards the client's output to the coordinator. The client loads the workload and
+ * then waits until the coordinator has heard from every agent and starts them all at once. When the client is done
+ * the agent sends its raw measurements back to be merged with those of the other agents.
+ *
+ * An agent runs whatever it is sent, so it listens on the loopback address unless "agent.address" says otherwise,
+ * and only accepts coordinators that know the secret it was given in "agent.secret": the agent greets each
+ * coordinator with a random challenge, which the coordinator answers with its HMAC under the secret, so the secret
+ * itself is never sent. The files the client reads and writes are confined to the agent's directory, "agent.dir":
+ * the agent keeps only the name of each file given in the properties of a phase.
+ *
+ * The protocol is line based, with the agent's messages in capitals:
+ * <pre>
+ * agent:       HELLO challenge
+ * coordinator: JOB load|run label response, the properties in the format of Properties.store, END
+ * agent:       LOG line, ..., READY
+ * coordinator: START
+ * agent:       LOG line, ..., EXPORT, the lines of the export, END, DONE
+ * </pre>
+ */
+public class Agent
+{
+	/**
+	 * Set by the agent for the client it starts: wait for the coordinator before running the workload.
+	 */
+	public static final String BARRIER_PROPERTY="agent.barrier";
+
+	/**
+	 * The address the agent listens on.
+	 */
+	public static final String ADDRESS_PROPERTY="agent.address";
+
+	/**
+	 * Default for the address: only accept coordinators on the same host.
+	 */
+	public static final String ADDRESS_PROPERTY_DEFAULT="127.0.0.1";
+
+	/**
+	 * The secret shared by the agents and the coordinator, which the coordinator must prove it knows before the agent
+	 * runs its phases. Required by the agent.
+	 */
+	public static final String SECRET_PROPERTY="agent.secret";
+
+	/**
+	 * The directory of the files the clients started by the agent read and write, by default the agent's working
+	 * directory.
+	 */
+	public static final String DIR_PROPERTY="agent.dir";
+
+	/**
+	 * The properties of a phase that name files, which are confined to the agent's directory.
+	 */
+	static final String[] FILE_PROPERTIES={
+		LatencyLogWriter.FILE,
+		OperationRecorder.FILE,
+		TargetProfile.TARGET_PROFILE_FILE_PROPERTY,
+		CoreWorkload.CLEANUP_INSERTED_KEYS_FILE_PROPERTY,
+		CoreWorkload.CORPUS_FILE_PROPERTY,
+		TraceReplayWorkload.TRACE_FILE_PROPERTY,
+	};
+
+	static final String HELLO="HELLO";
+	static final String JOB="JOB";
+	static final String START="START";
+	static final String READY="READY";
+	static final String LOG="LOG";
+	static final String EXPORT="EXPORT";
+	static final String END="END";
+	static final String DONE="DONE";
+
+	final Socket _socket;
+	final PrintWriter _out;
+	final String _secret;
+	final File _dir;
+	Process _client;
+
+	Agent(Socket socket, String secret, File dir) throws IOException
+	{
+		_socket=socket;
+		_out=new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),"UTF-8"));
+		_secret=secret;
+		_dir=dir;
+	}
+
+	/**
+	 * Serve coordinators on the given port until the JVM is killed, with the address, secret and directory given in
+	 * the properties.
+	 */
+	public static void serve(int port, Properties props) throws IOException
+	{
+		String secret=props.getProperty(SECRET_PROPERTY,"");
+		if (secret.length()==0)
+		{
+			throw new IOException("An agent needs a secret to share with its coordinators in the \""+SECRET_PROPERTY+"\" property");
+		}
+		File dir=new File(props.getProperty(DIR_PROPERTY,System.getProperty("user.dir"))).getAbsoluteFile();
+		if (!dir.isDirectory())
+		{
+			throw new IOException("The agent directory "+dir+" does not exist");
+		}
+		InetAddress address=InetAddress.getByName(props.getProperty(ADDRESS_PROPERTY,ADDRESS_PROPERTY_DEFAULT));
+		ServerSocket server=new ServerSocket(port,50,address);
+		System.err.println("Agent waiting for a coordinator on "+server.getLocalSocketAddress()+", in "+dir.getAbsolutePath());
+		while (true)
+		{
+			Socket socket=server.accept();
+			System.err.println("Coordinator "+socket.getRemoteSocketAddress()+" connected");
+			try
+			{
+				new Agent(socket,secret,dir).run();
+			}
+			catch (IOException e)
+			{
+				System.err.println("Lost the coordinator: "+e.getMessage());
+			}
+			finally
+			{
+				socket.close();
+			}
+		}
+	}
+
+	/**
+	 * Called by a client started by an agent once the workload is loaded: tell the agent and wait until the
+	 * coordinator starts the run.
+	 */
+	static void awaitStart()
+	{
+		System.out.println(READY);
+		System.out.flush();
+		String line=null;
+		try
+		{
+			line=new BufferedReader(new InputStreamReader(System.in)).readLine();
+		}
+		catch (IOException e)
+		{
+		}
+		if (!START.equals(line))
+		{
+			System.out.println("The coordinator did not start the run");
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * The answer to the challenge that proves the coordinator knows the secret: the hex HMAC-SHA256 of the challenge.
+	 */
+	static String respond(String secret, String challenge)
+	{
+		try
+		{
+			Mac mac=Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(secret.getBytes("UTF-8"),"HmacSHA256"));
+			return hex(mac.doFinal(challenge.getBytes("UTF-8")));
+		}
+		catch (GeneralSecurityException e)
+		{
+			throw new IllegalStateException("HmacSHA256 is not available",e);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String hex(byte[] bytes)
+	{
+		StringBuilder s=new StringBuilder();
+		for (byte b : bytes)
+		{
+			s.append(Character.forDigit((b>>4)&0xf,16)).append(Character.forDigit(b&0xf,16));
+		}
+		return s.toString();
+	}
+
+	/**
+	 * Keep only the name of every file given in the properties of a phase, in the agent's directory, so that a
+	 * coordinator cannot have the client read or overwrite other files on the agent's host.
+	 */
+	static void confineFiles(Properties props, File dir)
+	{
+		for (String name : FILE_PROPERTIES)
+		{
+			String file=props.getProperty(name);
+			if (file!=null)
+			{
+				props.setProperty(name,new File(dir,new File(file).getName()).getPath());
+			}
+		}
+	}
+
+	synchronized void send(String message)
+	{
+		_out.println(message);
+		_out.flush();
+	}
+
+	/**
+	 * Run the phases sent by the coordinator until it disconnects, which also stops the client of the current phase.
+	 * Disconnects a coordinator that does not answer the challenge with the secret.
+	 */
+	void run() throws IOException
+	{
+		BufferedReader in=new BufferedReader(new InputStreamReader(_socket.getInputStream(),"UTF-8"));
+		byte[] nonce=new byte[16];
+		new SecureRandom().nextBytes(nonce);
+		String challenge=hex(nonce);
+		byte[] expected=respond(_secret,challenge).getBytes("UTF-8");
+		send(HELLO+" "+challenge);
+		try
+		{
+			String line;
+			while ((line=in.readLine())!=null)
+			{
+				if (line.startsWith(JOB+" "))
+				{
+					String[] fields=line.split(" ");
+					if ( (fields.length<4) || (!MessageDigest.isEqual(expected,fields[3].getBytes("UTF-8"))) )
+					{
+						send(LOG+" The agent's secret is not the coordinator's");
+						System.err.println("Coordinator "+_socket.getRemoteSocketAddress()+" does not have the secret");
+						return;
+					}
+					StringBuilder props=new StringBuilder();
+					String prop;
+					while ( ((prop=in.readLine())!=null) && (!prop.equals(END)) )
+					{
+						props.append(prop).append('\n');
+					}
+					Properties jobprops=new Properties();
+					jobprops.load(new StringReader(props.toString()));
+					startClient(fields[1].equals("load"),fields[2],jobprops);
+				}
+				else if ( (line.equals(START)) && (_client!=null) )
+				{
+					PrintWriter clientin=new PrintWriter(_client.getOutputStream());
+					clientin.println(START);
+					clientin.flush();
+				}
+			}
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				if (_client!=null)
+				{
+					_client.destroy();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Start a client in a new JVM with the same class path and JVM options as this agent, and a thread that sends
+	 * the results of the client when it is done. Stops the client of the previous phase if it is still running.
+	 */
+	synchronized void startClient(boolean load, String label, Properties props) throws IOException
+	{
+		if (_client!=null)
+		{
+			_client.destroy();
+			try
+			{
+				_client.waitFor();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while stopping the previous client");
+			}
+		}
+
+		confineFiles(props,_dir);
+		final File propfile=File.createTempFile("ycsb-agent",".properties");
+		final File exportfile=File.createTempFile("ycsb-agent",".export");
+		props.setProperty("exportfile",exportfile.getPath());
+		props.setProperty("exporter","com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+		props.setProperty(BARRIER_PROPERTY,"true");
+		FileOutputStream out=new FileOutputStream(propfile);
+		try
+		{
+			props.store(out,"sent by the coordinator");
+		}
+		finally
+		{
+			out.close();
+		}
+
+		List<String> command=new ArrayList<String>();
+		command.add(System.getProperty("java.home")+File.separator+"bin"+File.separator+"java");
+		for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+		{
+			if ( (!arg.startsWith("-agentlib:jdwp")) && (!arg.startsWith("-Xrunjdwp")) )
+			{
+				command.add(arg);
+			}
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Client.class.getName());
+		command.add("-P");
+		command.add(propfile.getPath());
+		command.add(load ? "-load" : "-t");
+		command.add("-s");
+		command.add("-l");
+		command.add(label);
+
+		final Process client=new ProcessBuilder(command).start();
+		_client=client;
+		final Thread stdout=forward(client.getInputStream(),true);
+		final Thread stderr=forward(client.getErrorStream(),false);
+
+		Thread waiter=new Thread("agent-client")
+		{
+			public void run()
+			{
+				try
+				{
+					client.waitFor();
+					stdout.join();
+					stderr.join();
+					sendExport(exportfile);
+				}
+				catch (InterruptedException e)
+				{
+				}
+				catch (IOException e)
+				{
+					send(LOG+" Could not read the export: "+e.getMessage());
+				}
+				finally
+				{
+					propfile.delete();
+					exportfile.delete();
+					send(DONE);
+				}
+			}
+		};
+		waiter.setDaemon(true);
+		waiter.start();
+	}
+
+	/**
+	 * Forward the output of the client to the coordinator, recognizing the line it prints when it is ready to start.
+	 */
+	Thread forward(final InputStream stream, final boolean stdout)
+	{
+		Thread t=new Thread("agent-output")
+		{
+			public void run()
+			{
+				try
+				{
+					BufferedReader reader=new BufferedReader(new InputStreamReader(stream));
+					String line;
+					while ((line=reader.readLine())!=null)
+					{
+						if ( (stdout) && (line.equals(READY)) )
+						{
+							send(READY);
+						}
+						else
+						{
+							send(LOG+" "+line);
+						}
+					}
+				}
+				catch (IOException e)
+				{
+				}
+			}
+		};
+		t.setDaemon(true);
+		t.start();
+		return t;
+	}
+
+	void sendExport(File exportfile) throws IOException
+	{
+		if (exportfile.length()==0)
+		{
+			return;
+		}
+		synchronized (this)
+		{
+			_out.println(EXPORT);
+			BufferedReader reader=new BufferedReader(new FileReader(exportfile));
+			try
+			{
+				String line;
+				while ((line=reader.readLine())!=null)
+				{
+					_out.println(line);
+				}
+			}
+			finally
+			{
+				reader.close();
+			}
+			_out.println(END);
+			_out.flush();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues operations at a fixed or Poisson arrival rate, independently of how fast the database answers them.
+ *
+ * In the default, closed-loop mode every client thread waits for its previous operation to complete before issuing
+ * the next one, so the offered load drops as soon as the database slows down. In open-loop mode this thread decides
+ * when each operation arrives and hands it to a pool of client threads through a bounded queue. Time spent in the
+ * queue is recorded separately as QUEUE-DELAY, and since every arrival carries its intended start time, the
+ * INTENDED-&lt;operation&gt; latencies include it. Arrivals that find the queue full are dropped and counted, so
+ * running past the saturation point of the database shows up as growing queueing delay and dropped arrivals
+ * rather than as a silently lower throughput.
+ */
+public class ArrivalScheduler extends Thread
+{
+	/**
+	 * Whether to run in open-loop mode. Requires a target throughput or target profile; threadcount sets the size of
+	 * the worker pool.
+	 */
+	public static final String OPEN_LOOP_PROPERTY="openloop";
+
+	public static final String OPEN_LOOP_PROPERTY_DEFAULT="false";
+
+	/**
+	 * The distribution of the time between arrivals: "poisson" (exponential inter-arrival times) or "fixed".
+	 */
+	public static final String ARRIVAL_DISTRIBUTION_PROPERTY="arrivaldistribution";
+
+	public static final String ARRIVAL_DISTRIBUTION_PROPERTY_DEFAULT="poisson";
+
+	/**
+	 * The maximum number of arrivals waiting for a free worker.
+	 */
+	public static final String QUEUE_SIZE_PROPERTY="openloop.queuesize";
+
+	public static final String QUEUE_SIZE_PROPERTY_DEFAULT="100000";
+
+	/**
+	 * How long a worker waits for an arrival before checking again whether the run is over, in milliseconds.
+	 */
+	static final long POLL_INTERVAL_MS=100;
+
+	final BlockingQueue<Long> _queue;
+	final TargetProfile _profile;
+	final boolean _poisson;
+	final long _opcount;
+	final Workload _workload;
+
+	final AtomicLong _dropped=new AtomicLong();
+	volatile boolean _done=false;
+
+	/**
+	 * @param props the properties defining the experiment
+	 * @param profile the target number of operations per second over time
+	 * @param opcount the total number of operations to issue, or 0 for no limit
+	 * @param workload the workload, which is checked for stop requests
+	 */
+	public ArrivalScheduler(Properties props, TargetProfile profile, long opcount, Workload workload) throws WorkloadException
+	{
+		super("ArrivalScheduler");
+		setDaemon(true);
+		String distribution=props.getProperty(ARRIVAL_DISTRIBUTION_PROPERTY,ARRIVAL_DISTRIBUTION_PROPERTY_DEFAULT);
+		if (distribution.compareTo("poisson")==0)
+		{
+			_poisson=true;
+		}
+		else if (distribution.compareTo("fixed")==0)
+		{
+			_poisson=false;
+		}
+		else
+		{
+			throw new WorkloadException("Unknown arrival distribution "+distribution);
+		}
+		_queue=new ArrayBlockingQueue<Long>(Integer.parseInt(props.getProperty(QUEUE_SIZE_PROPERTY,QUEUE_SIZE_PROPERTY_DEFAULT)));
+		_profile=profile;
+		_opcount=opcount;
+		_workload=workload;
+	}
+
+	/**
+	 * Generate the arrivals until the operation count is reached or the workload is asked to stop.
+	 */
+	public void run()
+	{
+		long start=System.nanoTime();
+		double operations=0;
+		try
+		{
+			for (long issued=0; ((_opcount==0) || (issued<_opcount)) && !_workload.isStopRequested(); issued++)
+			{
+				//the arrivals are spaced in terms of the operations targeted by the profile and then mapped to time,
+				//which gives the same distribution at a varying rate as at a constant one
+				operations+=_poisson ? -Math.log(1.0-Utils.random().nextDouble()) : 1;
+				double due=_profile.getTime(operations);
+				if (Double.isInfinite(due))
+				{
+					break;
+				}
+				long next=start+(long)(due*1000000000);
+
+				if (!Pacer.waitUntil(next,0,_workload))
+				{
+					break;
+				}
+
+				if (!_queue.offer(next))
+				{
+					_dropped.incrementAndGet();
+				}
+			}
+		}
+		finally
+		{
+			_done=true;
+		}
+	}
+
+	/**
+	 * Wait for the next arrival.
+	 *
+	 * @return the time the operation arrived, as returned by System.nanoTime(), or -1 if there are no more operations
+	 */
+	public long nextArrival() throws InterruptedException
+	{
+		while (true)
+		{
+			Long arrival=_queue.poll(POLL_INTERVAL_MS,TimeUnit.MILLISECONDS);
+			if (arrival!=null)
+			{
+				return arrival;
+			}
+			if ( (_done && _queue.isEmpty()) || _workload.isStopRequested() )
+			{
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * The number of arrivals currently waiting for a worker.
+	 */
+	public int getQueueLength()
+	{
+		return _queue.size();
+	}
+
+	/**
+	 * The number of arrivals dropped because the queue was full.
+	 */
+	public long getDroppedArrivals()
+	{
+		return _dropped.get();
+	}
+}
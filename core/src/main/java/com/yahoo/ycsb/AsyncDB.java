@@ -0,0 +1,306 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A DB whose operations can be issued without waiting for them to complete. Bindings for databases with an
+ * asynchronous client should extend this class instead of DB, so that a client thread can keep several operations
+ * in flight (see the "inflightoperations" property of CoreWorkload).
+ *
+ * Each operation returns a Future for its return code. The blocking operations of DB are implemented by waiting for
+ * the corresponding asynchronous operation. As with DB, there is one instance per client thread, and the futures
+ * are only waited on by that thread.
+ *
+ * A client thread only looks at its futures now and then, so to have its operations measured up to the time they
+ * completed rather than the time that is first noticed, a binding should return futures that implement
+ * TimedCompletion, e.g. a Completion it completes from the callback of its database client.
+ */
+public abstract class AsyncDB extends DB
+{
+	/**
+	 * The return code of a blocking operation whose asynchronous operation failed with an exception.
+	 */
+	public static final int ERROR=-1;
+
+	/**
+	 * A future that knows when its operation completed.
+	 */
+	public interface TimedCompletion
+	{
+		/**
+		 * The time the operation completed, as returned by System.nanoTime(), or 0 if it has not completed yet.
+		 */
+		long getCompletedNs();
+	}
+
+	/**
+	 * A future return code that the binding completes, typically from a callback of its database client, and that
+	 * records when it did.
+	 */
+	public static class Completion implements Future<Integer>, TimedCompletion
+	{
+		final CountDownLatch _done=new CountDownLatch(1);
+		volatile long _completedns=0;
+		volatile int _result;
+
+		/**
+		 * Complete the operation with the given return code. Only the first call has any effect.
+		 */
+		public void complete(int result)
+		{
+			synchronized (_done)
+			{
+				if (_done.getCount()==0)
+				{
+					return;
+				}
+				_result=result;
+				long now=System.nanoTime();
+				//0 means not completed
+				_completedns=now==0 ? 1 : now;
+				_done.countDown();
+			}
+		}
+
+		public long getCompletedNs()
+		{
+			return _completedns;
+		}
+
+		public Integer get() throws InterruptedException
+		{
+			_done.await();
+			return _result;
+		}
+
+		public Integer get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException
+		{
+			if (!_done.await(timeout,unit))
+			{
+				throw new TimeoutException();
+			}
+			return _result;
+		}
+
+		public boolean isDone()
+		{
+			return _done.getCount()==0;
+		}
+
+		/**
+		 * The operation has been issued to the database, so it cannot be cancelled.
+		 */
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			return false;
+		}
+
+		public boolean isCancelled()
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Issue a read of a record. Each field/value pair from the result will be stored in the HashMap before the
+	 * future completes.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A HashMap of field/value pairs for the result
+	 * @return The future return code: zero on success, a non-zero error code on error or "not found".
+	 */
+	public abstract Future<Integer> readAsync(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result);
+
+	/**
+	 * Issue a range scan for a set of records. Each field/value pair from the result will be stored in a HashMap
+	 * before the future completes.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+	 * @return The future return code: zero on success, a non-zero error code on error.
+	 */
+	public abstract Future<Integer> scanAsync(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result);
+
+	/**
+	 * Issue an update of a record. The values must not be modified until the future completes.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @return The future return code: zero on success, a non-zero error code on error.
+	 */
+	public abstract Future<Integer> updateAsync(String table, String key, HashMap<String,ByteIterator> values);
+
+	/**
+	 * Issue an insert of a record. The values must not be modified until the future completes.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @return The future return code: zero on success, a non-zero error code on error.
+	 */
+	public abstract Future<Integer> insertAsync(String table, String key, HashMap<String,ByteIterator> values);
+
+	/**
+	 * Issue a delete of a record.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to delete.
+	 * @return The future return code: zero on success, a non-zero error code on error.
+	 */
+	public abstract Future<Integer> deleteAsync(String table, String key);
+
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		return await(readAsync(table,key,fields,result));
+	}
+
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		return await(scanAsync(table,startkey,recordcount,fields,result));
+	}
+
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return await(updateAsync(table,key,values));
+	}
+
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return await(insertAsync(table,key,values));
+	}
+
+	public int delete(String table, String key)
+	{
+		return await(deleteAsync(table,key));
+	}
+
+	/**
+	 * Read several records by issuing all of the reads before waiting for any of them.
+	 */
+	public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		List<Future<Integer>> futures=new ArrayList<Future<Integer>>(keys.size());
+		for (int i=0; i<keys.size(); i++)
+		{
+			futures.add(readAsync(table,keys.get(i),fields,results.get(i)));
+		}
+		return awaitAll(futures);
+	}
+
+	/**
+	 * Update several records by issuing all of the updates before waiting for any of them.
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		List<Future<Integer>> futures=new ArrayList<Future<Integer>>(keys.size());
+		for (int i=0; i<keys.size(); i++)
+		{
+			futures.add(updateAsync(table,keys.get(i),values.get(i)));
+		}
+		return awaitAll(futures);
+	}
+
+	/**
+	 * Insert several records by issuing all of the inserts before waiting for any of them.
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		List<Future<Integer>> futures=new ArrayList<Future<Integer>>(keys.size());
+		for (int i=0; i<keys.size(); i++)
+		{
+			futures.add(insertAsync(table,keys.get(i),values.get(i)));
+		}
+		return awaitAll(futures);
+	}
+
+	/**
+	 * Delete several records by issuing all of the deletes before waiting for any of them.
+	 */
+	public int batchDelete(String table, List<String> keys)
+	{
+		List<Future<Integer>> futures=new ArrayList<Future<Integer>>(keys.size());
+		for (int i=0; i<keys.size(); i++)
+		{
+			futures.add(deleteAsync(table,keys.get(i)));
+		}
+		return awaitAll(futures);
+	}
+
+	/**
+	 * Wait for several operations to complete.
+	 *
+	 * @return zero if all of them succeeded, otherwise the return code of the first that did not
+	 */
+	static int awaitAll(List<Future<Integer>> futures)
+	{
+		int ret=0;
+		for (Future<Integer> future : futures)
+		{
+			int res=await(future);
+			if (ret==0)
+			{
+				ret=res;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Wait for an operation to complete.
+	 *
+	 * @return its return code, or ERROR if it failed with an exception, was cancelled or the wait was interrupted
+	 */
+	public static int await(Future<Integer> future)
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return ERROR;
+		}
+		catch (ExecutionException e)
+		{
+			return ERROR;
+		}
+		catch (CancellationException e)
+		{
+			return ERROR;
+		}
+	}
+}
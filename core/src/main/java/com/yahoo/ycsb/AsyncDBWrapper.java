@@ -0,0 +1,292 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.Operation;
+
+/**
+ * Wrapper around a "real" AsyncDB that measures latencies and counts return codes, like DBWrapper does for a DB.
+ *
+ * The latency of an operation runs from when it is issued until it completed, if its future is a TimedCompletion,
+ * and otherwise until its completion is first seen, by waiting for its future or finding that it is done.
+ * Operations still in flight when the DB is cleaned up are waited for first, so that they are all measured.
+ */
+public class AsyncDBWrapper extends AsyncDB
+{
+	AsyncDB _db;
+	Measurements _measurements;
+
+	/**
+	 * The operations that may not have completed yet, oldest first.
+	 */
+	ArrayDeque<TimedFuture> _outstanding=new ArrayDeque<TimedFuture>();
+
+	public AsyncDBWrapper(AsyncDB db)
+	{
+		_db=db;
+		_measurements=Measurements.getMeasurements();
+	}
+
+	/**
+	 * Set the properties for this DB.
+	 */
+	public void setProperties(Properties p)
+	{
+		_db.setProperties(p);
+	}
+
+	/**
+	 * Get the set of properties for this DB.
+	 */
+	public Properties getProperties()
+	{
+		return _db.getProperties();
+	}
+
+	/**
+	 * Initialize any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void init() throws DBException
+	{
+		_db.init();
+	}
+
+	/**
+	 * Wait for the operations in flight, then cleanup any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void cleanup() throws DBException
+	{
+		TimedFuture f;
+		while ((f=_outstanding.poll())!=null)
+		{
+			await(f);
+		}
+
+		long st=System.nanoTime();
+		_db.cleanup();
+		long en=System.nanoTime();
+		_measurements.measure(Operation.CLEANUP,(int)((en-st)/1000));
+	}
+
+	public Future<Integer> readAsync(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		long st=System.nanoTime();
+		return track(Operation.READ,st,_db.readAsync(table,key,fields,result));
+	}
+
+	public Future<Integer> scanAsync(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		long st=System.nanoTime();
+		return track(Operation.SCAN,st,_db.scanAsync(table,startkey,recordcount,fields,result));
+	}
+
+	public Future<Integer> updateAsync(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		long st=System.nanoTime();
+		return track(Operation.UPDATE,st,_db.updateAsync(table,key,values));
+	}
+
+	public Future<Integer> insertAsync(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		long st=System.nanoTime();
+		return track(Operation.INSERT,st,_db.insertAsync(table,key,values));
+	}
+
+	public Future<Integer> deleteAsync(String table, String key)
+	{
+		long st=System.nanoTime();
+		return track(Operation.DELETE,st,_db.deleteAsync(table,key));
+	}
+
+	/**
+	 * Read several records, measured as one BATCH-READ.
+	 */
+	public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		long st=System.nanoTime();
+		int res=_db.batchRead(table,keys,fields,results);
+		long en=System.nanoTime();
+		_measurements.measure(Operation.BATCH_READ,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.BATCH_READ,st,en);
+		_measurements.reportReturnCode(Operation.BATCH_READ,res);
+		return res;
+	}
+
+	/**
+	 * Update several records, measured as one BATCH-UPDATE.
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long st=System.nanoTime();
+		int res=_db.batchUpdate(table,keys,values);
+		long en=System.nanoTime();
+		_measurements.measure(Operation.BATCH_UPDATE,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.BATCH_UPDATE,st,en);
+		_measurements.reportReturnCode(Operation.BATCH_UPDATE,res);
+		return res;
+	}
+
+	/**
+	 * Insert several records, measured as one BATCH-INSERT.
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long st=System.nanoTime();
+		int res=_db.batchInsert(table,keys,values);
+		long en=System.nanoTime();
+		_measurements.measure(Operation.BATCH_INSERT,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.BATCH_INSERT,st,en);
+		_measurements.reportReturnCode(Operation.BATCH_INSERT,res);
+		return res;
+	}
+
+	/**
+	 * Delete several records, measured as one BATCH-DELETE.
+	 */
+	public int batchDelete(String table, List<String> keys)
+	{
+		long st=System.nanoTime();
+		int res=_db.batchDelete(table,keys);
+		long en=System.nanoTime();
+		_measurements.measure(Operation.BATCH_DELETE,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.BATCH_DELETE,st,en);
+		_measurements.reportReturnCode(Operation.BATCH_DELETE,res);
+		return res;
+	}
+
+	TimedFuture track(Operation operation, long st, Future<Integer> future)
+	{
+		//forget the operations that are known to be done, so the queue only grows with the number in flight
+		while ( (!_outstanding.isEmpty()) && _outstanding.peek().isDone() )
+		{
+			_outstanding.poll();
+		}
+		TimedFuture f=new TimedFuture(operation,st,_measurements.getIntendedStartTimeNs(),future);
+		_outstanding.add(f);
+		return f;
+	}
+
+	/**
+	 * The future of an operation, which records its latency and return code when its completion is first seen.
+	 */
+	class TimedFuture implements Future<Integer>
+	{
+		final Operation _operation;
+		final long _st;
+		final long _intendedst;
+		final Future<Integer> _future;
+		boolean _measured=false;
+
+		TimedFuture(Operation operation, long st, long intendedst, Future<Integer> future)
+		{
+			_operation=operation;
+			_st=st;
+			_intendedst=intendedst;
+			_future=future;
+		}
+
+		void measure(int res)
+		{
+			if (_measured)
+			{
+				return;
+			}
+			_measured=true;
+			long en=0;
+			if (_future instanceof TimedCompletion)
+			{
+				en=((TimedCompletion)_future).getCompletedNs();
+			}
+			if (en==0)
+			{
+				en=System.nanoTime();
+			}
+			_measurements.measure(_operation,(int)((en-_st)/1000));
+			_measurements.measureIntended(_operation,_intendedst,_st,en);
+			_measurements.reportReturnCode(_operation,res);
+		}
+
+		public boolean isDone()
+		{
+			if (!_future.isDone())
+			{
+				return false;
+			}
+			if (!_measured)
+			{
+				//the operation is done, so this does not block
+				measure(await(_future));
+			}
+			return true;
+		}
+
+		public Integer get() throws InterruptedException, ExecutionException
+		{
+			try
+			{
+				Integer res=_future.get();
+				measure(res);
+				return res;
+			}
+			catch (ExecutionException e)
+			{
+				measure(ERROR);
+				throw e;
+			}
+		}
+
+		public Integer get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+		{
+			try
+			{
+				Integer res=_future.get(timeout,unit);
+				measure(res);
+				return res;
+			}
+			catch (ExecutionException e)
+			{
+				measure(ERROR);
+				throw e;
+			}
+		}
+
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			return _future.cancel(mayInterruptIfRunning);
+		}
+
+		public boolean isCancelled()
+		{
+			return _future.isCancelled();
+		}
+	}
+}
@@ -22,7 +22,10 @@ import java.io.*;
 import java.text.DecimalFormat;
 import java.util.*;
 
+import com.yahoo.ycsb.measurements.LatencyLogWriter;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.MetricsServer;
+import com.yahoo.ycsb.measurements.Operation;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
 
@@ -37,21 +40,88 @@ import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
 class StatusThread extends Thread
 {
 	Vector<Thread> _threads;
+	Vector<ClientThread> _clients;
 	String _label;
 	boolean _standardstatus;
+	ArrivalScheduler _scheduler;
+	TargetProfile _profile;
+	long _expectedops;
 	
 	/**
-	 * The interval for reporting status.
+	 * The default interval for reporting status.
 	 */
 	public static final long sleeptime=10000;
 
-	public StatusThread(Vector<Thread> threads, String label, boolean standardstatus)
+	long _intervalms=sleeptime;
+
+	/**
+	 * @param threads the threads running the clients
+	 * @param clients the clients, in the same order as their threads
+	 */
+	public StatusThread(Vector<Thread> threads, Vector<ClientThread> clients, String label, boolean standardstatus)
 	{
 		_threads=threads;
+		_clients=clients;
 		_label=label;
 		_standardstatus=standardstatus;
 	}
 
+	/**
+	 * Report status every intervalms milliseconds instead of every 10 seconds.
+	 */
+	public void setInterval(long intervalms)
+	{
+		_intervalms=intervalms;
+	}
+
+	/**
+	 * Also report the arrival queue of an open-loop run.
+	 */
+	public void setArrivalScheduler(ArrivalScheduler scheduler)
+	{
+		_scheduler=scheduler;
+	}
+
+	/**
+	 * Also report the target throughput of each interval, averaged over the interval.
+	 */
+	public void setTargetProfile(TargetProfile profile)
+	{
+		_profile=profile;
+	}
+
+	/**
+	 * Also report when the run is expected to complete, from the average throughput so far.
+	 *
+	 * @param expectedops the number of operations of the whole run
+	 */
+	public void setExpectedOperations(long expectedops)
+	{
+		_expectedops=expectedops;
+	}
+
+	/**
+	 * Format a duration as its two largest units, e.g. "2 hours 5 minutes".
+	 */
+	static String formatDuration(long seconds)
+	{
+		long[] units={86400,3600,60,1};
+		String[] names={"day","hour","minute","second"};
+		int i=0;
+		while ( (i<units.length-1) && (seconds<units[i]) )
+		{
+			i++;
+		}
+		long n=seconds/units[i];
+		String s=n+" "+names[i]+(n==1 ? "" : "s");
+		if (i<units.length-1)
+		{
+			long m=seconds%units[i]/units[i+1];
+			s+=" "+m+" "+names[i+1]+(m==1 ? "" : "s");
+		}
+		return s;
+	}
+
 	/**
 	 * Run and periodically report status.
 	 */
@@ -71,14 +141,14 @@ class StatusThread extends Thread
 			int totalops=0;
 
 			//terminate this thread when all the worker threads are done
-			for (Thread t : _threads)
+			for (int i=0; i<_threads.size(); i++)
 			{
-				if (t.getState()!=Thread.State.TERMINATED)
+				if (_threads.get(i).getState()!=Thread.State.TERMINATED)
 				{
 					alldone=false;
 				}
 
-				ClientThread ct=(ClientThread)t;
+				ClientThread ct=_clients.get(i);
 				totalops+=ct.getOpsDone();
 			}
 
@@ -89,35 +159,52 @@ class StatusThread extends Thread
 
 			double curthroughput=1000.0*(((double)(totalops-lasttotalops))/((double)(en-lasten)));
 			
-			lasttotalops=totalops;
-			lasten=en;
-			
 			DecimalFormat d = new DecimalFormat("#.##");
-			
-			if (totalops==0)
+
+			String curtarget="";
+			if ( (_profile!=null) && (en>lasten) )
 			{
-				System.err.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+Measurements.getMeasurements().getSummary());
+				double targetops=_profile.getOperations((en-st)/1000.0)-_profile.getOperations((lasten-st)/1000.0);
+				curtarget=d.format(1000.0*targetops/(en-lasten))+" target ops/sec; ";
 			}
-			else
+
+			String eta="";
+			if ( (_expectedops>0) && (totalops>0) && (totalops<_expectedops) && (interval>0) )
 			{
-				System.err.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+Measurements.getMeasurements().getSummary());
+				long remaining=(long)((_expectedops-totalops)*((double)interval/totalops)/1000);
+				eta="est completion in "+formatDuration(remaining)+"; ";
 			}
 
-			if (_standardstatus)
+			lasttotalops=totalops;
+			lasten=en;
+
+			if (_scheduler!=null)
 			{
+				System.err.println(_label+" "+(interval/1000)+" sec: "+_scheduler.getQueueLength()+" queued arrivals; "+_scheduler.getDroppedArrivals()+" dropped");
+			}
+			
+			String summary=Measurements.getMeasurements().getIntervalSummary();
+			String status;
 			if (totalops==0)
 			{
-				System.out.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+Measurements.getMeasurements().getSummary());
+				status=_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+summary;
 			}
 			else
 			{
-				System.out.println(_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+Measurements.getMeasurements().getSummary());
+				status=_label+" "+(interval/1000)+" sec: "+totalops+" operations; "+d.format(curthroughput)+" current ops/sec; "+curtarget+eta+summary;
 			}
+
+			System.err.println(status);
+			if (_standardstatus)
+			{
+				System.out.println(status);
 			}
 
 			try
 			{
-				sleep(sleeptime);
+				//report on a fixed schedule, however long this report took
+				long next=st+((System.currentTimeMillis()-st)/_intervalms+1)*_intervalms;
+				sleep(Math.max(1,next-System.currentTimeMillis()));
 			}
 			catch (InterruptedException e)
 			{
@@ -130,24 +217,30 @@ class StatusThread extends Thread
 }
 
 /**
- * A thread for executing transactions or data inserts to the database.
+ * A client executing transactions or data inserts to the database. Each client runs on its own thread, which is
+ * either a platform thread or, with threadmode=virtual, a virtual thread.
  * 
  * @author cooperb
  *
  */
-class ClientThread extends Thread
+class ClientThread implements Runnable
 {
 	DB _db;
 	boolean _dotransactions;
 	Workload _workload;
 	int _opcount;
-	double _target;
+	TargetProfile _profile;
 
 	int _opsdone;
 	int _threadid;
 	int _threadcount;
 	Object _workloadstate;
 	Properties _props;
+	ArrivalScheduler _scheduler;
+	Pacer _pacer;
+	long _insertfirst;
+	int _batchsize;
+	Measurements _measurements;
 
 
 	/**
@@ -160,9 +253,9 @@ class ClientThread extends Thread
 	 * @param threadcount the total number of threads 
 	 * @param props the properties defining the experiment
 	 * @param opcount the number of operations (transactions or inserts) to do
-	 * @param targetperthreadperms target number of operations per thread per ms
+	 * @param profile the target number of operations per second of this thread over time, or null for no target
 	 */
-	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, int opcount, double targetperthreadperms)
+	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, int opcount, TargetProfile profile)
 	{
 		//TODO: consider removing threadcount and threadid
 		_db=db;
@@ -170,10 +263,11 @@ class ClientThread extends Thread
 		_workload=workload;
 		_opcount=opcount;
 		_opsdone=0;
-		_target=targetperthreadperms;
+		_profile=profile;
 		_threadid=threadid;
 		_threadcount=threadcount;
 		_props=props;
+		_measurements=Measurements.getMeasurements();
 		//System.out.println("Interval = "+interval);
 	}
 
@@ -182,8 +276,90 @@ class ClientThread extends Thread
 		return _opsdone;
 	}
 
+	/**
+	 * Load the records numbered from first, as many as the operation count, in batches of up to batchsize records,
+	 * instead of letting the workload choose the keys.
+	 */
+	public void setInsertRange(long first, int batchsize)
+	{
+		_insertfirst=first;
+		_batchsize=batchsize;
+	}
+
+	/**
+	 * Run in open-loop mode, taking each operation from the given scheduler instead of issuing them back to back.
+	 */
+	public void setArrivalScheduler(ArrivalScheduler scheduler)
+	{
+		_scheduler=scheduler;
+	}
+
+	/**
+	 * Wait until the next operation should be issued. In open-loop mode this takes the next arrival from the
+	 * scheduler and records how long it was queued; when running against a target throughput it waits for the
+	 * pacer; otherwise the operation is issued right away.
+	 *
+	 * Either way the measurements are told when the operation should have started, so that its latency is also
+	 * recorded from that time. Otherwise a stall in the database would be counted once, as one slow operation,
+	 * instead of delaying every operation queued behind it.
+	 *
+	 * @return false if there are no more operations to do
+	 */
+	boolean awaitNextOperation() throws InterruptedException
+	{
+		if (_scheduler==null)
+		{
+			if (_pacer!=null)
+			{
+				long due=_pacer.acquire();
+				if (due<0)
+				{
+					return false;
+				}
+				_measurements.setIntendedStartTimeNs(due);
+			}
+			return true;
+		}
+
+		long arrival=_scheduler.nextArrival();
+		if (arrival<0)
+		{
+			return false;
+		}
+		_measurements.measure(Operation.QUEUE_DELAY,(int)((System.nanoTime()-arrival)/1000));
+		_measurements.setIntendedStartTimeNs(arrival);
+		return true;
+	}
+
+	/**
+	 * Wait until a batch of the given number of operations should be issued, which is when the pacer allows the
+	 * last of them. The batch is measured from then.
+	 *
+	 * @return false if there are no more operations to do
+	 */
+	boolean awaitNextOperations(int count)
+	{
+		if (_pacer==null)
+		{
+			return true;
+		}
+		long due=0;
+		for (int i=0; i<count; i++)
+		{
+			due=_pacer.acquire();
+			if (due<0)
+			{
+				return false;
+			}
+		}
+		_measurements.setIntendedStartTimeNs(due);
+		return true;
+	}
+
 	public void run()
 	{
+		Utils.seedThread(_threadid);
+
 		try
 		{
 			_db.init();
@@ -206,29 +382,31 @@ class ClientThread extends Thread
 			return;
 		}
 
-		//spread the thread operations out so they don't all hit the DB at the same time
-		try
-		{
-		   //GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
-		   //and the sleep() doesn't make sense for granularities < 1 ms anyway
-		   if ( (_target>0) && (_target<=1.0) ) 
-		   {
-		      sleep(Utils.random().nextInt((int)(1.0/_target)));
-		   }
-		}
-		catch (InterruptedException e)
+		//the pacer spreads the thread operations out so they don't all hit the DB at the same time
+		if ((_profile!=null) && (_scheduler==null))
 		{
-		  // do nothing.
+			try
+			{
+				_pacer=Pacer.newPacer(_props,_profile,_workload);
+			}
+			catch (WorkloadException e)
+			{
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+				return;
+			}
 		}
-		
+
 		try
 		{
 			if (_dotransactions)
 			{
-				long st=System.currentTimeMillis();
-
 				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
 				{
+					if (!awaitNextOperation())
+					{
+						break;
+					}
 
 					if (!_workload.doTransaction(_db,_workloadstate))
 					{
@@ -236,35 +414,34 @@ class ClientThread extends Thread
 					}
 
 					_opsdone++;
+				}
+			}
+			else if (_batchsize>0)
+			{
+				while ((_opsdone < _opcount) && !_workload.isStopRequested())
+				{
+					int count=Math.min(_batchsize,_opcount-_opsdone);
+					if (!awaitNextOperations(count))
+					{
+						break;
+					}
 
-					//throttle the operations
-					if (_target>0)
+					if (!_workload.doInsertBatch(_db,_workloadstate,_insertfirst+_opsdone,count))
 					{
-						//this is more accurate than other throttling approaches we have tried,
-						//like sleeping for (1/target throughput)-operation latency,
-						//because it smooths timing inaccuracies (from sleep() taking an int, 
-						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
-						{
-							try
-							{
-								sleep(1);
-							}
-							catch (InterruptedException e)
-							{
-							  // do nothing.
-							}
-
-						}
+						break;
 					}
+
+					_opsdone+=count;
 				}
 			}
 			else
 			{
-				long st=System.currentTimeMillis();
-
 				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
 				{
+					if (!awaitNextOperation())
+					{
+						break;
+					}
 
 					if (!_workload.doInsert(_db,_workloadstate))
 					{
@@ -272,26 +449,6 @@ class ClientThread extends Thread
 					}
 
 					_opsdone++;
-
-					//throttle the operations
-					if (_target>0)
-					{
-						//this is more accurate than other throttling approaches we have tried,
-						//like sleeping for (1/target throughput)-operation latency,
-						//because it smooths timing inaccuracies (from sleep() taking an int, 
-						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
-						{
-							try 
-							{
-								sleep(1);
-							}
-							catch (InterruptedException e)
-							{
-							  // do nothing.
-							}
-						}
-					}
 				}
 			}
 		}
@@ -302,6 +459,18 @@ class ClientThread extends Thread
 			System.exit(0);
 		}
 
+		_measurements.clearIntendedStartTime();
+
+		try
+		{
+			_workload.cleanupThread(_workloadstate);
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+		}
+
 		try
 		{
 			_db.cleanup();
@@ -339,12 +508,54 @@ public class Client
    */
   public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
 
+	/**
+	 * The kind of thread each client runs on: "platform" for an operating system thread, or "virtual" for a virtual
+	 * thread, which needs Java 21 or later. Virtual threads let a client model many thousands of concurrent
+	 * sessions with a blocking DB binding without a context switch between operating system threads for each
+	 * operation.
+	 */
+	public static final String THREAD_MODE_PROPERTY = "threadmode";
+
+	public static final String THREAD_MODE_PROPERTY_DEFAULT = "platform";
+
+	/**
+	 * The seed of all the random numbers of the run. Each client thread draws its own from the seed and its thread
+	 * id, so with the same seed and threadcount every thread issues the same sequence of operations again, as far as
+	 * that sequence does not depend on the other threads (e.g. on the keys they inserted) or on timing. Without a
+	 * seed every run is different.
+	 */
+	public static final String SEED_PROPERTY = "seed";
+
+	/**
+	 * How often, in seconds, to report status when running with -s.
+	 */
+	public static final String STATUS_INTERVAL_PROPERTY = "status.interval";
+
+	public static final String STATUS_INTERVAL_PROPERTY_DEFAULT = "10";
+
+	/**
+	 * Whether to load with the bulk loader, which gives each thread its own contiguous range of the records to
+	 * insert and inserts them in batches of "bulkload.batchsize" records, instead of having all the threads take
+	 * their keys from one shared sequence.
+	 */
+	public static final String BULK_LOAD_PROPERTY = "bulkload";
+
+	public static final String BULK_LOAD_PROPERTY_DEFAULT = "false";
+
+	/**
+	 * The number of records the bulk loader inserts with one call to the DB.
+	 */
+	public static final String BULK_LOAD_BATCH_SIZE_PROPERTY = "bulkload.batchsize";
+
+	public static final String BULK_LOAD_BATCH_SIZE_PROPERTY_DEFAULT = "1";
+
 	public static void usageMessage()
 	{
 		System.out.println("Usage: java com.yahoo.ycsb.Client [options]");
 		System.out.println("Options:");
 		System.out.println("  -threads n: execute using n threads (default: 1) - can also be specified as the \n" +
 				"              \"threadcount\" property using -p");
+		System.out.println("  -p threadmode=virtual:  run each of the threads as a virtual thread (needs Java 21)");
 		System.out.println("  -target n: attempt to do n operations per second (default: unlimited) - can also\n" +
 				"             be specified as the \"target\" property using -p");
 		System.out.println("  -load:  run the loading phase of the workload");
@@ -356,13 +567,43 @@ public class Client
 		System.out.println("  -p name=value:  specify a property to be passed to the DB and workloads;");
 		System.out.println("                  multiple properties can be specified, and override any");
 		System.out.println("                  values in the propertyfile");
-		System.out.println("  -s:  show status during run (default: no status)");
+		System.out.println("  -s:  show status during run (default: no status), every \"status.interval\" seconds");
+		System.out.println("       (default: 10) with the throughput and latency percentiles of each operation");
 		System.out.println("  -l label:  use label for status (e.g. to label one experiment out of a whole batch)");
+		System.out.println("  -p metrics.port=n:  serve live measurements over HTTP on port n, in the Prometheus format at");
+		System.out.println("              /metrics and as JSON at /metrics.json, taking a new report every");
+		System.out.println("              \"metrics.interval\" seconds (default: 10), on \"metrics.address\"");
+		System.out.println("              (default: 127.0.0.1, set it to 0.0.0.0 to serve other hosts)");
+		System.out.println("  -p seed=n:  draw all random numbers from the given seed, so each thread repeats its");
+		System.out.println("              sequence of operations in every run with the same seed and threadcount");
+		System.out.println("  -p recordfile=file:  record every operation with its start time, key, fields, value size,");
+		System.out.println("              latency and return code to a trace file, which com.yahoo.ycsb.workloads.");
+		System.out.println("              TraceReplayWorkload can replay");
+		System.out.println("  -p measurement.log=file:  write the latency histogram of each operation every");
+		System.out.println("              \"measurement.log.interval\" seconds (default: 1) to a compact binary log,");
+		System.out.println("              to be analyzed with com.yahoo.ycsb.measurements.LatencyLogReader");
+		System.out.println("  -p targetprofile=s:n,...:  vary the target over the run, ramping linearly between the given");
+		System.out.println("              operations per second n at s seconds into the run - alternatively read the");
+		System.out.println("              points from a CSV file of s,n lines given as the \"targetprofile.file\" property");
+		System.out.println("  -p bulkload=true:  load each thread's own range of the records, in batches of");
+		System.out.println("              \"bulkload.batchsize\" records (default: 1) for DBs with a batch insert");
+		System.out.println("  -openloop:  issue operations at the target rate regardless of how fast they complete,");
+		System.out.println("              using the threads as a worker pool - can also be specified as the");
+		System.out.println("              \"openloop\" property using -p");
+		System.out.println("  -agent port:  run as an agent, which waits on the given port for a coordinator and");
+		System.out.println("              runs the phases it sends in a new client each - requires the \"agent.secret\"");
+		System.out.println("              property, shared with the coordinator, and listens on \"agent.address\"");
+		System.out.println("              (default: 127.0.0.1) for files in \"agent.dir\" (default: the working directory)");
+		System.out.println("  -agents host:port,...:  coordinate the phase over the given agents, dividing the records");
+		System.out.println("              to load, the operations and the target between them, and merge their");
+		System.out.println("              measurements - can also be specified as the \"coordinator.agents\" property;");
+		System.out.println("              requires the agents' \"agent.secret\"");
 		System.out.println("");
 		System.out.println("Required properties:");
 		System.out.println("  "+WORKLOAD_PROPERTY+": the name of the workload class to use (e.g. com.yahoo.ycsb.workloads.CoreWorkload)");
 		System.out.println("");
-		System.out.println("To run the transaction phase from multiple servers, start a separate client on each.");
+		System.out.println("To run a phase from multiple servers, start an agent on each and run it with -agents. Otherwise,");
+		System.out.println("to run the transaction phase from multiple servers, start a separate client on each.");
 		System.out.println("To run the load phase from multiple servers, start a separate client on each; additionally,");
 		System.out.println("use the \"insertcount\" and \"insertstart\" properties to divide up the records to be inserted");
 	}
@@ -379,44 +620,63 @@ public class Client
 	}
 
 
+	/**
+	 * Creates the exporter loaded from conf, writing to either sysout or a file.
+	 * @throws IOException Failed to open the file.
+	 */
+	static MeasurementsExporter newExporter(Properties props) throws IOException
+	{
+		// if no destination file is provided the results will be written to stdout
+		OutputStream out;
+		String exportFile = props.getProperty("exportfile");
+		if (exportFile == null)
+		{
+			out = System.out;
+		} else
+		{
+			out = new FileOutputStream(exportFile);
+		}
+
+		// if no exporter is provided the default text one will be used
+		String exporterStr = props.getProperty("exporter", "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+		try
+		{
+			return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
+		} catch (Exception e)
+		{
+			System.err.println("Could not find exporter " + exporterStr
+					+ ", will use default text reporter.");
+			e.printStackTrace();
+			return new TextMeasurementsExporter(out);
+		}
+	}
+
 	/**
 	 * Exports the measurements to either sysout or a file using the exporter
 	 * loaded from conf.
 	 * @throws IOException Either failed to write to output stream or failed to close it.
 	 */
-	private static void exportMeasurements(Properties props, int opcount, long runtime)
+	private static void exportMeasurements(Properties props, int opcount, long starttime, long runtime, ArrivalScheduler scheduler)
 			throws IOException
 	{
 		MeasurementsExporter exporter = null;
 		try
 		{
-			// if no destination file is provided the results will be written to stdout
-			OutputStream out;
-			String exportFile = props.getProperty("exportfile");
-			if (exportFile == null)
-			{
-				out = System.out;
-			} else
-			{
-				out = new FileOutputStream(exportFile);
-			}
-
-			// if no exporter is provided the default text one will be used
-			String exporterStr = props.getProperty("exporter", "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
-			try
-			{
-				exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
-			} catch (Exception e)
-			{
-				System.err.println("Could not find exporter " + exporterStr
-						+ ", will use default text reporter.");
-				e.printStackTrace();
-				exporter = new TextMeasurementsExporter(out);
-			}
+			exporter = newExporter(props);
 
 			exporter.write("OVERALL", "RunTime(ms)", runtime);
 			double throughput = 1000.0 * ((double) opcount) / ((double) runtime);
 			exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
+			if (scheduler != null)
+			{
+				exporter.write("OVERALL", "DroppedArrivals", scheduler.getDroppedArrivals());
+			}
+			if (Boolean.parseBoolean(props.getProperty(Measurements.MEASUREMENT_EXPORT_RAW, Measurements.MEASUREMENT_EXPORT_RAW_DEFAULT)))
+			{
+				// lets MeasurementsMerger compute the throughput of several clients over the span of all their runs
+				exporter.write("OVERALL", "StartTime(ms)", starttime);
+				exporter.write("OVERALL", "Operations", opcount);
+			}
 
 			Measurements.getMeasurements().exportMeasurements(exporter);
 		} finally
@@ -439,6 +699,7 @@ public class Client
 		int target=0;
 		boolean status=false;
 		String label="";
+		int agentport=-1;
 
 		//parse arguments
 		int argindex=0;
@@ -490,6 +751,11 @@ public class Client
 				status=true;
 				argindex++;
 			}
+			else if (args[argindex].compareTo("-openloop")==0)
+			{
+				props.setProperty(ArrivalScheduler.OPEN_LOOP_PROPERTY, "true");
+				argindex++;
+			}
 			else if (args[argindex].compareTo("-db")==0)
 			{
 				argindex++;
@@ -501,6 +767,28 @@ public class Client
 				props.setProperty("db",args[argindex]);
 				argindex++;
 			}
+			else if (args[argindex].compareTo("-agent")==0)
+			{
+				argindex++;
+				if (argindex>=args.length)
+				{
+					usageMessage();
+					System.exit(0);
+				}
+				agentport=Integer.parseInt(args[argindex]);
+				argindex++;
+			}
+			else if (args[argindex].compareTo("-agents")==0)
+			{
+				argindex++;
+				if (argindex>=args.length)
+				{
+					usageMessage();
+					System.exit(0);
+				}
+				props.setProperty(Coordinator.AGENTS_PROPERTY,args[argindex]);
+				argindex++;
+			}
 			else if (args[argindex].compareTo("-l")==0)
 			{
 				argindex++;
@@ -598,10 +886,40 @@ public class Client
 
 		props=fileprops;
 
+		if (agentport>=0)
+		{
+			try
+			{
+				Agent.serve(agentport,props);
+			}
+			catch (IOException e)
+			{
+				System.out.println("Could not run the agent: "+e.getMessage());
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+			}
+			System.exit(0);
+		}
+
 		if (!checkRequiredProperties(props))
 		{
 			System.exit(0);
 		}
+
+		if (props.getProperty(Coordinator.AGENTS_PROPERTY)!=null)
+		{
+			try
+			{
+				new Coordinator(props,dotransactions,status,label).run();
+			}
+			catch (Exception e)
+			{
+				System.out.println("The coordinated run failed: "+e.getMessage());
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+			}
+			System.exit(0);
+		}
 		
 		long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
 
@@ -610,12 +928,30 @@ public class Client
 		dbname=props.getProperty("db","com.yahoo.ycsb.BasicDB");
 		target=Integer.parseInt(props.getProperty("target","0"));
 		
+		boolean openloop=Boolean.parseBoolean(props.getProperty(ArrivalScheduler.OPEN_LOOP_PROPERTY, ArrivalScheduler.OPEN_LOOP_PROPERTY_DEFAULT));
+		TargetProfile profile=null;
+		try
+		{
+			profile=TargetProfile.fromProperties(props,target);
+		}
+		catch (WorkloadException e)
+		{
+			System.out.println(e.getMessage());
+			System.exit(0);
+		}
+
+		if (openloop && profile==null)
+		{
+			System.out.println("Open-loop mode requires a target throughput");
+			System.exit(0);
+		}
+
 		//compute the target throughput
-		double targetperthreadperms=-1;
-		if (target>0)
+		//(in open-loop mode the scheduler issues the operations at the target rate, so the threads are not throttled)
+		TargetProfile targetperthread=null;
+		if ( (profile!=null) && !openloop )
 		{
-			double targetperthread=((double)target)/((double)threadcount);
-			targetperthreadperms=targetperthread/1000.0;
+			targetperthread=profile.scale(1.0/threadcount);
 		}	 
 
 		System.out.println("YCSB Client 0.1");
@@ -649,7 +985,16 @@ public class Client
 		warningthread.start();
 		
 		//set up measurements
+		if (status)
+		{
+			props.setProperty(Measurements.MEASUREMENT_STATUS,"true");
+		}
 		Measurements.setProperties(props);
+
+		if (props.getProperty(SEED_PROPERTY)!=null)
+		{
+			Utils.setSeed(Long.parseLong(props.getProperty(SEED_PROPERTY)));
+		}
 		
 		//load the workload
 		ClassLoader classLoader = Client.class.getClassLoader();
@@ -703,7 +1048,58 @@ public class Client
 			}
 		}
 
+		ArrivalScheduler scheduler=null;
+		if (openloop)
+		{
+			try
+			{
+				scheduler=new ArrivalScheduler(props,profile,opcount,workload);
+			}
+			catch (WorkloadException e)
+			{
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+				System.exit(0);
+			}
+		}
+
+		String threadmode=props.getProperty(THREAD_MODE_PROPERTY,THREAD_MODE_PROPERTY_DEFAULT);
+		boolean virtualthreads=threadmode.compareTo("virtual")==0;
+		if ( (!virtualthreads) && (threadmode.compareTo("platform")!=0) )
+		{
+			System.out.println("Unknown thread mode "+threadmode);
+			System.exit(0);
+		}
+		if ( virtualthreads && !VirtualThreads.isAvailable() )
+		{
+			System.out.println("Virtual threads need Java 21 or later, this is Java "+System.getProperty("java.version"));
+			System.exit(0);
+		}
+
+		boolean bulkload=(!dotransactions) && Boolean.parseBoolean(props.getProperty(BULK_LOAD_PROPERTY,BULK_LOAD_PROPERTY_DEFAULT));
+		int batchsize=Integer.parseInt(props.getProperty(BULK_LOAD_BATCH_SIZE_PROPERTY,BULK_LOAD_BATCH_SIZE_PROPERTY_DEFAULT));
+		long insertstart=Long.parseLong(props.getProperty(Workload.INSERT_START_PROPERTY,Integer.toString(Workload.INSERT_START_PROPERTY_DEFAULT)));
+		if ( bulkload && ((openloop) || (batchsize<1)) )
+		{
+			System.out.println("The bulk loader needs a "+BULK_LOAD_BATCH_SIZE_PROPERTY+" of at least 1 and does not run open-loop");
+			System.exit(0);
+		}
+
+		OperationRecorder recorder=null;
+		try
+		{
+			recorder=OperationRecorder.start(props);
+		}
+		catch (IOException e)
+		{
+			System.out.println("Could not start recording the operations: "+e.getMessage());
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+
 		Vector<Thread> threads=new Vector<Thread>();
+		Vector<ClientThread> clients=new Vector<ClientThread>();
 
 		for (int threadid=0; threadid<threadcount; threadid++)
 		{
@@ -717,13 +1113,56 @@ public class Client
 				System.out.println("Unknown DB "+dbname);
 				System.exit(0);
 			}
+			if (recorder!=null)
+			{
+				db=recorder.record(db);
+			}
+
+			ClientThread client;
+			if (bulkload)
+			{
+				//each thread loads its own range of the records, and together they load all of them
+				long first=((long)opcount)*threadid/threadcount;
+				long next=((long)opcount)*(threadid+1)/threadcount;
+				client=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,(int)(next-first),targetperthread);
+				client.setInsertRange(insertstart+first,batchsize);
+			}
+			else
+			{
+				client=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,openloop ? 0 : opcount/threadcount,targetperthread);
+			}
+			client.setArrivalScheduler(scheduler);
 
-			Thread t=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,opcount/threadcount,targetperthreadperms);
+			Thread t=null;
+			if (virtualthreads)
+			{
+				try
+				{
+					t=VirtualThreads.newThread("ClientThread-"+threadid,client);
+				}
+				catch (UnsupportedOperationException e)
+				{
+					e.printStackTrace();
+					e.printStackTrace(System.out);
+					System.exit(0);
+				}
+			}
+			else
+			{
+				t=new Thread(client);
+			}
 
+			clients.add(client);
 			threads.add(t);
 			//t.start();
 		}
 
+		if (Boolean.parseBoolean(props.getProperty(Agent.BARRIER_PROPERTY,"false")))
+		{
+			//started by an agent: start together with the clients of the other agents
+			Agent.awaitStart();
+		}
+
 		StatusThread statusthread=null;
 
 		if (status)
@@ -733,16 +1172,61 @@ public class Client
 			{
 				standardstatus=true;
 			}	
-			statusthread=new StatusThread(threads,label,standardstatus);
+			long statusintervalms=(long)(Double.parseDouble(props.getProperty(STATUS_INTERVAL_PROPERTY,STATUS_INTERVAL_PROPERTY_DEFAULT))*1000);
+			if (statusintervalms<=0)
+			{
+				System.out.println(STATUS_INTERVAL_PROPERTY+" must be positive");
+				System.exit(0);
+			}
+			statusthread=new StatusThread(threads,clients,label,standardstatus);
+			statusthread.setInterval(statusintervalms);
+			statusthread.setArrivalScheduler(scheduler);
+			statusthread.setTargetProfile(profile);
+			statusthread.setExpectedOperations(opcount);
 			statusthread.start();
 		}
 
+		MetricsServer metrics=null;
+		try
+		{
+			metrics=MetricsServer.start(props);
+		}
+		catch (IOException e)
+		{
+			System.out.println("Could not start the metrics server: "+e.getMessage());
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+		if (metrics!=null)
+		{
+			System.err.println("Serving measurements on "+metrics.getAddress()+" at /metrics and /metrics.json");
+		}
+
+		LatencyLogWriter latencylog=null;
+		try
+		{
+			latencylog=LatencyLogWriter.start(props);
+		}
+		catch (IOException e)
+		{
+			System.out.println("Could not start the latency log: "+e.getMessage());
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+
 		long st=System.currentTimeMillis();
 
 		for (Thread t : threads)
 		{
 			t.start();
 		}
+
+		if (scheduler != null)
+		{
+			scheduler.start();
+		}
 		
     Thread terminator = null;
     
@@ -753,12 +1237,12 @@ public class Client
     
     int opsDone = 0;
 
-		for (Thread t : threads)
+		for (int i=0; i<threads.size(); i++)
 		{
 			try
 			{
-				t.join();
-				opsDone += ((ClientThread)t).getOpsDone();
+				threads.get(i).join();
+				opsDone += clients.get(i).getOpsDone();
 			}
 			catch (InterruptedException e)
 			{
@@ -776,6 +1260,16 @@ public class Client
 			statusthread.interrupt();
 		}
 
+		if (latencylog!=null)
+		{
+			latencylog.stop();
+		}
+
+		if (recorder!=null)
+		{
+			recorder.stop();
+		}
+
 		try
 		{
 			workload.cleanup();
@@ -789,7 +1283,7 @@ public class Client
 
 		try
 		{
-			exportMeasurements(props, opsDone, en - st);
+			exportMeasurements(props, opsDone, st, en - st, scheduler);
 		} catch (IOException e)
 		{
 			System.err.println("Could not export measurements, error: " + e.getMessage());
@@ -797,6 +1291,11 @@ public class Client
 			System.exit(-1);
 		}
 
+		if (metrics!=null)
+		{
+			metrics.stop();
+		}
+
 		System.exit(0);
 	}
 }
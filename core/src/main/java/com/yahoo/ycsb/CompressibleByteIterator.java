@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *                                                              
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *                                                            
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+/**
+ *  A ByteIterator that generates values which compress by about a given ratio, whatever the compressor: each
+ *  chunk of a value starts with chunk/ratio random bytes (of all 256 values, so that they cannot be compressed at
+ *  all), which are then repeated until the chunk is full. The chunks are small enough for the repeats to be within
+ *  the window of any compressor. Unlike the printable values of RandomByteIterator, the values are binary.
+ */
+public class CompressibleByteIterator extends FastRandomByteIterator {
+  static final int CHUNK_SIZE = 4096;
+
+  private final double ratio;
+
+  /**
+   * @param ratio The uncompressed size over the compressed size, at least 1.
+   */
+  public CompressibleByteIterator(long len, double ratio) {
+    this(len, ratio, Utils.random().nextLong());
+  }
+
+  public CompressibleByteIterator(long len, double ratio, long seed) {
+    seed(seed);
+    if (!(ratio >= 1)) {
+      throw new IllegalArgumentException("The compression ratio must be at least 1, not " + ratio);
+    }
+    this.ratio = ratio;
+    reset(len);
+  }
+
+  @Override
+  public CompressibleByteIterator reset(long len) {
+    super.reset(len);
+    return this;
+  }
+
+  @Override
+  protected void fill(byte[] buffer, int length) {
+    for (int start = 0; start < length; start += CHUNK_SIZE) {
+      int end = Math.min(length, start + CHUNK_SIZE);
+      int unique = Math.min(end - start, (int) Math.ceil((end - start) / ratio));
+      for (int i = start; i < start + unique; i += 8) {
+        long bytes = nextLong();
+        for (int j = i; j < i + 8 && j < start + unique; j++, bytes >>>= 8) {
+          buffer[j] = (byte) bytes;
+        }
+      }
+      for (int i = start + unique; i < end; i += unique) {
+        System.arraycopy(buffer, start, buffer, i, Math.min(unique, end - i));
+      }
+    }
+  }
+}
@@ -0,0 +1,447 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.LatencyLogWriter;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.MeasurementsMerger;
+import com.yahoo.ycsb.measurements.MetricsServer;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Runs one phase of a workload on several Agents at once, as if it was run by one client.
+ *
+ * The coordinator divides the run between the agents: each agent loads its own range of the records (by
+ * insertstart and insertcount), or does its share of the operations, at its share of the target throughput. It
+ * starts all the agents together once every one of them has loaded the workload, reports the combined throughput
+ * while they run and finally merges their measurements into one report, which is exported like the measurements of
+ * a single client.
+ *
+ * Transaction phases that insert records (e.g. workloads D and E) choose the keys to insert independently on each
+ * agent, as with separately started clients.
+ */
+public class Coordinator
+{
+	/**
+	 * The agents to run on, as a comma separated list of host:port.
+	 */
+	public static final String AGENTS_PROPERTY="coordinator.agents";
+
+	/**
+	 * How long to wait for an agent to accept the connection, in milliseconds.
+	 */
+	static final int CONNECT_TIMEOUT_MS=10000;
+
+	/**
+	 * Added to the seed once per agent index; odd and unrelated to the stride between the seeds of the threads.
+	 */
+	static final long AGENT_SEED_STRIDE=0xbf58476d1ce4e5b9L;
+
+	/**
+	 * The connection to one agent, with a thread reading its messages.
+	 */
+	class AgentConnection extends Thread
+	{
+		final String _address;
+		final Socket _socket;
+		final PrintWriter _out;
+		final BufferedReader _in;
+		final String _label;
+		final String _challenge;
+
+		boolean _ready;
+		boolean _done;
+		long _operations;
+		File _export;
+
+		AgentConnection(String address, int index) throws IOException
+		{
+			super("coordinator-"+address);
+			setDaemon(true);
+			_address=address;
+			int colon=address.lastIndexOf(':');
+			if (colon<0)
+			{
+				throw new IOException("Agent "+address+" must be given as host:port");
+			}
+			_socket=new Socket();
+			_socket.connect(new InetSocketAddress(address.substring(0,colon),Integer.parseInt(address.substring(colon+1))),CONNECT_TIMEOUT_MS);
+			_out=new PrintWriter(new OutputStreamWriter(_socket.getOutputStream(),"UTF-8"));
+			_in=new BufferedReader(new InputStreamReader(_socket.getInputStream(),"UTF-8"));
+			_label="agent"+index;
+			String hello=_in.readLine();
+			if ( (hello==null) || (!hello.startsWith(Agent.HELLO+" ")) )
+			{
+				throw new IOException("Agent "+address+" did not greet the coordinator");
+			}
+			_challenge=hello.substring(Agent.HELLO.length()+1);
+		}
+
+		void send(String line)
+		{
+			_out.println(line);
+			_out.flush();
+		}
+
+		public void run()
+		{
+			try
+			{
+				String line;
+				while ((line=_in.readLine())!=null)
+				{
+					if (line.equals(Agent.READY))
+					{
+						synchronized (Coordinator.this)
+						{
+							_ready=true;
+							Coordinator.this.notifyAll();
+						}
+					}
+					else if (line.startsWith(Agent.LOG+" "))
+					{
+						log(line.substring(Agent.LOG.length()+1));
+					}
+					else if (line.equals(Agent.EXPORT))
+					{
+						File export=File.createTempFile("ycsb-coordinator",".export");
+						export.deleteOnExit();
+						Writer writer=new FileWriter(export);
+						try
+						{
+							while ( ((line=_in.readLine())!=null) && (!line.equals(Agent.END)) )
+							{
+								writer.write(line);
+								writer.write('\n');
+							}
+						}
+						finally
+						{
+							writer.close();
+						}
+						_export=export;
+					}
+					else if (line.equals(Agent.DONE))
+					{
+						break;
+					}
+				}
+			}
+			catch (IOException e)
+			{
+				if (!_socket.isClosed())
+				{
+					System.err.println(_address+": "+e.getMessage());
+				}
+			}
+			synchronized (Coordinator.this)
+			{
+				_done=true;
+				Coordinator.this.notifyAll();
+			}
+		}
+
+		/**
+		 * Print a line of the output of the agent's client, keeping track of the operations it reports.
+		 */
+		void log(String line)
+		{
+			String prefix=_label+" ";
+			int sec=line.indexOf(" sec: ");
+			int ops=line.indexOf(" operations;");
+			if ( (line.startsWith(prefix)) && (sec>0) && (ops>sec) )
+			{
+				try
+				{
+					long operations=Long.parseLong(line.substring(sec+" sec: ".length(),ops));
+					synchronized (Coordinator.this)
+					{
+						_operations=operations;
+					}
+				}
+				catch (NumberFormatException e)
+				{
+				}
+				if (!_status)
+				{
+					return;
+				}
+			}
+			System.err.println("["+_address+"] "+line);
+		}
+	}
+
+	final Properties _props;
+	final boolean _dotransactions;
+	final boolean _status;
+	final String _label;
+	final List<AgentConnection> _agents=new ArrayList<AgentConnection>();
+
+	/**
+	 * @param props the properties defining the experiment, including the agents to run on
+	 * @param dotransactions true to run the transactions phase, false to load the data
+	 * @param status whether to show the status of every agent, in addition to the combined status
+	 * @param label the label of the combined status
+	 */
+	public Coordinator(Properties props, boolean dotransactions, boolean status, String label)
+	{
+		_props=props;
+		_dotransactions=dotransactions;
+		_status=status;
+		_label=label;
+	}
+
+	/**
+	 * Divide count items starting at start between the agents, and return the first item of the given agent.
+	 */
+	static long share(long start, long count, int agent, int agents)
+	{
+		return start+count*agent/agents;
+	}
+
+	/**
+	 * The properties for the given agent's part of the run.
+	 */
+	Properties getAgentProperties(int agent, int agents) throws WorkloadException
+	{
+		Properties props=new Properties();
+		for (Enumeration e=_props.propertyNames(); e.hasMoreElements(); )
+		{
+			String prop=(String)e.nextElement();
+			props.setProperty(prop,_props.getProperty(prop));
+		}
+		props.remove(AGENTS_PROPERTY);
+		props.remove(Agent.SECRET_PROPERTY);
+		props.remove("exportfile");
+		props.remove("exporter");
+		props.remove(MetricsServer.PORT);
+		props.setProperty(Measurements.MEASUREMENT_EXPORT_RAW,"true");
+
+		String seed=props.getProperty(Client.SEED_PROPERTY);
+		if (seed!=null)
+		{
+			//a seed per agent, or every agent would choose the same keys and operations
+			props.setProperty(Client.SEED_PROPERTY,Long.toString(Long.parseLong(seed)+agent*AGENT_SEED_STRIDE));
+		}
+
+		if (_dotransactions)
+		{
+			long opcount=Long.parseLong(_props.getProperty(Client.OPERATION_COUNT_PROPERTY,"0"));
+			props.setProperty(Client.OPERATION_COUNT_PROPERTY,Long.toString(share(0,opcount,agent+1,agents)-share(0,opcount,agent,agents)));
+		}
+		else
+		{
+			long insertstart=Long.parseLong(_props.getProperty("insertstart","0"));
+			long insertcount=Long.parseLong(_props.getProperty(Client.INSERT_COUNT_PROPERTY,_props.getProperty(Client.RECORD_COUNT_PROPERTY,"0")));
+			long first=share(insertstart,insertcount,agent,agents);
+			props.setProperty("insertstart",Long.toString(first));
+			props.setProperty(Client.INSERT_COUNT_PROPERTY,Long.toString(share(insertstart,insertcount,agent+1,agents)-first));
+		}
+
+		TargetProfile profile=TargetProfile.fromProperties(_props,Integer.parseInt(_props.getProperty("target","0")));
+		if (profile!=null)
+		{
+			props.remove("target");
+			props.remove(TargetProfile.TARGET_PROFILE_FILE_PROPERTY);
+			props.setProperty(TargetProfile.TARGET_PROFILE_PROPERTY,profile.scale(1.0/agents).toString());
+		}
+
+		String log=_props.getProperty(LatencyLogWriter.FILE);
+		if (log!=null)
+		{
+			//agents may share a file system, so each writes its own log
+			props.setProperty(LatencyLogWriter.FILE,log+"."+agent);
+		}
+		return props;
+	}
+
+	/**
+	 * Run the phase on all the agents and export the merged measurements.
+	 */
+	public void run() throws IOException, WorkloadException
+	{
+		String agentlist=_props.getProperty(AGENTS_PROPERTY,"").trim();
+		if (agentlist.length()==0)
+		{
+			throw new WorkloadException("No agents given in "+AGENTS_PROPERTY);
+		}
+		String secret=_props.getProperty(Agent.SECRET_PROPERTY,"");
+		if (secret.length()==0)
+		{
+			throw new WorkloadException("No secret to share with the agents given in "+Agent.SECRET_PROPERTY);
+		}
+		String[] addresses=agentlist.split(",");
+		try
+		{
+			for (int i=0; i<addresses.length; i++)
+			{
+				AgentConnection agent=new AgentConnection(addresses[i].trim(),i);
+				_agents.add(agent);
+				agent.start();
+			}
+
+			for (int i=0; i<_agents.size(); i++)
+			{
+				AgentConnection agent=_agents.get(i);
+				StringWriter props=new StringWriter();
+				getAgentProperties(i,_agents.size()).store(props,null);
+				agent.send(Agent.JOB+" "+(_dotransactions ? "run" : "load")+" "+agent._label+" "+Agent.respond(secret,agent._challenge));
+				agent.send(props.toString().trim());
+				agent.send(Agent.END);
+			}
+
+			System.err.println("Waiting for "+_agents.size()+" agents to load the workload...");
+			if (!awaitReady())
+			{
+				throw new WorkloadException("An agent stopped before it was ready to run");
+			}
+			long st=System.currentTimeMillis();
+			for (AgentConnection agent : _agents)
+			{
+				agent.send(Agent.START);
+			}
+			System.err.println("Started "+_agents.size()+" agents.");
+
+			reportUntilDone(st);
+
+			List<String> exports=new ArrayList<String>();
+			for (AgentConnection agent : _agents)
+			{
+				if (agent._export==null)
+				{
+					throw new WorkloadException("Agent "+agent._address+" did not send its measurements");
+				}
+				exports.add(agent._export.getPath());
+			}
+			MeasurementsExporter exporter=Client.newExporter(_props);
+			try
+			{
+				MeasurementsMerger.merge(exports,_props,exporter);
+			}
+			finally
+			{
+				exporter.close();
+			}
+		}
+		finally
+		{
+			for (AgentConnection agent : _agents)
+			{
+				agent._socket.close();
+				if (agent._export!=null)
+				{
+					agent._export.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * The barrier: wait until every agent is ready to run.
+	 *
+	 * @return false if an agent stopped instead
+	 */
+	synchronized boolean awaitReady()
+	{
+		while (true)
+		{
+			boolean ready=true;
+			for (AgentConnection agent : _agents)
+			{
+				if (agent._done)
+				{
+					return false;
+				}
+				ready&=agent._ready;
+			}
+			if (ready)
+			{
+				return true;
+			}
+			try
+			{
+				wait();
+			}
+			catch (InterruptedException e)
+			{
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Report the combined throughput of the agents every status interval until all of them are done.
+	 */
+	synchronized void reportUntilDone(long st)
+	{
+		long intervalms=(long)(Double.parseDouble(_props.getProperty(Client.STATUS_INTERVAL_PROPERTY,Client.STATUS_INTERVAL_PROPERTY_DEFAULT))*1000);
+		DecimalFormat d=new DecimalFormat("#.##");
+		long lasten=st;
+		long lastops=0;
+		long next=st+intervalms;
+		while (true)
+		{
+			boolean alldone=true;
+			long ops=0;
+			for (AgentConnection agent : _agents)
+			{
+				alldone&=agent._done;
+				ops+=agent._operations;
+			}
+			if (alldone)
+			{
+				return;
+			}
+
+			long now=System.currentTimeMillis();
+			if (now>=next)
+			{
+				double throughput=1000.0*(ops-lastops)/Math.max(1,now-lasten);
+				System.err.println(_label+" "+((now-st)/1000)+" sec: "+ops+" operations; "+d.format(throughput)+" current ops/sec on "+_agents.size()+" agents");
+				lastops=ops;
+				lasten=now;
+				next=st+((now-st)/intervalms+1)*intervalms;
+			}
+			try
+			{
+				wait(Math.max(1,next-now));
+			}
+			catch (InterruptedException e)
+			{
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *                                                              
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *                                                            
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+/**
+ *  A ByteIterator that generates values by copying them from a random offset of a sample of real data (wrapping
+ *  around at its end), so that they compress about as well as that data does.
+ */
+public class CorpusByteIterator extends FastRandomByteIterator {
+  private final byte[] corpus;
+
+  /**
+   * @param corpus The data to copy the values from; it is shared, not copied.
+   */
+  public CorpusByteIterator(long len, byte[] corpus) {
+    this(len, corpus, Utils.random().nextLong());
+  }
+
+  public CorpusByteIterator(long len, byte[] corpus, long seed) {
+    seed(seed);
+    if (corpus.length == 0) {
+      throw new IllegalArgumentException("The corpus is empty");
+    }
+    this.corpus = corpus;
+    reset(len);
+  }
+
+  @Override
+  public CorpusByteIterator reset(long len) {
+    super.reset(len);
+    return this;
+  }
+
+  @Override
+  protected void fill(byte[] buffer, int length) {
+    if (length == 0) {
+      return;
+    }
+    int from = (int) ((nextLong() >>> 1) % corpus.length);
+    for (int i = 0; i < length; ) {
+      int n = Math.min(length - i, corpus.length - from);
+      System.arraycopy(corpus, from, buffer, i, n);
+      i += n;
+      from = 0;
+    }
+  }
+}
@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -40,6 +41,9 @@ import java.util.Vector;
  * to match the database's default semantics, or the semantics of your 
  * target application.  For the sake of comparison between experiments we also 
  * recommend you explain the semantics you chose when presenting performance results.
+ * 
+ * Workloads may reuse the maps and ByteIterators they pass to a DB once the call has returned, so a DB that
+ * needs to keep any of them, or the arrays and buffers it got from them, must copy them.
  */
 public abstract class DB
 {
@@ -115,6 +119,60 @@ public abstract class DB
 	 */
 	public abstract int update(String table, String key, HashMap<String,ByteIterator> values);
 
+	/**
+	 * Read several records from the database, e.g. with a multi-get. Each field/value pair from the result of each
+	 * record will be stored in the HashMap at the same position in the results as its key.
+	 *
+	 * The default implementation reads the records one at a time; DBs with a native multi-key read should override
+	 * it, and still return a non-zero code when any of the records is missing.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results For each record, a HashMap of field/value pairs for the result
+	 * @return Zero on success, a non-zero error code on error or if any of the records was not found.
+	 */
+	public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		int ret=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int res=read(table,keys.get(i),fields,results.get(i));
+			if (ret==0)
+			{
+				ret=res;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Update several records in the database. Any field/value pairs in each of the specified values HashMaps will be
+	 * written into the record with the key at the same position in the keys, overwriting any existing values with
+	 * the same field name.
+	 *
+	 * The default implementation updates the records one at a time; DBs with a native batch write should override
+	 * it.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values For each record, a HashMap of field/value pairs to update in the record
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int ret=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int res=update(table,keys.get(i),values.get(i));
+			if (ret==0)
+			{
+				ret=res;
+			}
+		}
+		return ret;
+	}
+
 	/**
 	 * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
 	 * record key.
@@ -126,6 +184,32 @@ public abstract class DB
 	 */
 	public abstract int insert(String table, String key, HashMap<String,ByteIterator> values);
 
+	/**
+	 * Insert several records in the database, e.g. with a bulk API. Any field/value pairs in each of the specified
+	 * values HashMaps will be written into the record with the key at the same position in the keys.
+	 *
+	 * The default implementation inserts the records one at a time; DBs with a native batch or bulk insert should
+	 * override it.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values For each record, a HashMap of field/value pairs to insert in the record
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int ret=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int res=insert(table,keys.get(i),values.get(i));
+			if (ret==0)
+			{
+				ret=res;
+			}
+		}
+		return ret;
+	}
+
 	/**
 	 * Delete a record from the database. 
 	 *
@@ -134,4 +218,27 @@ public abstract class DB
 	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
 	 */
 	public abstract int delete(String table, String key);
+
+	/**
+	 * Delete several records from the database.
+	 *
+	 * The default implementation deletes the records one at a time; DBs with a native batch delete should override it.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to delete.
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int batchDelete(String table, List<String> keys)
+	{
+		int ret=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int res=delete(table,keys.get(i));
+			if (ret==0)
+			{
+				ret=res;
+			}
+		}
+		return ret;
+	}
 }
@@ -46,6 +46,10 @@ public class DBFactory
 	 
 	 ret.setProperties(properties);
 
+	 if (ret instanceof AsyncDB)
+	 {
+	    return new AsyncDBWrapper((AsyncDB)ret);
+	 }
 	 return new DBWrapper(ret);
       }
       
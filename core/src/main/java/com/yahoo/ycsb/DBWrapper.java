@@ -18,11 +18,13 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
 
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.Operation;
 
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
@@ -73,7 +75,7 @@ public class DBWrapper extends DB
     long st=System.nanoTime();
 		_db.cleanup();
     long en=System.nanoTime();
-    _measurements.measure("CLEANUP", (int)((en-st)/1000));
+    _measurements.measure(Operation.CLEANUP, (int)((en-st)/1000));
 	}
 
 	/**
@@ -90,8 +92,9 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.read(table,key,fields,result);
 		long en=System.nanoTime();
-		_measurements.measure("READ",(int)((en-st)/1000));
-		_measurements.reportReturnCode("READ",res);
+		_measurements.measure(Operation.READ,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.READ,st,en);
+		_measurements.reportReturnCode(Operation.READ,res);
 		return res;
 	}
 
@@ -110,8 +113,9 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.scan(table,startkey,recordcount,fields,result);
 		long en=System.nanoTime();
-		_measurements.measure("SCAN",(int)((en-st)/1000));
-		_measurements.reportReturnCode("SCAN",res);
+		_measurements.measure(Operation.SCAN,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.SCAN,st,en);
+		_measurements.reportReturnCode(Operation.SCAN,res);
 		return res;
 	}
 	
@@ -129,8 +133,9 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.update(table,key,values);
 		long en=System.nanoTime();
-		_measurements.measure("UPDATE",(int)((en-st)/1000));
-		_measurements.reportReturnCode("UPDATE",res);
+		_measurements.measure(Operation.UPDATE,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.UPDATE,st,en);
+		_measurements.reportReturnCode(Operation.UPDATE,res);
 		return res;
 	}
 
@@ -148,8 +153,67 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.insert(table,key,values);
 		long en=System.nanoTime();
-		_measurements.measure("INSERT",(int)((en-st)/1000));
-		_measurements.reportReturnCode("INSERT",res);
+		_measurements.measure(Operation.INSERT,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.INSERT,st,en);
+		_measurements.reportReturnCode(Operation.INSERT,res);
+		return res;
+	}
+
+	/**
+	 * Read several records from the database, measured as one BATCH-READ.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results For each record, a HashMap of field/value pairs for the result
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		long st=System.nanoTime();
+		int res=_db.batchRead(table,keys,fields,results);
+		long en=System.nanoTime();
+		_measurements.measure(Operation.BATCH_READ,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.BATCH_READ,st,en);
+		_measurements.reportReturnCode(Operation.BATCH_READ,res);
+		return res;
+	}
+
+	/**
+	 * Update several records in the database, measured as one BATCH-UPDATE.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values For each record, a HashMap of field/value pairs to update in the record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long st=System.nanoTime();
+		int res=_db.batchUpdate(table,keys,values);
+		long en=System.nanoTime();
+		_measurements.measure(Operation.BATCH_UPDATE,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.BATCH_UPDATE,st,en);
+		_measurements.reportReturnCode(Operation.BATCH_UPDATE,res);
+		return res;
+	}
+
+	/**
+	 * Insert several records in the database, measured as one BATCH-INSERT.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values For each record, a HashMap of field/value pairs to insert in the record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long st=System.nanoTime();
+		int res=_db.batchInsert(table,keys,values);
+		long en=System.nanoTime();
+		_measurements.measure(Operation.BATCH_INSERT,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.BATCH_INSERT,st,en);
+		_measurements.reportReturnCode(Operation.BATCH_INSERT,res);
 		return res;
 	}
 
@@ -165,8 +229,27 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.delete(table,key);
 		long en=System.nanoTime();
-		_measurements.measure("DELETE",(int)((en-st)/1000));
-		_measurements.reportReturnCode("DELETE",res);
+		_measurements.measure(Operation.DELETE,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.DELETE,st,en);
+		_measurements.reportReturnCode(Operation.DELETE,res);
+		return res;
+	}
+
+	/**
+	 * Delete several records from the database, measured as one BATCH-DELETE.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to delete.
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int batchDelete(String table, List<String> keys)
+	{
+		long st=System.nanoTime();
+		int res=_db.batchDelete(table,keys);
+		long en=System.nanoTime();
+		_measurements.measure(Operation.BATCH_DELETE,(int)((en-st)/1000));
+		_measurements.measureIntended(Operation.BATCH_DELETE,st,en);
+		_measurements.reportReturnCode(Operation.BATCH_DELETE,res);
 		return res;
 	}
 }
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *                                                              
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *                                                            
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ *  A ByteIterator that generates a random sequence of bytes, like RandomByteIterator, but fills the whole value
+ *  at once, eight bytes for each step of its own xorshift generator, instead of six for each call to the shared
+ *  java.util.Random. reset() generates the next value into the same array whenever it is large enough, and
+ *  toArray() and toByteBuffer() hand that array over without copying when the value fills it, so, as DB says, a
+ *  DB that keeps a value past the call must copy it.
+ *  <p>
+ *  An instance is not thread safe; it is meant to be owned, and reused, by one client thread.
+ */
+public class FastRandomByteIterator extends ByteIterator {
+  private static final byte[] EMPTY = new byte[0];
+  private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+  /** The low five bits of each byte... */
+  private static final long LOW_BITS = 0x1f1f1f1f1f1f1f1fL;
+  /** ...plus ' ', as RandomByteIterator does it. */
+  private static final long SPACES = 0x2020202020202020L;
+
+  private long state;
+  private byte[] buf = EMPTY;
+  /** The length of the value, at the start of buf. */
+  private int len;
+  private int off;
+
+  public FastRandomByteIterator(long len) {
+    this(len, Utils.random().nextLong());
+  }
+
+  public FastRandomByteIterator(long len, long seed) {
+    seed(seed);
+    reset(len);
+  }
+
+  /**
+   * Leave seeding and the first reset() to the subclass, once its own fields are set.
+   */
+  protected FastRandomByteIterator() {
+  }
+
+  protected final void seed(long seed) {
+    //splitmix64 of the seed, so that nearby seeds still give unrelated sequences (and xorshift needs a non-zero state)
+    long z = seed + 0x9e3779b97f4a7c15L;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    state = z ^ (z >>> 31);
+    if (state == 0) {
+      state = 0x9e3779b97f4a7c15L;
+    }
+  }
+
+  /**
+   * Start over with a new random sequence of the given length, so that an iterator can be reused instead of
+   * allocating a new one for every value.
+   *
+   * @return this iterator
+   */
+  public FastRandomByteIterator reset(long len) {
+    if (len != (int) len) {
+      throw new ArrayIndexOutOfBoundsException("Too much data to fit in one array!");
+    }
+    if (buf.length < len) {
+      buf = new byte[(int) len];
+    }
+    this.len = (int) len;
+    off = 0;
+    fill(buf, this.len);
+    return this;
+  }
+
+  /**
+   * The next 64 random bits.
+   */
+  protected long nextLong() {
+    long x = state;
+    x ^= x >>> 12;
+    x ^= x << 25;
+    x ^= x >>> 27;
+    state = x;
+    return x * 0x2545f4914f6cdd1dL;
+  }
+
+  /**
+   * Generate a value of the given length into the start of the given array.
+   */
+  protected void fill(byte[] buffer, int length) {
+    long x = state;
+    int i = 0;
+    for (; i + 8 <= length; i += 8) {
+      //xorshift64*
+      x ^= x >>> 12;
+      x ^= x << 25;
+      x ^= x >>> 27;
+      long bytes = ((x * 0x2545f4914f6cdd1dL) & LOW_BITS) + SPACES;
+      buffer[i] = (byte) bytes;
+      buffer[i + 1] = (byte) (bytes >>> 8);
+      buffer[i + 2] = (byte) (bytes >>> 16);
+      buffer[i + 3] = (byte) (bytes >>> 24);
+      buffer[i + 4] = (byte) (bytes >>> 32);
+      buffer[i + 5] = (byte) (bytes >>> 40);
+      buffer[i + 6] = (byte) (bytes >>> 48);
+      buffer[i + 7] = (byte) (bytes >>> 56);
+    }
+    if (i < length) {
+      x ^= x >>> 12;
+      x ^= x << 25;
+      x ^= x >>> 27;
+      long bytes = ((x * 0x2545f4914f6cdd1dL) & LOW_BITS) + SPACES;
+      for (; i < length; i++, bytes >>>= 8) {
+        buffer[i] = (byte) bytes;
+      }
+    }
+    state = x;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return off < len;
+  }
+
+  public byte nextByte() {
+    return buf[off++];
+  }
+
+  @Override
+  public int nextBuf(byte[] buffer, int bufferOffset) {
+    int n = Math.min(len - off, buffer.length - bufferOffset);
+    System.arraycopy(buf, off, buffer, bufferOffset, n);
+    off += n;
+    return bufferOffset + n;
+  }
+
+  @Override
+  public long bytesLeft() {
+    return len - off;
+  }
+
+  /** Consumes remaining contents of this object, and returns them as a byte array, without copying if possible. */
+  @Override
+  public byte[] toArray() {
+    byte[] ret = off == 0 && len == buf.length ? buf : Arrays.copyOfRange(buf, off, len);
+    off = len;
+    return ret;
+  }
+
+  /** Consumes remaining contents of this object, and returns them as a (read/write) buffer over the same array. */
+  public ByteBuffer toByteBuffer() {
+    ByteBuffer ret = ByteBuffer.wrap(buf, off, len - off).slice();
+    off = len;
+    return ret;
+  }
+
+  /** Consumes remaining contents of this object, and returns them as a string. */
+  @Override
+  public String toString() {
+    //every byte is ASCII, so this is what the byte by byte (char) conversion would give
+    String ret = new String(buf, off, len - off, US_ASCII);
+    off = len;
+    return ret;
+  }
+}
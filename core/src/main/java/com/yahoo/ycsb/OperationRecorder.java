@@ -0,0 +1,336 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.workloads.TraceFile;
+
+/**
+ * Records every operation issued through a RecordingDB to a trace file (see TraceFile), with its start time, key,
+ * fields, value size, latency and return code, so that a run can be analyzed operation by operation afterwards,
+ * and replayed with TraceReplayWorkload.
+ *
+ * Each client thread hands its records to a bounded queue of its own, and blocks only if a background thread
+ * falls that far behind writing them. The background thread merges the records of all the threads into start time
+ * order: it writes a record once no thread can still issue an operation that started earlier, i.e. once every
+ * operation in flight started later. So a very slow operation holds back the records of the operations that
+ * started after it, in memory, until it completes.
+ */
+public class OperationRecorder
+{
+	/**
+	 * The file to record the operations to. Nothing is recorded unless this is set.
+	 */
+	public static final String FILE="recordfile";
+
+	/**
+	 * The number of records each client thread may hand to the background writer before it has to wait for it.
+	 */
+	public static final String BUFFER="recordfile.buffer";
+	public static final String BUFFER_DEFAULT="10000";
+
+	/**
+	 * How long the background writer waits when it has nothing to write, in nanoseconds.
+	 */
+	static final long POLL_INTERVAL_NS=1000000;
+
+	final TraceFile.Writer _out;
+	final int _buffer;
+	final long _startns;
+	final long _startus;
+	final CopyOnWriteArrayList<Channel> _channels=new CopyOnWriteArrayList<Channel>();
+	final PriorityQueue<Record> _pending=new PriorityQueue<Record>();
+	final Thread _writer;
+
+	volatile boolean _stopped=false;
+	boolean _failed=false;
+
+	/**
+	 * Start recording if a file is configured.
+	 *
+	 * @return the running recorder, or null if recordfile is not set
+	 * @throws IOException if the file cannot be created
+	 */
+	public static OperationRecorder start(Properties props) throws IOException
+	{
+		String file=props.getProperty(FILE);
+		if (file==null)
+		{
+			return null;
+		}
+		int buffer=Integer.parseInt(props.getProperty(BUFFER,BUFFER_DEFAULT));
+		if (buffer<1)
+		{
+			throw new IllegalArgumentException(BUFFER+" must be positive");
+		}
+		final OperationRecorder recorder=new OperationRecorder(
+				new TraceFile.Writer(new BufferedOutputStream(new FileOutputStream(file),64*1024)),buffer);
+		recorder._writer.start();
+		//the writer is a daemon thread: write out what is buffered even if the client exits without stopping it
+		Runtime.getRuntime().addShutdownHook(new Thread("OperationRecorder-shutdown")
+		{
+			public void run()
+			{
+				recorder.stop();
+			}
+		});
+		return recorder;
+	}
+
+	OperationRecorder(TraceFile.Writer out, int buffer)
+	{
+		_out=out;
+		_buffer=buffer;
+		//the trace times are microseconds since the epoch, but measured with System.nanoTime()
+		_startus=System.currentTimeMillis()*1000;
+		_startns=System.nanoTime();
+		_writer=new Thread("OperationRecorder")
+		{
+			public void run()
+			{
+				write();
+			}
+		};
+		_writer.setDaemon(true);
+	}
+
+	/**
+	 * Wrap a DB of one client thread, so that the operations issued through it are recorded.
+	 */
+	public DB record(DB db)
+	{
+		return new RecordingDB(db,channel());
+	}
+
+	/**
+	 * A new channel for the records of one client thread.
+	 */
+	Channel channel()
+	{
+		Channel channel=new Channel(_buffer);
+		_channels.add(channel);
+		return channel;
+	}
+
+	/**
+	 * Write the remaining records and close the file. Call once the client threads are done; calling it again has no
+	 * effect.
+	 */
+	public void stop()
+	{
+		_stopped=true;
+		try
+		{
+			_writer.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * The loop of the background writer.
+	 */
+	void write()
+	{
+		while (true)
+		{
+			boolean stopped=_stopped;
+			//read the clock before the channels, so an operation that is not seen to start yet starts after it
+			long watermark=System.nanoTime();
+			for (Channel c : _channels)
+			{
+				long issuing=c._issuing;
+				if (issuing==Channel.STARTING)
+				{
+					watermark=Math.min(watermark,c._lastend);
+				}
+				else if (issuing!=Channel.IDLE)
+				{
+					watermark=Math.min(watermark,issuing);
+				}
+			}
+			for (Channel c : _channels)
+			{
+				c._queue.drainTo(_pending);
+			}
+			if (stopped)
+			{
+				watermark=Long.MAX_VALUE;
+			}
+
+			boolean wrote=false;
+			while ( (!_pending.isEmpty()) && (_pending.peek()._startns<=watermark) )
+			{
+				write(_pending.poll());
+				wrote=true;
+			}
+			if (stopped)
+			{
+				break;
+			}
+			if (!wrote)
+			{
+				LockSupport.parkNanos(POLL_INTERVAL_NS);
+			}
+		}
+
+		try
+		{
+			_out.close();
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not close the operation recording: "+e.getMessage());
+		}
+	}
+
+	private void write(Record r)
+	{
+		if (_failed)
+		{
+			return;
+		}
+		try
+		{
+			_out.write(_startus+(r._startns-_startns)/1000,r._operation,r._key,r._fields,r._size,
+					r._latencyns/1000,r._result);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not write the operation recording, no longer writing it: "+e.getMessage());
+			e.printStackTrace();
+			_failed=true;
+		}
+		catch (IllegalArgumentException e)
+		{
+			//e.g. a record too large for the format; leave it out, but keep recording the others
+			System.err.println("Could not record an operation on "+r._key+": "+e.getMessage());
+		}
+	}
+
+	/**
+	 * One recorded operation.
+	 */
+	static class Record implements Comparable<Record>
+	{
+		final int _operation;
+		final String _key;
+		final Collection<String> _fields;
+		final int _size;
+		final long _startns;
+		final long _latencyns;
+		final int _result;
+
+		Record(int operation, String key, Collection<String> fields, int size, long startns, long latencyns, int result)
+		{
+			_operation=operation;
+			_key=key;
+			_fields=fields;
+			_size=size;
+			_startns=startns;
+			_latencyns=latencyns;
+			_result=result;
+		}
+
+		public int compareTo(Record o)
+		{
+			return _startns<o._startns ? -1 : (_startns==o._startns ? 0 : 1);
+		}
+	}
+
+	/**
+	 * The records of one client thread, and the start of the operation it has in flight, if any.
+	 */
+	static class Channel
+	{
+		static final long IDLE=Long.MIN_VALUE;
+
+		/**
+		 * The thread is about to start an operation, which starts no earlier than its previous one ended.
+		 */
+		static final long STARTING=Long.MIN_VALUE+1;
+
+		final BlockingQueue<Record> _queue;
+
+		volatile long _issuing=IDLE;
+		volatile long _lastend=0;
+
+		Channel(int buffer)
+		{
+			_queue=new ArrayBlockingQueue<Record>(buffer);
+		}
+
+		/**
+		 * Mark the start of an operation.
+		 *
+		 * @return its start time, as returned by System.nanoTime()
+		 */
+		long start()
+		{
+			_issuing=STARTING;
+			long st=System.nanoTime();
+			_issuing=st;
+			return st;
+		}
+
+		/**
+		 * Record (one key of) the operation in flight.
+		 */
+		void add(int operation, String key, Collection<String> fields, int size, long st, long en, int result)
+		{
+			try
+			{
+				_queue.put(new Record(operation,key,fields,size,st,en-st,result));
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Mark the end of the operation in flight, once all of it is recorded, or once it failed.
+		 */
+		void end()
+		{
+			_lastend=System.nanoTime();
+			_issuing=IDLE;
+		}
+	}
+
+	/**
+	 * A copy of the fields of an operation, since the caller may reuse its set.
+	 */
+	static Collection<String> copy(Collection<String> fields)
+	{
+		return fields==null ? new ArrayList<String>(0) : new ArrayList<String>(fields);
+	}
+}
@@ -0,0 +1,232 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces the operations of one client thread to a target rate, which may vary over the run (see TargetProfile).
+ *
+ * Time is kept with System.nanoTime(), and a thread waits by parking until shortly before its next operation is due
+ * and spinning for the remainder, so operations are spread evenly even at rates of tens of thousands per second per
+ * thread, instead of being released in bursts at millisecond boundaries. A thread parks for at most MAX_PARK_NS at
+ * a time, so however long its wait, it stops waiting soon after the workload is asked to stop.
+ */
+public abstract class Pacer
+{
+	/**
+	 * How operations are paced: "smooth" issues them at exactly evenly spaced times, and catches up on a missed
+	 * schedule by issuing the late operations back to back; "tokenbucket" allows bursts of up to pacing.burst
+	 * operations after an idle period, and does not catch up on more than that.
+	 */
+	public static final String PACING_PROPERTY="pacing";
+
+	public static final String PACING_PROPERTY_DEFAULT="smooth";
+
+	/**
+	 * The size of the token bucket, i.e. the largest burst of operations it allows.
+	 */
+	public static final String PACING_BURST_PROPERTY="pacing.burst";
+
+	public static final String PACING_BURST_PROPERTY_DEFAULT="10";
+
+	/**
+	 * Waits shorter than this many microseconds are spun rather than parked, since parking cannot wake a thread
+	 * that precisely. Larger values give smoother pacing at high rates at the cost of CPU time.
+	 */
+	public static final String PACING_SPIN_PROPERTY="pacing.spinus";
+
+	public static final String PACING_SPIN_PROPERTY_DEFAULT="50";
+
+	/**
+	 * The longest a waiting thread parks before it checks whether the workload was asked to stop.
+	 */
+	static final long MAX_PARK_NS=10000000;
+
+	final long _spinns;
+	final Workload _workload;
+
+	Pacer(long spinns, Workload workload)
+	{
+		_spinns=spinns;
+		_workload=workload;
+	}
+
+	/**
+	 * Create the pacer configured by the given properties.
+	 *
+	 * @param props the properties defining the experiment
+	 * @param profile the target number of operations per second of this thread over time, starting now
+	 * @param workload the workload whose stop request ends a wait, or null
+	 */
+	public static Pacer newPacer(Properties props, TargetProfile profile, Workload workload) throws WorkloadException
+	{
+		long spinns=Long.parseLong(props.getProperty(PACING_SPIN_PROPERTY,PACING_SPIN_PROPERTY_DEFAULT))*1000;
+		String pacing=props.getProperty(PACING_PROPERTY,PACING_PROPERTY_DEFAULT);
+		if (pacing.compareTo("smooth")==0)
+		{
+			return new SmoothPacer(profile,spinns,workload);
+		}
+		else if (pacing.compareTo("tokenbucket")==0)
+		{
+			double burst=Double.parseDouble(props.getProperty(PACING_BURST_PROPERTY,PACING_BURST_PROPERTY_DEFAULT));
+			return new TokenBucketPacer(profile,burst,spinns,workload);
+		}
+		throw new WorkloadException("Unknown pacing "+pacing);
+	}
+
+	/**
+	 * Wait until the next operation may be issued.
+	 *
+	 * @return the time at which the operation was due, as returned by System.nanoTime(), or -1 if the profile
+	 *         ends at a rate of zero, so no more operations are due, or if the wait was cut short because the
+	 *         workload was asked to stop or the thread was interrupted
+	 */
+	public abstract long acquire();
+
+	/**
+	 * Wait until System.nanoTime() reaches the given deadline.
+	 *
+	 * @return whether the deadline was reached
+	 */
+	boolean waitUntil(long deadline)
+	{
+		return waitUntil(deadline,_spinns,_workload);
+	}
+
+	/**
+	 * Wait until System.nanoTime() reaches the given deadline, spinning for the last spinns nanoseconds. Returns
+	 * early if the workload is asked to stop or the thread is interrupted; the interrupt stays set for the caller.
+	 *
+	 * @param workload the workload whose stop request ends the wait, or null
+	 * @return whether the deadline was reached
+	 */
+	public static boolean waitUntil(long deadline, long spinns, Workload workload)
+	{
+		long wait;
+		while ((wait=deadline-System.nanoTime())>0)
+		{
+			if ( (Thread.currentThread().isInterrupted()) || ((workload!=null) && (workload.isStopRequested())) )
+			{
+				return false;
+			}
+			if (wait>spinns)
+			{
+				LockSupport.parkNanos(Math.min(wait-spinns,MAX_PARK_NS));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Issues operations at evenly spaced times, or following the target profile if it varies. The schedule is fixed in
+	 * advance, so an operation that completes late does not push back the ones after it.
+	 */
+	static class SmoothPacer extends Pacer
+	{
+		final TargetProfile _profile;
+		final long _start;
+		final double _phase;
+		long _issued;
+
+		SmoothPacer(TargetProfile profile, long spinns, Workload workload)
+		{
+			super(spinns,workload);
+			_profile=profile;
+			_start=System.nanoTime();
+			//start at a random point in the first interval, so the threads don't all hit the DB at the same time
+			_phase=Utils.random().nextDouble();
+			_issued=0;
+		}
+
+		public long acquire()
+		{
+			double due=_profile.getTime(_issued+_phase);
+			if (Double.isInfinite(due))
+			{
+				return -1;
+			}
+			_issued++;
+			long duens=_start+(long)(due*1000000000);
+			if (!waitUntil(duens))
+			{
+				return -1;
+			}
+			return duens;
+		}
+	}
+
+	/**
+	 * Issues operations as tokens become available in a bucket that fills at the target rate, so up to a bucket's worth
+	 * of operations can be issued back to back after the thread has been idle or slow.
+	 */
+	static class TokenBucketPacer extends Pacer
+	{
+		final TargetProfile _profile;
+		final double _burst;
+		final long _start;
+		double _tokens;
+
+		/**
+		 * The number of operations the profile had targeted when the bucket was last filled.
+		 */
+		double _filled;
+
+		TokenBucketPacer(TargetProfile profile, double burst, long spinns, Workload workload)
+		{
+			super(spinns,workload);
+			if (burst<1)
+			{
+				throw new IllegalArgumentException("Token bucket must hold at least one operation, not "+burst);
+			}
+			_profile=profile;
+			_burst=burst;
+			_start=System.nanoTime();
+			_tokens=0;
+			_filled=0;
+		}
+
+		public long acquire()
+		{
+			long now=System.nanoTime();
+			double targeted=_profile.getOperations((now-_start)/1000000000.0);
+			_tokens=Math.min(_burst,_tokens+targeted-_filled);
+			_filled=targeted;
+			if (_tokens>=1)
+			{
+				_tokens-=1;
+				return now;
+			}
+
+			double due=_profile.getTime(_filled+1-_tokens);
+			if (Double.isInfinite(due))
+			{
+				return -1;
+			}
+			long duens=_start+(long)(due*1000000000);
+			if (!waitUntil(duens))
+			{
+				return -1;
+			}
+			_filled+=1-_tokens;
+			_tokens=0;
+			return duens;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Future;
+
+/**
+ * Issues the operations of one client thread on an AsyncDB without waiting for them to complete, keeping up to a
+ * given number of them in flight. When that many are in flight, the next operation waits for the oldest one.
+ *
+ * The blocking operations return 0 as soon as the operation is issued, so a workload that uses their return codes or
+ * results, or that needs one operation to complete before the next, should use the AsyncDB itself instead. The
+ * return codes are still counted by the AsyncDBWrapper the operations are issued on.
+ *
+ * Batch operations are not pipelined: they are passed on to the AsyncDB, so that they are measured as batches and use
+ * the native multi-record operations of the binding, and they return once all of their records are done.
+ */
+public class PipelinedDB extends DB
+{
+	final int _depth;
+	final ArrayDeque<Future<Integer>> _inflight;
+	AsyncDB _db;
+
+	/**
+	 * @param depth the maximum number of operations in flight
+	 */
+	public PipelinedDB(int depth)
+	{
+		_depth=depth;
+		_inflight=new ArrayDeque<Future<Integer>>(depth);
+	}
+
+	/**
+	 * Issue the following operations on the given DB, if it is asynchronous.
+	 *
+	 * @return this, or the given DB itself if it is not an AsyncDB
+	 */
+	public DB pipeline(DB db)
+	{
+		if (!(db instanceof AsyncDB))
+		{
+			return db;
+		}
+		_db=(AsyncDB)db;
+		return this;
+	}
+
+	/**
+	 * The number of operations that have been issued and not yet seen to complete.
+	 */
+	public int getInFlight()
+	{
+		return _inflight.size();
+	}
+
+	/**
+	 * Wait until another operation may be issued.
+	 */
+	void reserve()
+	{
+		for (Iterator<Future<Integer>> i=_inflight.iterator(); i.hasNext(); )
+		{
+			if (i.next().isDone())
+			{
+				i.remove();
+			}
+		}
+		while (_inflight.size()>=_depth)
+		{
+			AsyncDB.await(_inflight.poll());
+		}
+	}
+
+	/**
+	 * Wait for all the operations in flight, so that they complete and are measured before the client thread
+	 * cleans up its DB.
+	 */
+	public void drain()
+	{
+		Future<Integer> future;
+		while ((future=_inflight.poll())!=null)
+		{
+			AsyncDB.await(future);
+		}
+	}
+
+	int issued(Future<Integer> future)
+	{
+		_inflight.add(future);
+		return 0;
+	}
+
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		reserve();
+		return issued(_db.readAsync(table,key,fields,result));
+	}
+
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		reserve();
+		return issued(_db.scanAsync(table,startkey,recordcount,fields,result));
+	}
+
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		reserve();
+		return issued(_db.updateAsync(table,key,values));
+	}
+
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		reserve();
+		return issued(_db.insertAsync(table,key,values));
+	}
+
+	public int delete(String table, String key)
+	{
+		reserve();
+		return issued(_db.deleteAsync(table,key));
+	}
+
+	public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		return _db.batchRead(table,keys,fields,results);
+	}
+
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		return _db.batchUpdate(table,keys,values);
+	}
+
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		return _db.batchInsert(table,keys,values);
+	}
+
+	public int batchDelete(String table, List<String> keys)
+	{
+		return _db.batchDelete(table,keys);
+	}
+}
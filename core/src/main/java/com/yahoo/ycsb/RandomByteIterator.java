@@ -51,11 +51,23 @@ public class RandomByteIterator extends ByteIterator {
   }
 
   public RandomByteIterator(long len) {
-    this.len = len;
     this.buf = new byte[6];
+    reset(len);
+  }
+
+  /**
+   * Start over with a new random sequence of the given length, so that an iterator can be reused instead of
+   * allocating a new one for every value.
+   *
+   * @return this iterator
+   */
+  public RandomByteIterator reset(long len) {
+    this.len = len;
+    this.off = 0;
     this.bufOff = buf.length;
     fillBytes();
     this.off = 0;
+    return this;
   }
 
   public byte nextByte() {
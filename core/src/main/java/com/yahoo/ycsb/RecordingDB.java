@@ -0,0 +1,245 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.workloads.TraceFile;
+
+/**
+ * Wrapper around a DB that records every operation issued through it with an OperationRecorder. Batch operations
+ * are recorded as one operation per key, all with the start time, latency and return code of the batch.
+ *
+ * Operations are recorded as they complete, so an AsyncDB wrapped in a RecordingDB runs its operations one at a
+ * time. An operation that throws is not recorded, but still ends, so that it does not hold back the records of the
+ * other threads.
+ */
+public class RecordingDB extends DB
+{
+	final DB _db;
+	final OperationRecorder.Channel _channel;
+
+	RecordingDB(DB db, OperationRecorder.Channel channel)
+	{
+		_db=db;
+		_channel=channel;
+	}
+
+	/**
+	 * Set the properties for this DB.
+	 */
+	public void setProperties(Properties p)
+	{
+		_db.setProperties(p);
+	}
+
+	/**
+	 * Get the set of properties for this DB.
+	 */
+	public Properties getProperties()
+	{
+		return _db.getProperties();
+	}
+
+	/**
+	 * Initialize any state for this DB.
+	 */
+	public void init() throws DBException
+	{
+		_db.init();
+	}
+
+	/**
+	 * Cleanup any state for this DB.
+	 */
+	public void cleanup() throws DBException
+	{
+		_db.cleanup();
+	}
+
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		long st=_channel.start();
+		try
+		{
+			return done(TraceFile.READ,key,OperationRecorder.copy(fields),0,st,_db.read(table,key,fields,result));
+		}
+		finally
+		{
+			_channel.end();
+		}
+	}
+
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		long st=_channel.start();
+		try
+		{
+			int res=_db.scan(table,startkey,recordcount,fields,result);
+			return done(TraceFile.SCAN,startkey,OperationRecorder.copy(fields),recordcount,st,res);
+		}
+		finally
+		{
+			_channel.end();
+		}
+	}
+
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		//the values are used up by the update
+		int size=size(values);
+		Collection<String> fields=OperationRecorder.copy(values.keySet());
+		long st=_channel.start();
+		try
+		{
+			return done(TraceFile.UPDATE,key,fields,size,st,_db.update(table,key,values));
+		}
+		finally
+		{
+			_channel.end();
+		}
+	}
+
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		int size=size(values);
+		Collection<String> fields=OperationRecorder.copy(values.keySet());
+		long st=_channel.start();
+		try
+		{
+			return done(TraceFile.INSERT,key,fields,size,st,_db.insert(table,key,values));
+		}
+		finally
+		{
+			_channel.end();
+		}
+	}
+
+	public int delete(String table, String key)
+	{
+		long st=_channel.start();
+		try
+		{
+			return done(TraceFile.DELETE,key,OperationRecorder.copy(null),0,st,_db.delete(table,key));
+		}
+		finally
+		{
+			_channel.end();
+		}
+	}
+
+	public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		long st=_channel.start();
+		try
+		{
+			int res=_db.batchRead(table,keys,fields,results);
+			long en=System.nanoTime();
+			Collection<String> copy=OperationRecorder.copy(fields);
+			for (String key : keys)
+			{
+				_channel.add(TraceFile.READ,key,copy,0,st,en,res);
+			}
+			return res;
+		}
+		finally
+		{
+			_channel.end();
+		}
+	}
+
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		return batchWrite(TraceFile.UPDATE,table,keys,values);
+	}
+
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		return batchWrite(TraceFile.INSERT,table,keys,values);
+	}
+
+	public int batchDelete(String table, List<String> keys)
+	{
+		long st=_channel.start();
+		try
+		{
+			int res=_db.batchDelete(table,keys);
+			long en=System.nanoTime();
+			Collection<String> none=OperationRecorder.copy(null);
+			for (String key : keys)
+			{
+				_channel.add(TraceFile.DELETE,key,none,0,st,en,res);
+			}
+			return res;
+		}
+		finally
+		{
+			_channel.end();
+		}
+	}
+
+	private int batchWrite(int operation, String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int[] sizes=new int[keys.size()];
+		List<Collection<String>> fields=new ArrayList<Collection<String>>(keys.size());
+		for (int i=0; i<sizes.length; i++)
+		{
+			sizes[i]=size(values.get(i));
+			fields.add(OperationRecorder.copy(values.get(i).keySet()));
+		}
+		long st=_channel.start();
+		try
+		{
+			int res=operation==TraceFile.UPDATE ? _db.batchUpdate(table,keys,values) : _db.batchInsert(table,keys,values);
+			long en=System.nanoTime();
+			for (int i=0; i<sizes.length; i++)
+			{
+				_channel.add(operation,keys.get(i),fields.get(i),sizes[i],st,en,res);
+			}
+			return res;
+		}
+		finally
+		{
+			_channel.end();
+		}
+	}
+
+	private int done(int operation, String key, Collection<String> fields, int size, long st, int res)
+	{
+		_channel.add(operation,key,fields,size,st,System.nanoTime(),res);
+		return res;
+	}
+
+	/**
+	 * The size of the values written, taken as the size of the first one.
+	 */
+	private static int size(HashMap<String,ByteIterator> values)
+	{
+		for (ByteIterator value : values.values())
+		{
+			return (int)value.bytesLeft();
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,320 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * A target throughput that varies over the course of a run, such as a ramp, a series of steps, or a daily load curve.
+ *
+ * The profile is a list of points, each giving the target number of operations per second at some number of seconds
+ * into the run. Between two points the target changes linearly; two points at the same time give a step. Before the
+ * first point and after the last one the target stays at the rate of that point. For example
+ * "0:10000,600:200000" ramps from 10000 to 200000 operations per second over ten minutes, and
+ * "0:50000,60:50000,60:150000,90:150000,90:50000" adds a 30 second spike one minute into the run.
+ *
+ * A profile is immutable, so one instance can be shared between threads.
+ */
+public class TargetProfile
+{
+	/**
+	 * The target throughput profile, as a comma separated list of seconds:opspersec points. Takes precedence over the
+	 * "target" property.
+	 */
+	public static final String TARGET_PROFILE_PROPERTY="targetprofile";
+
+	/**
+	 * A CSV file with the target throughput profile, one seconds,opspersec point per line. Blank lines and lines
+	 * starting with # are ignored.
+	 */
+	public static final String TARGET_PROFILE_FILE_PROPERTY="targetprofile.file";
+
+	final double[] _seconds;
+	final double[] _rates;
+
+	/**
+	 * The number of operations targeted from the start of the run up to each point.
+	 */
+	final double[] _operations;
+
+	/**
+	 * @param seconds the times of the points, in seconds from the start of the run, in ascending order
+	 * @param rates the target number of operations per second at each point
+	 */
+	public TargetProfile(double[] seconds, double[] rates)
+	{
+		if ( (seconds.length==0) || (seconds.length!=rates.length) )
+		{
+			throw new IllegalArgumentException("A target profile needs one rate for each of one or more points");
+		}
+		for (int i=0; i<seconds.length; i++)
+		{
+			if ( (seconds[i]<0) || ((i>0) && (seconds[i]<seconds[i-1])) )
+			{
+				throw new IllegalArgumentException("The times of a target profile must be ascending and not negative");
+			}
+			if (rates[i]<0)
+			{
+				throw new IllegalArgumentException("The rates of a target profile must not be negative");
+			}
+		}
+		_seconds=Arrays.copyOf(seconds,seconds.length);
+		_rates=Arrays.copyOf(rates,rates.length);
+
+		_operations=new double[_seconds.length];
+		_operations[0]=_rates[0]*_seconds[0];
+		for (int i=1; i<_seconds.length; i++)
+		{
+			_operations[i]=_operations[i-1]+(_rates[i-1]+_rates[i])/2*(_seconds[i]-_seconds[i-1]);
+		}
+	}
+
+	/**
+	 * A profile with the same target for the whole run.
+	 */
+	public static TargetProfile constant(double opspersec)
+	{
+		return new TargetProfile(new double[] {0},new double[] {opspersec});
+	}
+
+	/**
+	 * Create the profile configured by the given properties: the "targetprofile" or "targetprofile.file" property
+	 * if either is set, otherwise a constant profile at the given target.
+	 *
+	 * @param props the properties defining the experiment
+	 * @param target the target number of operations per second
+	 * @return the profile, or null if there is neither a profile nor a target
+	 */
+	public static TargetProfile fromProperties(Properties props, double target) throws WorkloadException
+	{
+		String profile=props.getProperty(TARGET_PROFILE_PROPERTY);
+		String file=props.getProperty(TARGET_PROFILE_FILE_PROPERTY);
+		if (profile!=null)
+		{
+			return parse(Arrays.asList(profile.split(",")),":",TARGET_PROFILE_PROPERTY);
+		}
+		else if (file!=null)
+		{
+			ArrayList<String> lines=new ArrayList<String>();
+			try
+			{
+				BufferedReader reader=new BufferedReader(new FileReader(file));
+				try
+				{
+					String line;
+					while ((line=reader.readLine())!=null)
+					{
+						if ( (line.trim().length()!=0) && !line.trim().startsWith("#") )
+						{
+							lines.add(line);
+						}
+					}
+				}
+				finally
+				{
+					reader.close();
+				}
+			}
+			catch (IOException e)
+			{
+				throw new WorkloadException("Could not read target profile "+file,e);
+			}
+			return parse(lines,",",file);
+		}
+		else if (target>0)
+		{
+			return constant(target);
+		}
+		return null;
+	}
+
+	static TargetProfile parse(Iterable<String> points, String separator, String source) throws WorkloadException
+	{
+		ArrayList<double[]> parsed=new ArrayList<double[]>();
+		for (String point : points)
+		{
+			String[] fields=point.split(separator);
+			try
+			{
+				if (fields.length!=2)
+				{
+					throw new NumberFormatException();
+				}
+				parsed.add(new double[] {Double.parseDouble(fields[0].trim()),Double.parseDouble(fields[1].trim())});
+			}
+			catch (NumberFormatException e)
+			{
+				throw new WorkloadException("Invalid target profile point \""+point+"\" in "+source+", expected seconds"+separator+"opspersec");
+			}
+		}
+
+		double[] seconds=new double[parsed.size()];
+		double[] rates=new double[parsed.size()];
+		for (int i=0; i<seconds.length; i++)
+		{
+			seconds[i]=parsed.get(i)[0];
+			rates[i]=parsed.get(i)[1];
+		}
+		try
+		{
+			return new TargetProfile(seconds,rates);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new WorkloadException(e.getMessage()+" ("+source+")");
+		}
+	}
+
+	/**
+	 * The same profile with every rate multiplied by the given factor, e.g. to divide it between threads.
+	 */
+	public TargetProfile scale(double factor)
+	{
+		double[] rates=new double[_rates.length];
+		for (int i=0; i<rates.length; i++)
+		{
+			rates[i]=_rates[i]*factor;
+		}
+		return new TargetProfile(_seconds,rates);
+	}
+
+	/**
+	 * The profile in the format of the "targetprofile" property.
+	 */
+	public String toString()
+	{
+		StringBuilder s=new StringBuilder();
+		for (int i=0; i<_seconds.length; i++)
+		{
+			if (i>0)
+			{
+				s.append(',');
+			}
+			s.append(_seconds[i]).append(':').append(_rates[i]);
+		}
+		return s.toString();
+	}
+
+	/**
+	 * The index of the last point at or before the given time, or -1 if it is before the first point.
+	 */
+	int point(double seconds)
+	{
+		int i=Arrays.binarySearch(_seconds,seconds);
+		if (i<0)
+		{
+			return -i-2;
+		}
+		//with a step there are several points at the same time; take the last one
+		while ( (i+1<_seconds.length) && (_seconds[i+1]==seconds) )
+		{
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * The target number of operations per second at the given time.
+	 *
+	 * @param seconds the time in seconds from the start of the run
+	 */
+	public double getTarget(double seconds)
+	{
+		int i=point(seconds);
+		if (i<0)
+		{
+			return _rates[0];
+		}
+		if (i==_seconds.length-1)
+		{
+			return _rates[i];
+		}
+		return _rates[i]+(_rates[i+1]-_rates[i])*(seconds-_seconds[i])/(_seconds[i+1]-_seconds[i]);
+	}
+
+	/**
+	 * The number of operations targeted from the start of the run up to the given time.
+	 *
+	 * @param seconds the time in seconds from the start of the run
+	 */
+	public double getOperations(double seconds)
+	{
+		int i=point(seconds);
+		if (i<0)
+		{
+			return _rates[0]*Math.max(seconds,0);
+		}
+		double elapsed=seconds-_seconds[i];
+		return _operations[i]+(_rates[i]+getTarget(seconds))/2*elapsed;
+	}
+
+	/**
+	 * The time at which the given number of operations should have been done, i.e. the inverse of getOperations().
+	 *
+	 * @param operations the number of operations since the start of the run
+	 * @return the time in seconds from the start of the run, or Double.POSITIVE_INFINITY if the profile ends at a
+	 *         rate of zero before that many operations are done
+	 */
+	public double getTime(double operations)
+	{
+		if (operations<=0)
+		{
+			return 0;
+		}
+		if (operations<=_operations[0])
+		{
+			return operations/_rates[0];
+		}
+
+		//find the last point before the operation, skipping over steps and periods at a rate of zero
+		int i=0;
+		int hi=_operations.length-1;
+		while (i<hi)
+		{
+			int mid=(i+hi+1)>>>1;
+			if (_operations[mid]<operations)
+			{
+				i=mid;
+			}
+			else
+			{
+				hi=mid-1;
+			}
+		}
+
+		double remaining=operations-_operations[i];
+		if (i==_seconds.length-1)
+		{
+			if (_rates[i]==0)
+			{
+				return Double.POSITIVE_INFINITY;
+			}
+			return _seconds[i]+remaining/_rates[i];
+		}
+
+		//solve rate*t+slope*t*t/2=remaining for t, in a form that also holds for a slope of zero
+		double slope=(_rates[i+1]-_rates[i])/(_seconds[i+1]-_seconds[i]);
+		double elapsed=2*remaining/(_rates[i]+Math.sqrt(_rates[i]*_rates[i]+2*slope*remaining));
+		return Math.min(_seconds[i]+elapsed,_seconds[i+1]);
+	}
+}
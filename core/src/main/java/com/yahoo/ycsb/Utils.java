@@ -25,6 +25,8 @@ import java.util.Random;
 public class Utils {
     private static final Random random = new Random();
     private static final ThreadLocal<Random> threadLocalRandom = new ThreadLocal<Random>();
+    private static volatile boolean seeded = false;
+    private static volatile long seed;
 
     public static Random random() {
         Random ret = threadLocalRandom.get();
@@ -35,6 +37,27 @@ public class Utils {
         return ret;
     }
 
+    /**
+     * Make the random numbers of the run follow from the given seed: those of the calling thread, and of every
+     * client thread once it calls seedThread().
+     */
+    public static void setSeed(long s) {
+        seed = s;
+        seeded = true;
+        random.setSeed(s);
+        threadLocalRandom.remove();
+    }
+
+    /**
+     * If a seed is set, restart the random numbers of the calling client thread from the seed and its thread id,
+     * so each client thread gets the same sequence in every run, whatever order the threads start in.
+     */
+    public static void seedThread(int threadid) {
+        if (seeded) {
+            threadLocalRandom.set(new Random(seed + threadid * 0x9e3779b97f4a7c15L));
+        }
+    }
+
     /**
      * Generate a random ASCII string of a given length.
      */
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *                                                              
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *                                                            
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.Arrays;
+
+/**
+ *  A ByteIterator whose value is derived from the key and field it is written to and a version, so that a value
+ *  read back can be checked: the first VERSION_LENGTH bytes hold the version, and the rest are printable characters
+ *  generated from a seed that hashes all three. A value that is truncated, corrupted, or that belongs to another
+ *  record or field does not verify.
+ */
+public class VerifiableByteIterator extends FastRandomByteIterator {
+  /** The number of bytes that hold the version, 5 bits each. */
+  public static final int VERSION_LENGTH = 12;
+
+  private String key;
+  private String field;
+  private long version;
+
+  /**
+   * An empty value, to reset() to a real one.
+   */
+  public VerifiableByteIterator() {
+    reset("", "", 0, 0);
+  }
+
+  public VerifiableByteIterator(String key, String field, long version, int len) {
+    reset(key, field, version, len);
+  }
+
+  /**
+   * Start over with the value of the given field of the given record, for the given version (of which only the
+   * low 60 bits are kept).
+   *
+   * @return this iterator
+   */
+  public VerifiableByteIterator reset(String key, String field, long version, int len) {
+    this.key = key;
+    this.field = field;
+    this.version = version & ((1L << (5 * VERSION_LENGTH)) - 1);
+    super.reset(len);
+    return this;
+  }
+
+  /**
+   * The version of the value.
+   */
+  public long version() {
+    return version;
+  }
+
+  @Override
+  protected void fill(byte[] buffer, int length) {
+    seed(hash(key, field, version, length));
+    super.fill(buffer, length);
+    for (int i = 0; i < VERSION_LENGTH && i < length; i++) {
+      buffer[i] = (byte) (((version >>> (5 * i)) & 31) + ' ');
+    }
+  }
+
+  /**
+   * Check a value read back from the given field of the given record, by generating it again for the version
+   * it holds.
+   *
+   * @param expected an iterator to generate the expected value with
+   * @return whether the value is the one that was written for its version
+   */
+  public static boolean verify(String key, String field, byte[] value, VerifiableByteIterator expected) {
+    long version = version(value);
+    return version >= 0 && Arrays.equals(value, expected.reset(key, field, version, value.length).toArray());
+  }
+
+  /**
+   * The version a value read back holds, or -1 if it does not start with one.
+   */
+  public static long version(byte[] value) {
+    if (value.length < VERSION_LENGTH) {
+      return -1;
+    }
+    long version = 0;
+    for (int i = 0; i < VERSION_LENGTH; i++) {
+      int bits = value[i] - ' ';
+      if (bits < 0 || bits > 31) {
+        return -1;
+      }
+      version |= (long) bits << (5 * i);
+    }
+    return version;
+  }
+
+  private static long hash(String key, String field, long version, int len) {
+    //64 bit FNV-1a over both strings, then the version and length, so that a truncated value does not match
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      h = (h ^ key.charAt(i)) * 0x100000001b3L;
+    }
+    h = (h ^ 0xff) * 0x100000001b3L;
+    for (int i = 0; i < field.length(); i++) {
+      h = (h ^ field.charAt(i)) * 0x100000001b3L;
+    }
+    return h ^ ((version << 24 ^ len) * 0x9e3779b97f4a7c15L);
+  }
+}
@@ -0,0 +1,96 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates virtual threads on JVMs that have them (Java 21 and later), so that a client can run many thousands of
+ * client threads without an operating system thread for each. The client is built for older JVMs, so the virtual
+ * thread API is looked up by reflection.
+ */
+public class VirtualThreads
+{
+	static final Method OF_VIRTUAL;
+	static final Method NAME;
+	static final Method UNSTARTED;
+
+	static
+	{
+		Method ofvirtual=null;
+		Method name=null;
+		Method unstarted=null;
+		try
+		{
+			Class<?> builder=Class.forName("java.lang.Thread$Builder");
+			ofvirtual=Thread.class.getMethod("ofVirtual");
+			name=builder.getMethod("name",String.class);
+			unstarted=builder.getMethod("unstarted",Runnable.class);
+		}
+		catch (ClassNotFoundException e)
+		{
+			ofvirtual=null;
+		}
+		catch (NoSuchMethodException e)
+		{
+			ofvirtual=null;
+		}
+		OF_VIRTUAL=ofvirtual;
+		NAME=name;
+		UNSTARTED=unstarted;
+	}
+
+	/**
+	 * Whether this JVM supports virtual threads.
+	 */
+	public static boolean isAvailable()
+	{
+		return OF_VIRTUAL!=null;
+	}
+
+	/**
+	 * Create an unstarted virtual thread.
+	 *
+	 * @param name the name of the thread
+	 * @param task what the thread runs
+	 * @throws UnsupportedOperationException if this JVM does not support virtual threads
+	 */
+	public static Thread newThread(String name, Runnable task)
+	{
+		if (!isAvailable())
+		{
+			throw new UnsupportedOperationException("Virtual threads need Java 21 or later, this is Java "+System.getProperty("java.version"));
+		}
+		try
+		{
+			Object builder=OF_VIRTUAL.invoke(null);
+			builder=NAME.invoke(builder,name);
+			return (Thread)UNSTARTED.invoke(builder,task);
+		}
+		catch (IllegalAccessException e)
+		{
+			throw new UnsupportedOperationException("Could not create a virtual thread",e);
+		}
+		catch (InvocationTargetException e)
+		{
+			//e.g. virtual threads are a preview feature of this JVM that is not enabled
+			throw new UnsupportedOperationException("Could not create a virtual thread",e.getCause());
+		}
+	}
+}
@@ -66,6 +66,16 @@ public abstract class Workload
       {
 	 return null;
       }
+
+      /**
+       * Finish the work of a client thread, e.g. wait for operations it still has in flight. Called once per
+       * client thread, in that thread, after its last operation and before its DB is cleaned up.
+       *
+       * @param threadstate the object returned by initThread() for this thread
+       */
+      public void cleanupThread(Object threadstate) throws WorkloadException
+      {
+      }
       
       /**
        * Cleanup the scenario. Called once, in the main client thread, after all operations have completed.
@@ -82,6 +92,28 @@ public abstract class Workload
        * synchronized, since each thread has its own threadstate instance.
        */
       public abstract boolean doInsert(DB db, Object threadstate);
+
+      /**
+       * Insert the count records numbered from first, in as few operations as the DB allows. Used by the bulk
+       * loader, which gives each client thread its own contiguous range of the records to insert, instead of
+       * having all the threads take their keys from one shared sequence. Like doInsert(), this must be thread safe.
+       *
+       * The default implementation ignores the range and calls doInsert() count times, so the workload chooses the
+       * keys as usual; workloads that support insertstart should override it.
+       *
+       * @return false if an insert failed, which terminates the thread, as for doInsert().
+       */
+      public boolean doInsertBatch(DB db, Object threadstate, long first, int count)
+      {
+	 for (int i=0; i<count; i++)
+	 {
+	    if (!doInsert(db,threadstate))
+	    {
+	       return false;
+	    }
+	 }
+	 return true;
+      }
       
       /**
        * Do one transaction operation. Because it will be called concurrently from multiple client threads, this 
@@ -0,0 +1,112 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.ArrayList;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Chooses from a discrete set of enum constants, e.g. the kind of the next operation, with a table of cumulative
+ * weights that is computed once, so that choosing allocates nothing and compares no strings. The table is immutable
+ * and published through a volatile field, so one generator can be shared by all the client threads.
+ */
+public class DiscreteEnumGenerator<E extends Enum<E>>
+{
+	/**
+	 * The running sum of the weights up to and including each value, and the total weight.
+	 */
+	static final class Table
+	{
+		final double[] _cumulative;
+		final Object[] _choices;
+		final double _sum;
+
+		Table(double[] cumulative, Object[] choices, double sum)
+		{
+			_cumulative=cumulative;
+			_choices=choices;
+			_sum=sum;
+		}
+	}
+
+	final ArrayList<E> _values=new ArrayList<E>();
+	final ArrayList<Double> _weights=new ArrayList<Double>();
+
+	volatile Table _table;
+	E _lastvalue;
+
+	public synchronized void addValue(double weight, E value)
+	{
+		_values.add(value);
+		_weights.add(weight);
+		_table=null;
+	}
+
+	/**
+	 * Choose the next value.
+	 *
+	 * @throws IllegalStateException if no values have been added
+	 */
+	@SuppressWarnings("unchecked")
+	public E nextValue()
+	{
+		Table table=_table;
+		if (table==null)
+		{
+			table=buildTable();
+		}
+		double[] cumulative=table._cumulative;
+
+		double val=Utils.random().nextDouble()*table._sum;
+
+		int i=0;
+		//the last value is also taken when rounding puts val within an ulp of the sum
+		while ( (i<cumulative.length-1) && (val>=cumulative[i]) )
+		{
+			i++;
+		}
+		_lastvalue=(E)table._choices[i];
+		return _lastvalue;
+	}
+
+	/**
+	 * The value chosen by the last call to nextValue(), or null if it has not been called.
+	 */
+	public E lastValue()
+	{
+		return _lastvalue;
+	}
+
+	synchronized Table buildTable()
+	{
+		if (_values.isEmpty())
+		{
+			throw new IllegalStateException("No values to choose from");
+		}
+		double[] cumulative=new double[_values.size()];
+		double sum=0;
+		for (int i=0; i<cumulative.length; i++)
+		{
+			sum+=_weights.get(i);
+			cumulative[i]=sum;
+		}
+		_table=new Table(cumulative,_values.toArray(),sum);
+		return _table;
+	}
+}
@@ -40,9 +40,30 @@ public class DiscreteGenerator extends Generator
 		}
 	}
 
+	/**
+	 * The running sum of the weights up to and including each value, and the total weight, computed once when the
+	 * first value is generated so that choosing a value needs no summing or division. Immutable, so that the
+	 * generator can be shared between threads once the table is published.
+	 */
+	static final class Table
+	{
+		final double[] _cumulative;
+		final String[] _choices;
+		final double _sum;
+
+		Table(double[] cumulative, String[] choices, double sum)
+		{
+			_cumulative=cumulative;
+			_choices=choices;
+			_sum=sum;
+		}
+	}
+
 	Vector<Pair> _values;
 	String _lastvalue;
 
+	volatile Table _table;
+
 	public DiscreteGenerator()
 	{
 		_values=new Vector<Pair>();
@@ -54,23 +75,30 @@ public class DiscreteGenerator extends Generator
 	 */
 	public String nextString()
 	{
-		double sum=0;
-
-		for (Pair p : _values)
+		Table table=_table;
+		if (table==null)
 		{
-			sum+=p._weight;
+			table=buildTable();
 		}
+		double[] cumulative=table._cumulative;
+		String[] choices=table._choices;
 
-		double val=Utils.random().nextDouble();
+		double val=Utils.random().nextDouble()*table._sum;
 
-		for (Pair p : _values)
+		for (int i=0; i<cumulative.length; i++)
 		{
-			if (val<p._weight/sum)
+			if (val<cumulative[i])
 			{
-				return p._value;
+				_lastvalue=choices[i];
+				return _lastvalue;
 			}
+		}
 
-			val-=p._weight/sum;
+		if (choices.length>0)
+		{
+			//only reached through rounding, when val is within an ulp of the sum
+			_lastvalue=choices[choices.length-1];
+			return _lastvalue;
 		}
 
 		//should never get here.
@@ -81,6 +109,21 @@ public class DiscreteGenerator extends Generator
 		return null;
 	}
 
+	synchronized Table buildTable()
+	{
+		double[] cumulative=new double[_values.size()];
+		String[] choices=new String[_values.size()];
+		double sum=0;
+		for (int i=0; i<cumulative.length; i++)
+		{
+			sum+=_values.get(i)._weight;
+			cumulative[i]=sum;
+			choices[i]=_values.get(i)._value;
+		}
+		_table=new Table(cumulative,choices,sum);
+		return _table;
+	}
+
 	/**
 	 * If the generator returns numeric (integer) values, return the next value as an int. Default is to return -1, which
 	 * is appropriate for generators that do not return numeric values.
@@ -106,9 +149,10 @@ public class DiscreteGenerator extends Generator
 		return _lastvalue;
 	}
 
-	public void addValue(double weight, String value)
+	public synchronized void addValue(double weight, String value)
 	{
 		_values.add(new Pair(weight,value));
+		_table=null;
 	}
 
 }
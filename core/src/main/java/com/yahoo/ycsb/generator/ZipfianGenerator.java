@@ -17,7 +17,7 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.yahoo.ycsb.Utils;
 
@@ -31,11 +31,10 @@ import com.yahoo.ycsb.Utils;
  * popular, min+1 the next most popular, etc.) If you don't want this clustering, and instead want the popular items scattered throughout the 
  * item space, then use ScrambledZipfianGenerator instead.
  * 
- * Be aware: initializing this generator may take a long time if there are lots of items to choose from (e.g. over a minute
- * for 100 million objects). This is because certain mathematical values need to be computed to properly generate a zipfian skew, and one of those
- * values (zeta) is a sum sequence from 1 to n, where n is the itemcount. Note that if you increase the number of items in the set, we can compute
- * a new zeta incrementally, so it should be fast unless you have added millions of items. However, if you decrease the number of items, we recompute
- * zeta from scratch, so this can take a long time. 
+ * Certain mathematical values need to be computed to properly generate a zipfian skew, and one of those values (zeta) is a sum sequence
+ * from 1 to n, where n is the itemcount. Up to EXACT_ZETA_TERMS terms are summed one by one; beyond that, the remaining terms are
+ * approximated with the Euler-Maclaurin formula, which is accurate to about the precision of a double. So initializing this generator
+ * (or changing the number of items) takes about the same time for a billion items as it does for a million.
  *
  * The algorithm used here is from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994.
  */
@@ -43,6 +42,17 @@ public class ZipfianGenerator extends IntegerGenerator
 {     
 	public static final double ZIPFIAN_CONSTANT=0.99;
 
+	/**
+	 * Sums of up to this many zeta terms are computed exactly, term by term.
+	 */
+	public static final long EXACT_ZETA_TERMS=1000000;
+
+	/**
+	 * The smallest item the Euler-Maclaurin approximation of the zeta terms is used from. Its error shrinks with the
+	 * sixth power of this, so it is below the rounding error of the sum from here on.
+	 */
+	static final long ZETA_TAIL_START=1000;
+
 	/**
 	 * Number of items.
 	 */
@@ -61,12 +71,34 @@ public class ZipfianGenerator extends IntegerGenerator
 	/**
 	 * Computed parameters for generating the distribution.
 	 */
-	double alpha,zetan,eta,theta,zeta2theta;
-	
+	double alpha,theta,zeta2theta;
+
 	/**
-	 * The number of items used to compute zetan the last time.
+	 * The parameters that depend on the number of items, computed for the number of items seen last. The generator never
+	 * locks: a thread that sees a different number of items computes its own snapshot (incrementally, from the current one)
+	 * and offers it for the others to use.
 	 */
-	long countforzeta;
+	final AtomicReference<ZetaSnapshot> zetasnapshot=new AtomicReference<ZetaSnapshot>();
+
+	/**
+	 * Zeta and eta for one number of items.
+	 */
+	static final class ZetaSnapshot
+	{
+		/**
+		 * The number of items used to compute zetan.
+		 */
+		final long countforzeta;
+		final double zetan;
+		final double eta;
+
+		ZetaSnapshot(long countforzeta, double zetan, double eta)
+		{
+			this.countforzeta=countforzeta;
+			this.zetan=zetan;
+			this.eta=eta;
+		}
+	}
 	
 	/**
 	 * Flag to prevent problems. If you increase the number of items the zipfian generator is allowed to choose from, this code will incrementally compute a new zeta
@@ -143,9 +175,7 @@ public class ZipfianGenerator extends IntegerGenerator
 		
 		alpha=1.0/(1.0-theta);
 		//zetan=zeta(items,theta);
-		zetan=_zetan;
-		countforzeta=items;
-		eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
+		zetasnapshot.set(snapshot(items,_zetan));
 		
 		//System.out.println("XXXX 3 XXXX");
 		nextInt();
@@ -156,14 +186,13 @@ public class ZipfianGenerator extends IntegerGenerator
 	
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items, using the 
-	 * zipfian constant theta. Remember the value of n, so if we change the itemcount, we can recompute zeta.
+	 * zipfian constant theta.
 	 * 
 	 * @param n The number of items to compute zeta over.
 	 * @param theta The zipfian constant.
 	 */
 	double zeta(long n, double theta)
 	{
-		countforzeta=n;
 		return zetastatic(n,theta);
 	}
 	
@@ -180,8 +209,7 @@ public class ZipfianGenerator extends IntegerGenerator
 	
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-	 * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of 
-	 * n so that if we change the itemcount, we'll know to recompute zeta.
+	 * has n items now but used to have st items. Use the zipfian constant theta.
 	 * 
 	 * @param st The number of items used to compute the last initialsum
 	 * @param n The number of items to compute zeta over.
@@ -190,9 +218,65 @@ public class ZipfianGenerator extends IntegerGenerator
 	 */
 	double zeta(long st, long n, double theta, double initialsum)
 	{
-		countforzeta=n;
 		return zetastatic(st,n,theta,initialsum);
 	}
+
+	/**
+	 * Compute eta for zetan, and package them with the number of items they are for.
+	 */
+	ZetaSnapshot snapshot(long count, double zetan)
+	{
+		return new ZetaSnapshot(count,zetan,(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan));
+	}
+
+	/**
+	 * Get the parameters for itemcount items: the current snapshot if it is for as many items (or for more, unless the item
+	 * count is allowed to decrease), otherwise a new one. The new one replaces the current one, unless another thread has
+	 * meanwhile installed one for at least as many items.
+	 */
+	ZetaSnapshot snapshotfor(long itemcount)
+	{
+		ZetaSnapshot current=zetasnapshot.get();
+		if (itemcount==current.countforzeta)
+		{
+			return current;
+		}
+		ZetaSnapshot next;
+		if (itemcount>current.countforzeta)
+		{
+			//System.err.println("WARNING: Incrementally recomputing Zipfian distribtion. (itemcount="+itemcount+" countforzeta="+current.countforzeta+")");
+
+			//we have added more items. can compute zetan incrementally, which is cheaper
+			next=snapshot(itemcount,zeta(current.countforzeta,itemcount,theta,current.zetan));
+		}
+		else if (allowitemcountdecrease)
+		{
+			//have to start over with zetan
+
+			//TODO: can also have a negative incremental computation, e.g. if you decrease the number of items, then just subtract
+			//the zeta sequence terms for the items that went away. This would be faster than recomputing from scratch when the number of items
+			//decreases
+
+			System.err.println("WARNING: Recomputing Zipfian distribtion. (itemcount="+itemcount+" countforzeta="+current.countforzeta+")");
+
+			next=snapshot(itemcount,zeta(itemcount,theta));
+		}
+		else
+		{
+			return current;
+		}
+
+		//losing the race is fine: this thread still uses its own snapshot, the installed one only saves the others the work
+		while (!zetasnapshot.compareAndSet(current,next))
+		{
+			current=zetasnapshot.get();
+			if ( (current.countforzeta>=itemcount) && (!allowitemcountdecrease) )
+			{
+				break;
+			}
+		}
+		return next;
+	}
 	
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
@@ -206,17 +290,59 @@ public class ZipfianGenerator extends IntegerGenerator
 	static double zetastatic(long st, long n, double theta, double initialsum)
 	{
 		double sum=initialsum;
-		for (long i=st; i<n; i++)
+		long exactend=n;
+		if (n-st>EXACT_ZETA_TERMS)
+		{
+			//sum the terms before the approximation is accurate, and approximate the rest
+			exactend=Math.max(st,ZETA_TAIL_START-1);
+		}
+		for (long i=st; i<exactend; i++)
 		{
 
 			sum+=1/(Math.pow(i+1,theta));
 		}
+		if (exactend<n)
+		{
+			sum+=zetatail(exactend+1,n,theta);
+		}
 		
 		//System.out.println("countforzeta="+countforzeta);
 		
 		return sum;
 	}
 
+	/**
+	 * Approximate the sum of 1/i^theta for i from a to b (inclusive) with the Euler-Maclaurin formula: the integral, the
+	 * mean of the end terms, and the corrections with the first three Bernoulli numbers.
+	 */
+	static double zetatail(long a, long b, double theta)
+	{
+		double la=Math.log(a);
+		double lb=Math.log(b);
+		double integral;
+		if (theta==1.0)
+		{
+			integral=lb-la;
+		}
+		else
+		{
+			//(b^(1-theta)-a^(1-theta))/(1-theta), without the cancellation when theta is close to 1
+			integral=Math.exp((1-theta)*la)*Math.expm1((1-theta)*(lb-la))/(1-theta);
+		}
+		double sum=integral+(Math.exp(-theta*la)+Math.exp(-theta*lb))/2;
+
+		//the odd derivatives of x^-theta are -theta(theta+1)...(theta+k-1) x^(-theta-k)
+		double[] coefficients={1.0/12,-1.0/720,1.0/30240};
+		double factor=-theta;
+		for (int k=0; k<coefficients.length; k++)
+		{
+			int order=2*k+1;
+			sum+=coefficients[k]*factor*(Math.exp(-(theta+order)*lb)-Math.exp(-(theta+order)*la));
+			factor*=(theta+order)*(theta+order+1);
+		}
+		return sum;
+	}
+
 	/****************************************************************************************/
 	
 	/** 
@@ -240,36 +366,9 @@ public class ZipfianGenerator extends IntegerGenerator
 	{
 		//from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994
 
-		if (itemcount!=countforzeta)
-		{
-
-			//have to recompute zetan and eta, since they depend on itemcount
-			synchronized(this)
-			{
-				if (itemcount>countforzeta)
-				{
-					//System.err.println("WARNING: Incrementally recomputing Zipfian distribtion. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-					
-					//we have added more items. can compute zetan incrementally, which is cheaper
-					zetan=zeta(countforzeta,itemcount,theta,zetan);
-					eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
-				}
-				else if ( (itemcount<countforzeta) && (allowitemcountdecrease) )
-				{
-					//have to start over with zetan
-					//note : for large itemsets, this is very slow. so don't do it!
-
-					//TODO: can also have a negative incremental computation, e.g. if you decrease the number of items, then just subtract
-					//the zeta sequence terms for the items that went away. This would be faster than recomputing from scratch when the number of items
-					//decreases
-					
-					System.err.println("WARNING: Recomputing Zipfian distribtion. This is slow and should be avoided. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-					
-					zetan=zeta(itemcount,theta);
-					eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
-				}
-			}
-		}
+		ZetaSnapshot zeta=snapshotfor(itemcount);
+		double zetan=zeta.zetan;
+		double eta=zeta.eta;
 
 		double u=Utils.random().nextDouble();
 		double uz=u*zetan;
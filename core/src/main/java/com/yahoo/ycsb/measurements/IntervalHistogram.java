@@ -0,0 +1,115 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.Properties;
+
+/**
+ * A pair of log-linear histograms for the latencies of the current interval of one interval reader, such as the
+ * status thread. Latencies are recorded into the active one; at the end of an interval the two are swapped, so the
+ * reader reads and clears the histogram of the interval that ended while recording goes on into the other.
+ * Recording therefore only ever waits for the swap of two references, never for the percentiles to be computed.
+ *
+ * The histograms are only allocated once something is recorded, so merged copies of a measurement cost nothing.
+ * Not thread safe: recordValue() and swap() must be called under the lock of the owning measurement.
+ */
+class IntervalHistogram
+{
+	private final int _significantdigits;
+	private LogLinearHistogram _active;
+	private LogLinearHistogram _inactive;
+
+	IntervalHistogram(int significantdigits)
+	{
+		_significantdigits=significantdigits;
+	}
+
+	/**
+	 * Create one interval histogram for each interval reader the properties enable, indexed by reader. The slot of
+	 * a reader that is not enabled is null, and the array is empty if none is.
+	 */
+	static IntervalHistogram[] create(int significantdigits, Properties props)
+	{
+		IntervalHistogram[] intervals=new IntervalHistogram[Measurements.intervalReaders(props)];
+		for (int i=0; i<intervals.length; i++)
+		{
+			if (Measurements.isIntervalReader(props,i))
+			{
+				intervals[i]=new IntervalHistogram(significantdigits);
+			}
+		}
+		return intervals;
+	}
+
+	/**
+	 * Record a latency into the interval histogram of each enabled reader.
+	 */
+	static void recordValue(IntervalHistogram[] intervals, long latency)
+	{
+		for (IntervalHistogram interval : intervals)
+		{
+			if (interval!=null)
+			{
+				interval.recordValue(latency);
+			}
+		}
+	}
+
+	/**
+	 * End the current interval of the given reader, see swap(), or return null if the reader is not enabled.
+	 */
+	static LogLinearHistogram swap(IntervalHistogram[] intervals, int reader)
+	{
+		if ( (reader>=intervals.length) || (intervals[reader]==null) )
+		{
+			return null;
+		}
+		return intervals[reader].swap();
+	}
+
+	void recordValue(long latency)
+	{
+		if (_active==null)
+		{
+			allocate();
+		}
+		_active.recordValue(latency);
+	}
+
+	/**
+	 * End the current interval and return its histogram. The caller must reset() the returned histogram, outside
+	 * the owning measurement's lock, before swapping again.
+	 */
+	LogLinearHistogram swap()
+	{
+		if (_active==null)
+		{
+			allocate();
+		}
+		LogLinearHistogram ended=_active;
+		_active=_inactive;
+		_inactive=ended;
+		return ended;
+	}
+
+	private void allocate()
+	{
+		_active=new LogLinearHistogram(_significantdigits);
+		_inactive=new LogLinearHistogram(_significantdigits);
+	}
+}
@@ -0,0 +1,395 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+/**
+ * Reads a latency log written by LatencyLogWriter. Run it as a program to aggregate any time range of one or more
+ * logs into per-metric throughput and latency percentiles, optionally as a series of intervals:
+ *
+ * <pre>
+ * java com.yahoo.ycsb.measurements.LatencyLogReader [-start s] [-end s] [-interval s] [-percentiles list] logfile...
+ * </pre>
+ *
+ * The logs of several clients that ran at the same time are merged by wall clock time, so their clocks should
+ * be synchronized.
+ */
+public class LatencyLogReader implements Closeable
+{
+	/**
+	 * The latencies of one metric over one interval of the log.
+	 */
+	public static class Record
+	{
+		final long _startms;
+		final long _endms;
+		final String _name;
+		final LogLinearHistogram _histogram;
+
+		Record(long startms, long endms, String name, LogLinearHistogram histogram)
+		{
+			_startms=startms;
+			_endms=endms;
+			_name=name;
+			_histogram=histogram;
+		}
+
+		/**
+		 * The start of the interval, in milliseconds since the epoch.
+		 */
+		public long getStartTimeMs()
+		{
+			return _startms;
+		}
+
+		/**
+		 * The end of the interval, in milliseconds since the epoch.
+		 */
+		public long getEndTimeMs()
+		{
+			return _endms;
+		}
+
+		public String getName()
+		{
+			return _name;
+		}
+
+		public LogLinearHistogram getHistogram()
+		{
+			return _histogram;
+		}
+	}
+
+	final DataInputStream _in;
+	final long _startms;
+
+	/**
+	 * @throws IOException if the stream does not start with a latency log header this version can read
+	 */
+	public LatencyLogReader(InputStream in) throws IOException
+	{
+		_in=new DataInputStream(new BufferedInputStream(in));
+		if (_in.readLong()!=LatencyLogWriter.MAGIC)
+		{
+			throw new IOException("Not a latency log");
+		}
+		int version=_in.readInt();
+		if (version!=LatencyLogWriter.VERSION)
+		{
+			throw new IOException("Unsupported latency log version "+version);
+		}
+		_startms=_in.readLong();
+	}
+
+	/**
+	 * The time the log was started, in milliseconds since the epoch.
+	 */
+	public long getStartTimeMs()
+	{
+		return _startms;
+	}
+
+	/**
+	 * Return the next record, or null at the end of the log. A record cut short because the client was killed
+	 * while writing it also ends the log.
+	 *
+	 * @throws IOException if the log cannot be read or is corrupt
+	 */
+	public Record next() throws IOException
+	{
+		int length;
+		try
+		{
+			length=_in.readInt();
+		}
+		catch (EOFException e)
+		{
+			return null;
+		}
+		if (length<=0)
+		{
+			throw new IOException("Corrupt latency log record of length "+length);
+		}
+		byte[] record=new byte[length];
+		try
+		{
+			_in.readFully(record);
+		}
+		catch (EOFException e)
+		{
+			return null;
+		}
+		try
+		{
+			ByteBuffer buffer=ByteBuffer.wrap(record);
+			long startms=buffer.getLong();
+			long endms=buffer.getLong();
+			byte[] name=new byte[buffer.getShort()];
+			buffer.get(name);
+			return new Record(startms,endms,new String(name,"UTF-8"),LogLinearHistogram.decode(buffer));
+		}
+		catch (RuntimeException e)
+		{
+			throw new IOException("Corrupt latency log record: "+e);
+		}
+	}
+
+	public void close() throws IOException
+	{
+		_in.close();
+	}
+
+	public static void usageMessage()
+	{
+		System.out.println("Usage: java com.yahoo.ycsb.measurements.LatencyLogReader [options] logfile...");
+		System.out.println("Options:");
+		System.out.println("  -start s:  only use the intervals that started at least s seconds after the first log");
+		System.out.println("             (default: 0)");
+		System.out.println("  -end s:  only use the intervals that started less than s seconds after the first log");
+		System.out.println("           (default: the end of the log)");
+		System.out.println("  -interval s:  also print the operations, throughput and latencies of every s seconds");
+		System.out.println("                as comma separated values");
+		System.out.println("  -percentiles list:  the latency percentiles to report (default: "+OneMeasurementHdrHistogram.PERCENTILES_DEFAULT+")");
+	}
+
+	public static void main(String[] args)
+	{
+		double start=0;
+		double end=Double.POSITIVE_INFINITY;
+		double interval=0;
+		double[] percentiles=OneMeasurementHdrHistogram.parsePercentiles(OneMeasurementHdrHistogram.PERCENTILES_DEFAULT);
+		ArrayList<String> files=new ArrayList<String>();
+
+		try
+		{
+			for (int i=0; i<args.length; i++)
+			{
+				if (args[i].equals("-start"))
+				{
+					start=Double.parseDouble(args[++i]);
+				}
+				else if (args[i].equals("-end"))
+				{
+					end=Double.parseDouble(args[++i]);
+				}
+				else if (args[i].equals("-interval"))
+				{
+					interval=Double.parseDouble(args[++i]);
+				}
+				else if (args[i].equals("-percentiles"))
+				{
+					percentiles=OneMeasurementHdrHistogram.parsePercentiles(args[++i]);
+				}
+				else if (!args[i].startsWith("-"))
+				{
+					files.add(args[i]);
+				}
+				else
+				{
+					System.out.println("Unknown option "+args[i]);
+					usageMessage();
+					System.exit(0);
+				}
+			}
+		}
+		catch (RuntimeException e)
+		{
+			usageMessage();
+			System.exit(0);
+		}
+		if ( (files.isEmpty()) || (interval<0) )
+		{
+			usageMessage();
+			System.exit(0);
+		}
+
+		try
+		{
+			summarize(files,start,end,interval,percentiles,System.out);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not read the latency logs: "+e.getMessage());
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Aggregate the records of the logs that started in [start, end) seconds after the first log was started,
+	 * print the series of intervals if interval is positive, then export the totals of each metric.
+	 */
+	static void summarize(List<String> files, double start, double end, double interval, double[] percentiles, PrintStream out) throws IOException
+	{
+		LatencyLogReader[] readers=new LatencyLogReader[files.size()];
+		long logstartms=Long.MAX_VALUE;
+		try
+		{
+			for (int i=0; i<readers.length; i++)
+			{
+				readers[i]=new LatencyLogReader(new FileInputStream(files.get(i)));
+				logstartms=Math.min(logstartms,readers[i].getStartTimeMs());
+			}
+			summarize(readers,logstartms,start,end,interval,percentiles,out);
+		}
+		finally
+		{
+			for (LatencyLogReader reader : readers)
+			{
+				if (reader!=null)
+				{
+					reader.close();
+				}
+			}
+		}
+	}
+
+	private static void summarize(LatencyLogReader[] readers, long logstartms, double start, double end, double interval, double[] percentiles, PrintStream out) throws IOException
+	{
+		TreeMap<String,LogLinearHistogram> totals=new TreeMap<String,LogLinearHistogram>();
+		TreeMap<Long,TreeMap<String,LogLinearHistogram>> series=new TreeMap<Long,TreeMap<String,LogLinearHistogram>>();
+		long firstms=Long.MAX_VALUE;
+		long lastms=Long.MIN_VALUE;
+
+		for (LatencyLogReader reader : readers)
+		{
+			Record r;
+			while ((r=reader.next())!=null)
+			{
+				double offset=(r.getStartTimeMs()-logstartms)/1000.0;
+				if ( (offset<start) || (offset>=end) )
+				{
+					continue;
+				}
+				add(totals,r);
+				firstms=Math.min(firstms,r.getStartTimeMs());
+				lastms=Math.max(lastms,r.getEndTimeMs());
+				if (interval>0)
+				{
+					Long window=(long)Math.floor((offset-start)/interval);
+					TreeMap<String,LogLinearHistogram> metrics=series.get(window);
+					if (metrics==null)
+					{
+						metrics=new TreeMap<String,LogLinearHistogram>();
+						series.put(window,metrics);
+					}
+					add(metrics,r);
+				}
+			}
+		}
+
+		DecimalFormat d=new DecimalFormat("#.##");
+		if (interval>0)
+		{
+			String header="Time(s),Metric,Operations,Throughput(ops/sec),AverageLatency(us)";
+			for (double p : percentiles)
+			{
+				header+=","+OneMeasurementHdrHistogram.percentileLabel(p);
+			}
+			out.println(header+",MaxLatency(us)");
+			for (Map.Entry<Long,TreeMap<String,LogLinearHistogram>> w : series.entrySet())
+			{
+				for (Map.Entry<String,LogLinearHistogram> e : w.getValue().entrySet())
+				{
+					LogLinearHistogram h=e.getValue();
+					String line=d.format(start+w.getKey()*interval)+","+e.getKey()+","+h.getTotalCount()+","+d.format(h.getTotalCount()/interval)+","+d.format(h.getMean());
+					for (double p : percentiles)
+					{
+						line+=","+h.getValueAtPercentile(p);
+					}
+					out.println(line+","+h.getMaxValue());
+				}
+			}
+			out.println();
+		}
+
+		MeasurementsExporter exporter=new TextMeasurementsExporter(keepOpen(out));
+		if (totals.isEmpty())
+		{
+			exporter.write("OVERALL","Operations",0);
+			exporter.close();
+			return;
+		}
+		exporter.write("OVERALL","StartTime(s)",(firstms-logstartms)/1000.0);
+		exporter.write("OVERALL","EndTime(s)",(lastms-logstartms)/1000.0);
+		double seconds=(lastms-firstms)/1000.0;
+		for (Map.Entry<String,LogLinearHistogram> e : totals.entrySet())
+		{
+			LogLinearHistogram h=e.getValue();
+			exporter.write(e.getKey(),"Operations",h.getTotalCount());
+			if (seconds>0)
+			{
+				exporter.write(e.getKey(),"Throughput(ops/sec)",h.getTotalCount()/seconds);
+			}
+			exporter.write(e.getKey(),"AverageLatency(us)",h.getMean());
+			exporter.write(e.getKey(),"MinLatency(us)",h.getMinValue());
+			exporter.write(e.getKey(),"MaxLatency(us)",h.getMaxValue());
+			for (double p : percentiles)
+			{
+				exporter.write(e.getKey(),OneMeasurementHdrHistogram.percentileLabel(p),h.getValueAtPercentile(p));
+			}
+		}
+		exporter.close();
+	}
+
+	/**
+	 * Wrap a stream so that closing an exporter writing to it only flushes it, e.g. to keep System.out open.
+	 */
+	static OutputStream keepOpen(OutputStream out)
+	{
+		return new FilterOutputStream(out)
+		{
+			public void close() throws IOException
+			{
+				flush();
+			}
+		};
+	}
+
+	private static void add(Map<String,LogLinearHistogram> histograms, Record r)
+	{
+		LogLinearHistogram h=histograms.get(r.getName());
+		if (h==null)
+		{
+			histograms.put(r.getName(),new LogLinearHistogram(r.getHistogram()));
+		}
+		else
+		{
+			h.add(r.getHistogram());
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the latencies of a run to a compact binary log, one record per metric per interval, so that any time
+ * range of a long run can be analyzed afterwards with LatencyLogReader. Unlike the timeseries measurement type,
+ * which holds the whole series in memory until the end of the run, the log costs a bounded amount of memory and
+ * a few hundred bytes of disk per metric per interval.
+ *
+ * A background thread ends the interval of every metric each measurement.log.interval seconds, encodes the
+ * histogram of each metric's latencies in the interval and writes it to the log through a FileChannel. Only the
+ * histogram and hdrhistogram measurement types keep interval histograms.
+ *
+ * The log starts with MAGIC, VERSION and the start time of the log in milliseconds since the epoch. Each record
+ * that follows is its length in bytes, the start and end of the interval in milliseconds since the epoch, the
+ * metric name as a length-prefixed UTF-8 string and the histogram as written by LogLinearHistogram.encode().
+ */
+public class LatencyLogWriter
+{
+	/**
+	 * The file to write the latency log to. No log is written unless this is set.
+	 */
+	public static final String FILE="measurement.log";
+
+	/**
+	 * The length of each interval of the log, in seconds.
+	 */
+	public static final String INTERVAL="measurement.log.interval";
+	public static final String INTERVAL_DEFAULT="1";
+
+	public static final long MAGIC=0x594353426c61746cL;
+	public static final int VERSION=1;
+
+	final Measurements _measurements;
+	final FileChannel _channel;
+	final ScheduledExecutorService _writer;
+	final TreeMap<String,LogLinearHistogram> _intervals=new TreeMap<String,LogLinearHistogram>();
+
+	ByteBuffer _buffer=ByteBuffer.allocateDirect(64*1024);
+	long _intervalstartms;
+	boolean _failed=false;
+
+	/**
+	 * Start writing the latency log if a file is configured.
+	 *
+	 * @return the running writer, or null if measurement.log is not set
+	 * @throws IOException if the log cannot be created
+	 */
+	public static LatencyLogWriter start(Properties props) throws IOException
+	{
+		String file=props.getProperty(FILE);
+		if (file==null)
+		{
+			return null;
+		}
+		long intervalms=(long)(Double.parseDouble(props.getProperty(INTERVAL,INTERVAL_DEFAULT))*1000);
+		if (intervalms<=0)
+		{
+			throw new IllegalArgumentException(INTERVAL+" must be positive");
+		}
+		Measurements measurements=Measurements.getMeasurements();
+		if (!measurements.histogram && !measurements.hdrhistogram)
+		{
+			System.err.println("The latency log is only written for the histogram and hdrhistogram measurement types.");
+		}
+		LatencyLogWriter writer=new LatencyLogWriter(measurements,new FileOutputStream(file).getChannel());
+		writer.start(intervalms);
+		return writer;
+	}
+
+	LatencyLogWriter(Measurements measurements, FileChannel channel)
+	{
+		_measurements=measurements;
+		_channel=channel;
+		_writer=Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread t=new Thread(r,"LatencyLogWriter");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	void start(long intervalms) throws IOException
+	{
+		_intervalstartms=System.currentTimeMillis();
+		_buffer.putLong(MAGIC);
+		_buffer.putInt(VERSION);
+		_buffer.putLong(_intervalstartms);
+		flush();
+		_writer.scheduleAtFixedRate(new Runnable()
+		{
+			public void run()
+			{
+				writeInterval();
+			}
+		},intervalms,intervalms,TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Write the last, partial interval and close the log. Call once the client threads are done.
+	 */
+	public void stop()
+	{
+		_writer.shutdown();
+		try
+		{
+			_writer.awaitTermination(1,TimeUnit.MINUTES);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		writeInterval();
+		try
+		{
+			_channel.close();
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not close the latency log: "+e.getMessage());
+		}
+	}
+
+	/**
+	 * End the current interval of every metric and write a record for each one that recorded anything.
+	 */
+	synchronized void writeInterval()
+	{
+		if (_failed)
+		{
+			return;
+		}
+		long startms=_intervalstartms;
+		_measurements.swapIntervals(Measurements.LOG_INTERVAL,_intervals);
+		long endms=System.currentTimeMillis();
+		_intervalstartms=endms;
+		try
+		{
+			for (Map.Entry<String,LogLinearHistogram> e : _intervals.entrySet())
+			{
+				LogLinearHistogram h=e.getValue();
+				if (h.getTotalCount()==0)
+				{
+					continue;
+				}
+				writeRecord(startms,endms,e.getKey(),h);
+				h.reset();
+			}
+			flush();
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not write the latency log, no longer writing it: "+e.getMessage());
+			e.printStackTrace();
+			_failed=true;
+		}
+	}
+
+	private void writeRecord(long startms, long endms, String name, LogLinearHistogram h) throws IOException
+	{
+		byte[] namebytes=encodeName(name);
+		int bound=4+8+8+2+namebytes.length+h.getEncodedSizeBound();
+		if (_buffer.remaining()<bound)
+		{
+			flush();
+			if (_buffer.capacity()<bound)
+			{
+				_buffer=ByteBuffer.allocateDirect(bound);
+			}
+		}
+		int lengthposition=_buffer.position();
+		_buffer.putInt(0);
+		_buffer.putLong(startms);
+		_buffer.putLong(endms);
+		_buffer.putShort((short)namebytes.length);
+		_buffer.put(namebytes);
+		h.encode(_buffer);
+		_buffer.putInt(lengthposition,_buffer.position()-lengthposition-4);
+	}
+
+	static byte[] encodeName(String name)
+	{
+		try
+		{
+			return name.getBytes("UTF-8");
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void flush() throws IOException
+	{
+		_buffer.flip();
+		while (_buffer.hasRemaining())
+		{
+			_channel.write(_buffer);
+		}
+		_buffer.clear();
+	}
+}
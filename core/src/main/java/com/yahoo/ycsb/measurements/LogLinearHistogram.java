@@ -0,0 +1,422 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A histogram of non-negative long values with log-linear buckets, in the style of HdrHistogram.
+ *
+ * Values are grouped into buckets whose width doubles at each power of two, and every bucket is split into
+ * enough linear sub-buckets to keep the given number of significant decimal digits. For example, with 3 significant
+ * digits every recorded value is kept to within 0.1% of its true value, whether it is 80 microseconds or 20 seconds.
+ * The number of buckets grows on demand to cover the largest value recorded, so the range is unbounded, and the memory
+ * used depends only on the precision and the magnitude of the largest value, never on the number of values recorded.
+ *
+ * This class is not thread safe.
+ */
+public class LogLinearHistogram
+{
+	final int significantdigits;
+
+	/**
+	 * log2 of half the number of sub-buckets per bucket.
+	 */
+	final int subbuckethalfcountmagnitude;
+	final int subbuckethalfcount;
+	final int subbucketcount;
+	final long subbucketmask;
+
+	long[] counts;
+	long totalcount;
+	long totalsum;
+	long min;
+	long max;
+
+	/**
+	 * Create a histogram that keeps the given number of significant decimal digits.
+	 *
+	 * @param significantdigits the precision to keep, between 1 and 5
+	 */
+	public LogLinearHistogram(int significantdigits)
+	{
+		if ( (significantdigits<1) || (significantdigits>5) )
+		{
+			throw new IllegalArgumentException("significant digits must be between 1 and 5, not "+significantdigits);
+		}
+		this.significantdigits=significantdigits;
+
+		long largestvaluewithsingleunitresolution=2*(long)Math.pow(10,significantdigits);
+		int subbucketcountmagnitude=(int)Math.ceil(Math.log(largestvaluewithsingleunitresolution)/Math.log(2));
+		subbuckethalfcountmagnitude=subbucketcountmagnitude-1;
+		subbucketcount=1<<subbucketcountmagnitude;
+		subbuckethalfcount=subbucketcount/2;
+		subbucketmask=subbucketcount-1;
+
+		counts=new long[countsLength(1)];
+		reset();
+	}
+
+	/**
+	 * Create a copy of another histogram.
+	 */
+	public LogLinearHistogram(LogLinearHistogram other)
+	{
+		this(other.significantdigits);
+		add(other);
+	}
+
+	public int getSignificantDigits()
+	{
+		return significantdigits;
+	}
+
+	/**
+	 * Record one occurrence of a value.
+	 */
+	public void recordValue(long value)
+	{
+		recordValues(value,1);
+	}
+
+	/**
+	 * Record several occurrences of the same value.
+	 */
+	public void recordValues(long value, long count)
+	{
+		if (value<0)
+		{
+			throw new IllegalArgumentException("Cannot record negative value "+value);
+		}
+		int index=countsIndex(value);
+		if (index>=counts.length)
+		{
+			grow(countsLength(bucketIndex(value)+1));
+		}
+		counts[index]+=count;
+		totalcount+=count;
+		totalsum+=value*count;
+		if (value<min)
+		{
+			min=value;
+		}
+		if (value>max)
+		{
+			max=value;
+		}
+	}
+
+	/**
+	 * Add all the values recorded by another histogram with the same precision to this one.
+	 */
+	public void add(LogLinearHistogram other)
+	{
+		if (other.significantdigits!=significantdigits)
+		{
+			throw new IllegalArgumentException("Cannot add a histogram with "+other.significantdigits+" significant digits to one with "+significantdigits);
+		}
+		if (other.totalcount==0)
+		{
+			return;
+		}
+		if (other.counts.length>counts.length)
+		{
+			grow(other.counts.length);
+		}
+		for (int i=0; i<other.counts.length; i++)
+		{
+			counts[i]+=other.counts[i];
+		}
+		totalcount+=other.totalcount;
+		totalsum+=other.totalsum;
+		min=Math.min(min,other.min);
+		max=Math.max(max,other.max);
+	}
+
+	/**
+	 * Remove all recorded values. The memory already allocated is kept.
+	 */
+	public void reset()
+	{
+		java.util.Arrays.fill(counts,0);
+		totalcount=0;
+		totalsum=0;
+		min=Long.MAX_VALUE;
+		max=0;
+	}
+
+	public long getTotalCount()
+	{
+		return totalcount;
+	}
+
+	/**
+	 * The exact sum of all recorded values.
+	 */
+	public long getTotalSum()
+	{
+		return totalsum;
+	}
+
+	/**
+	 * The exact smallest recorded value, or 0 if nothing was recorded.
+	 */
+	public long getMinValue()
+	{
+		return totalcount==0 ? 0 : min;
+	}
+
+	/**
+	 * The exact largest recorded value, or 0 if nothing was recorded.
+	 */
+	public long getMaxValue()
+	{
+		return max;
+	}
+
+	/**
+	 * The exact mean of all recorded values, or 0 if nothing was recorded.
+	 */
+	public double getMean()
+	{
+		return totalcount==0 ? 0 : ((double)totalsum)/((double)totalcount);
+	}
+
+	/**
+	 * Return the value below which the given percentage of the recorded values fall. The result is the highest
+	 * value that is indistinguishable from the true percentile at this histogram's precision, capped at the
+	 * recorded maximum.
+	 *
+	 * @param percentile the percentile, between 0 and 100
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		if (totalcount==0)
+		{
+			return 0;
+		}
+		double p=Math.min(Math.max(percentile,0.0),100.0);
+		long countatpercentile=Math.max(1,(long)Math.ceil((p/100.0)*totalcount));
+		long cumulative=0;
+		for (int i=0; i<counts.length; i++)
+		{
+			cumulative+=counts[i];
+			if (cumulative>=countatpercentile)
+			{
+				return Math.min(highestEquivalentValue(valueFromIndex(i)),max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Return an upper bound on the number of bytes encode() writes for this histogram as it is now.
+	 */
+	public int getEncodedSizeBound()
+	{
+		int nonzero=0;
+		for (int i=0; i<counts.length; i++)
+		{
+			if (counts[i]!=0)
+			{
+				nonzero++;
+			}
+		}
+		return 1+4*MAX_VARINT_LENGTH+nonzero*(5+MAX_VARINT_LENGTH);
+	}
+
+	/**
+	 * Write the histogram in a compact form: the precision, the exact sum, minimum and maximum, then each non-zero
+	 * counter as the distance from the previous one and its count, all as variable-length integers. Histograms of
+	 * one interval typically take a few hundred bytes.
+	 *
+	 * @throws java.nio.BufferOverflowException if the buffer has fewer than getEncodedSizeBound() bytes left
+	 */
+	public void encode(ByteBuffer buffer)
+	{
+		int nonzero=0;
+		for (int i=0; i<counts.length; i++)
+		{
+			if (counts[i]!=0)
+			{
+				nonzero++;
+			}
+		}
+		buffer.put((byte)significantdigits);
+		putVarint(buffer,totalsum);
+		putVarint(buffer,totalcount==0 ? 0 : min);
+		putVarint(buffer,max);
+		putVarint(buffer,nonzero);
+		int last=0;
+		for (int i=0; i<counts.length; i++)
+		{
+			if (counts[i]!=0)
+			{
+				putVarint(buffer,i-last);
+				putVarint(buffer,counts[i]);
+				last=i;
+			}
+		}
+	}
+
+	/**
+	 * Read a histogram written by encode().
+	 *
+	 * @throws IllegalArgumentException if the encoding is corrupt
+	 */
+	public static LogLinearHistogram decode(ByteBuffer buffer)
+	{
+		LogLinearHistogram h=new LogLinearHistogram(buffer.get());
+		long totalsum=getVarint(buffer);
+		long min=getVarint(buffer);
+		long max=getVarint(buffer);
+		long nonzero=getVarint(buffer);
+		int index=0;
+		for (long n=0; n<nonzero; n++)
+		{
+			index+=(int)getVarint(buffer);
+			long count=getVarint(buffer);
+			if ( (index<0) || (count<=0) )
+			{
+				throw new IllegalArgumentException("Corrupt histogram encoding");
+			}
+			h.recordValues(h.valueFromIndex(index),count);
+		}
+		if (h.totalcount>0)
+		{
+			h.totalsum=totalsum;
+			h.min=min;
+			h.max=max;
+		}
+		return h;
+	}
+
+	static final int MAX_VARINT_LENGTH=10;
+
+	/**
+	 * Write a non-negative value seven bits at a time, least significant first.
+	 */
+	static void putVarint(ByteBuffer buffer, long value)
+	{
+		while ((value&~0x7FL)!=0)
+		{
+			buffer.put((byte)((value&0x7F)|0x80));
+			value>>>=7;
+		}
+		buffer.put((byte)value);
+	}
+
+	static long getVarint(ByteBuffer buffer)
+	{
+		long value=0;
+		for (int shift=0; shift<64; shift+=7)
+		{
+			byte b=buffer.get();
+			value|=((long)(b&0x7F))<<shift;
+			if ((b&0x80)==0)
+			{
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Corrupt variable-length integer");
+	}
+
+	/**
+	 * Return the number of recorded values that are indistinguishable from the given value at this precision.
+	 */
+	public long getCountAtValue(long value)
+	{
+		int index=countsIndex(value);
+		return index<counts.length ? counts[index] : 0;
+	}
+
+	/**
+	 * Return the number of sub-bucket counters currently allocated.
+	 */
+	public int getCountsLength()
+	{
+		return counts.length;
+	}
+
+	/**
+	 * Return the count held in the counter at the given index. Together with getCountsLength() and
+	 * valueFromIndex() this allows the histogram contents to be iterated or serialized.
+	 */
+	public long getCountAtIndex(int index)
+	{
+		return counts[index];
+	}
+
+	/**
+	 * Return the lowest value that is counted in the counter at the given index.
+	 */
+	public long valueFromIndex(int index)
+	{
+		int bucketindex=(index>>subbuckethalfcountmagnitude)-1;
+		int subbucketindex=(index&(subbuckethalfcount-1))+subbuckethalfcount;
+		if (bucketindex<0)
+		{
+			subbucketindex-=subbuckethalfcount;
+			bucketindex=0;
+		}
+		return ((long)subbucketindex)<<bucketindex;
+	}
+
+	/**
+	 * Return the highest value that is counted in the same counter as the given value.
+	 */
+	public long highestEquivalentValue(long value)
+	{
+		int bucketindex=bucketIndex(value);
+		int subbucketindex=subBucketIndex(value,bucketindex);
+		long lowest=((long)subbucketindex)<<bucketindex;
+		return lowest+(1L<<bucketindex)-1;
+	}
+
+	int bucketIndex(long value)
+	{
+		return 64-subbuckethalfcountmagnitude-1-Long.numberOfLeadingZeros(value|subbucketmask);
+	}
+
+	int subBucketIndex(long value, int bucketindex)
+	{
+		return (int)(value>>>bucketindex);
+	}
+
+	int countsIndex(long value)
+	{
+		int bucketindex=bucketIndex(value);
+		int subbucketindex=subBucketIndex(value,bucketindex);
+		return ((bucketindex+1)<<subbuckethalfcountmagnitude)+(subbucketindex-subbuckethalfcount);
+	}
+
+	int countsLength(int bucketcount)
+	{
+		return (bucketcount+1)*subbuckethalfcount;
+	}
+
+	/**
+	 * Grow the counts to the given length, keeping the values already recorded.
+	 */
+	void grow(int length)
+	{
+		long[] newcounts=new long[length];
+		System.arraycopy(counts,0,newcounts,0,counts.length);
+		counts=newcounts;
+	}
+}
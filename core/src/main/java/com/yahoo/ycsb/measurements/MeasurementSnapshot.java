@@ -0,0 +1,152 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A point-in-time copy of the counters of one metric, such as READ, taken while the run is in progress so that
+ * it can be reported without holding any of the locks the client threads record under. Latencies are in
+ * microseconds.
+ */
+public class MeasurementSnapshot
+{
+	final String _name;
+	final long _operations;
+	final long _totallatency;
+	final long _min;
+	final long _max;
+	final double[] _percentiles;
+	final long[] _percentilevalues;
+	final SortedMap<Integer,Long> _returncodes;
+
+	/**
+	 * @param min the smallest latency recorded, or -1 if unknown
+	 * @param max the largest latency recorded, or -1 if unknown
+	 * @param percentiles the percentiles that were computed, e.g. 99.9
+	 * @param percentilevalues the latency at each of the percentiles
+	 * @param returncodes the number of operations that returned each code
+	 */
+	public MeasurementSnapshot(String name, long operations, long totallatency, long min, long max,
+			double[] percentiles, long[] percentilevalues, Map<Integer,Long> returncodes)
+	{
+		if (percentiles.length!=percentilevalues.length)
+		{
+			throw new IllegalArgumentException("Got "+percentilevalues.length+" values for "+percentiles.length+" percentiles");
+		}
+		_name=name;
+		_operations=operations;
+		_totallatency=totallatency;
+		_min=min;
+		_max=max;
+		_percentiles=percentiles.clone();
+		_percentilevalues=percentilevalues.clone();
+		_returncodes=Collections.unmodifiableSortedMap(new TreeMap<Integer,Long>(returncodes));
+	}
+
+	public String getName()
+	{
+		return _name;
+	}
+
+	public long getOperations()
+	{
+		return _operations;
+	}
+
+	/**
+	 * The sum of the latencies of all the operations.
+	 */
+	public long getTotalLatency()
+	{
+		return _totallatency;
+	}
+
+	/**
+	 * The mean latency, or NaN if no operations were recorded.
+	 */
+	public double getAverageLatency()
+	{
+		return _operations==0 ? Double.NaN : ((double)_totallatency)/((double)_operations);
+	}
+
+	/**
+	 * The smallest latency recorded, or -1 if unknown.
+	 */
+	public long getMinLatency()
+	{
+		return _min;
+	}
+
+	/**
+	 * The largest latency recorded, or -1 if unknown.
+	 */
+	public long getMaxLatency()
+	{
+		return _max;
+	}
+
+	/**
+	 * The percentiles for which getPercentileLatencies() holds values; empty if the measurement type does not
+	 * keep a distribution.
+	 */
+	public double[] getPercentiles()
+	{
+		return _percentiles.clone();
+	}
+
+	public long[] getPercentileLatencies()
+	{
+		return _percentilevalues.clone();
+	}
+
+	/**
+	 * The number of operations that returned each code, ordered by code.
+	 */
+	public SortedMap<Integer,Long> getReturnCodes()
+	{
+		return _returncodes;
+	}
+
+	/**
+	 * Return the counters recorded between an earlier snapshot of the same metric and this one. Only counters
+	 * can be subtracted, so the result has no minimum, maximum or percentiles.
+	 *
+	 * @param previous the earlier snapshot, or null to take everything recorded so far
+	 */
+	public MeasurementSnapshot since(MeasurementSnapshot previous)
+	{
+		long operations=_operations;
+		long totallatency=_totallatency;
+		TreeMap<Integer,Long> returncodes=new TreeMap<Integer,Long>(_returncodes);
+		if (previous!=null)
+		{
+			operations-=previous._operations;
+			totallatency-=previous._totallatency;
+			for (Map.Entry<Integer,Long> e : previous._returncodes.entrySet())
+			{
+				Long count=returncodes.get(e.getKey());
+				returncodes.put(e.getKey(),(count==null ? 0 : count)-e.getValue());
+			}
+		}
+		return new MeasurementSnapshot(_name,operations,totallatency,-1,-1,new double[0],new long[0],returncodes);
+	}
+}
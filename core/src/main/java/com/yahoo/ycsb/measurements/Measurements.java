@@ -18,8 +18,17 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -35,6 +44,37 @@ public class Measurements
 
 	private static final String MEASUREMENT_TYPE_DEFAULT = "histogram";
 
+	/**
+	 * Whether each thread records into its own measurements, which are merged when a summary or export
+	 * is requested. This removes the shared locks from the measurement path.
+	 */
+	public static final String MEASUREMENT_THREADLOCAL = "measurement.threadlocal";
+
+	public static final String MEASUREMENT_THREADLOCAL_DEFAULT = "false";
+
+	/**
+	 * Whether to also record, for every operation issued against a target throughput, the latency measured from
+	 * the time the operation was scheduled to start rather than the time it was actually issued. These are
+	 * reported as INTENDED-&lt;operation&gt; and include the time requests spent waiting behind slow earlier
+	 * operations, which the plain service time omits.
+	 */
+	public static final String MEASUREMENT_INTENDED_LATENCY = "measurement.intendedlatency";
+
+	public static final String MEASUREMENT_INTENDED_LATENCY_DEFAULT = "true";
+
+	/**
+	 * Whether to also export the raw contents of each histogram, so that the results of several clients can be
+	 * combined into exact aggregate percentiles with MeasurementsMerger.
+	 */
+	public static final String MEASUREMENT_EXPORT_RAW = "measurement.exportraw";
+
+	public static final String MEASUREMENT_EXPORT_RAW_DEFAULT = "false";
+
+	/**
+	 * Marks that no intended start time has been set for the calling thread.
+	 */
+	static final long NO_INTENDED_START = Long.MIN_VALUE;
+
 	static Measurements singleton=null;
 	
 	static Properties measurementproperties=null;
@@ -56,8 +96,104 @@ public class Measurements
 		return singleton;
 	}
 
+	/**
+	 * The measurements recorded by one thread. Only the owning thread records into these, so they are
+	 * never contended; readers merge them when a summary or export is requested.
+	 */
+	static class ThreadMeasurements
+	{
+		final AtomicReferenceArray<OneMeasurement> operations=new AtomicReferenceArray<OneMeasurement>(Operation.values().length);
+		final AtomicReferenceArray<OneMeasurement> intended=new AtomicReferenceArray<OneMeasurement>(Operation.values().length);
+		final Map<String,OneMeasurement> named=new ConcurrentHashMap<String,OneMeasurement>();
+
+		long intendedstartns=NO_INTENDED_START;
+	}
+
 	HashMap<String,OneMeasurement> data;
 	boolean histogram=true;
+	boolean hdrhistogram=false;
+	boolean threadlocal=false;
+	boolean intendedlatency=true;
+
+	final List<ThreadMeasurements> threadmeasurements=new CopyOnWriteArrayList<ThreadMeasurements>();
+
+	final ThreadLocal<ThreadMeasurements> perthread=new ThreadLocal<ThreadMeasurements>()
+	{
+		protected ThreadMeasurements initialValue()
+		{
+			ThreadMeasurements t=new ThreadMeasurements();
+			threadmeasurements.add(t);
+			return t;
+		}
+	};
+
+	/**
+	 * The interval reader of the status thread, see getIntervalSummary().
+	 */
+	static final int STATUS_INTERVAL=0;
+
+	/**
+	 * The interval reader of the latency log, see LatencyLogWriter.
+	 */
+	static final int LOG_INTERVAL=1;
+
+	/**
+	 * Whether the status thread reports the latencies of each interval. The client sets this when it runs with -s.
+	 */
+	public static final String MEASUREMENT_STATUS="measurement.status";
+
+	/**
+	 * Return whether the given interval reader is enabled: the status thread if status is shown, the latency log
+	 * if one is written.
+	 */
+	static boolean isIntervalReader(Properties props, int reader)
+	{
+		if (reader==STATUS_INTERVAL)
+		{
+			return Boolean.parseBoolean(props.getProperty(MEASUREMENT_STATUS,"false"));
+		}
+		return props.getProperty(LatencyLogWriter.FILE)!=null;
+	}
+
+	/**
+	 * Return the number of interval readers that measurements must keep a slot for, up to the last one enabled:
+	 * 0 if there are none, in which case nothing is recorded into interval histograms at all.
+	 */
+	static int intervalReaders(Properties props)
+	{
+		if (isIntervalReader(props,LOG_INTERVAL))
+		{
+			return LOG_INTERVAL+1;
+		}
+		return isIntervalReader(props,STATUS_INTERVAL) ? STATUS_INTERVAL+1 : 0;
+	}
+
+	/**
+	 * The percentiles getIntervalSummary() reports, as a comma separated list.
+	 */
+	public static final String STATUS_PERCENTILES="status.percentiles";
+
+	public static final String STATUS_PERCENTILES_DEFAULT="50,95,99";
+
+	/**
+	 * Guards the interval histograms while they are swapped out and merged by getIntervalSummary(). This is not
+	 * the Measurements lock, which shared measurements are recorded under.
+	 */
+	final Object intervallock=new Object();
+
+	/**
+	 * The interval histograms of all threads, merged by metric name, reused from one interval to the next.
+	 */
+	final TreeMap<String,LogLinearHistogram> intervals=new TreeMap<String,LogLinearHistogram>();
+
+	long lastintervalns=System.nanoTime();
+
+	double[] statuspercentiles;
+
+	/**
+	 * The merged per-thread measurements as of the last call to getSummary().
+	 */
+	HashMap<String,OneMeasurement> lastsummary=new HashMap<String,OneMeasurement>();
 
 	private Properties _props;
 	
@@ -70,7 +206,8 @@ public class Measurements
 		
 		_props=props;
 		
-		if (_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT).compareTo("histogram")==0)
+		String measurementtype=_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT);
+		if (measurementtype.compareTo("histogram")==0)
 		{
 			histogram=true;
 		}
@@ -78,6 +215,18 @@ public class Measurements
 		{
 			histogram=false;
 		}
+		hdrhistogram=(measurementtype.compareTo("hdrhistogram")==0);
+
+		threadlocal=Boolean.parseBoolean(_props.getProperty(MEASUREMENT_THREADLOCAL, MEASUREMENT_THREADLOCAL_DEFAULT));
+		if (threadlocal && !histogram && !hdrhistogram)
+		{
+			System.err.println("Per-thread measurements are only supported for histograms; recording shared measurements instead.");
+			threadlocal=false;
+		}
+
+		intendedlatency=Boolean.parseBoolean(_props.getProperty(MEASUREMENT_INTENDED_LATENCY, MEASUREMENT_INTENDED_LATENCY_DEFAULT));
+
+		statuspercentiles=OneMeasurementHdrHistogram.parsePercentiles(_props.getProperty(STATUS_PERCENTILES, STATUS_PERCENTILES_DEFAULT));
 	}
 	
 	OneMeasurement constructOneMeasurement(String name)
@@ -86,16 +235,203 @@ public class Measurements
 		{
 			return new OneMeasurementHistogram(name,_props);
 		}
+		else if (hdrhistogram)
+		{
+			return new OneMeasurementHdrHistogram(name,_props);
+		}
 		else
 		{
 			return new OneMeasurementTimeSeries(name,_props);
 		}
 	}
 
+	/**
+	 * Return the calling thread's measurement for the given operation, creating it if needed.
+	 */
+	OneMeasurement threadMeasurement(Operation operation)
+	{
+		AtomicReferenceArray<OneMeasurement> operations=perthread.get().operations;
+		OneMeasurement m=operations.get(operation.ordinal());
+		if (m==null)
+		{
+			m=constructOneMeasurement(operation.getName());
+			operations.set(operation.ordinal(),m);
+		}
+		return m;
+	}
+
+	/**
+	 * Return the calling thread's intended latency measurement for the given operation, creating it if needed.
+	 */
+	OneMeasurement threadIntendedMeasurement(Operation operation)
+	{
+		AtomicReferenceArray<OneMeasurement> intended=perthread.get().intended;
+		OneMeasurement m=intended.get(operation.ordinal());
+		if (m==null)
+		{
+			m=constructOneMeasurement(operation.getIntendedName());
+			intended.set(operation.ordinal(),m);
+		}
+		return m;
+	}
+
+	/**
+	 * Return the calling thread's measurement for the given metric name, creating it if needed.
+	 */
+	OneMeasurement threadMeasurement(String name)
+	{
+		Operation operation=Operation.forName(name);
+		if (operation!=null)
+		{
+			return threadMeasurement(operation);
+		}
+		Map<String,OneMeasurement> named=perthread.get().named;
+		OneMeasurement m=named.get(name);
+		if (m==null)
+		{
+			m=constructOneMeasurement(name);
+			named.put(name,m);
+		}
+		return m;
+	}
+
+	/**
+	 * Report a single value of one of the well-known operations. When measurements are recorded per thread
+	 * this avoids any shared lookup or lock.
+	 */
+	public void measure(Operation operation, int latency)
+	{
+		if (!threadlocal)
+		{
+			measure(operation.getName(),latency);
+			return;
+		}
+		try
+		{
+			threadMeasurement(operation).measure(latency);
+		}
+		catch (java.lang.ArrayIndexOutOfBoundsException e)
+		{
+			ignore(e);
+		}
+	}
+
+	/**
+	 * Report a latency a measurement could not record, and carry on without it.
+	 */
+	private static void ignore(ArrayIndexOutOfBoundsException e)
+	{
+		System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
+		e.printStackTrace();
+		e.printStackTrace(System.out);
+	}
+
+	/**
+	 * Set the time at which the calling thread's next operation should have started to keep up with the target
+	 * throughput. Until it is set again or cleared, operations measured on this thread also record their latency
+	 * from this time.
+	 *
+	 * @param time the intended start time, as returned by System.nanoTime()
+	 */
+	public void setIntendedStartTimeNs(long time)
+	{
+		perthread.get().intendedstartns=time;
+	}
+
+	/**
+	 * Stop recording intended latencies for the calling thread, e.g. when it is not running against a target throughput.
+	 */
+	public void clearIntendedStartTime()
+	{
+		perthread.get().intendedstartns=NO_INTENDED_START;
+	}
+
+	/**
+	 * The time at which the calling thread's current operation should have started, or NO_INTENDED_START if none
+	 * is set.
+	 */
+	public long getIntendedStartTimeNs()
+	{
+		return perthread.get().intendedstartns;
+	}
+
+	/**
+	 * Record the latency of an operation measured from the calling thread's intended start time, or from the time
+	 * it actually started if that was earlier. Does nothing if no intended start time is set or intended latencies
+	 * are disabled.
+	 *
+	 * @param starttimens the time the operation actually started, as returned by System.nanoTime()
+	 * @param endtimens the time the operation completed, as returned by System.nanoTime()
+	 */
+	public void measureIntended(Operation operation, long starttimens, long endtimens)
+	{
+		measureIntended(operation,perthread.get().intendedstartns,starttimens,endtimens);
+	}
+
+	/**
+	 * Record the latency of an operation measured from the given intended start time, e.g. one taken with
+	 * getIntendedStartTimeNs() when an asynchronous operation was issued.
+	 *
+	 * @param intendedstartns the intended start time, or NO_INTENDED_START to record nothing
+	 * @param starttimens the time the operation actually started, as returned by System.nanoTime()
+	 * @param endtimens the time the operation completed, as returned by System.nanoTime()
+	 */
+	public void measureIntended(Operation operation, long intendedstartns, long starttimens, long endtimens)
+	{
+		if ( (!intendedlatency) || (intendedstartns==NO_INTENDED_START) )
+		{
+			return;
+		}
+		int latency=(int)((endtimens-Math.min(starttimens,intendedstartns))/1000);
+		if (!threadlocal)
+		{
+			measure(operation.getIntendedName(),latency);
+			return;
+		}
+		try
+		{
+			threadIntendedMeasurement(operation).measure(latency);
+		}
+		catch (java.lang.ArrayIndexOutOfBoundsException e)
+		{
+			ignore(e);
+		}
+	}
+
+	/**
+	 * Report a return code for one of the well-known operations.
+	 */
+	public void reportReturnCode(Operation operation, int code)
+	{
+		if (!threadlocal)
+		{
+			reportReturnCode(operation.getName(),code);
+			return;
+		}
+		threadMeasurement(operation).reportReturnCode(code);
+	}
+
       /**
        * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured value.
        */
-	public synchronized void measure(String operation, int latency)
+	public void measure(String operation, int latency)
+	{
+		if (threadlocal)
+		{
+			try
+			{
+				threadMeasurement(operation).measure(latency);
+			}
+			catch (java.lang.ArrayIndexOutOfBoundsException e)
+			{
+				ignore(e);
+			}
+			return;
+		}
+		measureShared(operation,latency);
+	}
+
+	private synchronized void measureShared(String operation, int latency)
 	{
 		if (!data.containsKey(operation))
 		{
@@ -113,9 +449,7 @@ public class Measurements
 		}
 		catch (java.lang.ArrayIndexOutOfBoundsException e)
 		{
-			System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
-			e.printStackTrace();
-			e.printStackTrace(System.out);
+			ignore(e);
 		}
 	}
 
@@ -124,6 +458,11 @@ public class Measurements
        */
 	public void reportReturnCode(String operation, int code)
 	{
+		if (threadlocal)
+		{
+			threadMeasurement(operation).reportReturnCode(code);
+			return;
+		}
 		if (!data.containsKey(operation))
 		{
 			synchronized(this)
@@ -145,17 +484,90 @@ public class Measurements
    */
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
-    for (OneMeasurement measurement : data.values())
+    Map<String,OneMeasurement> measurements=threadlocal ? mergeThreadMeasurements() : data;
+    for (OneMeasurement measurement : measurements.values())
     {
       measurement.exportMeasurements(exporter);
     }
   }
+
+	/**
+	 * Merge the measurements recorded by each thread into one measurement per metric.
+	 */
+	HashMap<String,OneMeasurement> mergeThreadMeasurements()
+	{
+		HashMap<String,OneMeasurement> merged=new HashMap<String,OneMeasurement>();
+		for (ThreadMeasurements t : threadmeasurements)
+		{
+			for (int i=0; i<t.operations.length(); i++)
+			{
+				OneMeasurement m=t.operations.get(i);
+				if (m!=null)
+				{
+					mergeInto(merged,m);
+				}
+				m=t.intended.get(i);
+				if (m!=null)
+				{
+					mergeInto(merged,m);
+				}
+			}
+			for (OneMeasurement m : t.named.values())
+			{
+				mergeInto(merged,m);
+			}
+		}
+		return merged;
+	}
+
+	private void mergeInto(HashMap<String,OneMeasurement> merged, OneMeasurement m)
+	{
+		OneMeasurement total=merged.get(m.getName());
+		if (total==null)
+		{
+			total=constructOneMeasurement(m.getName());
+			merged.put(m.getName(),total);
+		}
+		total.merge(m);
+	}
+
+	/**
+	 * Return a copy of the counters of every metric recorded so far, keyed by metric name. Unlike getSummary(),
+	 * this changes no state, so any number of readers may call it while the run is in progress.
+	 *
+	 * @param percentiles the latency percentiles to compute for metrics that keep a distribution
+	 */
+	public SortedMap<String,MeasurementSnapshot> getSnapshots(double[] percentiles)
+	{
+		TreeMap<String,MeasurementSnapshot> snapshots=new TreeMap<String,MeasurementSnapshot>();
+		if (threadlocal)
+		{
+			for (OneMeasurement m : mergeThreadMeasurements().values())
+			{
+				snapshots.put(m.getName(),m.getSnapshot(percentiles));
+			}
+			return snapshots;
+		}
+		synchronized (this)
+		{
+			for (OneMeasurement m : data.values())
+			{
+				snapshots.put(m.getName(),m.getSnapshot(percentiles));
+			}
+		}
+		return snapshots;
+	}
 	
       /**
        * Return a one line summary of the measurements.
        */
 	public String getSummary()
 	{
+		if (threadlocal)
+		{
+			return getMergedSummary();
+		}
+
 		String ret="";
 		for (OneMeasurement m : data.values())
 		{
@@ -164,4 +576,125 @@ public class Measurements
 		
 		return ret;
 	}
+
+	/**
+	 * Return every measurement recording into the interval histograms: those of each thread if measurements are
+	 * recorded per thread, otherwise the shared ones.
+	 */
+	List<OneMeasurement> getRecordingMeasurements()
+	{
+		ArrayList<OneMeasurement> measurements=new ArrayList<OneMeasurement>();
+		if (threadlocal)
+		{
+			for (ThreadMeasurements t : threadmeasurements)
+			{
+				for (int i=0; i<t.operations.length(); i++)
+				{
+					if (t.operations.get(i)!=null)
+					{
+						measurements.add(t.operations.get(i));
+					}
+					if (t.intended.get(i)!=null)
+					{
+						measurements.add(t.intended.get(i));
+					}
+				}
+				measurements.addAll(t.named.values());
+			}
+		}
+		else
+		{
+			synchronized (this)
+			{
+				measurements.addAll(data.values());
+			}
+		}
+		return measurements;
+	}
+
+	/**
+	 * End the current interval of an interval reader for every metric, and add the latencies recorded in it to the
+	 * histogram of the metric's name in the given map, creating it if needed. Must not be called concurrently for
+	 * the same reader.
+	 *
+	 * @param reader STATUS_INTERVAL or LOG_INTERVAL
+	 * @param intervals the interval histograms by metric name
+	 * @return the measurements that keep no interval histograms
+	 */
+	List<OneMeasurement> swapIntervals(int reader, Map<String,LogLinearHistogram> intervals)
+	{
+		ArrayList<OneMeasurement> without=new ArrayList<OneMeasurement>();
+		for (OneMeasurement m : getRecordingMeasurements())
+		{
+			LogLinearHistogram ended=m.swapIntervalHistogram(reader);
+			if (ended==null)
+			{
+				without.add(m);
+				continue;
+			}
+			LogLinearHistogram merged=intervals.get(m.getName());
+			if (merged==null)
+			{
+				merged=new LogLinearHistogram(ended.getSignificantDigits());
+				intervals.put(m.getName(),merged);
+			}
+			merged.add(ended);
+			ended.reset();
+		}
+		return without;
+	}
+
+	/**
+	 * Return a one line summary of each metric over the interval since the previous call: its average latency,
+	 * throughput, latency percentiles and maximum. Each call starts a new interval. Measurement types that keep no
+	 * interval histogram are summarized as by getSummary().
+	 */
+	public String getIntervalSummary()
+	{
+		synchronized (intervallock)
+		{
+			List<OneMeasurement> without=swapIntervals(STATUS_INTERVAL,intervals);
+			long now=System.nanoTime();
+			double seconds=(now-lastintervalns)/1e9;
+			lastintervalns=now;
+
+			String ret="";
+			for (OneMeasurement m : without)
+			{
+				ret+=m.getSummary()+" ";
+			}
+
+			DecimalFormat d=new DecimalFormat("#.##");
+			for (Map.Entry<String,LogLinearHistogram> e : intervals.entrySet())
+			{
+				LogLinearHistogram h=e.getValue();
+				if (h.getTotalCount()==0)
+				{
+					continue;
+				}
+				ret+="["+e.getKey()+" AverageLatency(us)="+d.format(h.getMean());
+				ret+=" Throughput(ops/sec)="+d.format(h.getTotalCount()/seconds);
+				for (double p : statuspercentiles)
+				{
+					ret+=" p"+d.format(p)+"(us)="+h.getValueAtPercentile(p);
+				}
+				ret+=" Max(us)="+h.getMaxValue()+"] ";
+				h.reset();
+			}
+			return ret;
+		}
+	}
+
+	private synchronized String getMergedSummary()
+	{
+		HashMap<String,OneMeasurement> merged=mergeThreadMeasurements();
+		String ret="";
+		for (OneMeasurement m : merged.values())
+		{
+			ret+=m.getSummarySince(lastsummary.get(m.getName()))+" ";
+		}
+		lastsummary=merged;
+
+		return ret;
+	}
 }
@@ -0,0 +1,567 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+/**
+ * Combines the results of several clients that ran against the same database at the same time, e.g. as described
+ * in doc/parallelclients.html, into the results of the whole run. Percentiles cannot be averaged, so the clients
+ * must export their raw histograms with measurement.exportraw=true; the merged histograms then give the exact
+ * percentiles of all operations.
+ *
+ * <pre>
+ * java com.yahoo.ycsb.measurements.MeasurementsMerger [-percentiles list] [-start s] [-end s] [-interval s] file...
+ * </pre>
+ *
+ * Each file is either the text or JSON export of one client or a latency log written with measurement.log. The
+ * exports are merged into one export; the latency logs are merged by wall clock time as by LatencyLogReader, which
+ * also gives the series of intervals across all clients.
+ */
+public class MeasurementsMerger
+{
+	/**
+	 * The measurements of one metric, merged over all runs.
+	 */
+	static class MergedMetric
+	{
+		long _operations=0;
+		long _totallatency=0;
+		boolean _exacttotal=true;
+		long _min=-1;
+		long _max=-1;
+		TreeMap<Integer,Long> _returncodes=new TreeMap<Integer,Long>();
+
+		//the raw hdrhistogram export
+		LogLinearHistogram _histogram;
+
+		//or the raw histogram export, with millisecond buckets
+		long[] _buckets;
+
+		//set if a run had no raw histogram, or runs of different measurement types were merged
+		String _norawreason;
+
+		void add(String file, Map<String,String> measurements)
+		{
+			long operations=getLong(measurements,"Operations",0);
+			if (operations==0)
+			{
+				return;
+			}
+			_operations+=operations;
+			if (measurements.containsKey("TotalLatency(us)"))
+			{
+				_totallatency+=getLong(measurements,"TotalLatency(us)",0);
+			}
+			else
+			{
+				_totallatency+=Math.round(Double.parseDouble(measurements.get("AverageLatency(us)"))*operations);
+				_exacttotal=false;
+			}
+			long min=getLong(measurements,"MinLatency(us)",-1);
+			if ( (min>=0) && ((_min<0) || (min<_min)) )
+			{
+				_min=min;
+			}
+			_max=Math.max(_max,getLong(measurements,"MaxLatency(us)",-1));
+
+			LogLinearHistogram histogram=null;
+			TreeMap<Integer,Long> buckets=new TreeMap<Integer,Long>();
+			long overflow=0;
+			int bucketcount=0;
+			for (Map.Entry<String,String> e : measurements.entrySet())
+			{
+				String name=e.getKey();
+				if (name.startsWith("Return="))
+				{
+					Integer code=Integer.valueOf(name.substring("Return=".length()));
+					Long count=_returncodes.get(code);
+					_returncodes.put(code,(count==null ? 0 : count)+parseLong(e.getValue()));
+				}
+				else if (name.equals("SignificantDigits"))
+				{
+					histogram=new LogLinearHistogram(Integer.parseInt(e.getValue()));
+				}
+				else if ( (histogram!=null) && (name.startsWith(OneMeasurementHdrHistogram.RAW_BUCKET_PREFIX)) )
+				{
+					histogram.recordValues(Long.parseLong(name.substring(OneMeasurementHdrHistogram.RAW_BUCKET_PREFIX.length())),parseLong(e.getValue()));
+				}
+				else if (name.startsWith(">"))
+				{
+					overflow=parseLong(e.getValue());
+					bucketcount=Integer.parseInt(name.substring(1));
+				}
+				else if (isBucket(name))
+				{
+					buckets.put(Integer.valueOf(name),parseLong(e.getValue()));
+				}
+			}
+
+			if (_norawreason!=null)
+			{
+				return;
+			}
+			if (histogram!=null)
+			{
+				if (_buckets!=null)
+				{
+					_norawreason="merged runs with different measurement types";
+				}
+				else if (_histogram==null)
+				{
+					_histogram=histogram;
+				}
+				else if (_histogram.getSignificantDigits()!=histogram.getSignificantDigits())
+				{
+					_norawreason="merged runs with different hdrhistogram.significantdigits";
+				}
+				else
+				{
+					_histogram.add(histogram);
+				}
+			}
+			else if (bucketcount>0)
+			{
+				if (_histogram!=null)
+				{
+					_norawreason="merged runs with different measurement types";
+				}
+				else if ( (_buckets!=null) && (_buckets.length!=bucketcount+1) )
+				{
+					_norawreason="merged runs with different histogram.buckets";
+				}
+				else
+				{
+					if (_buckets==null)
+					{
+						_buckets=new long[bucketcount+1];
+					}
+					for (Map.Entry<Integer,Long> b : buckets.entrySet())
+					{
+						_buckets[b.getKey()]+=b.getValue();
+					}
+					_buckets[bucketcount]+=overflow;
+				}
+			}
+			else
+			{
+				_norawreason=file+" has no raw histogram, export it with "+Measurements.MEASUREMENT_EXPORT_RAW+"=true";
+			}
+		}
+
+		void export(String name, MeasurementsExporter exporter, double[] percentiles) throws IOException
+		{
+			exporter.write(name,"Operations",_operations);
+			if (_operations==0)
+			{
+				return;
+			}
+			exporter.write(name,"AverageLatency(us)",((double)_totallatency)/((double)_operations));
+			exporter.write(name,"MinLatency(us)",_min);
+			exporter.write(name,"MaxLatency(us)",_max);
+			if (!_exacttotal)
+			{
+				System.err.println(name+": the average latency is approximate; export with "+Measurements.MEASUREMENT_EXPORT_RAW+"=true for the exact average");
+			}
+
+			if (_norawreason!=null)
+			{
+				System.err.println(name+": no percentiles, "+_norawreason);
+			}
+			else if (_histogram!=null)
+			{
+				for (double p : percentiles)
+				{
+					exporter.write(name,OneMeasurementHdrHistogram.percentileLabel(p),Math.min(_histogram.getValueAtPercentile(p),_max));
+				}
+			}
+			else if (_buckets!=null)
+			{
+				for (double p : percentiles)
+				{
+					exporter.write(name,OneMeasurementHdrHistogram.percentileLabel(p).replace("(us)","(ms)"),bucketPercentile(p));
+				}
+			}
+
+			for (Map.Entry<Integer,Long> e : _returncodes.entrySet())
+			{
+				exporter.write(name,"Return="+e.getKey(),e.getValue());
+			}
+		}
+
+		/**
+		 * The millisecond bucket of a percentile, as OneMeasurementHistogram reports it; the overflow bucket is
+		 * reported as the number of buckets.
+		 */
+		long bucketPercentile(double percentile)
+		{
+			long total=0;
+			for (long count : _buckets)
+			{
+				total+=count;
+			}
+			long opcounter=0;
+			for (int i=0; i<_buckets.length; i++)
+			{
+				opcounter+=_buckets[i];
+				if (((double)opcounter)/((double)total)*100>=percentile)
+				{
+					return i;
+				}
+			}
+			return _buckets.length-1;
+		}
+	}
+
+	/**
+	 * Return whether a measurement is a millisecond bucket of OneMeasurementHistogram, as opposed to e.g. a
+	 * percentile.
+	 */
+	static boolean isBucket(String name)
+	{
+		for (int i=0; i<name.length(); i++)
+		{
+			if (!Character.isDigit(name.charAt(i)))
+			{
+				return false;
+			}
+		}
+		return name.length()>0;
+	}
+
+	static long getLong(Map<String,String> measurements, String name, long defaultvalue)
+	{
+		String value=measurements.get(name);
+		return value==null ? defaultvalue : parseLong(value);
+	}
+
+	/**
+	 * Parse a count or latency, which exporters may have written as a double.
+	 */
+	static long parseLong(String value)
+	{
+		try
+		{
+			return Long.parseLong(value);
+		}
+		catch (NumberFormatException e)
+		{
+			return Math.round(Double.parseDouble(value));
+		}
+	}
+
+	/**
+	 * Read an export written by TextMeasurementsExporter or JSONMeasurementsExporter into the measurements of each
+	 * metric, in the order they were written.
+	 */
+	static Map<String,Map<String,String>> readExport(String file) throws IOException
+	{
+		Map<String,Map<String,String>> metrics=new LinkedHashMap<String,Map<String,String>>();
+		PushbackReader in=new PushbackReader(new BufferedReader(new FileReader(file)));
+		try
+		{
+			int c;
+			while ( ((c=in.read())!=-1) && (Character.isWhitespace(c)) )
+			{
+			}
+			if (c!=-1)
+			{
+				in.unread(c);
+			}
+			if (c=='{')
+			{
+				JsonParser parser=new JsonFactory().createJsonParser(in);
+				while (parser.nextToken()==JsonToken.START_OBJECT)
+				{
+					String metric=null;
+					String measurement=null;
+					String value=null;
+					while (parser.nextToken()==JsonToken.FIELD_NAME)
+					{
+						String field=parser.getCurrentName();
+						parser.nextToken();
+						if (field.equals("metric"))
+						{
+							metric=parser.getText();
+						}
+						else if (field.equals("measurement"))
+						{
+							measurement=parser.getText();
+						}
+						else if (field.equals("value"))
+						{
+							value=parser.getText();
+						}
+						else
+						{
+							parser.skipChildren();
+						}
+					}
+					put(metrics,metric,measurement,value);
+				}
+			}
+			else
+			{
+				BufferedReader lines=new BufferedReader(in);
+				String line;
+				while ((line=lines.readLine())!=null)
+				{
+					int endmetric=line.indexOf("], ");
+					int startvalue=line.lastIndexOf(", ");
+					if ( (!line.startsWith("[")) || (endmetric<0) || (startvalue<=endmetric+1) )
+					{
+						continue;
+					}
+					put(metrics,line.substring(1,endmetric),line.substring(endmetric+3,startvalue),line.substring(startvalue+2).trim());
+				}
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		return metrics;
+	}
+
+	private static void put(Map<String,Map<String,String>> metrics, String metric, String measurement, String value)
+	{
+		if ( (metric==null) || (measurement==null) || (value==null) )
+		{
+			return;
+		}
+		Map<String,String> measurements=metrics.get(metric);
+		if (measurements==null)
+		{
+			measurements=new LinkedHashMap<String,String>();
+			metrics.put(metric,measurements);
+		}
+		measurements.put(measurement,value);
+	}
+
+	/**
+	 * Merge the exports of several runs and export the result, with the percentiles given by the
+	 * hdrhistogram.percentiles property.
+	 */
+	public static void merge(List<String> files, Properties props, MeasurementsExporter exporter) throws IOException
+	{
+		merge(files,OneMeasurementHdrHistogram.parsePercentiles(props.getProperty(OneMeasurementHdrHistogram.PERCENTILES,OneMeasurementHdrHistogram.PERCENTILES_DEFAULT)),exporter);
+	}
+
+	/**
+	 * Merge the exports of several runs and export the result.
+	 */
+	static void merge(List<String> files, double[] percentiles, MeasurementsExporter exporter) throws IOException
+	{
+		TreeMap<String,MergedMetric> merged=new TreeMap<String,MergedMetric>();
+		long operations=0;
+		long runtime=0;
+		double throughput=0;
+		long firststart=Long.MAX_VALUE;
+		long lastend=Long.MIN_VALUE;
+		boolean timed=true;
+
+		for (String file : files)
+		{
+			Map<String,Map<String,String>> metrics=readExport(file);
+			Map<String,String> overall=metrics.remove("OVERALL");
+			if (overall==null)
+			{
+				throw new IOException(file+" is not a measurements export");
+			}
+			long run=getLong(overall,"RunTime(ms)",0);
+			runtime=Math.max(runtime,run);
+			throughput+=Double.parseDouble(overall.containsKey("Throughput(ops/sec)") ? overall.get("Throughput(ops/sec)") : "0");
+			if ( (overall.containsKey("StartTime(ms)")) && (overall.containsKey("Operations")) )
+			{
+				long start=getLong(overall,"StartTime(ms)",0);
+				firststart=Math.min(firststart,start);
+				lastend=Math.max(lastend,start+run);
+				operations+=getLong(overall,"Operations",0);
+			}
+			else
+			{
+				timed=false;
+			}
+
+			for (Map.Entry<String,Map<String,String>> e : metrics.entrySet())
+			{
+				MergedMetric m=merged.get(e.getKey());
+				if (m==null)
+				{
+					m=new MergedMetric();
+					merged.put(e.getKey(),m);
+				}
+				m.add(file,e.getValue());
+			}
+		}
+
+		exporter.write("OVERALL","Runs",files.size());
+		if ( (timed) && (lastend>firststart) )
+		{
+			// all the operations over the span of all the runs, not the sum of the throughput of each run
+			exporter.write("OVERALL","RunTime(ms)",lastend-firststart);
+			exporter.write("OVERALL","Throughput(ops/sec)",1000.0*operations/(lastend-firststart));
+		}
+		else
+		{
+			System.err.println("Not all runs exported their start time; the throughput is the sum of the throughput of each run");
+			exporter.write("OVERALL","RunTime(ms)",runtime);
+			exporter.write("OVERALL","Throughput(ops/sec)",throughput);
+		}
+		for (Map.Entry<String,MergedMetric> e : merged.entrySet())
+		{
+			e.getValue().export(e.getKey(),exporter,percentiles);
+		}
+	}
+
+	/**
+	 * Return whether a file is a latency log rather than an export.
+	 */
+	static boolean isLatencyLog(String file) throws IOException
+	{
+		DataInputStream in=new DataInputStream(new FileInputStream(file));
+		try
+		{
+			return in.readLong()==LatencyLogWriter.MAGIC;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	public static void usageMessage()
+	{
+		System.out.println("Usage: java com.yahoo.ycsb.measurements.MeasurementsMerger [options] file...");
+		System.out.println("Merges the exports or latency logs of several clients that ran at the same time.");
+		System.out.println("Options:");
+		System.out.println("  -percentiles list:  the latency percentiles to report (default: "+OneMeasurementHdrHistogram.PERCENTILES_DEFAULT+")");
+		System.out.println("  -start s, -end s, -interval s:  for latency logs, as for LatencyLogReader");
+	}
+
+	public static void main(String[] args)
+	{
+		double[] percentiles=OneMeasurementHdrHistogram.parsePercentiles(OneMeasurementHdrHistogram.PERCENTILES_DEFAULT);
+		double start=0;
+		double end=Double.POSITIVE_INFINITY;
+		double interval=0;
+		ArrayList<String> files=new ArrayList<String>();
+
+		try
+		{
+			for (int i=0; i<args.length; i++)
+			{
+				if (args[i].equals("-percentiles"))
+				{
+					percentiles=OneMeasurementHdrHistogram.parsePercentiles(args[++i]);
+				}
+				else if (args[i].equals("-start"))
+				{
+					start=Double.parseDouble(args[++i]);
+				}
+				else if (args[i].equals("-end"))
+				{
+					end=Double.parseDouble(args[++i]);
+				}
+				else if (args[i].equals("-interval"))
+				{
+					interval=Double.parseDouble(args[++i]);
+				}
+				else if (!args[i].startsWith("-"))
+				{
+					files.add(args[i]);
+				}
+				else
+				{
+					System.out.println("Unknown option "+args[i]);
+					usageMessage();
+					System.exit(0);
+				}
+			}
+		}
+		catch (RuntimeException e)
+		{
+			usageMessage();
+			System.exit(0);
+		}
+		if (files.isEmpty())
+		{
+			usageMessage();
+			System.exit(0);
+		}
+
+		try
+		{
+			ArrayList<String> exports=new ArrayList<String>();
+			ArrayList<String> logs=new ArrayList<String>();
+			for (String file : files)
+			{
+				if (isLatencyLog(file))
+				{
+					logs.add(file);
+				}
+				else
+				{
+					exports.add(file);
+				}
+			}
+			if (!exports.isEmpty())
+			{
+				MeasurementsExporter exporter=new TextMeasurementsExporter(LatencyLogReader.keepOpen(System.out));
+				merge(exports,percentiles,exporter);
+				exporter.close();
+			}
+			if (!logs.isEmpty())
+			{
+				if (!exports.isEmpty())
+				{
+					System.out.println();
+				}
+				LatencyLogReader.summarize(logs,start,end,interval,percentiles,System.out);
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not merge the measurements: "+e.getMessage());
+			System.exit(-1);
+		}
+	}
+}
@@ -0,0 +1,426 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the measurements of a running client over HTTP, so that long runs can be watched on a dashboard as they
+ * happen. The same report is served in the Prometheus text format at /metrics and as JSON at /metrics.json.
+ *
+ * A new report is taken every reporting interval. It holds the counters, latency percentiles and return codes of
+ * every metric since the start of the run, and the operations, throughput, average latency and return codes of
+ * the last interval.
+ */
+public class MetricsServer
+{
+	/**
+	 * The port to serve the measurements on. No server is started unless this is set.
+	 */
+	public static final String PORT="metrics.port";
+
+	/**
+	 * The address to serve the measurements on.
+	 */
+	public static final String ADDRESS="metrics.address";
+
+	/**
+	 * Default for the address: only serve dashboards and scrapers on the same host.
+	 */
+	public static final String ADDRESS_DEFAULT="127.0.0.1";
+
+	/**
+	 * How often to take a new report, in seconds.
+	 */
+	public static final String INTERVAL="metrics.interval";
+	public static final String INTERVAL_DEFAULT="10";
+
+	/**
+	 * A comma separated list of the latency percentiles to report.
+	 */
+	public static final String PERCENTILES="metrics.percentiles";
+	public static final String PERCENTILES_DEFAULT="50,95,99,99.9";
+
+	/**
+	 * The measurements as of one reporting interval.
+	 */
+	static class Report
+	{
+		final long _timems;
+		final double _intervalsec;
+		final SortedMap<String,MeasurementSnapshot> _total;
+		final SortedMap<String,MeasurementSnapshot> _interval;
+
+		Report(long timems, double intervalsec, SortedMap<String,MeasurementSnapshot> total, SortedMap<String,MeasurementSnapshot> interval)
+		{
+			_timems=timems;
+			_intervalsec=intervalsec;
+			_total=total;
+			_interval=interval;
+		}
+
+		double getThroughput(MeasurementSnapshot interval)
+		{
+			return _intervalsec>0 ? interval.getOperations()/_intervalsec : 0;
+		}
+	}
+
+	final Measurements _measurements;
+	final double[] _percentiles;
+	final HttpServer _server;
+	final ScheduledExecutorService _reporter;
+
+	volatile Report _report;
+	SortedMap<String,MeasurementSnapshot> _last;
+	long _lastns;
+
+	/**
+	 * Start serving the measurements if a port is configured.
+	 *
+	 * @return the running server, or null if metrics.port is not set
+	 * @throws IOException if the address cannot be bound
+	 */
+	public static MetricsServer start(Properties props) throws IOException
+	{
+		String port=props.getProperty(PORT);
+		if (port==null)
+		{
+			return null;
+		}
+		long intervalms=(long)(Double.parseDouble(props.getProperty(INTERVAL,INTERVAL_DEFAULT))*1000);
+		if (intervalms<=0)
+		{
+			throw new IllegalArgumentException(INTERVAL+" must be positive");
+		}
+		double[] percentiles=OneMeasurementHdrHistogram.parsePercentiles(props.getProperty(PERCENTILES,PERCENTILES_DEFAULT));
+		MetricsServer server=new MetricsServer(Measurements.getMeasurements(),bindAddress(props),percentiles);
+		server.start(intervalms);
+		return server;
+	}
+
+	/**
+	 * The address and port to serve the measurements on, as configured by metrics.address and metrics.port.
+	 */
+	static InetSocketAddress bindAddress(Properties props) throws IOException
+	{
+		InetAddress address=InetAddress.getByName(props.getProperty(ADDRESS,ADDRESS_DEFAULT));
+		return new InetSocketAddress(address,Integer.parseInt(props.getProperty(PORT)));
+	}
+
+	MetricsServer(Measurements measurements, InetSocketAddress address, double[] percentiles) throws IOException
+	{
+		_measurements=measurements;
+		_percentiles=percentiles;
+		_server=HttpServer.create(address,0);
+		_server.createContext("/metrics",new HttpHandler()
+		{
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				if (!exchange.getRequestURI().getPath().equals("/metrics"))
+				{
+					respond(exchange,404,"text/plain; charset=utf-8",new byte[0]);
+					return;
+				}
+				ByteArrayOutputStream out=new ByteArrayOutputStream();
+				writePrometheus(_report,out);
+				respond(exchange,200,"text/plain; version=0.0.4; charset=utf-8",out.toByteArray());
+			}
+		});
+		_server.createContext("/metrics.json",new HttpHandler()
+		{
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				ByteArrayOutputStream out=new ByteArrayOutputStream();
+				writeJSON(_report,out);
+				respond(exchange,200,"application/json",out.toByteArray());
+			}
+		});
+		_reporter=Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread t=new Thread(r,"MetricsReporter");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	void start(long intervalms)
+	{
+		report();
+		_reporter.scheduleAtFixedRate(new Runnable()
+		{
+			public void run()
+			{
+				report();
+			}
+		},intervalms,intervalms,TimeUnit.MILLISECONDS);
+		_server.start();
+	}
+
+	/**
+	 * The port the server is listening on.
+	 */
+	public int getPort()
+	{
+		return _server.getAddress().getPort();
+	}
+
+	/**
+	 * The address the server is listening on.
+	 */
+	public InetSocketAddress getAddress()
+	{
+		return _server.getAddress();
+	}
+
+	/**
+	 * Stop serving and taking reports.
+	 */
+	public void stop()
+	{
+		_reporter.shutdownNow();
+		_server.stop(0);
+	}
+
+	/**
+	 * Take a new report and make it the one that is served.
+	 */
+	synchronized void report()
+	{
+		long now=System.nanoTime();
+		SortedMap<String,MeasurementSnapshot> total=_measurements.getSnapshots(_percentiles);
+		TreeMap<String,MeasurementSnapshot> interval=new TreeMap<String,MeasurementSnapshot>();
+		for (MeasurementSnapshot s : total.values())
+		{
+			interval.put(s.getName(),s.since(_last==null ? null : _last.get(s.getName())));
+		}
+		double intervalsec=_last==null ? 0 : (now-_lastns)/1e9;
+		_report=new Report(System.currentTimeMillis(),intervalsec,Collections.unmodifiableSortedMap(total),Collections.unmodifiableSortedMap(interval));
+		_last=total;
+		_lastns=now;
+	}
+
+	static void respond(HttpExchange exchange, int status, String contenttype, byte[] body) throws IOException
+	{
+		exchange.getResponseHeaders().set("Content-Type",contenttype);
+		exchange.sendResponseHeaders(status,body.length==0 ? -1 : body.length);
+		OutputStream out=exchange.getResponseBody();
+		out.write(body);
+		out.close();
+	}
+
+	/**
+	 * Write a report in the Prometheus text exposition format. The cumulative latencies are a summary, the
+	 * last interval is a set of gauges.
+	 */
+	static void writePrometheus(Report report, OutputStream os) throws IOException
+	{
+		PrintWriter w=new PrintWriter(new OutputStreamWriter(os,"UTF-8"));
+
+		w.print("# HELP ycsb_latency_microseconds Latency of the operations completed since the start of the run.\n");
+		w.print("# TYPE ycsb_latency_microseconds summary\n");
+		for (MeasurementSnapshot s : report._total.values())
+		{
+			double[] percentiles=s.getPercentiles();
+			long[] values=s.getPercentileLatencies();
+			for (int i=0; i<percentiles.length; i++)
+			{
+				w.print("ycsb_latency_microseconds{operation=\""+escape(s.getName())+"\",quantile=\""+format(percentiles[i]/100)+"\"} "+values[i]+"\n");
+			}
+			w.print("ycsb_latency_microseconds_sum"+labels(s)+" "+s.getTotalLatency()+"\n");
+			w.print("ycsb_latency_microseconds_count"+labels(s)+" "+s.getOperations()+"\n");
+		}
+
+		w.print("# HELP ycsb_latency_min_microseconds Smallest latency since the start of the run.\n");
+		w.print("# TYPE ycsb_latency_min_microseconds gauge\n");
+		for (MeasurementSnapshot s : report._total.values())
+		{
+			if (s.getMinLatency()>=0)
+			{
+				w.print("ycsb_latency_min_microseconds"+labels(s)+" "+s.getMinLatency()+"\n");
+			}
+		}
+
+		w.print("# HELP ycsb_latency_max_microseconds Largest latency since the start of the run.\n");
+		w.print("# TYPE ycsb_latency_max_microseconds gauge\n");
+		for (MeasurementSnapshot s : report._total.values())
+		{
+			if (s.getMaxLatency()>=0)
+			{
+				w.print("ycsb_latency_max_microseconds"+labels(s)+" "+s.getMaxLatency()+"\n");
+			}
+		}
+
+		w.print("# HELP ycsb_return_codes_total Operations completed since the start of the run, by return code.\n");
+		w.print("# TYPE ycsb_return_codes_total counter\n");
+		writeReturnCodes(w,"ycsb_return_codes_total",report._total);
+
+		w.print("# HELP ycsb_interval_seconds Length of the last reporting interval.\n");
+		w.print("# TYPE ycsb_interval_seconds gauge\n");
+		w.print("ycsb_interval_seconds "+report._intervalsec+"\n");
+
+		w.print("# HELP ycsb_interval_operations_per_second Throughput over the last reporting interval.\n");
+		w.print("# TYPE ycsb_interval_operations_per_second gauge\n");
+		for (MeasurementSnapshot s : report._interval.values())
+		{
+			w.print("ycsb_interval_operations_per_second"+labels(s)+" "+report.getThroughput(s)+"\n");
+		}
+
+		w.print("# HELP ycsb_interval_average_latency_microseconds Average latency over the last reporting interval.\n");
+		w.print("# TYPE ycsb_interval_average_latency_microseconds gauge\n");
+		for (MeasurementSnapshot s : report._interval.values())
+		{
+			w.print("ycsb_interval_average_latency_microseconds"+labels(s)+" "+s.getAverageLatency()+"\n");
+		}
+
+		w.print("# HELP ycsb_interval_return_codes Operations completed over the last reporting interval, by return code.\n");
+		w.print("# TYPE ycsb_interval_return_codes gauge\n");
+		writeReturnCodes(w,"ycsb_interval_return_codes",report._interval);
+
+		w.flush();
+	}
+
+	private static void writeReturnCodes(PrintWriter w, String metric, SortedMap<String,MeasurementSnapshot> snapshots)
+	{
+		for (MeasurementSnapshot s : snapshots.values())
+		{
+			for (Map.Entry<Integer,Long> e : s.getReturnCodes().entrySet())
+			{
+				w.print(metric+"{operation=\""+escape(s.getName())+"\",code=\""+e.getKey()+"\"} "+e.getValue()+"\n");
+			}
+		}
+	}
+
+	private static String labels(MeasurementSnapshot s)
+	{
+		return "{operation=\""+escape(s.getName())+"\"}";
+	}
+
+	/**
+	 * Format a percentile or quantile without rounding noise such as 0.9990000000000001, independent of the locale.
+	 */
+	static String format(double value)
+	{
+		return new DecimalFormat("0.######",new DecimalFormatSymbols(Locale.US)).format(value);
+	}
+
+	/**
+	 * Escape a Prometheus label value.
+	 */
+	static String escape(String value)
+	{
+		return value.replace("\\","\\\\").replace("\"","\\\"").replace("\n","\\n");
+	}
+
+	/**
+	 * Write a report as a JSON object with the cumulative and last interval measurements of each metric.
+	 */
+	static void writeJSON(Report report, OutputStream os) throws IOException
+	{
+		JsonGenerator g=new JsonFactory().createJsonGenerator(os);
+		g.writeStartObject();
+		g.writeNumberField("time",report._timems);
+		g.writeNumberField("intervalSeconds",report._intervalsec);
+		g.writeObjectFieldStart("metrics");
+		for (MeasurementSnapshot s : report._total.values())
+		{
+			g.writeObjectFieldStart(s.getName());
+
+			g.writeObjectFieldStart("total");
+			g.writeNumberField("operations",s.getOperations());
+			writeLatency(g,"averageLatencyUs",s.getAverageLatency());
+			if (s.getMinLatency()>=0)
+			{
+				g.writeNumberField("minLatencyUs",s.getMinLatency());
+				g.writeNumberField("maxLatencyUs",s.getMaxLatency());
+			}
+			g.writeObjectFieldStart("percentileLatencyUs");
+			double[] percentiles=s.getPercentiles();
+			long[] values=s.getPercentileLatencies();
+			for (int i=0; i<percentiles.length; i++)
+			{
+				g.writeNumberField(format(percentiles[i]),values[i]);
+			}
+			g.writeEndObject();
+			writeReturnCodes(g,s);
+			g.writeEndObject();
+
+			MeasurementSnapshot interval=report._interval.get(s.getName());
+			g.writeObjectFieldStart("interval");
+			g.writeNumberField("operations",interval.getOperations());
+			g.writeNumberField("throughput",report.getThroughput(interval));
+			writeLatency(g,"averageLatencyUs",interval.getAverageLatency());
+			writeReturnCodes(g,interval);
+			g.writeEndObject();
+
+			g.writeEndObject();
+		}
+		g.writeEndObject();
+		g.writeEndObject();
+		g.close();
+	}
+
+	private static void writeLatency(JsonGenerator g, String field, double latency) throws IOException
+	{
+		if (Double.isNaN(latency))
+		{
+			g.writeNullField(field);
+		}
+		else
+		{
+			g.writeNumberField(field,latency);
+		}
+	}
+
+	private static void writeReturnCodes(JsonGenerator g, MeasurementSnapshot s) throws IOException
+	{
+		g.writeObjectFieldStart("returnCodes");
+		for (Map.Entry<Integer,Long> e : s.getReturnCodes().entrySet())
+		{
+			g.writeNumberField(e.getKey().toString(),e.getValue());
+		}
+		g.writeEndObject();
+	}
+}
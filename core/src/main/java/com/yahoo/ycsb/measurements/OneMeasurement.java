@@ -45,6 +45,48 @@ public abstract class OneMeasurement {
 
 	public abstract String getSummary();
 
+	/**
+	 * Fold the measurements held by another instance of the same type into this one. Used to combine
+	 * the measurements that each client thread records separately.
+	 *
+	 * @throws UnsupportedOperationException if this measurement type cannot be merged
+	 */
+	public void merge(OneMeasurement other)
+	{
+		throw new UnsupportedOperationException(getClass().getName()+" does not support merging");
+	}
+
+	/**
+	 * Return a one line summary of the operations recorded since an earlier merged copy of this metric was
+	 * taken. Unlike getSummary(), this does not reset any windowed state, so it is safe to call on merged copies.
+	 *
+	 * @param previous the earlier copy, or null to summarize everything recorded so far
+	 */
+	public String getSummarySince(OneMeasurement previous)
+	{
+		return getSummary();
+	}
+
+	/**
+	 * Return a copy of the counters recorded so far, for reporting while measurements are still being taken.
+	 *
+	 * @param percentiles the latency percentiles to compute, e.g. 99.9, if the measurement type keeps a distribution
+	 */
+	public abstract MeasurementSnapshot getSnapshot(double[] percentiles);
+
+	/**
+	 * End the current interval of the given interval reader and return the histogram of the latencies recorded in
+	 * it, or null if this measurement type keeps no interval histograms. The caller must reset() the returned
+	 * histogram before the next call for the same reader; only Measurements calls this, from one thread per reader.
+	 * Also null if the reader is not enabled.
+	 *
+	 * @param reader Measurements.STATUS_INTERVAL or Measurements.LOG_INTERVAL
+	 */
+	LogLinearHistogram swapIntervalHistogram(int reader)
+	{
+		return null;
+	}
+
   /**
    * Export the current measurements to a suitable format.
    * 
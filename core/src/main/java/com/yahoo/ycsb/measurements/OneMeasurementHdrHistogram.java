@@ -0,0 +1,232 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Take measurements and maintain a log-linear histogram of a given metric, such as READ LATENCY.
+ *
+ * Unlike OneMeasurementHistogram, which counts whole milliseconds in a fixed number of buckets, this keeps every
+ * latency to a configurable number of significant digits over an unbounded range, so sub-millisecond percentiles
+ * and multi-second outliers are both reported accurately.
+ */
+public class OneMeasurementHdrHistogram extends OneMeasurement
+{
+	/**
+	 * The number of significant decimal digits to keep for each latency.
+	 */
+	public static final String SIGNIFICANT_DIGITS="hdrhistogram.significantdigits";
+	public static final String SIGNIFICANT_DIGITS_DEFAULT="3";
+
+	/**
+	 * A comma separated list of the percentiles to report.
+	 */
+	public static final String PERCENTILES="hdrhistogram.percentiles";
+	public static final String PERCENTILES_DEFAULT="50,90,99,99.9,99.99";
+
+	/**
+	 * The raw export of a histogram has one measurement named with this prefix and the lowest value of the
+	 * counter for each non-zero counter.
+	 */
+	static final String RAW_BUCKET_PREFIX="Bucket(us)=";
+
+	LogLinearHistogram histogram;
+	double[] _percentiles;
+
+	//keep a windowed version of these stats for printing status
+	long windowoperations;
+	long windowtotallatency;
+
+	HashMap<Integer,long[]> returncodes;
+
+	//and the latencies of the current interval of each interval reader, see Measurements
+	IntervalHistogram[] intervals;
+
+	boolean exportraw;
+
+	public OneMeasurementHdrHistogram(String name, Properties props)
+	{
+		super(name);
+		int significantdigits=Integer.parseInt(props.getProperty(SIGNIFICANT_DIGITS, SIGNIFICANT_DIGITS_DEFAULT));
+		histogram=new LogLinearHistogram(significantdigits);
+		intervals=IntervalHistogram.create(significantdigits,props);
+		exportraw=Boolean.parseBoolean(props.getProperty(Measurements.MEASUREMENT_EXPORT_RAW, Measurements.MEASUREMENT_EXPORT_RAW_DEFAULT));
+		_percentiles=parsePercentiles(props.getProperty(PERCENTILES, PERCENTILES_DEFAULT));
+		windowoperations=0;
+		windowtotallatency=0;
+		returncodes=new HashMap<Integer,long[]>();
+	}
+
+	static double[] parsePercentiles(String list)
+	{
+		String[] parts=list.split(",");
+		double[] ret=new double[parts.length];
+		for (int i=0; i<parts.length; i++)
+		{
+			ret[i]=Double.parseDouble(parts[i].trim());
+		}
+		return ret;
+	}
+
+	/**
+	 * Return the name under which the given percentile is exported, e.g. "99.9thPercentileLatency(us)".
+	 */
+	static String percentileLabel(double percentile)
+	{
+		return new DecimalFormat("#.####").format(percentile)+"thPercentileLatency(us)";
+	}
+
+	/* (non-Javadoc)
+	 * @see com.yahoo.ycsb.OneMeasurement#reportReturnCode(int)
+	 */
+	public synchronized void reportReturnCode(int code)
+	{
+		Integer Icode=code;
+		if (!returncodes.containsKey(Icode))
+		{
+			returncodes.put(Icode,new long[1]);
+		}
+		returncodes.get(Icode)[0]++;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.yahoo.ycsb.OneMeasurement#measure(int)
+	 */
+	public synchronized void measure(int latency)
+	{
+		histogram.recordValue(latency);
+		windowoperations++;
+		windowtotallatency+=latency;
+		IntervalHistogram.recordValue(intervals,latency);
+	}
+
+	@Override
+	public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException
+	{
+		exporter.write(getName(), "Operations", histogram.getTotalCount());
+		exporter.write(getName(), "AverageLatency(us)", histogram.getMean());
+		exporter.write(getName(), "MinLatency(us)", histogram.getMinValue());
+		exporter.write(getName(), "MaxLatency(us)", histogram.getMaxValue());
+
+		for (double p : _percentiles)
+		{
+			exporter.write(getName(), percentileLabel(p), histogram.getValueAtPercentile(p));
+		}
+
+		for (Integer I : returncodes.keySet())
+		{
+			exporter.write(getName(), "Return="+I, returncodes.get(I)[0]);
+		}
+
+		if (exportraw)
+		{
+			exporter.write(getName(), "TotalLatency(us)", histogram.getTotalSum());
+			exporter.write(getName(), "SignificantDigits", histogram.getSignificantDigits());
+			for (int i=0; i<histogram.getCountsLength(); i++)
+			{
+				if (histogram.getCountAtIndex(i)!=0)
+				{
+					exporter.write(getName(), RAW_BUCKET_PREFIX+histogram.valueFromIndex(i), histogram.getCountAtIndex(i));
+				}
+			}
+		}
+	}
+
+	@Override
+	public synchronized String getSummary()
+	{
+		if (windowoperations==0)
+		{
+			return "";
+		}
+		DecimalFormat d = new DecimalFormat("#.##");
+		double report=((double)windowtotallatency)/((double)windowoperations);
+		windowtotallatency=0;
+		windowoperations=0;
+		return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
+	}
+
+	@Override
+	public synchronized void merge(OneMeasurement other)
+	{
+		OneMeasurementHdrHistogram h=(OneMeasurementHdrHistogram)other;
+		synchronized (h)
+		{
+			histogram.add(h.histogram);
+			windowoperations+=h.windowoperations;
+			windowtotallatency+=h.windowtotallatency;
+			for (Integer I : h.returncodes.keySet())
+			{
+				if (!returncodes.containsKey(I))
+				{
+					returncodes.put(I,new long[1]);
+				}
+				returncodes.get(I)[0]+=h.returncodes.get(I)[0];
+			}
+		}
+	}
+
+	@Override
+	public String getSummarySince(OneMeasurement previous)
+	{
+		long ops=histogram.getTotalCount();
+		long latency=histogram.getTotalSum();
+		if (previous!=null)
+		{
+			ops-=((OneMeasurementHdrHistogram)previous).histogram.getTotalCount();
+			latency-=((OneMeasurementHdrHistogram)previous).histogram.getTotalSum();
+		}
+		if (ops==0)
+		{
+			return "";
+		}
+		DecimalFormat d = new DecimalFormat("#.##");
+		double report=((double)latency)/((double)ops);
+		return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
+	}
+
+	@Override
+	synchronized LogLinearHistogram swapIntervalHistogram(int reader)
+	{
+		return IntervalHistogram.swap(intervals,reader);
+	}
+
+	@Override
+	public synchronized MeasurementSnapshot getSnapshot(double[] percentiles)
+	{
+		long[] values=new long[percentiles.length];
+		for (int p=0; p<percentiles.length; p++)
+		{
+			values[p]=histogram.getValueAtPercentile(percentiles[p]);
+		}
+		HashMap<Integer,Long> codes=new HashMap<Integer,Long>();
+		for (Integer I : returncodes.keySet())
+		{
+			codes.put(I,returncodes.get(I)[0]);
+		}
+		long count=histogram.getTotalCount();
+		return new MeasurementSnapshot(getName(),count,histogram.getTotalSum(),
+				count==0 ? -1 : histogram.getMinValue(),count==0 ? -1 : histogram.getMaxValue(),percentiles,values,codes);
+	}
+}
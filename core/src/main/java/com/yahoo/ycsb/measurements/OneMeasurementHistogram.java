@@ -50,6 +50,11 @@ public class OneMeasurementHistogram extends OneMeasurement
 	int max;
 	HashMap<Integer,int[]> returncodes;
 
+	//and the latencies of the current interval of each interval reader, see Measurements
+	IntervalHistogram[] intervals;
+
+	boolean exportraw;
+
 	public OneMeasurementHistogram(String name, Properties props)
 	{
 		super(name);
@@ -63,6 +68,8 @@ public class OneMeasurementHistogram extends OneMeasurement
 		min=-1;
 		max=-1;
 		returncodes=new HashMap<Integer,int[]>();
+		exportraw=Boolean.parseBoolean(props.getProperty(Measurements.MEASUREMENT_EXPORT_RAW, Measurements.MEASUREMENT_EXPORT_RAW_DEFAULT));
+		intervals=IntervalHistogram.create(Integer.parseInt(props.getProperty(OneMeasurementHdrHistogram.SIGNIFICANT_DIGITS, OneMeasurementHdrHistogram.SIGNIFICANT_DIGITS_DEFAULT)),props);
 	}
 
 	/* (non-Javadoc)
@@ -98,6 +105,7 @@ public class OneMeasurementHistogram extends OneMeasurement
 		totallatency+=latency;
 		windowoperations++;
 		windowtotallatency+=latency;
+		IntervalHistogram.recordValue(intervals,latency);
 
 		if ( (min<0) || (latency<min) )
 		{
@@ -118,6 +126,10 @@ public class OneMeasurementHistogram extends OneMeasurement
     exporter.write(getName(), "AverageLatency(us)", (((double)totallatency)/((double)operations)));
     exporter.write(getName(), "MinLatency(us)", min);
     exporter.write(getName(), "MaxLatency(us)", max);
+    if (exportraw)
+    {
+      exporter.write(getName(), "TotalLatency(us)", totallatency);
+    }
     
     int opcounter=0;
     boolean done95th=false;
@@ -162,4 +174,99 @@ public class OneMeasurementHistogram extends OneMeasurement
 		return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
 	}
 
+	@Override
+	public synchronized void merge(OneMeasurement other)
+	{
+		OneMeasurementHistogram h=(OneMeasurementHistogram)other;
+		synchronized (h)
+		{
+			if (h._buckets!=_buckets)
+			{
+				throw new IllegalArgumentException("Cannot merge histograms with "+h._buckets+" and "+_buckets+" buckets");
+			}
+			for (int i=0; i<_buckets; i++)
+			{
+				histogram[i]+=h.histogram[i];
+			}
+			histogramoverflow+=h.histogramoverflow;
+			operations+=h.operations;
+			totallatency+=h.totallatency;
+			windowoperations+=h.windowoperations;
+			windowtotallatency+=h.windowtotallatency;
+
+			if ( (min<0) || ((h.min>=0) && (h.min<min)) )
+			{
+				min=h.min;
+			}
+			if (h.max>max)
+			{
+				max=h.max;
+			}
+
+			for (Integer I : h.returncodes.keySet())
+			{
+				if (!returncodes.containsKey(I))
+				{
+					returncodes.put(I,new int[1]);
+				}
+				returncodes.get(I)[0]+=h.returncodes.get(I)[0];
+			}
+		}
+	}
+
+	@Override
+	public String getSummarySince(OneMeasurement previous)
+	{
+		int ops=operations;
+		long latency=totallatency;
+		if (previous!=null)
+		{
+			ops-=((OneMeasurementHistogram)previous).operations;
+			latency-=((OneMeasurementHistogram)previous).totallatency;
+		}
+		if (ops==0)
+		{
+			return "";
+		}
+		DecimalFormat d = new DecimalFormat("#.##");
+		double report=((double)latency)/((double)ops);
+		return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
+	}
+
+	@Override
+	synchronized LogLinearHistogram swapIntervalHistogram(int reader)
+	{
+		return IntervalHistogram.swap(intervals,reader);
+	}
+
+	/**
+	 * Percentiles are only known to the millisecond bucket, so they are reported as the start of the bucket;
+	 * those that fall into the overflow bucket are reported as the maximum.
+	 */
+	@Override
+	public synchronized MeasurementSnapshot getSnapshot(double[] percentiles)
+	{
+		long[] values=new long[percentiles.length];
+		for (int p=0; p<percentiles.length; p++)
+		{
+			long opcounter=0;
+			values[p]=max;
+			for (int i=0; i<_buckets; i++)
+			{
+				opcounter+=histogram[i];
+				if (((double)opcounter)/((double)operations)*100>=percentiles[p])
+				{
+					values[p]=i*1000L;
+					break;
+				}
+			}
+		}
+		HashMap<Integer,Long> codes=new HashMap<Integer,Long>();
+		for (Integer I : returncodes.keySet())
+		{
+			codes.put(I,(long)returncodes.get(I)[0]);
+		}
+		return new MeasurementSnapshot(getName(),operations,totallatency,min,max,percentiles,values,codes);
+	}
+
 }
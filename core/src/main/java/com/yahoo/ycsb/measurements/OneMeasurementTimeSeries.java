@@ -176,4 +176,18 @@ public class OneMeasurementTimeSeries extends OneMeasurement
 		return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
 	}
 
+	/**
+	 * A time series keeps no distribution, so the snapshot has no percentiles.
+	 */
+	@Override
+	public MeasurementSnapshot getSnapshot(double[] percentiles)
+	{
+		HashMap<Integer,Long> codes=new HashMap<Integer,Long>();
+		for (Integer I : returncodes.keySet())
+		{
+			codes.put(I,(long)returncodes.get(I)[0]);
+		}
+		return new MeasurementSnapshot(getName(),operations,totallatency,min,max,new double[0],new long[0],codes);
+	}
+
 }
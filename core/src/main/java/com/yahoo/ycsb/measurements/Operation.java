@@ -0,0 +1,82 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.measurements;
+
+/**
+ * The operations that the client measures. Recording against one of these instead of a free-form
+ * name lets a measurement be looked up by array index rather than through a shared map.
+ */
+public enum Operation
+{
+	READ("READ"),
+	UPDATE("UPDATE"),
+	INSERT("INSERT"),
+	SCAN("SCAN"),
+	DELETE("DELETE"),
+	BATCH_READ("BATCH-READ"),
+	BATCH_UPDATE("BATCH-UPDATE"),
+	BATCH_INSERT("BATCH-INSERT"),
+	BATCH_DELETE("BATCH-DELETE"),
+	READ_MODIFY_WRITE("READ-MODIFY-WRITE"),
+	VERIFY("VERIFY"),
+	CLEANUP("CLEANUP"),
+	/** The time an open-loop arrival waited in the queue for a client thread, see ArrivalScheduler. */
+	QUEUE_DELAY("QUEUE-DELAY");
+
+	private final String _name;
+	private final String _intendedname;
+
+	Operation(String name)
+	{
+		_name=name;
+		_intendedname="INTENDED-"+name;
+	}
+
+	/**
+	 * The name under which measurements for this operation are reported.
+	 */
+	public String getName()
+	{
+		return _name;
+	}
+
+	/**
+	 * The name under which latencies measured from the intended start time of this operation are reported.
+	 */
+	public String getIntendedName()
+	{
+		return _intendedname;
+	}
+
+	/**
+	 * Find the operation reported under the given name.
+	 *
+	 * @return the operation, or null if the name is not one of the well-known operations
+	 */
+	public static Operation forName(String name)
+	{
+		for (Operation op : values())
+		{
+			if (op._name.equals(name))
+			{
+				return op;
+			}
+		}
+		return null;
+	}
+}
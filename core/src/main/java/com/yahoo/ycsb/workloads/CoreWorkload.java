@@ -20,11 +20,15 @@ package com.yahoo.ycsb.workloads;
 import com.yahoo.ycsb.*;
 import com.yahoo.ycsb.generator.*;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.Operation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.yahoo.ycsb.Utils.parseDouble;
 import static com.yahoo.ycsb.Utils.parseInt;
@@ -41,6 +45,10 @@ import static com.yahoo.ycsb.generator.ExponentialGenerator.EXPONENTIAL_PERCENTI
  * <UL>
  * <LI><b>fieldCount</b>: the number of fields in a record (default: 10)
  * <LI><b>fieldlength</b>: the size of each field (default: 100)
+ * <LI><b>valuegenerator</b>: how the values of the fields are generated - random (printable characters), compressible or corpus (default: random)
+ * <LI><b>valuegenerator.compressionratio</b>: for compressible values, their uncompressed size over their compressed size (default: 2.0)
+ * <LI><b>valuegenerator.corpus</b>: for corpus values, the file of real data to copy them from
+ * <LI><b>dataintegrity</b>: should the values be derived from their record, field and version, and the values read be checked against them (default: false)
  * <LI><b>readallfields</b>: should reads read all fields (true) or just one (false) (default: true)
  * <LI><b>writeallfields</b>: should updates and read/modify/writes update all fields (true) or just one (false) (default: false)
  * <LI><b>readproportion</b>: what proportion of operations should be reads (default: 0.95)
@@ -48,10 +56,20 @@ import static com.yahoo.ycsb.generator.ExponentialGenerator.EXPONENTIAL_PERCENTI
  * <LI><b>insertproportion</b>: what proportion of operations should be inserts (default: 0)
  * <LI><b>scanproportion</b>: what proportion of operations should be scans (default: 0)
  * <LI><b>readmodifywriteproportion</b>: what proportion of operations should be read a record, modify it, write it back (default: 0)
+ * <LI><b>batchreadproportion</b>: what proportion of operations should read several records at once (default: 0)
+ * <LI><b>batchupdateproportion</b>: what proportion of operations should update several records at once (default: 0)
+ * <LI><b>batchsize</b>: for batch reads and updates, what is the maximum number of records in a batch (default: 10)
+ * <LI><b>batchsizedistribution</b>: for batch reads and updates, what distribution should be used to choose the number of records in each batch, between 1 and batchsize - constant (always batchsize), uniform or zipfian (default: constant)
  * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian, hotspot, or latest (default: uniform)
+ * <LI><b>zipfianconstant</b>: for the zipfian request distribution, the skew of the distribution; larger is more skewed (default: 0.99)
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed order ("hashed") (default: hashed)
+ * <LI><b>inflightoperations</b>: how many operations each thread keeps in flight, if the DB is an AsyncDB (default: 1)
+ * <LI><b>cleanupinsertedkeys</b>: should the records inserted by the transactions be deleted again when the run is over (default: false)
+ * <LI><b>cleanupinsertedkeys.file</b>: a file to map the inserted key numbers into, instead of keeping them in direct memory (default: none)
+ * <LI><b>cleanupinsertedkeys.threads</b>: how many threads delete the inserted records (default: threadcount)
+ * <LI><b>cleanupinsertedkeys.batchsize</b>: how many records each of them deletes with one call (default: 1000)
  * </ul>
  */
 public class CoreWorkload extends Workload {
@@ -110,6 +128,63 @@ public class CoreWorkload extends Workload {
      */
     public static final String FIELD_LENGTH_HISTOGRAM_FILE_PROPERTY_DEFAULT = "hist.txt";
 
+    /**
+     * The name of the property for how the values of the fields are generated. Options are "random" (printable random
+     * characters), "compressible" (binary values that compress by the ratio given by the "valuegenerator.compressionratio"
+     * property) and "corpus" (copies from random offsets of the file given by the "valuegenerator.corpus" property).
+     */
+    public static final String VALUE_GENERATOR_PROPERTY = "valuegenerator";
+    /**
+     * The default way to generate the values of the fields.
+     */
+    public static final String VALUE_GENERATOR_PROPERTY_DEFAULT = "random";
+
+    /**
+     * The name of the property for the compression ratio (uncompressed over compressed size) of "compressible" values.
+     */
+    public static final String COMPRESSION_RATIO_PROPERTY = "valuegenerator.compressionratio";
+    /**
+     * The default compression ratio of "compressible" values.
+     */
+    public static final double COMPRESSION_RATIO_PROPERTY_DEFAULT = 2.0;
+
+    /**
+     * The name of the property for the file that "corpus" values are copied from. It is read into memory.
+     */
+    public static final String CORPUS_FILE_PROPERTY = "valuegenerator.corpus";
+
+    /**
+     * The name of the property for deciding whether the values written are derived from their record, field and a
+     * version, so that the values read can be verified (true), or random (false).
+     */
+    public static final String DATA_INTEGRITY_PROPERTY = "dataintegrity";
+    /**
+     * The default for verifying the values read.
+     */
+    public static final boolean DATA_INTEGRITY_PROPERTY_DEFAULT = false;
+
+    /**
+     * The return code of a VERIFY for a value that is not the one written for the version it holds.
+     */
+    public static final int VERIFY_MISMATCH = 1;
+
+    /**
+     * The return code of a VERIFY for a read that succeeded, but without a value for all the fields it asked for.
+     */
+    public static final int VERIFY_MISSING = 2;
+
+    /**
+     * The return code of a VERIFY for an intact value that is older than a write to its field that the client had
+     * seen acknowledged before the read started.
+     */
+    public static final int VERIFY_STALE = 3;
+
+    /**
+     * Versions start from the time the client starts, in 1/2^VERSION_TIME_SHIFT ms, so that the values a run
+     * writes are newer than those of the runs before it, unless those wrote more than 2^VERSION_TIME_SHIFT values per ms.
+     */
+    static final int VERSION_TIME_SHIFT = 16;
+
     /**
      * The name of the property for deciding whether to read one field (false) or all fields (true) of a record.
      */
@@ -180,6 +255,47 @@ public class CoreWorkload extends Workload {
      */
     public static final double READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT = 0.0;
 
+    /**
+     * The name of the property for the proportion of transactions that read several records at once.
+     */
+    public static final String BATCH_READ_PROPORTION_PROPERTY = "batchreadproportion";
+
+    /**
+     * The default proportion of transactions that are batch reads.
+     */
+    public static final double BATCH_READ_PROPORTION_PROPERTY_DEFAULT = 0.0;
+
+    /**
+     * The name of the property for the proportion of transactions that update several records at once.
+     */
+    public static final String BATCH_UPDATE_PROPORTION_PROPERTY = "batchupdateproportion";
+
+    /**
+     * The default proportion of transactions that are batch updates.
+     */
+    public static final double BATCH_UPDATE_PROPORTION_PROPERTY_DEFAULT = 0.0;
+
+    /**
+     * The name of the property for the maximum number of records in a batch read or update.
+     */
+    public static final String BATCH_SIZE_PROPERTY = "batchsize";
+
+    /**
+     * The default maximum number of records in a batch.
+     */
+    public static final int BATCH_SIZE_PROPERTY_DEFAULT = 10;
+
+    /**
+     * The name of the property for the distribution of the number of records in a batch. Options are "constant"
+     * (always batchsize), "uniform" and "zipfian" (favoring small batches).
+     */
+    public static final String BATCH_SIZE_DISTRIBUTION_PROPERTY = "batchsizedistribution";
+
+    /**
+     * The default batch size distribution.
+     */
+    public static final String BATCH_SIZE_DISTRIBUTION_PROPERTY_DEFAULT = "constant";
+
     /**
      * The name of the property for the the distribution of requests across the keyspace. Options are "uniform", "zipfian" and "latest"
      */
@@ -190,6 +306,11 @@ public class CoreWorkload extends Workload {
      */
     public static final String REQUEST_DISTRIBUTION_PROPERTY_DEFAULT = "uniform";
 
+    /**
+     * The name of the property for the zipfian constant of the "zipfian" request distribution.
+     */
+    public static final String ZIPFIAN_CONSTANT_PROPERTY = "zipfianconstant";
+
     /**
      * The name of the property for the max scan length (number of records)
      */
@@ -240,6 +361,18 @@ public class CoreWorkload extends Workload {
      */
     public static final double HOTSPOT_OPERATION_FRACTION_DEFAULT = 0.8;
 
+    /**
+     * The name of the property for the number of operations each thread keeps in flight. Only applies to a DB that is
+     * an AsyncDB; others complete every operation before the next. Read-modify-writes always complete the read
+     * before the write.
+     */
+    public static final String IN_FLIGHT_OPERATIONS_PROPERTY = "inflightoperations";
+
+    /**
+     * The default number of operations each thread keeps in flight.
+     */
+    public static final int IN_FLIGHT_OPERATIONS_PROPERTY_DEFAULT = 1;
+
     public static final String DISTRIBUTION_EXPONENTIAL = "exponential";
 
     public static final String DISTRIBUTION_UNIFORM = "uniform";
@@ -267,30 +400,85 @@ public class CoreWorkload extends Workload {
 
     protected boolean writeAllFields;
 
+    protected String valueGenerator;
+
+    protected double compressionRatio;
+
+    protected byte[] corpus;
+
+    protected boolean dataIntegrity;
+
+    protected int fieldLength;
+
+    /**
+     * The version of the next verifiable value written by any thread.
+     */
+    protected AtomicLong versions;
+
+    /**
+     * The last version of each field of each record whose write was acknowledged, for finding stale reads.
+     */
+    protected VersionTable acknowledged;
+
     protected IntegerGenerator insertKeyGenerator;
 
-    protected Generator operationChooser;
+    protected DiscreteEnumGenerator<Operation> operationChooser;
 
     protected IntegerGenerator transactionKeyGenerator;
 
-    protected Generator fieldChooser;
+    protected IntegerGenerator fieldChooser;
+
+    /**
+     * The names of the fields, "field0" to "field" + (fieldCount - 1), built once and shared by all threads.
+     */
+    protected String[] fieldNames;
+
+    /**
+     * The index of each field by its name.
+     */
+    protected Map<String, Integer> fieldIndexes;
+
+    /**
+     * For each field, the set containing only its name, to read one field without building a set.
+     */
+    protected List<Set<String>> fieldSets;
 
     protected IntegerGenerator transactionInsertKeyGenerator;
 
     protected IntegerGenerator scanLengthGenerator;
 
+    protected IntegerGenerator batchSizeGenerator;
+
     protected boolean orderedInserts;
 
+    protected int inFlightOperations;
+
     protected int recordCount;
 
     protected Properties properties;
 
+    /**
+     * The client's measurements, looked up once rather than for every operation.
+     */
+    protected Measurements measurements;
+
     private boolean cleanupInsertedKeys;
 
-    private List<String> insertedKeys;
+    private InsertedKeys insertedKeys;
 
     public static final String CLEANUP_INSERTED_KEYS_PROPERTY = "cleanupinsertedkeys";
 
+    public static final String CLEANUP_INSERTED_KEYS_FILE_PROPERTY = "cleanupinsertedkeys.file";
+
+    public static final String CLEANUP_INSERTED_KEYS_THREADS_PROPERTY = "cleanupinsertedkeys.threads";
+
+    public static final String CLEANUP_INSERTED_KEYS_BATCH_SIZE_PROPERTY = "cleanupinsertedkeys.batchsize";
+
+    /**
+     * How often the cleanup reports its progress, in milliseconds.
+     */
+    private static final long CLEANUP_PROGRESS_INTERVAL = 10000;
+
     private int operationCount;
 
     private double insertProportion;
@@ -298,6 +486,8 @@ public class CoreWorkload extends Workload {
     private double updateProportion;
     private double scanProportion;
     private double readModifyWriteProportion;
+    private double batchReadProportion;
+    private double batchUpdateProportion;
 
     public static IntegerGenerator createFieldLengthGenerator(Properties properties) throws WorkloadException {
         IntegerGenerator generator;
@@ -324,6 +514,7 @@ public class CoreWorkload extends Workload {
 
     public void init(Properties properties) throws WorkloadException {
         this.properties = properties;
+        measurements = Measurements.getMeasurements();
         init();
     }
 
@@ -346,6 +537,10 @@ public class CoreWorkload extends Workload {
                 properties.getProperty(SCAN_PROPORTION_PROPERTY), SCAN_PROPORTION_PROPERTY_DEFAULT);
         readModifyWriteProportion = parseDouble(
                 properties.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY), READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT);
+        batchReadProportion = parseDouble(
+                properties.getProperty(BATCH_READ_PROPORTION_PROPERTY), BATCH_READ_PROPORTION_PROPERTY_DEFAULT);
+        batchUpdateProportion = parseDouble(
+                properties.getProperty(BATCH_UPDATE_PROPORTION_PROPERTY), BATCH_UPDATE_PROPORTION_PROPERTY_DEFAULT);
 
         table = properties.getProperty(TABLENAME_PROPERTY, TABLENAME_PROPERTY_DEFAULT);
 
@@ -356,7 +551,47 @@ public class CoreWorkload extends Workload {
         readAllFields = parseBoolean(properties.getProperty(READ_ALL_FIELDS_PROPERTY), READ_ALL_FIELDS_PROPERTY_DEFAULT);
         writeAllFields = parseBoolean(properties.getProperty(WRITE_ALL_FIELDS_PROPERTY), WRITE_ALL_FIELDS_PROPERTY_DEFAULT);
 
+        valueGenerator = properties.getProperty(VALUE_GENERATOR_PROPERTY, VALUE_GENERATOR_PROPERTY_DEFAULT);
+        if (valueGenerator.equals("compressible")) {
+            compressionRatio = parseDouble(properties.getProperty(COMPRESSION_RATIO_PROPERTY), COMPRESSION_RATIO_PROPERTY_DEFAULT);
+            if (!(compressionRatio >= 1)) {
+                throw new WorkloadException("The compression ratio must be at least 1, not " + compressionRatio);
+            }
+        } else if (valueGenerator.equals("corpus")) {
+            corpus = readCorpus(properties.getProperty(CORPUS_FILE_PROPERTY));
+        } else if (!valueGenerator.equals("random")) {
+            throw new WorkloadException("Unknown value generator \"" + valueGenerator + "\"");
+        }
+
+        dataIntegrity = parseBoolean(properties.getProperty(DATA_INTEGRITY_PROPERTY), DATA_INTEGRITY_PROPERTY_DEFAULT);
+        if (dataIntegrity) {
+            //the length of a value read back is checked against the one field length
+            fieldLength = parseInt(properties.getProperty(FIELD_LENGTH_PROPERTY), FIELD_LENGTH_PROPERTY_DEFAULT);
+            if (!properties.getProperty(FIELD_LENGTH_DISTRIBUTION_PROPERTY, FIELD_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT).equals("constant")
+                    || fieldLength < VerifiableByteIterator.VERSION_LENGTH) {
+                throw new WorkloadException("Data integrity checks need a constant field length of at least "
+                        + VerifiableByteIterator.VERSION_LENGTH);
+            }
+            if (!valueGenerator.equals("random")) {
+                throw new WorkloadException("Data integrity checks generate their own values, they cannot be " + valueGenerator);
+            }
+        }
+
         orderedInserts = properties.getProperty(INSERT_ORDER_PROPERTY, INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed") != 0;
+        inFlightOperations = parseInt(properties.getProperty(IN_FLIGHT_OPERATIONS_PROPERTY), IN_FLIGHT_OPERATIONS_PROPERTY_DEFAULT);
+
+        fieldNames = new String[fieldCount];
+        fieldSets = new ArrayList<Set<String>>(fieldCount);
+        fieldIndexes = new HashMap<String, Integer>();
+        for (int i = 0; i < fieldCount; i++) {
+            fieldNames[i] = "field" + i;
+            fieldSets.add(Collections.singleton(fieldNames[i]));
+            fieldIndexes.put(fieldNames[i], i);
+        }
+        if (dataIntegrity) {
+            versions = new AtomicLong(System.currentTimeMillis() << VERSION_TIME_SHIFT);
+            acknowledged = new VersionTable(fieldCount);
+        }
 
         fieldChooser = createFieldChooser();
         operationChooser = createOperationChooser();
@@ -364,11 +599,20 @@ public class CoreWorkload extends Workload {
         transactionInsertKeyGenerator = createTransactionInsertKeyGenerator();
         transactionKeyGenerator = createTransactionKeyGenerator();
         scanLengthGenerator = createScanLengthGenerator();
+        batchSizeGenerator = createBatchSizeGenerator();
 
         cleanupInsertedKeys = Utils.parseBoolean(properties.getProperty(CLEANUP_INSERTED_KEYS_PROPERTY), false);
         if (cleanupInsertedKeys) {
-            int insertedKeysCapacity = (int) (insertProportion * operationCount * 2.0);
-            insertedKeys = new ArrayList<String>(insertedKeysCapacity);
+            String file = properties.getProperty(CLEANUP_INSERTED_KEYS_FILE_PROPERTY);
+            if (file == null) {
+                insertedKeys = new InsertedKeys();
+            } else {
+                try {
+                    insertedKeys = new InsertedKeys(new File(file));
+                } catch (IOException e) {
+                    throw new WorkloadException("Could not create the inserted keys file " + file, e);
+                }
+            }
         }
     }
 
@@ -376,7 +620,7 @@ public class CoreWorkload extends Workload {
         return new CounterGenerator(recordCount);
     }
 
-    protected Generator createFieldChooser() {
+    protected IntegerGenerator createFieldChooser() {
         return new UniformIntegerGenerator(0, fieldCount - 1);
     }
 
@@ -399,7 +643,9 @@ public class CoreWorkload extends Workload {
             //plus the number of predicted keys as the total keyspace. then, if the generator picks a key that hasn't been inserted yet, will
             //just ignore it and pick another key. this way, the size of the keyspace doesn't change from the perspective of the scrambled zipfian generator
             int expectedNewKeys = (int) (insertProportion * operationCount * 2.0); //2 is fudge factor
-            generator = new ScrambledZipfianGenerator(recordCount + expectedNewKeys);
+            double zipfianConstant = parseDouble(properties.getProperty(ZIPFIAN_CONSTANT_PROPERTY),
+                    ZipfianGenerator.ZIPFIAN_CONSTANT);
+            generator = new ScrambledZipfianGenerator(recordCount + expectedNewKeys, zipfianConstant);
         } else if (distribution.compareTo(DISTRIBUTION_LATEST) == 0) {
             generator = new SkewedLatestGenerator((CounterGenerator)transactionInsertKeyGenerator);
         } else if (distribution.equals(DISTRIBUTION_HOTSPOT)) {
@@ -415,22 +661,28 @@ public class CoreWorkload extends Workload {
         return generator;
     }
 
-    protected Generator createOperationChooser() {
-        DiscreteGenerator chooser = new DiscreteGenerator();
+    protected DiscreteEnumGenerator<Operation> createOperationChooser() {
+        DiscreteEnumGenerator<Operation> chooser = new DiscreteEnumGenerator<Operation>();
         if (readProportion > 0) {
-            chooser.addValue(readProportion, "READ");
+            chooser.addValue(readProportion, Operation.READ);
         }
         if (updateProportion > 0) {
-            chooser.addValue(updateProportion, "UPDATE");
+            chooser.addValue(updateProportion, Operation.UPDATE);
         }
         if (insertProportion > 0) {
-            chooser.addValue(insertProportion, "INSERT");
+            chooser.addValue(insertProportion, Operation.INSERT);
         }
         if (scanProportion > 0) {
-            chooser.addValue(scanProportion, "SCAN");
+            chooser.addValue(scanProportion, Operation.SCAN);
         }
         if (readModifyWriteProportion > 0) {
-            chooser.addValue(readModifyWriteProportion, "READMODIFYWRITE");
+            chooser.addValue(readModifyWriteProportion, Operation.READ_MODIFY_WRITE);
+        }
+        if (batchReadProportion > 0) {
+            chooser.addValue(batchReadProportion, Operation.BATCH_READ);
+        }
+        if (batchUpdateProportion > 0) {
+            chooser.addValue(batchUpdateProportion, Operation.BATCH_UPDATE);
         }
         return chooser;
     }
@@ -453,6 +705,25 @@ public class CoreWorkload extends Workload {
         return generator;
     }
 
+    protected IntegerGenerator createBatchSizeGenerator() throws WorkloadException {
+        IntegerGenerator generator;
+        String distribution = properties.getProperty(BATCH_SIZE_DISTRIBUTION_PROPERTY, BATCH_SIZE_DISTRIBUTION_PROPERTY_DEFAULT);
+        int size = parseInt(properties.getProperty(BATCH_SIZE_PROPERTY), BATCH_SIZE_PROPERTY_DEFAULT);
+        if (size < 1) {
+            throw new WorkloadException("The " + BATCH_SIZE_PROPERTY + " must be at least 1");
+        }
+        if (distribution.compareTo(DISTRIBUTION_CONSTANT) == 0) {
+            generator = new ConstantIntegerGenerator(size);
+        } else if (distribution.compareTo(DISTRIBUTION_UNIFORM) == 0) {
+            generator = new UniformIntegerGenerator(1, size);
+        } else if (distribution.compareTo(DISTRIBUION_ZIPFIAN) == 0) {
+            generator = new ZipfianGenerator(1, size);
+        } else {
+            throw new WorkloadException("Distribution " + distribution + " not allowed for batch size");
+        }
+        return generator;
+    }
+
     public String buildKey(long key) {
         if (!orderedInserts) {
             key = Utils.hash(key);
@@ -460,35 +731,409 @@ public class CoreWorkload extends Workload {
         return "user" + key;
     }
 
-    protected HashMap<String, ByteIterator> buildValues() {
-        HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+    /**
+     * Build the key like buildKey(long), in the thread's reusable buffer.
+     */
+    protected String buildKey(long key, ThreadState state) {
+        if (!orderedInserts) {
+            key = Utils.hash(key);
+        }
+        return state.keyBuilder.build(key);
+    }
+
+    private static byte[] readCorpus(String file) throws WorkloadException {
+        if (file == null) {
+            throw new WorkloadException("The corpus value generator needs the " + CORPUS_FILE_PROPERTY + " property");
+        }
+        try {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                if (in.length() == 0 || in.length() > Integer.MAX_VALUE) {
+                    throw new WorkloadException("The corpus " + file + " is empty or larger than 2GB");
+                }
+                byte[] data = new byte[(int) in.length()];
+                in.readFully(data);
+                return data;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new WorkloadException("Could not read the corpus " + file, e);
+        }
+    }
+
+    /**
+     * A new generated value of the given length, of the kind chosen by the valuegenerator property.
+     */
+    protected FastRandomByteIterator newData(int length) {
+        if (dataIntegrity) {
+            //filled in by value() for the record and field it is for
+            return new VerifiableByteIterator();
+        } else if (corpus != null) {
+            return new CorpusByteIterator(length, corpus);
+        } else if (compressionRatio != 0) {
+            return new CompressibleByteIterator(length, compressionRatio);
+        }
+        return new FastRandomByteIterator(length);
+    }
+
+    /**
+     * Build new values of all the fields of the given record, reusing the thread's containers where it can.
+     */
+    protected HashMap<String, ByteIterator> buildValues(String key, ThreadState state) {
+        HashMap<String, ByteIterator> values = state.values();
         for (int i = 0; i < fieldCount; i++) {
-            String fieldKey = "field" + i;
-            ByteIterator data = new RandomByteIterator(fieldLengthGenerator.nextInt());
-            values.put(fieldKey, data);
+            values.put(fieldNames[i], state.data(key, i, fieldLengthGenerator.nextInt()));
         }
         return values;
     }
 
-    protected HashMap<String, ByteIterator> buildUpdate() {
-        //update a random field
-        HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
-        String field = "field" + fieldChooser.nextString();
-        ByteIterator data = new RandomByteIterator(fieldLengthGenerator.nextInt());
-        values.put(field, data);
+    /**
+     * Build a new value of a random field of the given record, reusing the thread's containers where it can.
+     */
+    protected HashMap<String, ByteIterator> buildUpdate(String key, ThreadState state) {
+        int field = fieldChooser.nextInt();
+        HashMap<String, ByteIterator> values = state.update(field);
+        values.put(fieldNames[field], state.data(key, field, fieldLengthGenerator.nextInt()));
         return values;
     }
 
+    /**
+     * Reset the given iterator to a value of the given length for the given field of the given record: a verifiable
+     * one, for the next version, if data integrity is checked, a random one otherwise.
+     */
+    protected ByteIterator value(FastRandomByteIterator iterator, String key, int field, int length, ThreadState state) {
+        if (dataIntegrity) {
+            return ((VerifiableByteIterator) iterator).reset(key, fieldNames[field], versions.getAndIncrement(), length);
+        }
+        return iterator.reset(length);
+    }
+
+    /**
+     * Note the versions of the given record acknowledged so far, before it is read as the given record of its batch,
+     * if data integrity is checked: the read must not return anything older.
+     */
+    protected void expectVersions(DB db, long keynum, int record, ThreadState state) {
+        if (!dataIntegrity || db instanceof PipelinedDB) {
+            return;
+        }
+        long[] floors = state.floors(record + 1);
+        for (int i = 0; i < fieldCount; i++) {
+            floors[record * fieldCount + i] = acknowledged.get(keynum, i);
+        }
+    }
+
+    /**
+     * Note the versions written to the given record as acknowledged, if data integrity is checked and the write
+     * succeeded.
+     */
+    protected void acknowledge(DB db, long keynum, Map<String, ByteIterator> values, int status) {
+        if (!dataIntegrity || status != 0 || db instanceof PipelinedDB) {
+            //nothing to note, or (if the write is still in flight) not acknowledged yet
+            return;
+        }
+        for (int i = 0; i < fieldCount; i++) {
+            ByteIterator value = values.get(fieldNames[i]);
+            if (value != null) {
+                acknowledged.acknowledge(keynum, i, ((VerifiableByteIterator) value).version());
+            }
+        }
+    }
+
+    /**
+     * Check the values read for the given record, which is the given record of its batch, if data integrity is
+     * checked and the read succeeded. Counted as a VERIFY, with the time it took and VERIFY_MISMATCH,
+     * VERIFY_MISSING or VERIFY_STALE as the return code if it failed, so that it is not part of the time of the read
+     * itself.
+     */
+    protected void verify(DB db, String key, int record, Set<String> fields, HashMap<String, ByteIterator> result,
+            int status, ThreadState state) {
+        if (!dataIntegrity || status != 0 || db instanceof PipelinedDB) {
+            //nothing to check, or (if the read is still in flight) nothing to check yet
+            return;
+        }
+        long st = System.nanoTime();
+        int code = 0;
+        int expected = fields == null ? fieldCount : fields.size();
+        if (result.size() < expected) {
+            code = VERIFY_MISSING;
+        }
+        for (Map.Entry<String, ByteIterator> entry : result.entrySet()) {
+            byte[] value = entry.getValue().toArray();
+            Integer field = fieldIndexes.get(entry.getKey());
+            if (field == null || value.length != fieldLength
+                    || !VerifiableByteIterator.verify(key, entry.getKey(), value, state.expected)) {
+                code = VERIFY_MISMATCH;
+                break;
+            }
+            if (VerifiableByteIterator.version(value) < state.floors[record * fieldCount + field]) {
+                code = VERIFY_STALE;
+            }
+        }
+        long en = System.nanoTime();
+        measurements.measure(Operation.VERIFY, (int) ((en - st) / 1000));
+        measurements.reportReturnCode(Operation.VERIFY, code);
+    }
+
+    /**
+     * The fields to read: null for all of them, or a random one.
+     */
+    protected Set<String> nextFields() {
+        if (readAllFields) {
+            return null;
+        }
+        return fieldSets.get(fieldChooser.nextInt());
+    }
+
+    /**
+     * The state of one client thread: the containers and buffers its operations reuse, so that the operations
+     * allocate as little as possible, and its PipelinedDB if it keeps several operations in flight. Containers
+     * handed to an asynchronous operation may still be in use after the call returns, so while operations are kept
+     * in flight new ones are allocated instead.
+     */
+    protected class ThreadState {
+
+        protected final PipelinedDB pipeline;
+
+        protected final KeyBuilder keyBuilder = new KeyBuilder("user");
+
+        private final HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+
+        private final Vector<HashMap<String, ByteIterator>> scanResult = new Vector<HashMap<String, ByteIterator>>();
+
+        private final HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+
+        private final List<HashMap<String, ByteIterator>> updates = new ArrayList<HashMap<String, ByteIterator>>();
+
+        private final FastRandomByteIterator[] data = new FastRandomByteIterator[fieldCount];
+
+        private final List<String> batchKeys = new ArrayList<String>();
+
+        private final List<HashMap<String, ByteIterator>> batchValues = new ArrayList<HashMap<String, ByteIterator>>();
+
+        private final List<HashMap<String, ByteIterator>> batchResults = new ArrayList<HashMap<String, ByteIterator>>();
+
+        private final List<FastRandomByteIterator[]> batchData = new ArrayList<FastRandomByteIterator[]>();
+
+        /**
+         * For each field of each record of the read in progress, the last version acknowledged before it started.
+         */
+        protected long[] floors = new long[0];
+
+        private long[] keynums = new long[0];
+
+        /**
+         * For generating the values that verifiable values read back are compared with.
+         */
+        protected final VerifiableByteIterator expected = new VerifiableByteIterator();
+
+        protected ThreadState(PipelinedDB pipeline) {
+            this.pipeline = pipeline;
+            for (int i = 0; i < fieldCount; i++) {
+                updates.add(new HashMap<String, ByteIterator>());
+                data[i] = newData(0);
+            }
+        }
+
+        private boolean reuse() {
+            return pipeline == null;
+        }
+
+        /**
+         * An empty map for the result of a read.
+         */
+        protected HashMap<String, ByteIterator> result() {
+            if (!reuse()) {
+                return new HashMap<String, ByteIterator>();
+            }
+            result.clear();
+            return result;
+        }
+
+        /**
+         * An empty vector for the result of a scan.
+         */
+        protected Vector<HashMap<String, ByteIterator>> scanResult() {
+            if (!reuse()) {
+                return new Vector<HashMap<String, ByteIterator>>();
+            }
+            scanResult.clear();
+            return scanResult;
+        }
+
+        /**
+         * A map to put the values of all the fields into; it may still hold those of a previous operation.
+         */
+        protected HashMap<String, ByteIterator> values() {
+            return reuse() ? values : new HashMap<String, ByteIterator>();
+        }
+
+        /**
+         * A map to put the value of the given field into; it may still hold that of a previous operation.
+         */
+        protected HashMap<String, ByteIterator> update(int field) {
+            return reuse() ? updates.get(field) : new HashMap<String, ByteIterator>();
+        }
+
+        /**
+         * A value of the given length for the given field of the given record.
+         */
+        protected ByteIterator data(String key, int field, int length) {
+            return value(reuse() ? data[field] : newData(0), key, field, length, this);
+        }
+
+        /**
+         * The versions expected by a read of the given number of records, with room for all their fields.
+         */
+        protected long[] floors(int records) {
+            if (floors.length < records * fieldCount) {
+                floors = new long[records * fieldCount];
+            }
+            return floors;
+        }
+
+        /**
+         * An array for the key numbers of a batch of the given size.
+         */
+        protected long[] keynums(int count) {
+            if (!reuse() || keynums.length < count) {
+                long[] grown = new long[count];
+                if (reuse()) {
+                    keynums = grown;
+                }
+                return grown;
+            }
+            return keynums;
+        }
+
+        /**
+         * An empty list for the keys of a batch.
+         */
+        protected List<String> batchKeys() {
+            if (!reuse()) {
+                return new ArrayList<String>();
+            }
+            batchKeys.clear();
+            return batchKeys;
+        }
+
+        /**
+         * An empty list for the values of a batch of the given size, with a map for each of its records that may
+         * still hold the values of a previous batch.
+         */
+        protected List<HashMap<String, ByteIterator>> batchValues(int count) {
+            if (!reuse()) {
+                List<HashMap<String, ByteIterator>> values = new ArrayList<HashMap<String, ByteIterator>>(count);
+                for (int i = 0; i < count; i++) {
+                    values.add(new HashMap<String, ByteIterator>());
+                }
+                return values;
+            }
+            while (batchValues.size() < count) {
+                batchValues.add(new HashMap<String, ByteIterator>());
+                FastRandomByteIterator[] recordData = new FastRandomByteIterator[fieldCount];
+                for (int i = 0; i < fieldCount; i++) {
+                    recordData[i] = newData(0);
+                }
+                batchData.add(recordData);
+            }
+            return batchValues.subList(0, count);
+        }
+
+        /**
+         * A list of the given number of empty maps for the results of a batch read.
+         */
+        protected List<HashMap<String, ByteIterator>> batchResults(int count) {
+            if (!reuse()) {
+                List<HashMap<String, ByteIterator>> results = new ArrayList<HashMap<String, ByteIterator>>(count);
+                for (int i = 0; i < count; i++) {
+                    results.add(new HashMap<String, ByteIterator>());
+                }
+                return results;
+            }
+            while (batchResults.size() < count) {
+                batchResults.add(new HashMap<String, ByteIterator>());
+            }
+            for (int i = 0; i < count; i++) {
+                batchResults.get(i).clear();
+            }
+            return batchResults.subList(0, count);
+        }
+
+        /**
+         * A value of the given length for the given field of the given record, which is at the given position in
+         * its batch.
+         */
+        protected ByteIterator batchData(String key, int record, int field, int length) {
+            return value(reuse() ? batchData.get(record)[field] : newData(0), key, field, length, this);
+        }
+    }
+
+    /**
+     * Create the thread's ThreadState, with a PipelinedDB to keep its operations in flight if more than one is
+     * allowed.
+     */
+    @Override
+    public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+        return new ThreadState(inFlightOperations > 1 ? new PipelinedDB(inFlightOperations) : null);
+    }
+
+    /**
+     * Wait for the operations the thread still has in flight, so they are measured before its DB is cleaned up.
+     */
+    @Override
+    public void cleanupThread(Object threadstate) {
+        PipelinedDB pipeline = ((ThreadState) threadstate).pipeline;
+        if (pipeline != null) {
+            pipeline.drain();
+        }
+    }
+
+    /**
+     * The DB to issue the thread's operations on: its PipelinedDB if it has one and the DB is asynchronous,
+     * otherwise the DB itself.
+     */
+    protected DB pipeline(DB db, ThreadState state) {
+        if (state.pipeline != null) {
+            return state.pipeline.pipeline(db);
+        }
+        return db;
+    }
+
     /**
      * Do one insert operation. Because it will be called concurrently from multiple client threads, this
      * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each
      * other, and it will be difficult to reach the target throughput. Ideally, this function would have no side
      * effects other than DB operations.
      */
-    public boolean doInsert(DB db, Object threadState) {
-        String key = buildKey(insertKeyGenerator.nextInt());
-        HashMap<String, ByteIterator> values = buildValues();
-        return db.insert(table, key, values) == 0;
+    public boolean doInsert(DB db, Object threadstate) {
+        ThreadState state = (ThreadState) threadstate;
+        String key = buildKey(insertKeyGenerator.nextInt(), state);
+        HashMap<String, ByteIterator> values = buildValues(key, state);
+        return pipeline(db, state).insert(table, key, values) == 0;
+    }
+
+    /**
+     * Insert the records numbered first to first + count - 1, as one batchInsert() if there are several.
+     */
+    @Override
+    public boolean doInsertBatch(DB db, Object threadstate, long first, int count) {
+        ThreadState state = (ThreadState) threadstate;
+        if (count == 1) {
+            String key = buildKey(first, state);
+            return pipeline(db, state).insert(table, key, buildValues(key, state)) == 0;
+        }
+        List<String> keys = state.batchKeys();
+        List<HashMap<String, ByteIterator>> values = state.batchValues(count);
+        for (int i = 0; i < count; i++) {
+            String key = buildKey(first + i, state);
+            keys.add(key);
+            HashMap<String, ByteIterator> record = values.get(i);
+            for (int j = 0; j < fieldCount; j++) {
+                record.put(fieldNames[j], state.batchData(key, i, j, fieldLengthGenerator.nextInt()));
+            }
+        }
+        return pipeline(db, state).batchInsert(table, keys, values) == 0;
     }
 
     /**
@@ -498,17 +1143,29 @@ public class CoreWorkload extends Workload {
      * effects other than DB operations.
      */
     public boolean doTransaction(DB db, Object threadstate) {
-        String op = operationChooser.nextString();
-        if (op.compareTo("READ") == 0) {
-            doTransactionRead(db);
-        } else if (op.compareTo("UPDATE") == 0) {
-            doTransactionUpdate(db);
-        } else if (op.compareTo("INSERT") == 0) {
-            doTransactionInsert(db);
-        } else if (op.compareTo("SCAN") == 0) {
-            doTransactionScan(db);
-        } else {
-            doTransactionReadModifyWrite(db);
+        ThreadState state = (ThreadState) threadstate;
+        switch (operationChooser.nextValue()) {
+            case READ:
+                doTransactionRead(pipeline(db, state), state);
+                break;
+            case UPDATE:
+                doTransactionUpdate(pipeline(db, state), state);
+                break;
+            case INSERT:
+                doTransactionInsert(pipeline(db, state), state);
+                break;
+            case SCAN:
+                doTransactionScan(pipeline(db, state), state);
+                break;
+            case BATCH_READ:
+                doTransactionBatchRead(pipeline(db, state), state);
+                break;
+            case BATCH_UPDATE:
+                doTransactionBatchUpdate(pipeline(db, state), state);
+                break;
+            default:
+                doTransactionReadModifyWrite(db, state);
+                break;
         }
         return true;
     }
@@ -529,102 +1186,200 @@ public class CoreWorkload extends Workload {
         return key;
     }
 
-    public void doTransactionRead(DB db) {
+    public void doTransactionRead(DB db, ThreadState state) {
         //choose a random key
-        String key = buildKey(nextTransactionKey());
-        Set<String> fields = null;
-        if (!readAllFields) {
-            //read a random field
-            String field = "field" + fieldChooser.nextString();
-            fields = new HashSet<String>();
-            fields.add(field);
-        }
-        db.read(table, key, fields, new HashMap<String, ByteIterator>());
+        long keynum = nextTransactionKey();
+        String key = buildKey(keynum, state);
+        Set<String> fields = nextFields();
+        HashMap<String, ByteIterator> result = state.result();
+        expectVersions(db, keynum, 0, state);
+        int status = db.read(table, key, fields, result);
+        verify(db, key, 0, fields, result, status, state);
     }
 
-    public void doTransactionReadModifyWrite(DB db) {
+    public void doTransactionReadModifyWrite(DB db, ThreadState state) {
         //choose a random key
-        String key = buildKey(nextTransactionKey());
+        long keynum = nextTransactionKey();
+        String key = buildKey(keynum, state);
 
-        Set<String> fields = null;
-        if (!readAllFields) {
-            // read a random field
-            String field = "field" + fieldChooser.nextString();
-            fields = new HashSet<String>();
-            fields.add(field);
-        }
+        Set<String> fields = nextFields();
 
         HashMap<String, ByteIterator> values;
 
         if (writeAllFields) {
             //new data for all the fields
-            values = buildValues();
+            values = buildValues(key, state);
         } else {
             //update a random field
-            values = buildUpdate();
+            values = buildUpdate(key, state);
         }
 
         // do the transaction
 
+        HashMap<String, ByteIterator> result = state.result();
+        expectVersions(db, keynum, 0, state);
         long st = System.nanoTime();
-        db.read(table, key, fields, new HashMap<String, ByteIterator>());
-        db.update(table, key, values);
+        int status = db.read(table, key, fields, result);
+        int updateStatus = db.update(table, key, values);
         long en = System.nanoTime();
+        acknowledge(db, keynum, values, updateStatus);
 
-        Measurements.getMeasurements().measure("READ-MODIFY-WRITE", (int) ((en - st) / 1000));
+        measurements.measure(Operation.READ_MODIFY_WRITE, (int) ((en - st) / 1000));
+        measurements.measureIntended(Operation.READ_MODIFY_WRITE, st, en);
+        verify(db, key, 0, fields, result, status, state);
     }
 
-    public void doTransactionScan(DB db) {
-        String startKey = buildKey(nextTransactionKey());
+    public void doTransactionScan(DB db, ThreadState state) {
+        String startKey = buildKey(nextTransactionKey(), state);
         int length = scanLengthGenerator.nextInt();
-        Set<String> fields = null;
-        if (!readAllFields) {
-            // read a random field
-            String field = "field" + fieldChooser.nextString();
-            fields = new HashSet<String>();
-            fields.add(field);
-        }
-        db.scan(table, startKey, length, fields, new Vector<HashMap<String, ByteIterator>>());
+        db.scan(table, startKey, length, nextFields(), state.scanResult());
     }
 
-    public void doTransactionUpdate(DB db) {
+    public void doTransactionUpdate(DB db, ThreadState state) {
         //choose a random key
-        String key = buildKey(nextTransactionKey());
+        long keynum = nextTransactionKey();
+        String key = buildKey(keynum, state);
         HashMap<String, ByteIterator> values;
         if (writeAllFields) {
             //new data for all the fields
-            values = buildValues();
+            values = buildValues(key, state);
         } else {
             //update a random field
-            values = buildUpdate();
+            values = buildUpdate(key, state);
         }
-        db.update(table, key, values);
+        acknowledge(db, keynum, values, db.update(table, key, values));
     }
 
-    public void doTransactionInsert(DB db) {
+    public void doTransactionBatchRead(DB db, ThreadState state) {
+        //choose a batch of random keys
+        int count = batchSizeGenerator.nextInt();
+        List<String> keys = state.batchKeys();
+        for (int i = 0; i < count; i++) {
+            long keynum = nextTransactionKey();
+            keys.add(buildKey(keynum, state));
+            expectVersions(db, keynum, i, state);
+        }
+        Set<String> fields = nextFields();
+        List<HashMap<String, ByteIterator>> results = state.batchResults(count);
+        int status = db.batchRead(table, keys, fields, results);
+        for (int i = 0; i < count; i++) {
+            verify(db, keys.get(i), i, fields, results.get(i), status, state);
+        }
+    }
+
+    public void doTransactionBatchUpdate(DB db, ThreadState state) {
+        //choose a batch of random keys
+        int count = batchSizeGenerator.nextInt();
+        List<String> keys = state.batchKeys();
+        List<HashMap<String, ByteIterator>> values = state.batchValues(count);
+        long[] keynums = state.keynums(count);
+        for (int i = 0; i < count; i++) {
+            keynums[i] = nextTransactionKey();
+            String key = buildKey(keynums[i], state);
+            keys.add(key);
+            HashMap<String, ByteIterator> record = values.get(i);
+            if (writeAllFields) {
+                //new data for all the fields
+                for (int j = 0; j < fieldCount; j++) {
+                    record.put(fieldNames[j], state.batchData(key, i, j, fieldLengthGenerator.nextInt()));
+                }
+            } else {
+                //update a random field
+                int field = fieldChooser.nextInt();
+                record.clear();
+                record.put(fieldNames[field], state.batchData(key, i, field, fieldLengthGenerator.nextInt()));
+            }
+        }
+        int status = db.batchUpdate(table, keys, values);
+        for (int i = 0; i < count; i++) {
+            acknowledge(db, keynums[i], values.get(i), status);
+        }
+    }
+
+    public void doTransactionInsert(DB db, ThreadState state) {
         //choose the next key
-        String key = buildKey(transactionInsertKeyGenerator.nextInt());
-        HashMap<String, ByteIterator> values = buildValues();
-        db.insert(table, key, values);
+        long keynum = transactionInsertKeyGenerator.nextInt();
+        String key = buildKey(keynum, state);
+        HashMap<String, ByteIterator> values = buildValues(key, state);
+        acknowledge(db, keynum, values, db.insert(table, key, values));
         if (cleanupInsertedKeys) {
-            insertedKeys.add(key);
+            insertedKeys.add(keynum);
         }
     }
 
+    /**
+     * @deprecated use {@link #doTransactionRead(DB, ThreadState)} with the state from initThread(), which reuses
+     *             the containers of the thread.
+     */
+    @Deprecated
+    public void doTransactionRead(DB db) {
+        doTransactionRead(db, new ThreadState(null));
+    }
+
+    /**
+     * @deprecated use {@link #doTransactionReadModifyWrite(DB, ThreadState)} with the state from initThread().
+     */
+    @Deprecated
+    public void doTransactionReadModifyWrite(DB db) {
+        doTransactionReadModifyWrite(db, new ThreadState(null));
+    }
+
+    /**
+     * @deprecated use {@link #doTransactionScan(DB, ThreadState)} with the state from initThread().
+     */
+    @Deprecated
+    public void doTransactionScan(DB db) {
+        doTransactionScan(db, new ThreadState(null));
+    }
+
+    /**
+     * @deprecated use {@link #doTransactionUpdate(DB, ThreadState)} with the state from initThread().
+     */
+    @Deprecated
+    public void doTransactionUpdate(DB db) {
+        doTransactionUpdate(db, new ThreadState(null));
+    }
+
+    /**
+     * @deprecated use {@link #doTransactionInsert(DB, ThreadState)} with the state from initThread().
+     */
+    @Deprecated
+    public void doTransactionInsert(DB db) {
+        doTransactionInsert(db, new ThreadState(null));
+    }
+
+    /**
+     * Delete the records inserted by the transactions, with several threads that each take the next batch
+     * of keys until there are none left.
+     */
     @Override
     public void cleanup() throws WorkloadException {
-        if (cleanupInsertedKeys) {
-            if (log.isInfoEnabled()) {
-                log.info("Cleaning up inserted keys");
-            }
-            DB db;
+        if (!cleanupInsertedKeys) {
+            return;
+        }
+        final long size = insertedKeys.size();
+        final int batchSize = parseInt(properties.getProperty(CLEANUP_INSERTED_KEYS_BATCH_SIZE_PROPERTY),
+                CLEANUP_INSERTED_KEYS_BATCH_SIZE);
+        int threadCount = parseInt(properties.getProperty(CLEANUP_INSERTED_KEYS_THREADS_PROPERTY),
+                parseInt(properties.getProperty("threadcount"), 1));
+        threadCount = (int) Math.max(1, Math.min(threadCount, (size + batchSize - 1) / batchSize));
+        if (log.isInfoEnabled()) {
+            log.info("Cleaning up " + size + " inserted keys with " + threadCount + " threads");
+        }
+
+        final AtomicLong next = new AtomicLong();
+        final AtomicLong deleted = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        List<Thread> threads = new ArrayList<Thread>(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final DB db;
             try {
                 db = DBFactory.newDB(properties.getProperty("db", "com.yahoo.ycsb.BasicDB"), properties);
             } catch (UnknownDBException e) {
                 if (log.isErrorEnabled()) {
                     log.error("Unknown database", e);
                 }
-                return;
+                break;
             }
             try {
                 db.init();
@@ -632,16 +1387,61 @@ public class CoreWorkload extends Workload {
                 if (log.isErrorEnabled()) {
                     log.error("Database connection can't be initialized", e);
                 }
-                return;
+                break;
             }
-            int size = insertedKeys.size();
-            int batchSize = CLEANUP_INSERTED_KEYS_BATCH_SIZE;
-            for (int offset = 0; size > 0; size -= batchSize) {
-                int count = Math.min(size, batchSize);
-                List<String> keys = insertedKeys.subList(offset, offset + count);
-                for (String s: new HashSet<String>(keys)){
-                	db.delete(table, s);
+            Thread thread = new Thread("cleanup-" + t) {
+                @Override
+                public void run() {
+                    List<String> keys = new ArrayList<String>(batchSize);
+                    for (long offset = next.getAndAdd(batchSize); offset < size; offset = next.getAndAdd(batchSize)) {
+                        keys.clear();
+                        long end = Math.min(size, offset + batchSize);
+                        for (long i = offset; i < end; i++) {
+                            keys.add(buildKey(insertedKeys.get(i)));
+                        }
+                        if (db.batchDelete(table, keys) != 0) {
+                            failed.addAndGet(keys.size());
+                        }
+                        deleted.addAndGet(keys.size());
+                    }
+                    try {
+                        db.cleanup();
+                    } catch (DBException e) {
+                        if (log.isErrorEnabled()) {
+                            log.error("Database connection can't be cleaned up", e);
+                        }
+                    }
                 }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            for (Thread thread : threads) {
+                while (thread.isAlive()) {
+                    thread.join(CLEANUP_PROGRESS_INTERVAL);
+                    if (thread.isAlive() && log.isInfoEnabled()) {
+                        long done = deleted.get();
+                        long elapsed = System.currentTimeMillis() - start;
+                        log.info("Deleted " + done + " of " + size + " inserted keys ("
+                                + (elapsed > 0 ? done * 1000 / elapsed : 0) + " keys/sec)");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new WorkloadException("Interrupted while cleaning up the inserted keys", e);
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Deleted " + deleted.get() + " of " + size + " inserted keys in "
+                    + (System.currentTimeMillis() - start) + " ms, " + failed.get() + " in batches that failed");
+        }
+        try {
+            insertedKeys.close();
+        } catch (IOException e) {
+            if (log.isWarnEnabled()) {
+                log.warn("Could not remove the inserted keys file", e);
             }
         }
     }
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only list of inserted key numbers, kept as primitive longs outside of the Java heap so that
+ * runs with hundreds of millions of inserts can still clean up after themselves.
+ * <p/>
+ * The keys are stored in fixed size segments, either direct buffers or, if a file is given, regions of
+ * that file mapped into memory (so the operating system can page them out). Any number of threads may
+ * add keys concurrently; reading them back is only safe once those threads are done, e.g. after they
+ * have been joined.
+ */
+public class InsertedKeys {
+
+    static final int SEGMENT_SHIFT = 20;
+
+    /** The number of keys in a segment: 8MB of longs. */
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final AtomicLong size = new AtomicLong();
+
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+
+    private final File file;
+
+    private final RandomAccessFile raf;
+
+    /**
+     * Keep the keys in direct buffers.
+     */
+    public InsertedKeys() {
+        file = null;
+        raf = null;
+    }
+
+    /**
+     * Keep the keys in the given file, which is created (or truncated) and removed again by close().
+     */
+    public InsertedKeys(File file) throws IOException {
+        this.file = file;
+        raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+    }
+
+    public void add(long key) {
+        long index = size.getAndIncrement();
+        segment((int) (index >>> SEGMENT_SHIFT)).putLong((int) (index & SEGMENT_MASK) << 3, key);
+    }
+
+    public long get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].getLong((int) (index & SEGMENT_MASK) << 3);
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Release the file, if any. Mapped segments stay valid until they are garbage collected.
+     */
+    public void close() throws IOException {
+        if (raf != null) {
+            raf.close();
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    private ByteBuffer segment(int index) {
+        ByteBuffer[] current = segments;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = segments;
+            if (index >= current.length) {
+                ByteBuffer[] grown = new ByteBuffer[Math.max(index + 1, current.length * 2)];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                current = grown;
+            }
+            if (current[index] == null) {
+                current[index] = allocate(index);
+            }
+            //the volatile write publishes the new segment to the other threads
+            segments = current;
+            return current[index];
+        }
+    }
+
+    private ByteBuffer allocate(int index) {
+        if (raf == null) {
+            return ByteBuffer.allocateDirect(SEGMENT_SIZE << 3);
+        }
+        try {
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) index << (SEGMENT_SHIFT + 3), SEGMENT_SIZE << 3);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map " + file + " for the inserted keys", e);
+        }
+    }
+}
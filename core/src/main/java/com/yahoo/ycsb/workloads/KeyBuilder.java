@@ -0,0 +1,62 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.workloads;
+
+/**
+ * Builds keys of the form prefix + number in a reusable buffer, so that the only allocation per key is the key
+ * itself. Not thread safe: each client thread has its own.
+ */
+public class KeyBuilder {
+
+    private final char[] buffer;
+
+    private final int prefixLength;
+
+    public KeyBuilder(String prefix) {
+        prefixLength = prefix.length();
+        //enough for the prefix plus the 19 digits and sign of any long
+        buffer = new char[prefixLength + 20];
+        prefix.getChars(0, prefixLength, buffer, 0);
+    }
+
+    /**
+     * Build the key for the given number; the same as prefix + number.
+     */
+    public String build(long number) {
+        int digits = 0;
+        //work with the negative value, since not every negative long has a positive counterpart
+        long rest = number < 0 ? number : -number;
+        do {
+            digits++;
+            rest /= 10;
+        } while (rest != 0);
+
+        int length = prefixLength + digits;
+        int position = prefixLength;
+        if (number < 0) {
+            buffer[position++] = '-';
+            length++;
+        }
+        rest = number < 0 ? number : -number;
+        for (int i = length - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' - (rest % 10));
+            rest /= 10;
+        }
+        return new String(buffer, 0, length);
+    }
+}
@@ -2,11 +2,8 @@ package com.yahoo.ycsb.workloads;
 
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
-import com.yahoo.ycsb.DBWrapper;
-import com.yahoo.ycsb.measurements.Measurements;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -15,24 +12,16 @@ public class RangeScanWorkload extends CoreWorkload {
     public static final String RANGE_SCAN = "RANGE-SCAN";
 
     @Override
-    public void doTransactionScan(DB db) {
+    public void doTransactionScan(DB db, ThreadState state) {
         int startKey = nextTransactionKey();
         int length = scanLengthGenerator.nextInt();
         int endKey = startKey + length;
-        Set<String> fields = null;
-        if (!readAllFields) {
-            //read a random field
-            String field = "field" + fieldChooser.nextString();
-            fields = new HashSet<String>();
-            fields.add(field);
-        }
-        DBWrapper wrapper = (DBWrapper)db;
-        //RangeScanOperation operation = (RangeScanOperation) wrapper.getDB();
+        Set<String> fields = nextFields();
+        //RangeScanOperation operation = (RangeScanOperation) db;
         //long start = System.nanoTime();
-        //int result = operation.scan(table, buildKey(startKey), buildKey(endKey),
+        //int result = operation.scan(table, buildKey(startKey, state), buildKey(endKey, state),
         //        length, fields, new ArrayList<Map<String, ByteIterator>>());
         //long end = System.nanoTime();
-        //Measurements measurements = wrapper.getMeasurements();
         //measurements.measure(RANGE_SCAN, (int) ((end - start) / 1000));
         //measurements.reportReturnCode(RANGE_SCAN, result);
     }
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts a trace of recorded operations from CSV to the binary format of TraceFile.
+ * <p/>
+ * Each line of the CSV file is one operation, in timestamp order:
+ * <pre>
+ * timestamp,operation,key,fields,size
+ * </pre>
+ * where the timestamp is in milliseconds (with an optional fraction), the operation is one of read, update, insert,
+ * scan or delete, the fields are the names of the fields read or written, separated by semicolons, or empty for all
+ * of them, and the size is the number of bytes written to each field, or the number of records scanned. Blank
+ * lines, lines starting with # and a header line starting with "timestamp" are skipped. Keys may contain commas.
+ */
+public class TraceConverter {
+
+    public static void usageMessage() {
+        System.out.println("Usage: java com.yahoo.ycsb.workloads.TraceConverter <csv file> <trace file>");
+        System.out.println("  Each line of the csv file is timestamp(ms),operation,key,field1;field2;...,size");
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            usageMessage();
+            System.exit(0);
+        }
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), "UTF-8"));
+            TraceFile.Writer out = new TraceFile.Writer(new BufferedOutputStream(new FileOutputStream(args[1])));
+            try {
+                long count = convert(in, out);
+                System.out.println("Converted " + count + " operations");
+            } finally {
+                in.close();
+                out.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not convert " + args[0] + ": " + e);
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Write the operations of a CSV trace to a trace file.
+     *
+     * @return the number of operations
+     * @throws IllegalArgumentException if a line cannot be parsed, with its line number
+     */
+    public static long convert(BufferedReader in, TraceFile.Writer out) throws IOException {
+        long count = 0;
+        int lineNumber = 0;
+        String line;
+        List<String> fields = new ArrayList<String>();
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith("#") || (count == 0 && line.startsWith("timestamp"))) {
+                continue;
+            }
+            try {
+                int first = line.indexOf(',');
+                int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+                int last = line.lastIndexOf(',');
+                int beforeLast = line.lastIndexOf(',', last - 1);
+                if (second < 0 || beforeLast <= second) {
+                    throw new IllegalArgumentException("expected timestamp,operation,key,fields,size");
+                }
+                long timestamp = Math.round(Double.parseDouble(line.substring(0, first)) * 1000);
+                String name = line.substring(first + 1, second).trim();
+                int operation = TraceFile.operation(name);
+                if (operation < 0) {
+                    throw new IllegalArgumentException("unknown operation " + name);
+                }
+                String key = line.substring(second + 1, beforeLast);
+                fields.clear();
+                String fieldList = line.substring(beforeLast + 1, last).trim();
+                if (fieldList.length() > 0) {
+                    Collections.addAll(fields, fieldList.split(";"));
+                }
+                int size = Integer.parseInt(line.substring(last + 1).trim());
+                out.write(timestamp, operation, key, fields, size);
+                count++;
+            } catch (IllegalArgumentException e) {
+                //includes NumberFormatException
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return count;
+    }
+}
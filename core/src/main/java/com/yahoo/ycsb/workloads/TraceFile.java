@@ -0,0 +1,390 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A compact binary log of recorded operations, for TraceReplayWorkload. TraceConverter writes one from a CSV file.
+ * <p/>
+ * The file starts with the 8 bytes "YCSBTRC" and a format version, followed by the records in timestamp order.
+ * Each record is the length of the rest of the record, the number of microseconds since the previous record (or,
+ * for the first one, since the epoch of the trace), the String.hashCode() of the key as a 4 byte integer, the
+ * operation, the key, the size (the bytes per field written, or the number of records scanned) and the names of the
+ * fields (none for all of them). Records of a recorded run (see RecordingDB) end with the latency of the operation in
+ * microseconds and its return code as a 4 byte integer. Lengths, times and sizes are unsigned variable length
+ * integers, 7 bits to a byte, and strings are their length followed by their UTF-8 bytes.
+ * <p/>
+ * Since the length and key hash come first, a reader can skip the records of keys it does not replay without
+ * decoding them, so several threads can each read the whole file and replay a partition of its keys, in the order
+ * in which they were recorded.
+ */
+public class TraceFile {
+
+    public static final int READ = 0;
+
+    public static final int UPDATE = 1;
+
+    public static final int INSERT = 2;
+
+    public static final int SCAN = 3;
+
+    public static final int DELETE = 4;
+
+    private static final String[] OPERATIONS = {"READ", "UPDATE", "INSERT", "SCAN", "DELETE"};
+
+    private static final byte[] MAGIC = {'Y', 'C', 'S', 'B', 'T', 'R', 'C', 1};
+
+    /** The largest record, not counting its length. */
+    static final int MAX_RECORD_SIZE = 1 << 16;
+
+    /** The largest part of the file a reader maps at once. */
+    static final int WINDOW_SIZE = 1 << 30;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The operation with the given name, e.g. "read", or -1 if there is no such operation.
+     */
+    public static int operation(String name) {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (OPERATIONS[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static String operationName(int operation) {
+        return OPERATIONS[operation];
+    }
+
+    /**
+     * The partition, out of the given number, that the records of a key with the given hash belong to.
+     */
+    public static int partition(int keyhash, int partitions) {
+        //String.hashCode() of similar keys only differs in its low bits, so spread them out first
+        return (int) (((keyhash * 0x9e3779b1) & 0xffffffffL) * partitions >>> 32);
+    }
+
+    /**
+     * Writes a trace file, one record at a time.
+     */
+    public static class Writer {
+
+        private final DataOutputStream out;
+
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+
+        private final DataOutputStream recordOut = new DataOutputStream(record);
+
+        private long last;
+
+        /**
+         * Write a trace to the given stream, which should be buffered.
+         */
+        public Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(out);
+            this.out.write(MAGIC);
+        }
+
+        /**
+         * Append a record. Records must be written in timestamp order.
+         *
+         * @param timestamp the time of the operation, in microseconds since the epoch of the trace
+         * @param fields the fields the operation reads or writes, or none for all of them
+         * @param size the bytes per field written, or the number of records scanned
+         */
+        public void write(long timestamp, int operation, String key, List<String> fields, int size)
+                throws IOException {
+            write(timestamp, operation, key, fields, size, -1, 0);
+        }
+
+        /**
+         * Append a record of an operation that was run, with its latency in microseconds and its return code.
+         * Records must be written in timestamp order.
+         */
+        public void write(long timestamp, int operation, String key, Collection<String> fields, int size,
+                long latency, int result) throws IOException {
+            if (timestamp < last) {
+                throw new IllegalArgumentException("Timestamp " + timestamp + " is before the previous one, "
+                        + last + "; the trace must be sorted by time");
+            }
+            if (operation < 0 || operation >= OPERATIONS.length) {
+                throw new IllegalArgumentException("Unknown operation " + operation);
+            }
+            if (size < 0) {
+                throw new IllegalArgumentException("Negative size " + size);
+            }
+            record.reset();
+            writeVarLong(recordOut, timestamp - last);
+            recordOut.writeInt(key.hashCode());
+            recordOut.writeByte(operation);
+            writeString(recordOut, key);
+            writeVarLong(recordOut, size);
+            writeVarLong(recordOut, fields.size());
+            for (String field : fields) {
+                writeString(recordOut, field);
+            }
+            if (latency >= 0) {
+                writeVarLong(recordOut, latency);
+                recordOut.writeInt(result);
+            }
+            if (record.size() > MAX_RECORD_SIZE) {
+                throw new IllegalArgumentException("Record for key " + key + " is longer than "
+                        + MAX_RECORD_SIZE + " bytes");
+            }
+            writeVarLong(out, record.size());
+            record.writeTo(out);
+            last = timestamp;
+        }
+
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private static void writeString(DataOutputStream out, String s) throws IOException {
+            byte[] bytes = s.getBytes(UTF8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes);
+        }
+
+        private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+            while ((value & ~0x7fL) != 0) {
+                out.writeByte((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    /**
+     * Reads the records of one partition of the keys of a trace file, which it maps into memory a window at a time,
+     * so any number of readers can share the pages of the file.
+     */
+    public static class Reader {
+
+        private final File file;
+
+        private final long length;
+
+        private final int partition;
+
+        private final int partitions;
+
+        private final int windowSize;
+
+        private MappedByteBuffer window;
+
+        private long windowStart;
+
+        private byte[] scratch = new byte[256];
+
+        private long timestamp;
+
+        private int operation;
+
+        private String key;
+
+        private int size;
+
+        private long latency;
+
+        private int result;
+
+        private final List<String> fields = new ArrayList<String>();
+
+        /**
+         * Read all the records of the given file.
+         */
+        public Reader(File file) throws IOException {
+            this(file, 0, 1);
+        }
+
+        /**
+         * Read the records of the keys of the given partition of the given file.
+         */
+        public Reader(File file, int partition, int partitions) throws IOException {
+            this(file, partition, partitions, WINDOW_SIZE);
+        }
+
+        Reader(File file, int partition, int partitions, int windowSize) throws IOException {
+            this.file = file;
+            this.length = file.length();
+            this.partition = partition;
+            this.partitions = partitions;
+            this.windowSize = windowSize;
+            map(0);
+            byte[] magic = new byte[MAGIC.length];
+            if (length < magic.length) {
+                throw new IOException(file + " is not a trace file");
+            }
+            window.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " is not a trace file, or one of another version");
+            }
+        }
+
+        /**
+         * Move to the next record of this reader's partition.
+         *
+         * @return false if there are no more
+         */
+        public boolean next() throws IOException {
+            try {
+                while (true) {
+                    if (windowStart + window.position() >= length) {
+                        return false;
+                    }
+                    if (window.remaining() < MAX_RECORD_SIZE + 5 && windowStart + window.limit() < length) {
+                        map(windowStart + window.position());
+                    }
+                    int recordLength = (int) readVarLong();
+                    int start = window.position();
+                    if (recordLength > MAX_RECORD_SIZE || recordLength > window.remaining()) {
+                        throw new IOException("Corrupt record at offset " + (windowStart + start) + " of " + file);
+                    }
+                    timestamp += readVarLong();
+                    int keyhash = window.getInt();
+                    if (partitions > 1 && partition(keyhash, partitions) != partition) {
+                        window.position(start + recordLength);
+                        continue;
+                    }
+                    operation = window.get();
+                    if (operation < 0 || operation >= OPERATIONS.length) {
+                        throw new IOException("Unknown operation " + operation + " at offset "
+                                + (windowStart + start) + " of " + file);
+                    }
+                    key = readString();
+                    size = (int) readVarLong();
+                    int fieldCount = (int) readVarLong();
+                    fields.clear();
+                    for (int i = 0; i < fieldCount; i++) {
+                        fields.add(readString());
+                    }
+                    if (window.position() < start + recordLength) {
+                        latency = readVarLong();
+                        result = window.getInt();
+                    } else {
+                        latency = -1;
+                        result = 0;
+                    }
+                    if (window.position() != start + recordLength) {
+                        throw new IOException("Corrupt record at offset " + (windowStart + start) + " of " + file);
+                    }
+                    return true;
+                }
+            } catch (BufferUnderflowException e) {
+                throw new EOFException(file + " ends in the middle of a record");
+            }
+        }
+
+        /**
+         * The time of the current record, in microseconds since the epoch of the trace.
+         */
+        public long timestamp() {
+            return timestamp;
+        }
+
+        public int operation() {
+            return operation;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        /**
+         * The fields the current record reads or writes; empty for all of them.
+         */
+        public List<String> fields() {
+            return fields;
+        }
+
+        /**
+         * The bytes per field the current record writes, or the number of records it scans.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * The latency of the current record in microseconds, if it was recorded from a run, otherwise -1.
+         */
+        public long latency() {
+            return latency;
+        }
+
+        /**
+         * The return code of the current record, if it was recorded from a run.
+         */
+        public int result() {
+            return result;
+        }
+
+        private void map(long position) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                //the mapping stays valid once the file is closed
+                window = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(windowSize, length - position));
+                windowStart = position;
+            } finally {
+                raf.close();
+            }
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = window.get();
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt variable length integer in " + file);
+        }
+
+        private String readString() throws IOException {
+            int len = (int) readVarLong();
+            if (len > window.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            if (len > scratch.length) {
+                scratch = new byte[Math.max(len, scratch.length * 2)];
+            }
+            window.get(scratch, 0, len);
+            return new String(scratch, 0, len, UTF8);
+        }
+    }
+}
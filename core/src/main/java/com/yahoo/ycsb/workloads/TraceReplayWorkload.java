@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package com.yahoo.ycsb.workloads;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.FastRandomByteIterator;
+import com.yahoo.ycsb.Pacer;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.yahoo.ycsb.Utils.parseDouble;
+import static com.yahoo.ycsb.Utils.parseInt;
+
+/**
+ * Replays a trace of recorded operations, e.g. captured from the access logs of a production system and converted
+ * with TraceConverter (see TraceFile for the format).
+ * <p/>
+ * Every client thread maps the trace file into memory and replays the operations on a partition of its keys, chosen
+ * by their hash, so the operations on any one key are replayed in the order in which they were recorded. Each
+ * operation is issued at the time it was recorded, relative to the start of the trace and scaled by the trace
+ * speed, and its INTENDED latency is measured from then. A thread stops when it reaches the end of the trace, so
+ * the operation count should be 0 (or at most the number of operations in the trace), and no target throughput
+ * should be set.
+ * <p/>
+ * Properties to control the workload:
+ * <UL>
+ * <LI><b>tracefile</b>: the trace to replay
+ * <LI><b>tracespeed</b>: how many times faster than recorded to replay the trace, or 0 to replay it as fast as possible (default: 1)
+ * <LI><b>table</b>: the name of the database table to run queries against (default: usertable)
+ * <LI><b>fieldcount</b>: the number of fields written by operations recorded as writing all fields (default: 10)
+ * </ul>
+ * Values are random, of the size recorded. Loading with this workload replays the trace as well, e.g. one made of
+ * the inserts of a data set.
+ */
+public class TraceReplayWorkload extends Workload {
+
+    /**
+     * The name of the property for the trace file to replay.
+     */
+    public static final String TRACE_FILE_PROPERTY = "tracefile";
+
+    /**
+     * The name of the property for how many times faster than recorded to replay the trace. 0 replays it as fast as
+     * possible.
+     */
+    public static final String TRACE_SPEED_PROPERTY = "tracespeed";
+
+    public static final double TRACE_SPEED_PROPERTY_DEFAULT = 1;
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected File traceFile;
+
+    protected double speed;
+
+    protected long spinNs;
+
+    protected String table;
+
+    protected String[] fieldNames;
+
+    /**
+     * The client's measurements, looked up once rather than for every operation.
+     */
+    protected Measurements measurements;
+
+    /**
+     * The time of the first operation of the trace, in microseconds.
+     */
+    protected long traceStart;
+
+    /**
+     * The System.nanoTime() at which the first operation of the trace was replayed, or 0 until then.
+     */
+    private final AtomicLong replayStart = new AtomicLong();
+
+    @Override
+    public void init(Properties properties) throws WorkloadException {
+        String file = properties.getProperty(TRACE_FILE_PROPERTY);
+        if (file == null) {
+            throw new WorkloadException("No " + TRACE_FILE_PROPERTY + " to replay");
+        }
+        traceFile = new File(file);
+        speed = parseDouble(properties.getProperty(TRACE_SPEED_PROPERTY), TRACE_SPEED_PROPERTY_DEFAULT);
+        if (speed < 0) {
+            throw new WorkloadException(TRACE_SPEED_PROPERTY + " must not be negative");
+        }
+        spinNs = Long.parseLong(properties.getProperty(Pacer.PACING_SPIN_PROPERTY,
+                Pacer.PACING_SPIN_PROPERTY_DEFAULT)) * 1000;
+        table = properties.getProperty(CoreWorkload.TABLENAME_PROPERTY, CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+        measurements = Measurements.getMeasurements();
+        int fieldCount = parseInt(properties.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY),
+                CoreWorkload.FIELD_COUNT_PROPERTY_DEFAULT);
+        fieldNames = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fieldNames[i] = "field" + i;
+        }
+        try {
+            TraceFile.Reader reader = new TraceFile.Reader(traceFile);
+            if (reader.next()) {
+                traceStart = reader.timestamp();
+            }
+        } catch (IOException e) {
+            throw new WorkloadException("Could not read " + traceFile + ": " + e, e);
+        }
+    }
+
+    @Override
+    public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+        try {
+            return new ThreadState(new TraceFile.Reader(traceFile, mythreadid, threadcount));
+        } catch (IOException e) {
+            throw new WorkloadException("Could not read " + traceFile + ": " + e, e);
+        }
+    }
+
+    /**
+     * Replay the next operation of the thread's part of the trace.
+     */
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+        return replay(db, (ThreadState) threadstate);
+    }
+
+    /**
+     * Replay the next operation of the thread's part of the trace.
+     */
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+        return replay(db, (ThreadState) threadstate);
+    }
+
+    /**
+     * Wait until the next operation of the thread is due and issue it.
+     *
+     * @return false at the end of the trace, or if the workload was asked to stop while waiting for the next operation
+     */
+    protected boolean replay(DB db, ThreadState state) {
+        TraceFile.Reader reader = state.reader;
+        try {
+            if (!reader.next()) {
+                return false;
+            }
+        } catch (IOException e) {
+            log.error("Could not read " + traceFile, e);
+            return false;
+        }
+
+        if (speed > 0) {
+            long due = replayStart() + (long) ((reader.timestamp() - traceStart) * 1000 / speed);
+            if (!Pacer.waitUntil(due, spinNs, this)) {
+                return false;
+            }
+            measurements.setIntendedStartTimeNs(due);
+        }
+
+        String key = reader.key();
+        List<String> fields = reader.fields();
+        switch (reader.operation()) {
+            case TraceFile.READ:
+                state.result.clear();
+                db.read(table, key, fields(fields), state.result);
+                break;
+            case TraceFile.UPDATE:
+                db.update(table, key, values(fields, reader.size()));
+                break;
+            case TraceFile.INSERT:
+                db.insert(table, key, values(fields, reader.size()));
+                break;
+            case TraceFile.SCAN:
+                state.scanResult.clear();
+                db.scan(table, key, reader.size(), fields(fields), state.scanResult);
+                break;
+            case TraceFile.DELETE:
+                db.delete(table, key);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * The time the replay started, which is the first time it is asked for.
+     */
+    private long replayStart() {
+        long start = replayStart.get();
+        if (start == 0) {
+            replayStart.compareAndSet(0, System.nanoTime());
+            start = replayStart.get();
+        }
+        return start;
+    }
+
+    /**
+     * The fields to read: null for all of them, or the ones recorded.
+     */
+    private Set<String> fields(List<String> fields) {
+        return fields.isEmpty() ? null : new HashSet<String>(fields);
+    }
+
+    /**
+     * Random values of the given size for the recorded fields, or for all the fields if none are recorded.
+     */
+    private HashMap<String, ByteIterator> values(List<String> fields, int size) {
+        HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+        if (fields.isEmpty()) {
+            for (String field : fieldNames) {
+                values.put(field, new FastRandomByteIterator(size));
+            }
+        } else {
+            for (String field : fields) {
+                values.put(field, new FastRandomByteIterator(size));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * The state of one client thread: its reader of the trace, and the containers its reads reuse.
+     */
+    protected static class ThreadState {
+
+        protected final TraceFile.Reader reader;
+
+        private final HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+
+        private final Vector<HashMap<String, ByteIterator>> scanResult = new Vector<HashMap<String, ByteIterator>>();
+
+        protected ThreadState(TraceFile.Reader reader) {
+            this.reader = reader;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved. 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The last acknowledged version of each field of each record, kept as primitive longs outside of the Java heap
+ * like InsertedKeys: 8 bytes for each field of every record up to the highest key number written. A field that
+ * was never written has version 0.
+ * <p/>
+ * Any number of threads may acknowledge and look up versions concurrently. An acknowledgement only ever raises
+ * the version of its field, so a write acknowledged after a newer one to the same field does not hide it.
+ */
+public class VersionTable {
+
+    static final int SEGMENT_SHIFT = 20;
+
+    /** The number of versions in a segment: 8MB of longs. */
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /** The number of locks the fields are striped over. */
+    private static final int LOCKS = 64;
+
+    private final int fieldCount;
+
+    private final Object[] locks = new Object[LOCKS];
+
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+
+    public VersionTable(int fieldCount) {
+        this.fieldCount = fieldCount;
+        for (int i = 0; i < LOCKS; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Record that a write of the given version of the given field of the given record was acknowledged.
+     */
+    public void acknowledge(long keynum, int field, long version) {
+        long index = keynum * fieldCount + field;
+        ByteBuffer segment = segment((int) (index >>> SEGMENT_SHIFT));
+        int offset = (int) (index & SEGMENT_MASK) << 3;
+        synchronized (locks[(int) (index & (LOCKS - 1))]) {
+            if (segment.getLong(offset) < version) {
+                segment.putLong(offset, version);
+            }
+        }
+    }
+
+    /**
+     * The highest version of the given field of the given record that was acknowledged, or 0 if none was.
+     */
+    public long get(long keynum, int field) {
+        long index = keynum * fieldCount + field;
+        int segmentIndex = (int) (index >>> SEGMENT_SHIFT);
+        ByteBuffer[] current = segments;
+        if (segmentIndex >= current.length || current[segmentIndex] == null) {
+            return 0;
+        }
+        synchronized (locks[(int) (index & (LOCKS - 1))]) {
+            return current[segmentIndex].getLong((int) (index & SEGMENT_MASK) << 3);
+        }
+    }
+
+    private ByteBuffer segment(int index) {
+        ByteBuffer[] current = segments;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = segments;
+            if (index >= current.length) {
+                ByteBuffer[] grown = new ByteBuffer[Math.max(index + 1, current.length * 2)];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                current = grown;
+            }
+            if (current[index] == null) {
+                //direct buffers start out zeroed: no version acknowledged
+                current[index] = ByteBuffer.allocateDirect(SEGMENT_SIZE << 3);
+            }
+            //the volatile write publishes the new segment to the other threads
+            segments = current;
+            return current[index];
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.LatencyLogWriter;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestAgent {
+  @Test
+  public void testFilesAreConfinedToTheAgentDirectory() {
+    File dir = new File("/var/ycsb");
+    Properties props = new Properties();
+    props.setProperty(CoreWorkload.CLEANUP_INSERTED_KEYS_FILE_PROPERTY, "/etc/passwd");
+    props.setProperty(LatencyLogWriter.FILE, "../../latency.log.agent1");
+    props.setProperty(OperationRecorder.FILE, "run.trace");
+    props.setProperty("recordcount", "1000");
+    Agent.confineFiles(props, dir);
+    assertEquals(new File(dir, "passwd").getPath(), props.getProperty(CoreWorkload.CLEANUP_INSERTED_KEYS_FILE_PROPERTY));
+    assertEquals(new File(dir, "latency.log.agent1").getPath(), props.getProperty(LatencyLogWriter.FILE));
+    assertEquals(new File(dir, "run.trace").getPath(), props.getProperty(OperationRecorder.FILE));
+    assertEquals("1000", props.getProperty("recordcount"));
+  }
+
+  @Test
+  public void testResponseDependsOnSecretAndChallenge() {
+    String response = Agent.respond("secret", "0123");
+    assertEquals(64, response.length());
+    assertEquals(response, Agent.respond("secret", "0123"));
+    assertFalse(response.equals(Agent.respond("other", "0123")));
+    assertFalse(response.equals(Agent.respond("secret", "0124")));
+  }
+
+  @Test
+  public void testCoordinatorWithoutTheSecretIsDisconnected() throws Exception {
+    ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName(Agent.ADDRESS_PROPERTY_DEFAULT));
+    Socket socket = new Socket(server.getInetAddress(), server.getLocalPort());
+    Socket accepted = server.accept();
+    server.close();
+    final Agent agent = new Agent(accepted, "secret", new File("."));
+    Thread thread = new Thread() {
+      public void run() {
+        try {
+          agent.run();
+        } catch (Exception e) {
+        }
+      }
+    };
+    thread.start();
+
+    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+    PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+    String hello = in.readLine();
+    assertTrue(hello.startsWith(Agent.HELLO + " "));
+    String challenge = hello.substring(Agent.HELLO.length() + 1);
+    out.println(Agent.JOB + " load agent0 " + Agent.respond("guess", challenge));
+    out.println(Agent.END);
+    out.flush();
+    assertTrue(in.readLine().startsWith(Agent.LOG + " "));
+    thread.join(10000);
+    assertFalse(thread.isAlive());
+    assertNull(agent._client);
+    socket.close();
+    accepted.close();
+  }
+}
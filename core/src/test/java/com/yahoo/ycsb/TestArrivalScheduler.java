@@ -0,0 +1,122 @@
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.MeasurementSnapshot;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestArrivalScheduler {
+  static final long MS = 1000000;
+
+  @Test
+  public void testFixedArrivalsAreEvenlySpaced() throws Exception {
+    ArrivalScheduler scheduler = new ArrivalScheduler(props("fixed", 1000), TargetProfile.constant(1000), 20, workload());
+    long st = System.nanoTime();
+    scheduler.start();
+    List<Long> arrivals = new ArrayList<Long>();
+    long arrival;
+    while ((arrival = scheduler.nextArrival()) >= 0) {
+      arrivals.add(arrival);
+    }
+    assertEquals(20, arrivals.size());
+    assertTrue(arrivals.get(0) >= st);
+    for (int i = 1; i < arrivals.size(); i++) {
+      assertEquals(MS, arrivals.get(i) - arrivals.get(i - 1), 2);
+    }
+    assertEquals(0, scheduler.getDroppedArrivals());
+  }
+
+  @Test
+  public void testPoissonArrivalsKeepTheRate() throws Exception {
+    ArrivalScheduler scheduler = new ArrivalScheduler(props("poisson", 1000), TargetProfile.constant(2000), 400, workload());
+    scheduler.start();
+    long first = scheduler.nextArrival();
+    long last = first;
+    int count = 1;
+    long arrival;
+    while ((arrival = scheduler.nextArrival()) >= 0) {
+      assertTrue(arrival >= last);
+      last = arrival;
+      count++;
+    }
+    assertEquals(400, count);
+    //399 exponential gaps with a mean of 0.5 ms
+    assertEquals(199.5, (last - first) / (double) MS, 50);
+  }
+
+  @Test
+  public void testArrivalsBeyondTheQueueAreDropped() throws Exception {
+    ArrivalScheduler scheduler = new ArrivalScheduler(props("fixed", 5), TargetProfile.constant(10000), 50, workload());
+    scheduler.start();
+    scheduler.join(10000);
+    assertFalse(scheduler.isAlive());
+    assertEquals(5, scheduler.getQueueLength());
+    assertEquals(45, scheduler.getDroppedArrivals());
+    //the queued arrivals are still handed out, and then there are no more
+    for (int i = 0; i < 5; i++) {
+      assertTrue(scheduler.nextArrival() >= 0);
+    }
+    assertEquals(-1, scheduler.nextArrival());
+  }
+
+  @Test
+  public void testStopEndsTheArrivals() throws Exception {
+    Workload workload = workload();
+    ArrivalScheduler scheduler = new ArrivalScheduler(props("fixed", 1000), TargetProfile.constant(0.0001), 0, workload);
+    scheduler.start();
+    workload.requestStop();
+    scheduler.join(10000);
+    assertFalse(scheduler.isAlive());
+    assertEquals(-1, scheduler.nextArrival());
+  }
+
+  @Test
+  public void testQueueDelayAndIntendedStart() throws Exception {
+    Measurements.setProperties(new Properties());
+    ArrivalScheduler scheduler = new ArrivalScheduler(props("fixed", 1000), TargetProfile.constant(1000), 3, workload());
+    ClientThread client = new ClientThread(null, true, workload(), 0, 1, new Properties(), 0, null);
+    client._measurements = new Measurements(new Properties());
+    client.setArrivalScheduler(scheduler);
+    scheduler.start();
+    scheduler.join(10000);
+    //every arrival has waited in the queue since its time
+    long[] arrivals = new long[3];
+    for (int i = 0; i < 3; i++) {
+      long before = System.nanoTime();
+      assertTrue(client.awaitNextOperation());
+      arrivals[i] = client._measurements.getIntendedStartTimeNs();
+      assertTrue(arrivals[i] < before);
+    }
+    assertFalse(client.awaitNextOperation());
+    assertEquals(2 * MS, arrivals[2] - arrivals[0], 4);
+
+    MeasurementSnapshot delay = client._measurements.getSnapshots(new double[0]).get("QUEUE-DELAY");
+    assertEquals(3, delay.getOperations());
+    //the first arrival was queued for at least the 2 ms it took the others to arrive
+    assertTrue(delay.getMaxLatency() >= 2000);
+  }
+
+  private static Properties props(String distribution, int queueSize) {
+    Properties props = new Properties();
+    props.setProperty(ArrivalScheduler.ARRIVAL_DISTRIBUTION_PROPERTY, distribution);
+    props.setProperty(ArrivalScheduler.QUEUE_SIZE_PROPERTY, Integer.toString(queueSize));
+    return props;
+  }
+
+  private static Workload workload() {
+    return new Workload() {
+      public boolean doInsert(DB db, Object threadstate) {
+        return false;
+      }
+
+      public boolean doTransaction(DB db, Object threadstate) {
+        return false;
+      }
+    };
+  }
+}
@@ -1,5 +1,7 @@
 package com.yahoo.ycsb;
 
+import java.nio.ByteBuffer;
+
 import org.testng.annotations.Test;
 import static org.testng.AssertJUnit.*;
 
@@ -19,4 +21,103 @@ public class TestByteIterator {
     assertFalse(itor.hasNext());
     assertEquals(0, itor.bytesLeft());
   }
+
+  @Test
+  public void testFastRandomByteIterator() {
+    for (int size : new int[] {0, 1, 7, 8, 9, 100, 1001}) {
+      FastRandomByteIterator itor = new FastRandomByteIterator(size, 42);
+      assertEquals(size, itor.bytesLeft());
+      String s = itor.toString();
+      assertEquals(size, s.length());
+      for (int i = 0; i < size; i++) {
+        assertTrue(s.charAt(i) >= ' ' && s.charAt(i) < ' ' + 32);
+      }
+      assertFalse(itor.hasNext());
+
+      //the same seed gives the same value, however it is consumed
+      itor = new FastRandomByteIterator(size, 42);
+      byte[] array = itor.toArray();
+      assertEquals(s, new String(array));
+      assertEquals(0, itor.bytesLeft());
+
+      itor = new FastRandomByteIterator(size, 42);
+      byte[] buf = new byte[size + 3];
+      int off = 3;
+      if (size > 0) {
+        buf[off++] = itor.nextByte();
+      }
+      assertEquals(size + 3, itor.nextBuf(buf, off));
+      assertEquals(s, new String(buf, 3, size));
+
+      itor = new FastRandomByteIterator(size, 42);
+      ByteBuffer buffer = itor.toByteBuffer();
+      assertEquals(size, buffer.remaining());
+      assertFalse(itor.hasNext());
+    }
+  }
+
+  @Test
+  public void testFastRandomByteIteratorReset() {
+    FastRandomByteIterator itor = new FastRandomByteIterator(100, 1);
+    byte[] first = itor.toArray();
+    byte[] copy = first.clone();
+    byte[] second = itor.reset(100).toArray();
+    //the buffer is reused, so a value kept past the next reset has to be copied
+    assertSame(first, second);
+    assertFalse(java.util.Arrays.equals(copy, second));
+
+    //a shorter value reuses the buffer too, and only hands over its own bytes
+    itor.reset(10);
+    assertEquals(10, itor.bytesLeft());
+    String shorter = itor.toString();
+    assertEquals(10, shorter.length());
+    assertFalse(itor.hasNext());
+    itor.reset(10);
+    byte[] third = itor.toArray();
+    assertEquals(10, third.length);
+    assertNotSame(first, third);
+    assertEquals(250, itor.reset(250).toArray().length);
+  }
+
+  @Test
+  public void testCompressibleByteIterator() throws Exception {
+    for (double ratio : new double[] {1, 2, 4.5}) {
+      byte[] value = new CompressibleByteIterator(100000, ratio, 7).toArray();
+      assertEquals(100000, value.length);
+      java.util.zip.Deflater deflater = new java.util.zip.Deflater();
+      deflater.setInput(value);
+      deflater.finish();
+      byte[] out = new byte[200000];
+      int compressed = deflater.deflate(out);
+      double actual = (double) value.length / compressed;
+      assertTrue("ratio " + ratio + " compressed by " + actual, Math.abs(actual - ratio) < ratio * 0.05);
+    }
+  }
+
+  @Test
+  public void testCorpusByteIterator() {
+    byte[] corpus = "abcdefghij".getBytes();
+    String value = new CorpusByteIterator(25, corpus, 3).toString();
+    assertEquals(25, value.length());
+    String twice = "abcdefghijabcdefghijabcdefghijabcdefghij";
+    assertTrue(value, twice.contains(value.substring(0, 10)));
+    assertEquals(value.substring(0, 15), value.substring(10, 25));
+  }
+
+  @Test
+  public void testVerifiableByteIterator() {
+    VerifiableByteIterator expected = new VerifiableByteIterator();
+    byte[] value = new VerifiableByteIterator("user1", "field0", 123456789L, 100).toArray();
+    assertEquals(100, value.length);
+    assertTrue(VerifiableByteIterator.verify("user1", "field0", value, expected));
+    assertEquals(123456789L, VerifiableByteIterator.version(value));
+    assertFalse(VerifiableByteIterator.verify("user2", "field0", value, expected));
+    assertFalse(VerifiableByteIterator.verify("user1", "field1", value, expected));
+    assertFalse(VerifiableByteIterator.verify("user1", "field0", java.util.Arrays.copyOf(value, 50), expected));
+    byte[] other = new VerifiableByteIterator("user1", "field0", 123456790L, 100).toArray();
+    assertFalse(java.util.Arrays.equals(value, other));
+    assertTrue(VerifiableByteIterator.verify("user1", "field0", other, expected));
+    other[99]++;
+    assertFalse(VerifiableByteIterator.verify("user1", "field0", other, expected));
+  }
 }
@@ -0,0 +1,119 @@
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Runs a coordinator against two agents on localhost, each starting its client in a JVM of its own.
+ */
+public class TestCoordinatedRun {
+  static final String SECRET = "secret";
+
+  @Test(timeOut = 120000)
+  public void testTwoAgentsAreMerged() throws Exception {
+    File dir = File.createTempFile("ycsb-agents", "");
+    dir.delete();
+    dir.mkdir();
+    File export = File.createTempFile("ycsb-coordinated", ".txt");
+    ServerSocket first = listen();
+    ServerSocket second = listen();
+    try {
+      Thread agent1 = serveOnce(first, dir);
+      Thread agent2 = serveOnce(second, dir);
+
+      Properties props = new Properties();
+      props.setProperty(Coordinator.AGENTS_PROPERTY, address(first) + "," + address(second));
+      props.setProperty(Agent.SECRET_PROPERTY, SECRET);
+      props.setProperty("db", BasicDB.class.getName());
+      props.setProperty(BasicDB.VERBOSE, "false");
+      props.setProperty("workload", "com.yahoo.ycsb.workloads.CoreWorkload");
+      props.setProperty(Client.RECORD_COUNT_PROPERTY, "100");
+      props.setProperty(Client.OPERATION_COUNT_PROPERTY, "301");
+      props.setProperty("readproportion", "0.5");
+      props.setProperty("updateproportion", "0.5");
+      props.setProperty("exportfile", export.getPath());
+      new Coordinator(props, true, false, "").run();
+
+      Map<String, String> merged = read(export);
+      long reads = Long.parseLong(merged.get("[READ], Operations"));
+      long updates = Long.parseLong(merged.get("[UPDATE], Operations"));
+      assertEquals(301, reads + updates);
+      assertTrue(reads > 0);
+      assertTrue(updates > 0);
+      assertEquals(reads, Long.parseLong(merged.get("[READ], Return=0")));
+      assertEquals(updates, Long.parseLong(merged.get("[UPDATE], Return=0")));
+
+      //the agents serve the next coordinator once this one disconnects
+      agent1.join(10000);
+      agent2.join(10000);
+      assertFalse(agent1.isAlive());
+      assertFalse(agent2.isAlive());
+    } finally {
+      first.close();
+      second.close();
+      export.delete();
+      dir.delete();
+    }
+  }
+
+  private static ServerSocket listen() throws IOException {
+    return new ServerSocket(0, 1, InetAddress.getByName(Agent.ADDRESS_PROPERTY_DEFAULT));
+  }
+
+  private static String address(ServerSocket server) {
+    return Agent.ADDRESS_PROPERTY_DEFAULT + ":" + server.getLocalPort();
+  }
+
+  /**
+   * Serve one coordinator, as Agent.serve does.
+   */
+  private static Thread serveOnce(final ServerSocket server, final File dir) {
+    Thread thread = new Thread() {
+      public void run() {
+        try {
+          Socket socket = server.accept();
+          try {
+            new Agent(socket, SECRET, dir).run();
+          } finally {
+            socket.close();
+          }
+        } catch (IOException e) {
+        }
+      }
+    };
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * The values of a text export, keyed by "[metric], measurement".
+   */
+  private static Map<String, String> read(File export) throws IOException {
+    Map<String, String> values = new HashMap<String, String>();
+    BufferedReader reader = new BufferedReader(new FileReader(export));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int comma = line.lastIndexOf(", ");
+        if (comma > 0) {
+          values.put(line.substring(0, comma), line.substring(comma + 2));
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return values;
+  }
+}
@@ -0,0 +1,63 @@
+package com.yahoo.ycsb;
+
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestCoordinator {
+  @Test
+  public void testLoadRangesCoverAllRecords() throws WorkloadException {
+    Properties props = new Properties();
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    props.setProperty("insertstart", "100");
+    props.setProperty(Client.INSERT_COUNT_PROPERTY, "900");
+    props.setProperty("target", "300");
+    props.setProperty(Agent.SECRET_PROPERTY, "secret");
+    Coordinator coordinator = new Coordinator(props, false, false, "");
+    long next = 100;
+    for (int i = 0; i < 7; i++) {
+      Properties agent = coordinator.getAgentProperties(i, 7);
+      assertEquals(next, Long.parseLong(agent.getProperty("insertstart")));
+      next += Long.parseLong(agent.getProperty(Client.INSERT_COUNT_PROPERTY));
+      assertEquals("true", agent.getProperty(Measurements.MEASUREMENT_EXPORT_RAW));
+      assertNull(agent.getProperty(Agent.SECRET_PROPERTY));
+      TargetProfile profile = TargetProfile.fromProperties(agent, 0);
+      assertEquals(300.0 / 7, profile.getTarget(0), 1e-9);
+    }
+    assertEquals(1000, next);
+  }
+
+  @Test
+  public void testOperationsAreDivided() throws WorkloadException {
+    Properties props = new Properties();
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "10");
+    Coordinator coordinator = new Coordinator(props, true, false, "");
+    long total = 0;
+    for (int i = 0; i < 3; i++) {
+      Properties agent = coordinator.getAgentProperties(i, 3);
+      total += Long.parseLong(agent.getProperty(Client.OPERATION_COUNT_PROPERTY));
+      assertNull(agent.getProperty(TargetProfile.TARGET_PROFILE_PROPERTY));
+    }
+    assertEquals(10, total);
+  }
+
+  @Test
+  public void testAgentsGetTheirOwnSeeds() throws WorkloadException {
+    Properties props = new Properties();
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "10");
+    props.setProperty(Client.SEED_PROPERTY, "42");
+    Coordinator coordinator = new Coordinator(props, true, false, "");
+    Set<String> seeds = new HashSet<String>();
+    for (int i = 0; i < 3; i++) {
+      seeds.add(coordinator.getAgentProperties(i, 3).getProperty(Client.SEED_PROPERTY));
+    }
+    assertEquals(3, seeds.size());
+    assertEquals(coordinator.getAgentProperties(1, 3).getProperty(Client.SEED_PROPERTY),
+        coordinator.getAgentProperties(1, 3).getProperty(Client.SEED_PROPERTY));
+  }
+}
@@ -0,0 +1,137 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.MeasurementSnapshot;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.Operation;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestIntendedLatency {
+  static final long MS = 1000000;
+  static final double[] MEDIAN = {50};
+
+  @BeforeMethod
+  public void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  @Test
+  public void testLatencyFromTheIntendedStart() {
+    for (boolean threadlocal : new boolean[] {false, true}) {
+      Measurements measurements = new Measurements(props(threadlocal, true));
+      long now = System.nanoTime();
+      measurements.setIntendedStartTimeNs(now - 5 * MS);
+      measurements.measureIntended(Operation.READ, now, now + MS);
+      //an operation issued ahead of its intended start is measured from the time it was issued
+      measurements.setIntendedStartTimeNs(now + 5 * MS);
+      measurements.measureIntended(Operation.UPDATE, now, now + MS);
+      SortedMap<String, MeasurementSnapshot> snapshots = measurements.getSnapshots(MEDIAN);
+      assertEquals(6000, snapshots.get("INTENDED-READ").getMaxLatency());
+      assertEquals(1000, snapshots.get("INTENDED-UPDATE").getMaxLatency());
+    }
+  }
+
+  @Test
+  public void testNothingRecordedWithoutAnIntendedStart() {
+    Measurements measurements = new Measurements(props(false, true));
+    long now = System.nanoTime();
+    measurements.measureIntended(Operation.READ, now, now + MS);
+    measurements.setIntendedStartTimeNs(now - MS);
+    measurements.clearIntendedStartTime();
+    measurements.measureIntended(Operation.READ, now, now + MS);
+    assertNull(measurements.getSnapshots(MEDIAN).get("INTENDED-READ"));
+
+    Measurements disabled = new Measurements(props(false, false));
+    disabled.setIntendedStartTimeNs(now - MS);
+    disabled.measureIntended(Operation.READ, now, now + MS);
+    assertNull(disabled.getSnapshots(MEDIAN).get("INTENDED-READ"));
+  }
+
+  @Test
+  public void testStallDelaysEveryOperationQueuedBehindIt() {
+    Measurements measurements = new Measurements(props(false, true));
+    DBWrapper db = new DBWrapper(new StallingDB(50));
+    db._measurements = measurements;
+    Workload workload = new Workload() {
+      public boolean doInsert(DB db, Object threadstate) {
+        return false;
+      }
+
+      public boolean doTransaction(DB db, Object threadstate) {
+        db.read("usertable", "user1", null, new HashMap<String, ByteIterator>());
+        return true;
+      }
+    };
+    //20 operations due over 20 ms, the first of which stalls for 50 ms
+    ClientThread client = new ClientThread(db, true, workload, 0, 1, new Properties(), 20, TargetProfile.constant(1000));
+    client._measurements = measurements;
+    client.run();
+
+    SortedMap<String, MeasurementSnapshot> snapshots = measurements.getSnapshots(MEDIAN);
+    MeasurementSnapshot read = snapshots.get("READ");
+    MeasurementSnapshot intended = snapshots.get("INTENDED-READ");
+    assertEquals(20, read.getOperations());
+    assertEquals(20, intended.getOperations());
+    //one slow sample, but most operations were late by tens of milliseconds
+    assertTrue(read.getMaxLatency() >= 50000);
+    assertTrue(read.getPercentileLatencies()[0] < 20000);
+    assertTrue(intended.getPercentileLatencies()[0] >= 20000);
+  }
+
+  private static Properties props(boolean threadlocal, boolean intended) {
+    Properties props = new Properties();
+    props.setProperty("measurementtype", "hdrhistogram");
+    props.setProperty(Measurements.MEASUREMENT_THREADLOCAL, Boolean.toString(threadlocal));
+    props.setProperty(Measurements.MEASUREMENT_INTENDED_LATENCY, Boolean.toString(intended));
+    return props;
+  }
+
+  /**
+   * Stalls on the first read and answers every other operation at once.
+   */
+  static class StallingDB extends DB {
+    final long _stallms;
+    boolean _stalled;
+
+    StallingDB(long stallms) {
+      _stallms = stallms;
+    }
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      if (!_stalled) {
+        _stalled = true;
+        try {
+          Thread.sleep(_stallms);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields,
+        Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      return 0;
+    }
+  }
+}
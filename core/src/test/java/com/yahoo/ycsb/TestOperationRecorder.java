@@ -0,0 +1,143 @@
+package com.yahoo.ycsb;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.workloads.TraceFile;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestOperationRecorder {
+  @Test
+  public void testRecordsAllThreadsInStartOrder() throws Exception {
+    File file = File.createTempFile("recording", ".trc");
+    try {
+      Properties props = new Properties();
+      props.setProperty(OperationRecorder.FILE, file.getPath());
+      props.setProperty(OperationRecorder.BUFFER, "16");
+      final OperationRecorder recorder = OperationRecorder.start(props);
+      final int perThread = 2000;
+      Thread[] threads = new Thread[3];
+      for (int t = 0; t < threads.length; t++) {
+        final DB db = recorder.record(new StubDB());
+        final int id = t;
+        threads[t] = new Thread() {
+          public void run() {
+            Set<String> fields = new HashSet<String>(Arrays.asList("field1"));
+            for (int i = 0; i < perThread; i++) {
+              String key = "user" + id + "-" + i;
+              if (i % 2 == 0) {
+                db.read("usertable", key, fields, new HashMap<String, ByteIterator>());
+              } else {
+                HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+                values.put("field0", new FastRandomByteIterator(42));
+                db.update("usertable", key, values);
+              }
+            }
+          }
+        };
+        threads[t].start();
+      }
+      for (Thread t : threads) {
+        t.join();
+      }
+      recorder.stop();
+
+      TraceFile.Reader reader = new TraceFile.Reader(file);
+      int count = 0;
+      int[] next = new int[threads.length];
+      while (reader.next()) {
+        count++;
+        String key = reader.key();
+        int id = key.charAt(4) - '0';
+        int i = Integer.parseInt(key.substring(6));
+        assertEquals(next[id]++, i);
+        assertTrue(reader.latency() >= 0);
+        if (i % 2 == 0) {
+          assertEquals(TraceFile.READ, reader.operation());
+          assertEquals(Arrays.asList("field1"), reader.fields());
+          assertEquals(7, reader.result());
+        } else {
+          assertEquals(TraceFile.UPDATE, reader.operation());
+          assertEquals(Arrays.asList("field0"), reader.fields());
+          assertEquals(42, reader.size());
+        }
+      }
+      assertEquals(threads.length * perThread, count);
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testFailedOperationEnds() throws Exception {
+    File file = File.createTempFile("recording", ".trc");
+    try {
+      Properties props = new Properties();
+      props.setProperty(OperationRecorder.FILE, file.getPath());
+      OperationRecorder recorder = OperationRecorder.start(props);
+      OperationRecorder.Channel channel = recorder.channel();
+      DB db = new RecordingDB(new StubDB(), channel);
+      try {
+        db.delete("usertable", "user1");
+        fail();
+      } catch (IllegalStateException e) {
+      }
+      //a failed operation must not hold back the records of the other threads
+      assertEquals(OperationRecorder.Channel.IDLE, channel._issuing);
+      db.read("usertable", "user2", null, new HashMap<String, ByteIterator>());
+      recorder.stop();
+
+      TraceFile.Reader reader = new TraceFile.Reader(file);
+      assertTrue(reader.next());
+      assertEquals("user2", reader.key());
+      assertFalse(reader.next());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSeedRepeatsThreadSequences() {
+    Utils.setSeed(42);
+    Utils.seedThread(3);
+    long first = Utils.random().nextLong();
+    Utils.seedThread(4);
+    long other = Utils.random().nextLong();
+    Utils.seedThread(3);
+    assertEquals(first, Utils.random().nextLong());
+    assertFalse(first == other);
+  }
+
+  static class StubDB extends DB {
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return 7;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields,
+        Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      for (ByteIterator value : values.values()) {
+        value.toArray();
+      }
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      throw new IllegalStateException("lost the connection");
+    }
+  }
+}
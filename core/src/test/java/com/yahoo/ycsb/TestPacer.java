@@ -0,0 +1,110 @@
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestPacer {
+  static final long MS = 1000000;
+  /** Due times are rounded to the nanosecond, so their spacing may be off by a little. */
+  static final long ROUNDING = 1000;
+
+  @Test
+  public void testSmoothScheduleIsEvenlySpaced() {
+    Pacer.SmoothPacer pacer = new Pacer.SmoothPacer(TargetProfile.constant(1000), 50000, null);
+    long first = pacer.acquire();
+    assertTrue(first >= pacer._start);
+    assertTrue(first < pacer._start + MS);
+    long previous = first;
+    for (int i = 1; i < 50; i++) {
+      long due = pacer.acquire();
+      assertEquals(MS, due - previous, ROUNDING);
+      assertTrue(System.nanoTime() >= due);
+      previous = due;
+    }
+    assertEquals(49 * MS, previous - first, ROUNDING);
+  }
+
+  @Test
+  public void testSmoothScheduleCatchesUp() throws Exception {
+    Pacer.SmoothPacer pacer = new Pacer.SmoothPacer(TargetProfile.constant(1000), 50000, null);
+    Thread.sleep(50);
+    long now = System.nanoTime();
+    //the operations missed while sleeping are due at once, at their scheduled times
+    for (int i = 0; i < 40; i++) {
+      assertTrue(pacer.acquire() < now);
+    }
+  }
+
+  @Test
+  public void testTokenBucketAllowsOneBurst() throws Exception {
+    Pacer.TokenBucketPacer pacer = new Pacer.TokenBucketPacer(TargetProfile.constant(100), 5, 50000, null);
+    Thread.sleep(200);
+    long st = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      assertTrue(pacer.acquire() >= st);
+    }
+    //back to back, so well within the 10 ms it takes for another token to arrive
+    assertTrue(System.nanoTime() - st < 9 * MS);
+    //the 15 operations missed beyond the bucket are not caught up on
+    long previous = pacer.acquire();
+    assertTrue(previous - st > 5 * MS);
+    long due = pacer.acquire();
+    //late only if this thread was held up for longer than that
+    assertEquals(10 * MS, due - previous, MS);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testTokenBucketHoldsAnOperation() {
+    new Pacer.TokenBucketPacer(TargetProfile.constant(100), 0.5, 50000, null);
+  }
+
+  @Test
+  public void testProfileEndingAtZero() {
+    TargetProfile profile = new TargetProfile(new double[] {0, 0.01}, new double[] {1000, 0});
+    Pacer.SmoothPacer pacer = new Pacer.SmoothPacer(profile, 50000, null);
+    int acquired = 0;
+    while (pacer.acquire() >= 0) {
+      acquired++;
+    }
+    assertEquals(5, acquired, 1);
+  }
+
+  @Test
+  public void testStopEndsALongWait() throws Exception {
+    final Workload workload = new Workload() {
+      public boolean doInsert(DB db, Object threadstate) {
+        return false;
+      }
+
+      public boolean doTransaction(DB db, Object threadstate) {
+        return false;
+      }
+    };
+    //the next operation is more than an hour away
+    Pacer.SmoothPacer pacer = new Pacer.SmoothPacer(TargetProfile.constant(0.0001), 50000, workload);
+    Thread stopper = new Thread() {
+      public void run() {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+        }
+        workload.requestStop();
+      }
+    };
+    long st = System.nanoTime();
+    stopper.start();
+    assertEquals(-1, pacer.acquire());
+    assertTrue(System.nanoTime() - st < 1000 * MS);
+    stopper.join();
+  }
+
+  @Test
+  public void testInterruptEndsAWaitAndStaysSet() {
+    Pacer.TokenBucketPacer pacer = new Pacer.TokenBucketPacer(TargetProfile.constant(0.0001), 1, 50000, null);
+    Thread.currentThread().interrupt();
+    long st = System.nanoTime();
+    assertEquals(-1, pacer.acquire());
+    assertTrue(System.nanoTime() - st < 1000 * MS);
+    assertTrue(Thread.interrupted());
+  }
+}
@@ -0,0 +1,186 @@
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.yahoo.ycsb.measurements.MeasurementSnapshot;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestPipelinedDB {
+  @BeforeClass
+  public void setUp() {
+    //for the shared measurements the workload records into
+    Measurements.setProperties(new Properties());
+  }
+
+  @Test
+  public void testDepthLimit() {
+    FakeAsyncDB fake = new FakeAsyncDB(5);
+    AsyncDBWrapper wrapper = wrap(fake);
+    PipelinedDB pipeline = new PipelinedDB(3);
+    DB db = pipeline.pipeline(wrapper);
+    assertSame(pipeline, db);
+    for (int i = 0; i < 30; i++) {
+      db.read("usertable", "user" + i, null, new HashMap<String, ByteIterator>());
+      assertTrue(pipeline.getInFlight() <= 3);
+    }
+    pipeline.drain();
+    assertEquals(0, pipeline.getInFlight());
+    assertEquals(3, fake.maxInFlight.get());
+    assertEquals(30, snapshot(wrapper, "READ").getOperations());
+    fake.close();
+  }
+
+  @Test
+  public void testLatencyEndsAtCompletion() throws Exception {
+    FakeAsyncDB fake = new FakeAsyncDB(20);
+    AsyncDBWrapper wrapper = wrap(fake);
+    PipelinedDB pipeline = new PipelinedDB(2);
+    DB db = pipeline.pipeline(wrapper);
+    db.read("usertable", "user1", null, new HashMap<String, ByteIterator>());
+    //a pacing gap before the completion is noticed must not count
+    Thread.sleep(150);
+    db.read("usertable", "user2", null, new HashMap<String, ByteIterator>());
+    pipeline.drain();
+    MeasurementSnapshot read = snapshot(wrapper, "READ");
+    assertEquals(2, read.getOperations());
+    assertTrue("max " + read.getMaxLatency(), read.getMaxLatency() >= 19000);
+    assertTrue("max " + read.getMaxLatency(), read.getMaxLatency() < 100000);
+    fake.close();
+  }
+
+  @Test
+  public void testBatchesGoToTheAsyncDB() {
+    FakeAsyncDB fake = new FakeAsyncDB(5);
+    AsyncDBWrapper wrapper = wrap(fake);
+    PipelinedDB pipeline = new PipelinedDB(4);
+    DB db = pipeline.pipeline(wrapper);
+    List<String> keys = Arrays.asList("user1", "user2", "user3");
+    List<HashMap<String, ByteIterator>> records = new ArrayList<HashMap<String, ByteIterator>>();
+    for (int i = 0; i < keys.size(); i++) {
+      records.add(new HashMap<String, ByteIterator>());
+    }
+    assertEquals(0, db.batchRead("usertable", keys, null, records));
+    assertEquals(0, db.batchUpdate("usertable", keys, records));
+    assertEquals(0, db.batchInsert("usertable", keys, records));
+    assertEquals(0, db.batchDelete("usertable", keys));
+    //the batches are done when they return
+    assertEquals(0, pipeline.getInFlight());
+    assertEquals(0, fake.inFlight.get());
+    assertEquals(1, snapshot(wrapper, "BATCH-READ").getOperations());
+    assertEquals(1, snapshot(wrapper, "BATCH-UPDATE").getOperations());
+    assertEquals(1, snapshot(wrapper, "BATCH-INSERT").getOperations());
+    assertEquals(1, snapshot(wrapper, "BATCH-DELETE").getOperations());
+    assertNull(snapshot(wrapper, "READ"));
+    assertNull(snapshot(wrapper, "UPDATE"));
+    fake.close();
+  }
+
+  @Test
+  public void testThreadCleanupDrainsOperationsInFlight() throws Exception {
+    Properties props = new Properties();
+    props.setProperty("recordcount", "100");
+    props.setProperty("operationcount", "20");
+    props.setProperty(CoreWorkload.IN_FLIGHT_OPERATIONS_PROPERTY, "8");
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props);
+    Object state = workload.initThread(props, 0, 1);
+
+    FakeAsyncDB fake = new FakeAsyncDB(50);
+    AsyncDBWrapper wrapper = wrap(fake);
+    for (int i = 0; i < 20; i++) {
+      workload.doTransaction(wrapper, state);
+    }
+    workload.cleanupThread(state);
+    assertEquals(0, fake.inFlight.get());
+    Measurements measurements = wrapper._measurements;
+    long done = 0;
+    for (MeasurementSnapshot s : measurements.getSnapshots(new double[0]).values()) {
+      if (s.getName().equals("READ") || s.getName().equals("UPDATE")) {
+        done += s.getOperations();
+        assertEquals(Long.valueOf(s.getOperations()), s.getReturnCodes().get(0));
+      }
+    }
+    assertEquals(20, done);
+    fake.close();
+  }
+
+  private static AsyncDBWrapper wrap(FakeAsyncDB fake) {
+    AsyncDBWrapper wrapper = new AsyncDBWrapper(fake);
+    wrapper._measurements = new Measurements(new Properties());
+    return wrapper;
+  }
+
+  private static MeasurementSnapshot snapshot(AsyncDBWrapper wrapper, String name) {
+    return wrapper._measurements.getSnapshots(new double[0]).get(name);
+  }
+
+  /**
+   * Completes every operation after a fixed delay, from another thread.
+   */
+  static class FakeAsyncDB extends AsyncDB {
+    final ScheduledExecutorService completer = Executors.newSingleThreadScheduledExecutor();
+    final long delayMs;
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+
+    FakeAsyncDB(long delayMs) {
+      this.delayMs = delayMs;
+    }
+
+    Future<Integer> issue() {
+      int n = inFlight.incrementAndGet();
+      while (n > maxInFlight.get()) {
+        maxInFlight.set(n);
+      }
+      final Completion completion = new Completion();
+      completer.schedule(new Runnable() {
+        public void run() {
+          inFlight.decrementAndGet();
+          completion.complete(0);
+        }
+      }, delayMs, TimeUnit.MILLISECONDS);
+      return completion;
+    }
+
+    void close() {
+      completer.shutdownNow();
+    }
+
+    public Future<Integer> readAsync(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return issue();
+    }
+
+    public Future<Integer> scanAsync(String table, String startkey, int recordcount, Set<String> fields,
+        Vector<HashMap<String, ByteIterator>> result) {
+      return issue();
+    }
+
+    public Future<Integer> updateAsync(String table, String key, HashMap<String, ByteIterator> values) {
+      return issue();
+    }
+
+    public Future<Integer> insertAsync(String table, String key, HashMap<String, ByteIterator> values) {
+      return issue();
+    }
+
+    public Future<Integer> deleteAsync(String table, String key) {
+      return issue();
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestTargetProfile {
+  @Test
+  public void testConstant() {
+    TargetProfile p = TargetProfile.constant(1000);
+    assertEquals(1000, p.getTarget(5), 1e-9);
+    assertEquals(5000, p.getOperations(5), 1e-9);
+    assertEquals(5, p.getTime(5000), 1e-9);
+  }
+
+  @Test
+  public void testRamp() {
+    TargetProfile p = new TargetProfile(new double[] {0, 10}, new double[] {0, 1000});
+    assertEquals(500, p.getTarget(5), 1e-9);
+    assertEquals(1250, p.getOperations(5), 1e-9);
+    assertEquals(5, p.getTime(1250), 1e-9);
+    assertEquals(5000, p.getOperations(10), 1e-9);
+    assertEquals(11, p.getTime(6000), 1e-9);
+  }
+
+  @Test
+  public void testStepAndPause() throws WorkloadException {
+    TargetProfile p = TargetProfile.fromProperties(propsWith("0:100,10:100,10:0,20:0,20:200"), 0);
+    assertEquals(100, p.getTarget(5), 1e-9);
+    assertEquals(0, p.getTarget(10), 1e-9);
+    assertEquals(200, p.getTarget(20), 1e-9);
+    assertEquals(1000, p.getOperations(15), 1e-9);
+    assertEquals(10, p.getTime(1000), 1e-9);
+    assertEquals(20.5, p.getTime(1100), 1e-9);
+  }
+
+  @Test
+  public void testEndsAtZero() {
+    TargetProfile p = new TargetProfile(new double[] {0, 10}, new double[] {100, 0});
+    assertEquals(500, p.getOperations(20), 1e-9);
+    assertTrue(Double.isInfinite(p.getTime(501)));
+  }
+
+  @Test
+  public void testScale() {
+    TargetProfile p = TargetProfile.constant(1000).scale(0.25);
+    assertEquals(250, p.getTarget(0), 1e-9);
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void testInvalidPoint() throws WorkloadException {
+    TargetProfile.fromProperties(propsWith("0:100,10"), 0);
+  }
+
+  private static Properties propsWith(String profile) {
+    Properties props = new Properties();
+    props.setProperty(TargetProfile.TARGET_PROFILE_PROPERTY, profile);
+    return props;
+  }
+}
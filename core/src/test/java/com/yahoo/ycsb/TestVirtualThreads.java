@@ -0,0 +1,128 @@
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestVirtualThreads {
+  static final int CLIENTS = 200;
+  static final int OPERATIONS = 3;
+
+  @Test
+  public void testVirtualThreadsOrAClearError() throws Exception {
+    final boolean[] ran = new boolean[1];
+    Runnable task = new Runnable() {
+      public void run() {
+        ran[0] = true;
+      }
+    };
+    if (!VirtualThreads.isAvailable()) {
+      try {
+        VirtualThreads.newThread("ClientThread-0", task);
+        fail();
+      } catch (UnsupportedOperationException e) {
+        assertTrue(e.getMessage(), e.getMessage().contains(System.getProperty("java.version")));
+      }
+      return;
+    }
+    Thread thread = VirtualThreads.newThread("ClientThread-0", task);
+    assertEquals("ClientThread-0", thread.getName());
+    assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread));
+    assertFalse(thread.isAlive());
+    thread.start();
+    thread.join();
+    assertTrue(ran[0]);
+  }
+
+  @Test
+  public void testEveryClientKeepsItsLifecycle() throws Exception {
+    Measurements.setProperties(new Properties());
+    List<Lifecycle> lifecycles = new ArrayList<Lifecycle>();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < CLIENTS; i++) {
+      Lifecycle lifecycle = new Lifecycle();
+      ClientThread client = new ClientThread(lifecycle.db, true, lifecycle.workload, i, CLIENTS, new Properties(), OPERATIONS, null);
+      //on JVMs without virtual threads the clients run on platform threads, as with threadmode=platform
+      threads.add(VirtualThreads.isAvailable() ? VirtualThreads.newThread("ClientThread-" + i, client) : new Thread(client));
+      lifecycles.add(lifecycle);
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join(10000);
+      assertFalse(thread.isAlive());
+    }
+    List<String> expected = Arrays.asList("init", "initThread", "read", "read", "read", "cleanupThread", "cleanup");
+    for (Lifecycle lifecycle : lifecycles) {
+      assertEquals(expected, lifecycle.events);
+    }
+  }
+
+  /**
+   * A DB and a workload for one client, which record the calls the client makes to them in order.
+   */
+  static class Lifecycle {
+    final List<String> events = new ArrayList<String>();
+
+    final DB db = new DB() {
+      public void init() {
+        events.add("init");
+      }
+
+      public void cleanup() {
+        events.add("cleanup");
+      }
+
+      public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+        events.add("read");
+        return 0;
+      }
+
+      public int scan(String table, String startkey, int recordcount, Set<String> fields,
+          Vector<HashMap<String, ByteIterator>> result) {
+        return 0;
+      }
+
+      public int update(String table, String key, HashMap<String, ByteIterator> values) {
+        return 0;
+      }
+
+      public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+        return 0;
+      }
+
+      public int delete(String table, String key) {
+        return 0;
+      }
+    };
+
+    final Workload workload = new Workload() {
+      public Object initThread(Properties p, int mythreadid, int threadcount) {
+        events.add("initThread");
+        return null;
+      }
+
+      public void cleanupThread(Object threadstate) {
+        events.add("cleanupThread");
+      }
+
+      public boolean doInsert(DB db, Object threadstate) {
+        return false;
+      }
+
+      public boolean doTransaction(DB db, Object threadstate) {
+        return db.read("usertable", "user1", null, new HashMap<String, ByteIterator>()) == 0;
+      }
+    };
+  }
+}
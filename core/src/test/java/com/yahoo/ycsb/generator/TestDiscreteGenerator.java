@@ -0,0 +1,89 @@
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.measurements.Operation;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestDiscreteGenerator {
+  static final int THREADS = 4;
+  static final int CHOICES = 200000;
+
+  @Test
+  public void testSharedEnumGeneratorFromSeveralThreads() throws Exception {
+    final DiscreteEnumGenerator<Operation> gen = new DiscreteEnumGenerator<Operation>();
+    gen.addValue(0.75, Operation.READ);
+    gen.addValue(0.25, Operation.UPDATE);
+    final AtomicLong reads = new AtomicLong();
+    final AtomicLong bad = new AtomicLong();
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < CHOICES; i++) {
+            Operation op = gen.nextValue();
+            if (op == Operation.READ) {
+              reads.incrementAndGet();
+            } else if (op != Operation.UPDATE) {
+              bad.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, bad.get());
+    assertEquals(0.75, reads.get() / (double) (THREADS * CHOICES), 0.01);
+  }
+
+  @Test
+  public void testSharedGeneratorFromSeveralThreads() throws Exception {
+    final DiscreteGenerator gen = new DiscreteGenerator();
+    gen.addValue(0.5, "a");
+    gen.addValue(0.5, "b");
+    final AtomicLong as = new AtomicLong();
+    final AtomicLong bad = new AtomicLong();
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < CHOICES; i++) {
+            String value = gen.nextString();
+            if ("a".equals(value)) {
+              as.incrementAndGet();
+            } else if (!"b".equals(value)) {
+              bad.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, bad.get());
+    assertEquals(0.5, as.get() / (double) (THREADS * CHOICES), 0.01);
+  }
+
+  @Test
+  public void testAddingAValueRebuildsTheTable() {
+    DiscreteEnumGenerator<Operation> gen = new DiscreteEnumGenerator<Operation>();
+    gen.addValue(1, Operation.READ);
+    assertEquals(Operation.READ, gen.nextValue());
+    gen.addValue(0, Operation.READ);
+    gen.addValue(1e9, Operation.SCAN);
+    int scans = 0;
+    for (int i = 0; i < 100; i++) {
+      if (gen.nextValue() == Operation.SCAN) {
+        scans++;
+      }
+    }
+    assertTrue(scans > 90);
+  }
+}
@@ -0,0 +1,61 @@
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestZipfianGenerator {
+  @Test
+  public void testApproximatedZetaMatchesExactSum() {
+    long n = ZipfianGenerator.EXACT_ZETA_TERMS * 3;
+    double[] thetas = {0.5, 0.99, 0.9999999, 1.0, 1.5};
+    for (double theta : thetas) {
+      double exact = 0;
+      for (long i = 0; i < n; i++) {
+        exact += 1 / Math.pow(i + 1, theta);
+      }
+      double approximated = ZipfianGenerator.zetastatic(n, theta);
+      assertEquals("theta=" + theta, exact, approximated, exact * 1e-12);
+    }
+  }
+
+  @Test
+  public void testIncrementalZetaMatchesFromScratch() {
+    double theta = ZipfianGenerator.ZIPFIAN_CONSTANT;
+    double start = ZipfianGenerator.zetastatic(1500, theta);
+    double grown = ZipfianGenerator.zetastatic(1500, 5000000000L, theta, start);
+    assertEquals(ZipfianGenerator.zetastatic(5000000000L, theta), grown, grown * 1e-13);
+  }
+
+  @Test
+  public void testLargeKeyspaceIsFast() {
+    long st = System.currentTimeMillis();
+    double zetan = ZipfianGenerator.zetastatic(ScrambledZipfianGenerator.ITEM_COUNT, ZipfianGenerator.ZIPFIAN_CONSTANT);
+    assertTrue(System.currentTimeMillis() - st < 1000);
+    assertEquals(ScrambledZipfianGenerator.ZETAN, zetan, 1e-9);
+  }
+
+  @Test
+  public void testGrowingItemCountFromSeveralThreads() throws Exception {
+    final ZipfianGenerator gen = new ZipfianGenerator(1000);
+    final long last = 200000;
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        public void run() {
+          for (long n = 1000; n <= last; n++) {
+            long v = gen.nextLong(n);
+            assertTrue(v >= 0 && v < n);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    ZipfianGenerator.ZetaSnapshot snapshot = gen.zetasnapshot.get();
+    assertEquals(last, snapshot.countforzeta);
+    double zetan = ZipfianGenerator.zetastatic(last, ZipfianGenerator.ZIPFIAN_CONSTANT);
+    assertEquals(zetan, snapshot.zetan, zetan * 1e-12);
+  }
+}
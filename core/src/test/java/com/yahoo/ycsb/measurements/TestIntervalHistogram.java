@@ -0,0 +1,114 @@
+package com.yahoo.ycsb.measurements;
+
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestIntervalHistogram {
+  @Test
+  public void testNoReadersRecordNothing() {
+    Properties props = new Properties();
+    assertEquals(0, Measurements.intervalReaders(props));
+    OneMeasurementHistogram m = new OneMeasurementHistogram("READ", props);
+    assertEquals(0, m.intervals.length);
+    m.measure(100);
+    assertNull(m.swapIntervalHistogram(Measurements.STATUS_INTERVAL));
+    assertNull(m.swapIntervalHistogram(Measurements.LOG_INTERVAL));
+  }
+
+  @Test
+  public void testOnlyTheEnabledReadersGetHistograms() {
+    Properties status = new Properties();
+    status.setProperty(Measurements.MEASUREMENT_STATUS, "true");
+    IntervalHistogram[] intervals = IntervalHistogram.create(3, status);
+    assertEquals(1, intervals.length);
+    assertNotNull(intervals[Measurements.STATUS_INTERVAL]);
+
+    Properties log = new Properties();
+    log.setProperty(LatencyLogWriter.FILE, "latency.log");
+    intervals = IntervalHistogram.create(3, log);
+    assertEquals(2, intervals.length);
+    assertNull(intervals[Measurements.STATUS_INTERVAL]);
+    assertNotNull(intervals[Measurements.LOG_INTERVAL]);
+    IntervalHistogram.recordValue(intervals, 100);
+    assertNull(IntervalHistogram.swap(intervals, Measurements.STATUS_INTERVAL));
+    assertEquals(1, IntervalHistogram.swap(intervals, Measurements.LOG_INTERVAL).getTotalCount());
+  }
+
+  @Test
+  public void testSwapAlternatesAndEachReaderHasItsOwnInterval() {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_STATUS, "true");
+    props.setProperty(LatencyLogWriter.FILE, "latency.log");
+    OneMeasurementHistogram m = new OneMeasurementHistogram("READ", props);
+    m.measure(100);
+    m.measure(300);
+
+    LogLinearHistogram first = m.swapIntervalHistogram(Measurements.STATUS_INTERVAL);
+    assertEquals(2, first.getTotalCount());
+    assertEquals(300, first.getMaxValue(), 1);
+    first.reset();
+    m.measure(5000);
+    LogLinearHistogram second = m.swapIntervalHistogram(Measurements.STATUS_INTERVAL);
+    assertNotSame(first, second);
+    assertEquals(1, second.getTotalCount());
+    assertEquals(5000, second.getMinValue(), 5);
+    second.reset();
+    //the reset histogram of the first interval records the third
+    m.measure(7);
+    LogLinearHistogram third = m.swapIntervalHistogram(Measurements.STATUS_INTERVAL);
+    assertSame(first, third);
+    assertEquals(1, third.getTotalCount());
+    third.reset();
+
+    //the latency log has not ended an interval yet, so it still has everything
+    LogLinearHistogram log = m.swapIntervalHistogram(Measurements.LOG_INTERVAL);
+    assertEquals(4, log.getTotalCount());
+  }
+
+  @Test
+  public void testHdrHistogramSwap() {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_STATUS, "true");
+    OneMeasurementHdrHistogram m = new OneMeasurementHdrHistogram("READ", props);
+    m.measure(100);
+    LogLinearHistogram ended = m.swapIntervalHistogram(Measurements.STATUS_INTERVAL);
+    assertEquals(1, ended.getTotalCount());
+    ended.reset();
+    assertEquals(0, m.swapIntervalHistogram(Measurements.STATUS_INTERVAL).getTotalCount());
+    assertNull(m.swapIntervalHistogram(Measurements.LOG_INTERVAL));
+  }
+
+  @Test
+  public void testSwapIntervalsMergesAndResets() {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_STATUS, "true");
+    props.setProperty(Measurements.MEASUREMENT_THREADLOCAL, "true");
+    Measurements measurements = new Measurements(props);
+    measurements.measure(Operation.READ, 100);
+    measurements.measure(Operation.READ, 200);
+    measurements.measure(Operation.UPDATE, 300);
+
+    TreeMap<String, LogLinearHistogram> intervals = new TreeMap<String, LogLinearHistogram>();
+    assertTrue(measurements.swapIntervals(Measurements.STATUS_INTERVAL, intervals).isEmpty());
+    assertEquals(2, intervals.get("READ").getTotalCount());
+    assertEquals(1, intervals.get("UPDATE").getTotalCount());
+
+    intervals.get("READ").reset();
+    intervals.get("UPDATE").reset();
+    measurements.measure(Operation.READ, 400);
+    measurements.swapIntervals(Measurements.STATUS_INTERVAL, intervals);
+    assertEquals(1, intervals.get("READ").getTotalCount());
+    assertEquals(0, intervals.get("UPDATE").getTotalCount());
+  }
+
+  @Test
+  public void testIntervalSummaryWithoutStatusFallsBackToSummary() {
+    Measurements measurements = new Measurements(new Properties());
+    measurements.measure(Operation.READ, 100);
+    String summary = measurements.getIntervalSummary();
+    assertTrue(summary, summary.contains("[READ AverageLatency(us)=100"));
+  }
+}
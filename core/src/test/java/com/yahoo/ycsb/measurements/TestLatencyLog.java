@@ -0,0 +1,127 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestLatencyLog {
+  static final double[] PERCENTILES = {50, 99};
+
+  File file;
+  Measurements measurements;
+  LatencyLogWriter writer;
+
+  @BeforeMethod
+  public void startLog() throws IOException {
+    file = File.createTempFile("latency", ".log");
+    Properties props = new Properties();
+    props.setProperty("measurementtype", "hdrhistogram");
+    props.setProperty(LatencyLogWriter.FILE, file.getPath());
+    measurements = new Measurements(props);
+    writer = new LatencyLogWriter(measurements, new FileOutputStream(file).getChannel());
+    //intervals are only ended by the test
+    writer.start(3600000);
+  }
+
+  @AfterMethod
+  public void deleteLog() {
+    file.delete();
+  }
+
+  /**
+   * Write two intervals at least 300 ms apart: 10 reads of 100 us and an update, then 5 reads of 2000 us.
+   */
+  private void writeTwoIntervals() throws InterruptedException {
+    for (int i = 0; i < 10; i++) {
+      measurements.measure("READ", 100);
+    }
+    measurements.measure("UPDATE", 500);
+    Thread.sleep(300);
+    writer.writeInterval();
+    for (int i = 0; i < 5; i++) {
+      measurements.measure("READ", 2000);
+    }
+    writer.stop();
+  }
+
+  @Test
+  public void testRecordsReadBack() throws Exception {
+    writeTwoIntervals();
+    LatencyLogReader reader = new LatencyLogReader(new FileInputStream(file));
+    try {
+      long logstart = reader.getStartTimeMs();
+      LatencyLogReader.Record read = reader.next();
+      LatencyLogReader.Record update = reader.next();
+      if ("UPDATE".equals(read.getName())) {
+        LatencyLogReader.Record swap = read;
+        read = update;
+        update = swap;
+      }
+      assertEquals("READ", read.getName());
+      assertEquals(logstart, read.getStartTimeMs());
+      assertTrue(read.getEndTimeMs() - read.getStartTimeMs() >= 300);
+      assertEquals(10, read.getHistogram().getTotalCount());
+      assertEquals(100, read.getHistogram().getMaxValue());
+      assertEquals("UPDATE", update.getName());
+      assertEquals(1, update.getHistogram().getTotalCount());
+
+      LatencyLogReader.Record second = reader.next();
+      assertEquals("READ", second.getName());
+      assertEquals(read.getEndTimeMs(), second.getStartTimeMs());
+      assertEquals(5, second.getHistogram().getTotalCount());
+      assertEquals(2000, second.getHistogram().getMinValue(), 2);
+      assertNull(reader.next());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testSummarizeAll() throws Exception {
+    writeTwoIntervals();
+    String summary = summarize(0, Double.MAX_VALUE, 0);
+    assertTrue(summary, summary.contains("[READ], Operations, 15"));
+    assertTrue(summary, summary.contains("[UPDATE], Operations, 1"));
+    assertTrue(summary, summary.contains("[READ], MinLatency(us), 100"));
+  }
+
+  @Test
+  public void testSummarizeFiltersByStartTime() throws Exception {
+    writeTwoIntervals();
+    //the second interval starts at least 0.3 s into the log
+    String first = summarize(0, 0.2, 0);
+    assertTrue(first, first.contains("[READ], Operations, 10"));
+    assertTrue(first, first.contains("[UPDATE], Operations, 1"));
+    String second = summarize(0.2, Double.MAX_VALUE, 0);
+    assertTrue(second, second.contains("[READ], Operations, 5"));
+    assertFalse(second, second.contains("[UPDATE]"));
+    String none = summarize(3600, Double.MAX_VALUE, 0);
+    assertTrue(none, none.contains("[OVERALL], Operations, 0"));
+  }
+
+  @Test
+  public void testSummarizeSeries() throws Exception {
+    writeTwoIntervals();
+    String series = summarize(0, Double.MAX_VALUE, 0.25);
+    assertTrue(series, series.startsWith("Time(s),Metric,Operations,"));
+    assertTrue(series, series.contains("\n0,READ,10,40,100,"));
+    assertTrue(series, series.contains("\n0,UPDATE,1,"));
+  }
+
+  private String summarize(double start, double end, double interval) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true, "UTF-8");
+    LatencyLogReader.summarize(Arrays.asList(file.getPath()), start, end, interval, PERCENTILES, out);
+    return bytes.toString("UTF-8").replace("\r\n", "\n");
+  }
+}
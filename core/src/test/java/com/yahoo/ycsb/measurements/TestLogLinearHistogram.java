@@ -0,0 +1,90 @@
+package com.yahoo.ycsb.measurements;
+
+import java.nio.ByteBuffer;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestLogLinearHistogram {
+  @Test
+  public void testPercentilesWithinPrecision() {
+    LogLinearHistogram h = new LogLinearHistogram(3);
+    for (long v = 1; v <= 100000; v++) {
+      h.recordValue(v);
+    }
+    assertEquals(100000, h.getTotalCount());
+    assertEquals(1, h.getMinValue());
+    assertEquals(100000, h.getMaxValue());
+    assertEquals(50000.5, h.getMean(), 0.0001);
+    assertWithin(50000, h.getValueAtPercentile(50), 0.001);
+    assertWithin(99000, h.getValueAtPercentile(99), 0.001);
+    assertWithin(99990, h.getValueAtPercentile(99.99), 0.001);
+    assertEquals(100000, h.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testSubMillisecondValuesAreDistinct() {
+    LogLinearHistogram h = new LogLinearHistogram(2);
+    for (int i = 0; i < 90; i++) {
+      h.recordValue(80);
+    }
+    for (int i = 0; i < 10; i++) {
+      h.recordValue(300);
+    }
+    assertEquals(80, h.getValueAtPercentile(50));
+    assertWithin(300, h.getValueAtPercentile(99), 0.01);
+  }
+
+  @Test
+  public void testGrowsToUnboundedRange() {
+    LogLinearHistogram h = new LogLinearHistogram(3);
+    int initial = h.getCountsLength();
+    h.recordValue(3600L * 1000 * 1000 * 24);
+    assertTrue(h.getCountsLength() > initial);
+    assertEquals(1, h.getCountAtValue(3600L * 1000 * 1000 * 24));
+    assertEquals(3600L * 1000 * 1000 * 24, h.getValueAtPercentile(50));
+  }
+
+  @Test
+  public void testAdd() {
+    LogLinearHistogram a = new LogLinearHistogram(3);
+    LogLinearHistogram b = new LogLinearHistogram(3);
+    a.recordValues(100, 10);
+    b.recordValue(5000000);
+    a.add(b);
+    assertEquals(11, a.getTotalCount());
+    assertEquals(100, a.getMinValue());
+    assertEquals(5000000, a.getMaxValue());
+    assertEquals(100, a.getValueAtPercentile(90));
+    assertEquals(5000000, a.getValueAtPercentile(99));
+
+    LogLinearHistogram copy = new LogLinearHistogram(a);
+    a.reset();
+    assertEquals(0, a.getTotalCount());
+    assertEquals(11, copy.getTotalCount());
+  }
+
+  @Test
+  public void testEncodeDecode() {
+    LogLinearHistogram h = new LogLinearHistogram(3);
+    for (long v = 1; v <= 100000; v += 7) {
+      h.recordValue(v);
+    }
+    h.recordValue(3600L * 1000 * 1000);
+    ByteBuffer buffer = ByteBuffer.allocate(h.getEncodedSizeBound());
+    h.encode(buffer);
+    buffer.flip();
+    LogLinearHistogram d = LogLinearHistogram.decode(buffer);
+    assertFalse(buffer.hasRemaining());
+    assertEquals(h.getTotalCount(), d.getTotalCount());
+    assertEquals(h.getTotalSum(), d.getTotalSum());
+    assertEquals(h.getMinValue(), d.getMinValue());
+    assertEquals(h.getMaxValue(), d.getMaxValue());
+    assertEquals(h.getValueAtPercentile(50), d.getValueAtPercentile(50));
+    assertEquals(h.getValueAtPercentile(99.9), d.getValueAtPercentile(99.9));
+  }
+
+  private static void assertWithin(long expected, long actual, double ratio) {
+    assertTrue("expected " + expected + " but was " + actual, Math.abs(actual - expected) <= expected * ratio);
+  }
+}
@@ -0,0 +1,201 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestMeasurementsMerger {
+  static final double[] PERCENTILES = {50, 90, 95, 99, 99.9};
+
+  final List<File> files = new ArrayList<File>();
+
+  @AfterMethod
+  public void deleteExports() {
+    for (File file : files) {
+      file.delete();
+    }
+    files.clear();
+  }
+
+  @Test
+  public void testHdrHistogramMergeEqualsUnion() throws IOException {
+    int[] first = latencies(1, 5000);
+    int[] second = latencies(2, 3000);
+    Map<String, Double> merged = merge(export(props("hdrhistogram"), first), export(props("hdrhistogram"), second));
+
+    int[] union = union(first, second);
+    LogLinearHistogram histogram = new LogLinearHistogram(3);
+    for (int latency : union) {
+      histogram.recordValue(latency);
+    }
+    assertSummary(merged, union);
+    for (double p : PERCENTILES) {
+      assertEquals(Math.min(histogram.getValueAtPercentile(p), max(union)),
+          merged.get("READ/" + OneMeasurementHdrHistogram.percentileLabel(p)), 0);
+    }
+  }
+
+  @Test
+  public void testHistogramMergeEqualsUnion() throws IOException {
+    int[] first = latencies(3, 5000);
+    int[] second = latencies(4, 3000);
+    Map<String, Double> merged = merge(new double[] {95, 99},
+        export(props("histogram"), first), export(props("histogram"), second));
+
+    int[] union = union(first, second);
+    Map<String, Double> single = measure(props("histogram"), union);
+    assertSummary(merged, union);
+    assertNotNull(single.get("READ/95thPercentileLatency(ms)"));
+    assertEquals(single.get("READ/95thPercentileLatency(ms)"), merged.get("READ/95thPercentileLatency(ms)"));
+    assertEquals(single.get("READ/99thPercentileLatency(ms)"), merged.get("READ/99thPercentileLatency(ms)"));
+  }
+
+  @Test
+  public void testMixedTypesHaveNoPercentiles() throws IOException {
+    int[] first = latencies(5, 1000);
+    int[] second = latencies(6, 1000);
+    Map<String, Double> merged = merge(export(props("hdrhistogram"), first), export(props("histogram"), second));
+    assertSummary(merged, union(first, second));
+    assertNoPercentiles(merged);
+  }
+
+  @Test
+  public void testDifferentSignificantDigitsHaveNoPercentiles() throws IOException {
+    int[] first = latencies(7, 1000);
+    int[] second = latencies(8, 1000);
+    Properties precise = props("hdrhistogram");
+    precise.setProperty(OneMeasurementHdrHistogram.SIGNIFICANT_DIGITS, "4");
+    Map<String, Double> merged = merge(export(props("hdrhistogram"), first), export(precise, second));
+    assertSummary(merged, union(first, second));
+    assertNoPercentiles(merged);
+  }
+
+  /**
+   * Latencies in microseconds, mostly under 10 ms with a tail beyond the last millisecond bucket.
+   */
+  private static int[] latencies(long seed, int count) {
+    Random random = new Random(seed);
+    int[] latencies = new int[count];
+    for (int i = 0; i < count; i++) {
+      latencies[i] = random.nextInt(100) == 0 ? 1000000 + random.nextInt(500000) : 1 + random.nextInt(10000);
+    }
+    return latencies;
+  }
+
+  private static int[] union(int[] first, int[] second) {
+    int[] union = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, union, first.length, second.length);
+    return union;
+  }
+
+  private static long max(int[] latencies) {
+    long max = Long.MIN_VALUE;
+    for (int latency : latencies) {
+      max = Math.max(max, latency);
+    }
+    return max;
+  }
+
+  private static Properties props(String type) {
+    Properties props = new Properties();
+    props.setProperty("measurementtype", type);
+    props.setProperty(Measurements.MEASUREMENT_EXPORT_RAW, "true");
+    return props;
+  }
+
+  private static void assertSummary(Map<String, Double> merged, int[] union) {
+    long total = 0;
+    long min = Long.MAX_VALUE;
+    for (int latency : union) {
+      total += latency;
+      min = Math.min(min, latency);
+    }
+    assertEquals((double) union.length, merged.get("READ/Operations"));
+    assertEquals((double) total / union.length, merged.get("READ/AverageLatency(us)"), 1e-9);
+    assertEquals((double) min, merged.get("READ/MinLatency(us)"));
+    assertEquals((double) max(union), merged.get("READ/MaxLatency(us)"));
+    assertEquals((double) union.length, merged.get("READ/Return=0"));
+  }
+
+  private static void assertNoPercentiles(Map<String, Double> merged) {
+    for (String name : merged.keySet()) {
+      assertFalse(name, name.contains("Percentile"));
+    }
+  }
+
+  private File export(Properties props, int[] latencies) throws IOException {
+    File file = File.createTempFile("measurements", ".txt");
+    files.add(file);
+    Measurements measurements = new Measurements(props);
+    for (int latency : latencies) {
+      measurements.measure("READ", latency);
+      measurements.reportReturnCode("READ", 0);
+    }
+    MeasurementsExporter exporter = new TextMeasurementsExporter(new FileOutputStream(file));
+    try {
+      exporter.write("OVERALL", "RunTime(ms)", 1000L);
+      exporter.write("OVERALL", "Throughput(ops/sec)", (double) latencies.length);
+      measurements.exportMeasurements(exporter);
+    } finally {
+      exporter.close();
+    }
+    return file;
+  }
+
+  private static Map<String, Double> measure(Properties props, int[] latencies) throws IOException {
+    Measurements measurements = new Measurements(props);
+    for (int latency : latencies) {
+      measurements.measure("READ", latency);
+    }
+    CollectingExporter exporter = new CollectingExporter();
+    measurements.exportMeasurements(exporter);
+    return exporter.values;
+  }
+
+  private static Map<String, Double> merge(File... exports) throws IOException {
+    return merge(PERCENTILES, exports);
+  }
+
+  private static Map<String, Double> merge(double[] percentiles, File... exports) throws IOException {
+    List<String> names = new ArrayList<String>();
+    for (File file : exports) {
+      names.add(file.getPath());
+    }
+    CollectingExporter exporter = new CollectingExporter();
+    MeasurementsMerger.merge(names, percentiles, exporter);
+    return exporter.values;
+  }
+
+  static class CollectingExporter implements MeasurementsExporter {
+    final Map<String, Double> values = new HashMap<String, Double>();
+
+    public void write(String metric, String measurement, int i) {
+      values.put(metric + "/" + measurement, (double) i);
+    }
+
+    public void write(String metric, String measurement, long l) {
+      values.put(metric + "/" + measurement, (double) l);
+    }
+
+    public void write(String metric, String measurement, double d) {
+      values.put(metric + "/" + measurement, d);
+    }
+
+    public void close() {
+    }
+  }
+}
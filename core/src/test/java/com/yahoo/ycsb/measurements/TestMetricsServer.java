@@ -0,0 +1,135 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Properties;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestMetricsServer {
+  Measurements measurements;
+  MetricsServer server;
+
+  @BeforeMethod
+  public void startServer() throws IOException {
+    Properties props = new Properties();
+    props.setProperty("measurementtype", "hdrhistogram");
+    props.setProperty(MetricsServer.PORT, "0");
+    measurements = new Measurements(props);
+    measurements.measure("READ", 100);
+    measurements.measure("READ", 200);
+    measurements.measure("READ", 300);
+    measurements.reportReturnCode("READ", 0);
+    measurements.reportReturnCode("READ", 0);
+    measurements.reportReturnCode("READ", -1);
+    server = new MetricsServer(measurements, MetricsServer.bindAddress(props), new double[] {50, 99.9});
+    //reports are only taken by the test
+    server.start(3600000);
+  }
+
+  @AfterMethod
+  public void stopServer() {
+    server.stop();
+  }
+
+  @Test
+  public void testBindsToLoopbackByDefault() throws IOException {
+    assertTrue(server.getAddress().getAddress().isLoopbackAddress());
+    Properties props = new Properties();
+    props.setProperty(MetricsServer.PORT, "9090");
+    props.setProperty(MetricsServer.ADDRESS, "0.0.0.0");
+    assertTrue(MetricsServer.bindAddress(props).getAddress().isAnyLocalAddress());
+    assertEquals(9090, MetricsServer.bindAddress(props).getPort());
+  }
+
+  @Test
+  public void testPrometheus() throws IOException {
+    String text = get("/metrics", 200);
+    assertContains(text, "# TYPE ycsb_latency_microseconds summary\n");
+    assertContains(text, "\nycsb_latency_microseconds{operation=\"READ\",quantile=\"0.5\"} 200\n");
+    assertContains(text, "\nycsb_latency_microseconds{operation=\"READ\",quantile=\"0.999\"} 300\n");
+    assertContains(text, "\nycsb_latency_microseconds_sum{operation=\"READ\"} 600\n");
+    assertContains(text, "\nycsb_latency_microseconds_count{operation=\"READ\"} 3\n");
+    assertContains(text, "\nycsb_latency_min_microseconds{operation=\"READ\"} 100\n");
+    assertContains(text, "\nycsb_latency_max_microseconds{operation=\"READ\"} 300\n");
+    assertContains(text, "\nycsb_return_codes_total{operation=\"READ\",code=\"0\"} 2\n");
+    assertContains(text, "\nycsb_return_codes_total{operation=\"READ\",code=\"-1\"} 1\n");
+
+    //the next report holds only what was recorded since this one
+    measurements.measure("READ", 400);
+    measurements.reportReturnCode("READ", 0);
+    server.report();
+    text = get("/metrics", 200);
+    assertContains(text, "\nycsb_latency_microseconds_count{operation=\"READ\"} 4\n");
+    assertContains(text, "\nycsb_interval_average_latency_microseconds{operation=\"READ\"} 400.0\n");
+    assertContains(text, "\nycsb_interval_return_codes{operation=\"READ\",code=\"0\"} 1\n");
+    assertContains(text, "\nycsb_interval_return_codes{operation=\"READ\",code=\"-1\"} 0\n");
+  }
+
+  @Test
+  public void testOtherPathsAreNotFound() throws IOException {
+    get("/metrics/other", 404);
+  }
+
+  @Test
+  public void testLabelValuesAreEscaped() {
+    assertEquals("a\\\"b\\\\c\\nd", MetricsServer.escape("a\"b\\c\nd"));
+  }
+
+  @Test
+  public void testJSON() throws IOException {
+    measurements.measure("READ", 400);
+    measurements.reportReturnCode("READ", 0);
+    server.report();
+    JsonNode report = new ObjectMapper().readTree(get("/metrics.json", 200));
+    assertTrue(report.get("intervalSeconds").getDoubleValue() > 0);
+    JsonNode total = report.get("metrics").get("READ").get("total");
+    assertEquals(4, total.get("operations").getLongValue());
+    assertEquals(250.0, total.get("averageLatencyUs").getDoubleValue(), 0);
+    assertEquals(100, total.get("minLatencyUs").getLongValue());
+    assertEquals(400, total.get("maxLatencyUs").getLongValue());
+    assertEquals(200, total.get("percentileLatencyUs").get("50").getLongValue());
+    assertEquals(400, total.get("percentileLatencyUs").get("99.9").getLongValue());
+    assertEquals(3, total.get("returnCodes").get("0").getLongValue());
+    assertEquals(1, total.get("returnCodes").get("-1").getLongValue());
+    JsonNode interval = report.get("metrics").get("READ").get("interval");
+    assertEquals(1, interval.get("operations").getLongValue());
+    assertEquals(400.0, interval.get("averageLatencyUs").getDoubleValue(), 0);
+    assertEquals(1, interval.get("returnCodes").get("0").getLongValue());
+    assertEquals(0, interval.get("returnCodes").get("-1").getLongValue());
+  }
+
+  private String get(String path, int status) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL("http", "127.0.0.1", server.getPort(), path).openConnection();
+    try {
+      assertEquals(status, connection.getResponseCode());
+      if (status != 200) {
+        return null;
+      }
+      InputStream in = connection.getInputStream();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        out.write(buffer, 0, n);
+      }
+      in.close();
+      return out.toString("UTF-8");
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static void assertContains(String text, String expected) {
+    assertTrue(expected + " in\n" + text, text.contains(expected));
+  }
+}
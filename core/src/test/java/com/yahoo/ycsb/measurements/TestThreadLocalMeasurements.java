@@ -0,0 +1,96 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestThreadLocalMeasurements {
+  static final int THREADS = 4;
+  static final int OPERATIONS = 20000;
+
+  @Test
+  public void testHdrHistogramExportEqualsShared() throws Exception {
+    assertExportEqualsShared("hdrhistogram");
+  }
+
+  @Test
+  public void testHistogramExportEqualsShared() throws Exception {
+    assertExportEqualsShared("histogram");
+  }
+
+  @Test
+  public void testNamesAndOperationsShareAMetric() throws IOException {
+    Measurements measurements = new Measurements(props("hdrhistogram", true));
+    measurements.measure("READ", 100);
+    measurements.measure(Operation.READ, 300);
+    measurements.reportReturnCode("READ", 0);
+    measurements.reportReturnCode(Operation.READ, 0);
+    measurements.measure("CUSTOM", 50);
+    Map<String, Double> exported = export(measurements);
+    assertEquals(2.0, exported.get("READ/Operations"));
+    assertEquals(200.0, exported.get("READ/AverageLatency(us)"));
+    assertEquals(2.0, exported.get("READ/Return=0"));
+    assertEquals(1.0, exported.get("CUSTOM/Operations"));
+  }
+
+  @Test
+  public void testOnlyHistogramsAreRecordedPerThread() {
+    assertTrue(new Measurements(props("histogram", true)).threadlocal);
+    assertTrue(new Measurements(props("hdrhistogram", true)).threadlocal);
+    assertFalse(new Measurements(props("timeseries", true)).threadlocal);
+    assertFalse(new Measurements(props("hdrhistogram", false)).threadlocal);
+  }
+
+  /**
+   * Record the same latencies from several threads into per-thread measurements and from one thread into
+   * shared ones, and check that both export the same results.
+   */
+  private static void assertExportEqualsShared(String type) throws Exception {
+    final Measurements threadlocal = new Measurements(props(type, true));
+    Measurements shared = new Measurements(props(type, false));
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < threads.length; t++) {
+      final long seed = t;
+      threads[t] = new Thread() {
+        public void run() {
+          record(threadlocal, seed);
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+      record(shared, t);
+    }
+    assertEquals(THREADS, threadlocal.threadmeasurements.size());
+    Map<String, Double> expected = export(shared);
+    assertEquals((double) THREADS * OPERATIONS, expected.get("READ/Operations") + expected.get("UPDATE/Operations"));
+    assertEquals(expected, export(threadlocal));
+  }
+
+  private static void record(Measurements measurements, long seed) {
+    Random random = new Random(seed);
+    for (int i = 0; i < OPERATIONS; i++) {
+      Operation op = random.nextInt(4) == 0 ? Operation.UPDATE : Operation.READ;
+      measurements.measure(op, 1 + random.nextInt(20000));
+      measurements.reportReturnCode(op, random.nextInt(100) == 0 ? -1 : 0);
+    }
+  }
+
+  private static Properties props(String type, boolean threadlocal) {
+    Properties props = new Properties();
+    props.setProperty("measurementtype", type);
+    props.setProperty(Measurements.MEASUREMENT_THREADLOCAL, Boolean.toString(threadlocal));
+    return props;
+  }
+
+  private static Map<String, Double> export(Measurements measurements) throws IOException {
+    TestMeasurementsMerger.CollectingExporter exporter = new TestMeasurementsMerger.CollectingExporter();
+    measurements.exportMeasurements(exporter);
+    return exporter.values;
+  }
+}
@@ -0,0 +1,109 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.measurements.MeasurementSnapshot;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestDataIntegrity {
+  @BeforeClass
+  public void setUp() {
+    //for the shared measurements the workload records into
+    Measurements.setProperties(new Properties());
+  }
+
+  @Test
+  public void testStaleReadIsReported() throws Exception {
+    CoreWorkload workload = new CoreWorkload();
+    Properties props = new Properties();
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "1");
+    props.setProperty("operationcount", "1");
+    props.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "2");
+    props.setProperty(CoreWorkload.WRITE_ALL_FIELDS_PROPERTY, "true");
+    props.setProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+    workload.init(props);
+    CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(props, 0, 1);
+    VersionedDB db = new VersionedDB();
+
+    workload.doTransactionUpdate(db, state);
+    workload.doTransactionRead(db, state);
+    assertEquals(0, verifyCount(CoreWorkload.VERIFY_STALE));
+    workload.doTransactionUpdate(db, state);
+    workload.doTransactionRead(db, state);
+    assertEquals(0, verifyCount(CoreWorkload.VERIFY_STALE));
+
+    db.stale = true;
+    workload.doTransactionRead(db, state);
+    assertEquals(1, verifyCount(CoreWorkload.VERIFY_STALE));
+    assertEquals(0, verifyCount(CoreWorkload.VERIFY_MISMATCH));
+  }
+
+  private static long verifyCount(int code) {
+    MeasurementSnapshot verify = Measurements.getMeasurements().getSnapshots(new double[0]).get("VERIFY");
+    if (verify == null) {
+      return 0;
+    }
+    Long count = verify.getReturnCodes().get(code);
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * Keeps every value written to each field, and reads back either the last one or, once stale, the one before.
+   */
+  static class VersionedDB extends DB {
+    final Map<String, Vector<byte[]>> fields = new HashMap<String, Vector<byte[]>>();
+    boolean stale;
+
+    @Override
+    public int read(String table, String key, Set<String> names, HashMap<String, ByteIterator> result) {
+      for (Map.Entry<String, Vector<byte[]>> field : fields.entrySet()) {
+        if (names == null || names.contains(field.getKey())) {
+          Vector<byte[]> versions = field.getValue();
+          byte[] value = versions.get(versions.size() - (stale && versions.size() > 1 ? 2 : 1));
+          result.put(field.getKey(), new ByteArrayByteIterator(value));
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    public int scan(String table, String startkey, int recordcount, Set<String> names,
+        Vector<HashMap<String, ByteIterator>> result) {
+      return 0;
+    }
+
+    @Override
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      for (Map.Entry<String, ByteIterator> value : values.entrySet()) {
+        if (!fields.containsKey(value.getKey())) {
+          fields.put(value.getKey(), new Vector<byte[]>());
+        }
+        //copied, since the workload reuses the array for its next value
+        fields.get(value.getKey()).add(value.getValue().toArray().clone());
+      }
+      return 0;
+    }
+
+    @Override
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return update(table, key, values);
+    }
+
+    @Override
+    public int delete(String table, String key) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package com.yahoo.ycsb.workloads;
+
+import java.io.File;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestInsertedKeys {
+  @Test
+  public void testAcrossSegments() throws Exception {
+    InsertedKeys keys = new InsertedKeys();
+    long count = InsertedKeys.SEGMENT_SIZE * 2L + 5;
+    for (long i = 0; i < count; i++) {
+      keys.add(i * 3);
+    }
+    assertEquals(count, keys.size());
+    assertEquals(0, keys.get(0));
+    assertEquals(InsertedKeys.SEGMENT_SIZE * 3L, keys.get(InsertedKeys.SEGMENT_SIZE));
+    assertEquals((count - 1) * 3, keys.get(count - 1));
+    keys.close();
+  }
+
+  @Test
+  public void testMappedFileFromSeveralThreads() throws Exception {
+    File file = File.createTempFile("insertedkeys", ".bin");
+    final InsertedKeys keys = new InsertedKeys(file);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final long base = t * 1000000000L;
+      threads[t] = new Thread() {
+        public void run() {
+          for (long i = 0; i < InsertedKeys.SEGMENT_SIZE / 2; i++) {
+            keys.add(base + i);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    long sum = 0;
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (long i = 0; i < keys.size(); i++) {
+      sum += keys.get(i);
+    }
+    long half = InsertedKeys.SEGMENT_SIZE / 2;
+    assertEquals(half * threads.length, keys.size());
+    assertEquals(half * (0 + 1 + 2 + 3) * 1000000000L + threads.length * half * (half - 1) / 2, sum);
+    keys.close();
+    assertFalse(file.exists());
+  }
+}
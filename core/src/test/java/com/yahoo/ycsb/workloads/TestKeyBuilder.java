@@ -0,0 +1,32 @@
+package com.yahoo.ycsb.workloads;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestKeyBuilder {
+  @Test
+  public void testSameAsConcatenation() {
+    KeyBuilder builder = new KeyBuilder("user");
+    long[] numbers = {0, 1, 9, 10, 99, 12345, -1, -9, -10, -12345, Integer.MAX_VALUE, Integer.MIN_VALUE,
+        Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1};
+    for (long number : numbers) {
+      assertEquals("user" + number, builder.build(number));
+    }
+  }
+
+  @Test
+  public void testBufferIsReusedAcrossLengths() {
+    KeyBuilder builder = new KeyBuilder("user");
+    assertEquals("user" + Long.MIN_VALUE, builder.build(Long.MIN_VALUE));
+    assertEquals("user7", builder.build(7));
+    assertEquals("user-42", builder.build(-42));
+    assertEquals("user" + Long.MAX_VALUE, builder.build(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testEmptyPrefix() {
+    KeyBuilder builder = new KeyBuilder("");
+    assertEquals("-5", builder.build(-5));
+    assertEquals(String.valueOf(Long.MIN_VALUE), builder.build(Long.MIN_VALUE));
+  }
+}
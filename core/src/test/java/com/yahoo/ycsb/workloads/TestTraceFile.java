@@ -0,0 +1,108 @@
+package com.yahoo.ycsb.workloads;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestTraceFile {
+  @Test
+  public void testConvertAndRead() throws Exception {
+    String csv = "timestamp,op,key,fields,size\n"
+        + "1000.5,read,user1,,0\n"
+        + "# a comment\n"
+        + "\n"
+        + "1001,UPDATE,user2,field1;field3,100\n"
+        + "1001,insert,user,with,commas,field0,20\n"
+        + "2500.25,scan,user3,,50\n"
+        + "3000,delete,user1,,0\n";
+    File file = File.createTempFile("trace", ".trc");
+    try {
+      TraceFile.Writer writer = new TraceFile.Writer(new BufferedOutputStream(new FileOutputStream(file)));
+      assertEquals(5, TraceConverter.convert(new BufferedReader(new StringReader(csv)), writer));
+      writer.close();
+
+      TraceFile.Reader reader = new TraceFile.Reader(file);
+      assertTrue(reader.next());
+      assertEquals(1000500, reader.timestamp());
+      assertEquals(TraceFile.READ, reader.operation());
+      assertEquals("user1", reader.key());
+      assertTrue(reader.fields().isEmpty());
+      assertTrue(reader.next());
+      assertEquals(1001000, reader.timestamp());
+      assertEquals(TraceFile.UPDATE, reader.operation());
+      assertEquals(Arrays.asList("field1", "field3"), reader.fields());
+      assertEquals(100, reader.size());
+      assertTrue(reader.next());
+      assertEquals(TraceFile.INSERT, reader.operation());
+      assertEquals("user,with,commas", reader.key());
+      assertEquals(Collections.singletonList("field0"), reader.fields());
+      assertTrue(reader.next());
+      assertEquals(2500250, reader.timestamp());
+      assertEquals(TraceFile.SCAN, reader.operation());
+      assertEquals(50, reader.size());
+      assertTrue(reader.next());
+      assertEquals(TraceFile.DELETE, reader.operation());
+      assertFalse(reader.next());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testRejectsUnsortedTrace() throws Exception {
+    TraceFile.Writer writer = new TraceFile.Writer(new java.io.ByteArrayOutputStream());
+    try {
+      TraceConverter.convert(new BufferedReader(new StringReader("2,read,a,,0\n1,read,b,,0\n")), writer);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2:"));
+    }
+  }
+
+  @Test
+  public void testPartitionsKeepKeyOrderAcrossWindows() throws Exception {
+    File file = File.createTempFile("trace", ".trc");
+    try {
+      TraceFile.Writer writer = new TraceFile.Writer(new BufferedOutputStream(new FileOutputStream(file)));
+      List<String> none = Collections.emptyList();
+      int count = 50000;
+      for (int i = 0; i < count; i++) {
+        writer.write(i * 10L, TraceFile.UPDATE, "user" + (i % 97), none, i);
+      }
+      writer.close();
+      assertTrue(file.length() > 3 * (TraceFile.MAX_RECORD_SIZE + 100));
+
+      int partitions = 3;
+      int total = 0;
+      Map<String, Integer> owners = new HashMap<String, Integer>();
+      for (int p = 0; p < partitions; p++) {
+        TraceFile.Reader reader = new TraceFile.Reader(file, p, partitions, TraceFile.MAX_RECORD_SIZE + 100);
+        Map<String, Integer> last = new HashMap<String, Integer>();
+        while (reader.next()) {
+          total++;
+          assertEquals(reader.size() * 10L, reader.timestamp());
+          Integer owner = owners.put(reader.key(), p);
+          assertTrue(owner == null || owner == p);
+          Integer previous = last.put(reader.key(), reader.size());
+          assertTrue(previous == null || previous + 97 == reader.size());
+        }
+      }
+      assertEquals(count, total);
+      assertEquals(97, owners.size());
+      assertTrue(new ArrayList<Integer>(owners.values()).containsAll(Arrays.asList(0, 1, 2)));
+    } finally {
+      file.delete();
+    }
+  }
+}
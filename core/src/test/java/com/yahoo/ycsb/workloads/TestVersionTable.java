@@ -0,0 +1,27 @@
+package com.yahoo.ycsb.workloads;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestVersionTable {
+  @Test
+  public void testVersionsOnlyGrow() {
+    VersionTable versions = new VersionTable(10);
+    assertEquals(0, versions.get(5, 3));
+    versions.acknowledge(5, 3, 100);
+    versions.acknowledge(5, 3, 90);
+    assertEquals(100, versions.get(5, 3));
+    assertEquals(0, versions.get(5, 4));
+    assertEquals(0, versions.get(6, 3));
+  }
+
+  @Test
+  public void testAcrossSegments() {
+    VersionTable versions = new VersionTable(3);
+    long keynum = VersionTable.SEGMENT_SIZE * 5L;
+    assertEquals(0, versions.get(keynum, 2));
+    versions.acknowledge(keynum, 2, 7);
+    assertEquals(7, versions.get(keynum, 2));
+    assertEquals(0, versions.get(0, 0));
+  }
+}
@@ -173,7 +173,8 @@ public class GemFireClient extends DB {
   private Map<String, byte[]> convertToBytearrayMap(Map<String,ByteIterator> values) {
     Map<String, byte[]> retVal = new HashMap<String, byte[]>();
     for (String key : values.keySet()) {
-      retVal.put(key, values.get(key).toArray());
+      //copied, since a peer region keeps the array itself and the workload reuses it
+      retVal.put(key, values.get(key).toArray().clone());
     }
     return retVal;
   }
@@ -320,7 +320,8 @@ public class HBaseClient extends com.yahoo.ycsb.DB
                 System.out.println("Adding field/value " + entry.getKey() + "/"+
                   entry.getValue() + " to put request");
             }
-            p.add(_columnFamilyBytes,Bytes.toBytes(entry.getKey()),entry.getValue().toArray());
+            //copied, since the put may sit in the client-side write buffer after the workload reuses the value
+            p.add(_columnFamilyBytes,Bytes.toBytes(entry.getKey()),entry.getValue().toArray().clone());
         }
 
         try
@@ -357,6 +358,154 @@ public class HBaseClient extends com.yahoo.ycsb.DB
         return update(table,key,values);
     }
 
+    /**
+     * Read several records from the database with one call to HTable.get, which groups the gets by region server.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to read.
+     * @param fields The list of fields to read, or null for all of them
+     * @param results For each record, a HashMap of field/value pairs for the result
+     * @return Zero on success, a non-zero error code on error or NoMatchingRecord if any of the records was not found
+     */
+    public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_table.equals(table)) {
+            _hTable = null;
+            try
+            {
+                getHTable(table);
+                _table = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return ServerError;
+            }
+        }
+
+        List<Get> gets = new ArrayList<Get>(keys.size());
+        for (String key : keys)
+        {
+            Get g = new Get(Bytes.toBytes(key));
+            if (fields == null) {
+                g.addFamily(_columnFamilyBytes);
+            } else {
+                for (String field : fields) {
+                    g.addColumn(_columnFamilyBytes, Bytes.toBytes(field));
+                }
+            }
+            gets.add(g);
+        }
+        if (_debug) {
+            System.out.println("Doing batch get of "+gets.size()+" records");
+        }
+
+        Result[] rs;
+        try
+        {
+            rs = _hTable.get(gets);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error doing batch get: "+e);
+            return ServerError;
+        }
+        catch (ConcurrentModificationException e)
+        {
+            //do nothing for now...need to understand HBase concurrency model better
+            return ServerError;
+        }
+
+        int ret = Ok;
+        for (int i = 0; i < rs.length; i++)
+        {
+            if (rs[i].isEmpty()) {
+                ret = NoMatchingRecord;
+                continue;
+            }
+            for (KeyValue kv : rs[i].raw()) {
+                results.get(i).put(
+                    Bytes.toString(kv.getQualifier()),
+                    new ByteArrayByteIterator(kv.getValue()));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Update several records in the database. As with update, this is the same put as batchInsert.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to write.
+     * @param values For each record, a HashMap of field/value pairs to update in the record
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+    {
+        return batchInsert(table,keys,values);
+    }
+
+    /**
+     * Insert several records in the database with one call to HTable.put, which sends them to each region server
+     * together instead of one at a time.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to insert.
+     * @param values For each record, a HashMap of field/value pairs to insert in the record
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_table.equals(table)) {
+            _hTable = null;
+            try
+            {
+                getHTable(table);
+                _table = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return ServerError;
+            }
+        }
+
+        List<Put> puts = new ArrayList<Put>(keys.size());
+        for (int i = 0; i < keys.size(); i++)
+        {
+            Put p = new Put(Bytes.toBytes(keys.get(i)));
+            for (Map.Entry<String, ByteIterator> entry : values.get(i).entrySet())
+            {
+                p.add(_columnFamilyBytes,Bytes.toBytes(entry.getKey()),entry.getValue().toArray().clone());
+            }
+            puts.add(p);
+        }
+        if (_debug) {
+            System.out.println("Doing batch put of "+puts.size()+" records");
+        }
+
+        try
+        {
+            _hTable.put(puts);
+        }
+        catch (IOException e)
+        {
+            if (_debug) {
+                System.err.println("Error doing batch put: "+e);
+            }
+            return ServerError;
+        }
+        catch (ConcurrentModificationException e)
+        {
+            //do nothing for now...hope this is rare
+            return ServerError;
+        }
+
+        return Ok;
+    }
+
     /**
      * Delete a record from the database.
      *
@@ -401,6 +550,54 @@ public class HBaseClient extends com.yahoo.ycsb.DB
         return Ok;
     }
 
+    /**
+     * Delete several records from the database with one call to HTable.delete.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to delete.
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int batchDelete(String table, List<String> keys)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_table.equals(table)) {
+            _hTable = null;
+            try
+            {
+                getHTable(table);
+                _table = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return ServerError;
+            }
+        }
+
+        if (_debug) {
+            System.out.println("Doing batch delete of "+keys.size()+" records");
+        }
+
+        List<Delete> deletes = new ArrayList<Delete>(keys.size());
+        for (String key : keys)
+        {
+            deletes.add(new Delete(Bytes.toBytes(key)));
+        }
+        try
+        {
+            _hTable.delete(deletes);
+        }
+        catch (IOException e)
+        {
+            if (_debug) {
+                System.err.println("Error doing batch delete: "+e);
+            }
+            return ServerError;
+        }
+
+        return Ok;
+    }
+
     public static void main(String[] args)
     {
         if (args.length!=3)
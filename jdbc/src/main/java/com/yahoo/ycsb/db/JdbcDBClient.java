@@ -442,6 +442,58 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     }
 	}
 
+	/**
+	 * Insert the records with one JDBC batch for each shard they go to.
+	 */
+	@Override
+	public int batchInsert(String tableName, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+	  if (tableName == null) {
+	    return -1;
+	  }
+	  // checked before any record is added to the cached statements, which would otherwise keep a partial batch
+	  if (keys.contains(null)) {
+	    return -1;
+	  }
+	  Map<StatementType, PreparedStatement> batches = new LinkedHashMap<StatementType, PreparedStatement>();
+	  try {
+	    for (int i = 0; i < keys.size(); i++) {
+	      String key = keys.get(i);
+	      HashMap<String, ByteIterator> record = values.get(i);
+	      StatementType type = new StatementType(StatementType.Type.INSERT, tableName, record.size(), getShardIndexByKey(key));
+	      PreparedStatement insertStatement = cachedStatements.get(type);
+	      if (insertStatement == null) {
+	        insertStatement = createAndCacheInsertStatement(type, key);
+	      }
+	      insertStatement.setString(1, key);
+	      int index = 2;
+	      for (Map.Entry<String, ByteIterator> entry : record.entrySet()) {
+	        insertStatement.setString(index++, entry.getValue().toString());
+	      }
+	      insertStatement.addBatch();
+	      batches.put(type, insertStatement);
+	    }
+	    int ret = SUCCESS;
+	    for (PreparedStatement insertStatement : batches.values()) {
+	      for (int result : insertStatement.executeBatch()) {
+	        if (result != 1 && result != Statement.SUCCESS_NO_INFO) {
+	          ret = 1;
+	        }
+	      }
+	    }
+	    return ret;
+	  } catch (SQLException e) {
+	    System.err.println("Error in processing batch insert to table: " + tableName + e);
+	    // the statements are cached, so they must not keep the rest of the failed batch
+	    for (PreparedStatement insertStatement : batches.values()) {
+	      try {
+	        insertStatement.clearBatch();
+	      } catch (SQLException ignored) {
+	      }
+	    }
+	    return -1;
+	  }
+	}
+
 	@Override
 	public int delete(String tableName, String key) {
 	  if (tableName == null) {
@@ -465,4 +517,47 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       return -1;
     }
 	}
+
+	@Override
+	public int batchDelete(String tableName, List<String> keys) {
+	  if (tableName == null) {
+	    return -1;
+	  }
+	  // checked before any key is added to the cached statements, which would otherwise keep a partial batch
+	  if (keys.contains(null)) {
+	    return -1;
+	  }
+	  Map<StatementType, PreparedStatement> batches = new LinkedHashMap<StatementType, PreparedStatement>();
+	  try {
+	    for (String key : keys) {
+	      StatementType type = new StatementType(StatementType.Type.DELETE, tableName, 1, getShardIndexByKey(key));
+	      PreparedStatement deleteStatement = cachedStatements.get(type);
+	      if (deleteStatement == null) {
+	        deleteStatement = createAndCacheDeleteStatement(type, key);
+	      }
+	      deleteStatement.setString(1, key);
+	      deleteStatement.addBatch();
+	      batches.put(type, deleteStatement);
+	    }
+	    int ret = SUCCESS;
+	    for (PreparedStatement deleteStatement : batches.values()) {
+	      for (int result : deleteStatement.executeBatch()) {
+	        if (result != 1 && result != Statement.SUCCESS_NO_INFO) {
+	          ret = 1;
+	        }
+	      }
+	    }
+	    return ret;
+	  } catch (SQLException e) {
+	    System.err.println("Error in processing batch delete to table: " + tableName + e);
+	    // the statements are cached, so they must not keep the rest of the failed batch
+	    for (PreparedStatement deleteStatement : batches.values()) {
+	      try {
+	        deleteStatement.clearBatch();
+	      } catch (SQLException ignored) {
+	      }
+	    }
+	    return -1;
+	  }
+	}
 }
@@ -1,7 +1,7 @@
 package com.yahoo.ycsb.memcached;
 
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteIterator;
-import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.StringByteIterator;
 import net.spy.memcached.MemcachedClient;
@@ -20,10 +20,15 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
-public abstract class MemcachedCompatibleClient extends DB {
+public abstract class MemcachedCompatibleClient extends AsyncDB {
 
     protected final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -45,6 +50,8 @@ public abstract class MemcachedCompatibleClient extends DB {
     
     private final int ERROR = 1;
 
+    private final int NOT_FOUND = 2;
+
     @Override
     public void init() throws DBException {
         try {
@@ -63,66 +70,93 @@ public abstract class MemcachedCompatibleClient extends DB {
     protected abstract MemcachedClient createMemcachedClient() throws Exception;
 
     @Override
-    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+    public Future<Integer> readAsync(String table, String key, final Set<String> fields, final HashMap<String, ByteIterator> result) {
+        GetFuture<Object> future = client.asyncGet(createQualifiedKey(table, key));
+        return new ReturnCodeFuture<Object>(future, "Error encountered") {
+            @Override
+            protected int getReturnCode(Object document) throws IOException {
+                if (document != null) {
+                    fromJson((String) document, fields, result);
+                }
+                return OK;
+            }
+        };
+    }
+
+    /**
+     * Read the records with one multi-get. Updates and inserts of several records are pipelined by AsyncDB.
+     *
+     * @return OK if all of the records were found, NOT_FOUND if any of them was not, or ERROR
+     */
+    @Override
+    public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String, ByteIterator>> results) {
+        List<String> qualifiedKeys = new ArrayList<String>(keys.size());
+        for (String key : keys) {
+            qualifiedKeys.add(createQualifiedKey(table, key));
+        }
         try {
-            GetFuture<Object> future = client.asyncGet(createQualifiedKey(table, key));
-            Object document = future.get();
-            if (document != null) {
-                fromJson((String) document, fields, result);
+            Map<String, Object> documents = client.getBulk(qualifiedKeys);
+            int ret = OK;
+            for (int i = 0; i < qualifiedKeys.size(); i++) {
+                Object document = documents.get(qualifiedKeys.get(i));
+                if (document != null) {
+                    fromJson((String) document, fields, results.get(i));
+                } else {
+                    ret = NOT_FOUND;
+                }
             }
-            return OK;
+            return ret;
         } catch (Exception e) {
             if (log.isErrorEnabled()) {
-                log.error("Error encountered", e);
+                log.error("Error reading values", e);
             }
             return ERROR;
         }
     }
 
     @Override
-    public int scan(String table, String startKey, int limit, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    public Future<Integer> scanAsync(String table, String startKey, int limit, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
         throw new IllegalStateException("Range scan is not supported");
     }
 
     @Override
-    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+    public Future<Integer> updateAsync(String table, String key, HashMap<String, ByteIterator> values) {
         key = createQualifiedKey(table, key);
         try {
-            OperationFuture<Boolean> future = client.replace(key, objectExpirationTime, toJson(values));
-            return getReturnCode(future);
+            return new OperationReturnCodeFuture(client.replace(key, objectExpirationTime, toJson(values)),
+                    "Error updating value with key: " + key);
         } catch (Exception e) {
             if (log.isErrorEnabled()) {
                 log.error("Error updating value with key: " + key, e);
             }
-            return ERROR;
+            return completed(ERROR);
         }
     }
 
     @Override
-    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+    public Future<Integer> insertAsync(String table, String key, HashMap<String, ByteIterator> values) {
         key = createQualifiedKey(table, key);
         try {
-            OperationFuture<Boolean> future = client.add(key, objectExpirationTime, toJson(values));
-            return getReturnCode(future);
+            return new OperationReturnCodeFuture(client.add(key, objectExpirationTime, toJson(values)),
+                    "Error inserting value");
         } catch (Exception e) {
             if (log.isErrorEnabled()) {
                 log.error("Error inserting value", e);
             }
-            return ERROR;
+            return completed(ERROR);
         }
     }
 
     @Override
-    public int delete(String table, String key) {
+    public Future<Integer> deleteAsync(String table, String key) {
         key = createQualifiedKey(table, key);
         try {
-            OperationFuture<Boolean> future = client.delete(key);
-            return getReturnCode(future);
+            return new OperationReturnCodeFuture(client.delete(key), "Error deleting value");
         } catch (Exception e) {
             if (log.isErrorEnabled()) {
                 log.error("Error deleting value", e);
             }
-            return ERROR;
+            return completed(ERROR);
         }
     }
 
@@ -134,6 +168,91 @@ public abstract class MemcachedCompatibleClient extends DB {
         }
     }
 
+    protected static Future<Integer> completed(int returnCode) {
+        FutureTask<Integer> future = new FutureTask<Integer>(new Runnable() {
+            public void run() {
+            }
+        }, returnCode);
+        future.run();
+        return future;
+    }
+
+    /**
+     * Adapts the future of a memcached operation to the future of its return code. Errors are logged and reported
+     * as a return code, like the blocking operations do. spymemcached 2.8 has no completion callbacks, so an
+     * operation is measured up to when its completion is first seen; the client thread polls all of its operations
+     * in flight before issuing the next one.
+     */
+    protected abstract class ReturnCodeFuture<T> implements Future<Integer> {
+
+        private final Future<T> future;
+
+        private final String errorMessage;
+
+        protected ReturnCodeFuture(Future<T> future, String errorMessage) {
+            this.future = future;
+            this.errorMessage = errorMessage;
+        }
+
+        protected abstract int getReturnCode(T value) throws Exception;
+
+        public Integer get() throws InterruptedException, ExecutionException {
+            try {
+                return getReturnCode(future.get());
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                return error(e);
+            }
+        }
+
+        public Integer get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            try {
+                return getReturnCode(future.get(timeout, unit));
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (TimeoutException e) {
+                throw e;
+            } catch (Exception e) {
+                return error(e);
+            }
+        }
+
+        private int error(Exception e) {
+            if (log.isErrorEnabled()) {
+                log.error(errorMessage, e);
+            }
+            return ERROR;
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return future.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    protected class OperationReturnCodeFuture extends ReturnCodeFuture<Boolean> {
+
+        private final OperationFuture<Boolean> operationFuture;
+
+        protected OperationReturnCodeFuture(OperationFuture<Boolean> future, String errorMessage) {
+            super(future, errorMessage);
+            this.operationFuture = future;
+        }
+
+        @Override
+        protected int getReturnCode(Boolean value) {
+            return MemcachedCompatibleClient.this.getReturnCode(operationFuture);
+        }
+    }
+
     @Override
     public void cleanup() throws DBException {
         if (client != null) {
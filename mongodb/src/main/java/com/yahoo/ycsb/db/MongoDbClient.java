@@ -9,8 +9,10 @@
 
 package com.yahoo.ycsb.db;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -179,6 +181,36 @@ public class MongoDbClient extends DB {
         }
     }
 
+    /**
+     * Delete several records with a single remove on their _id values.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to delete.
+     * @return Zero on success, a non-zero error code on error. See this class's description for a discussion of error codes.
+     */
+    @Override
+    public int batchDelete(String table, List<String> keys) {
+        com.mongodb.DB db = null;
+        try {
+            db = mongo.getDB(database);
+            db.requestStart();
+            DBCollection collection = db.getCollection(table);
+            DBObject q = new BasicDBObject().append("_id",
+                    new BasicDBObject().append("$in", keys));
+            WriteResult res = collection.remove(q, writeConcern);
+            return res.getN() == keys.size() ? 0 : 1;
+        }
+        catch (Exception e) {
+            System.err.println(e.toString());
+            return 1;
+        }
+        finally {
+            if (db != null) {
+                db.requestDone();
+            }
+        }
+    }
+
     /**
      * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
      * record key.
@@ -216,6 +248,46 @@ public class MongoDbClient extends DB {
         }
     }
 
+    /**
+     * Insert several records in the database with one insert of all their documents.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to insert.
+     * @param values For each record, a HashMap of field/value pairs to insert in the record
+     * @return Zero on success, a non-zero error code on error. See this class's description for a discussion of error codes.
+     */
+    @Override
+    public int batchInsert(String table, List<String> keys,
+            List<HashMap<String, ByteIterator>> values) {
+        com.mongodb.DB db = null;
+        try {
+            db = mongo.getDB(database);
+
+            db.requestStart();
+
+            DBCollection collection = db.getCollection(table);
+            List<DBObject> documents = new ArrayList<DBObject>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                DBObject r = new BasicDBObject().append("_id", keys.get(i));
+                for (Map.Entry<String, ByteIterator> field : values.get(i).entrySet()) {
+                    r.put(field.getKey(), field.getValue().toArray());
+                }
+                documents.add(r);
+            }
+            WriteResult res = collection.insert(documents, writeConcern);
+            return res.getError() == null ? 0 : 1;
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            return 1;
+        }
+        finally {
+            if (db != null) {
+                db.requestDone();
+            }
+        }
+    }
+
     /**
      * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
      *
@@ -267,6 +339,74 @@ public class MongoDbClient extends DB {
         }
     }
 
+    /**
+     * Read several records with a single query on their _id values.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to read.
+     * @param fields The list of fields to read, or null for all of them
+     * @param results For each record, a HashMap of field/value pairs for the result
+     * @return Zero on success, a non-zero error code on error. See this class's description for a discussion of error codes.
+     */
+    @Override
+    public int batchRead(String table, List<String> keys, Set<String> fields,
+            List<HashMap<String, ByteIterator>> results) {
+        com.mongodb.DB db = null;
+        try {
+            db = mongo.getDB(database);
+
+            db.requestStart();
+
+            DBCollection collection = db.getCollection(table);
+            DBObject q = new BasicDBObject().append("_id",
+                    new BasicDBObject().append("$in", keys));
+            DBCursor cursor;
+            if (fields != null) {
+                DBObject fieldsToReturn = new BasicDBObject();
+                Iterator<String> iter = fields.iterator();
+                while (iter.hasNext()) {
+                    fieldsToReturn.put(iter.next(), INCLUDE);
+                }
+                cursor = collection.find(q, fieldsToReturn);
+            }
+            else {
+                cursor = collection.find(q);
+            }
+
+            // a key may be asked for more than once, and each of its results is filled from the one document
+            Map<String, List<Integer>> positions = new HashMap<String, List<Integer>>(keys.size() * 2);
+            for (int i = 0; i < keys.size(); i++) {
+                List<Integer> keyPositions = positions.get(keys.get(i));
+                if (keyPositions == null) {
+                    keyPositions = new ArrayList<Integer>(1);
+                    positions.put(keys.get(i), keyPositions);
+                }
+                keyPositions.add(i);
+            }
+            int found = 0;
+            while (cursor.hasNext()) {
+                DBObject obj = cursor.next();
+                List<Integer> keyPositions = positions.get(obj.get("_id"));
+                if (keyPositions != null) {
+                    for (Integer position : keyPositions) {
+                        fillMap(results.get(position), obj);
+                    }
+                    found++;
+                }
+            }
+            return found == positions.size() ? 0 : 1;
+        }
+        catch (Exception e) {
+            System.err.println(e.toString());
+            return 1;
+        }
+        finally {
+            if (db != null) {
+                db.requestDone();
+            }
+        }
+    }
+
     /**
      * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
      * record key, overwriting any existing values with the same field name.
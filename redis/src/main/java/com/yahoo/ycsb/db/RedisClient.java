@@ -11,6 +11,7 @@ import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.StringByteIterator;
 
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -20,7 +21,9 @@ import java.util.Set;
 import java.util.Vector;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
 
 public class RedisClient extends DB {
 
@@ -91,6 +94,65 @@ public class RedisClient extends DB {
         return result.isEmpty() ? 1 : 0;
     }
 
+    /* Read the records in one round trip, by pipelining their reads. */
+    @Override
+    public int batchRead(String table, List<String> keys, Set<String> fields,
+            List<HashMap<String, ByteIterator>> results) {
+        Pipeline pipeline = jedis.pipelined();
+        String[] fieldArray = fields == null ? null : (String[])fields.toArray(new String[fields.size()]);
+        List<Response<Map<String, String>>> all = new ArrayList<Response<Map<String, String>>>();
+        List<Response<List<String>>> some = new ArrayList<Response<List<String>>>();
+        for (String key : keys) {
+            if (fields == null) {
+                all.add(pipeline.hgetAll(key));
+            }
+            else {
+                some.add(pipeline.hmget(key, fieldArray));
+            }
+        }
+        pipeline.sync();
+
+        int ret = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            HashMap<String, ByteIterator> result = results.get(i);
+            if (fields == null) {
+                StringByteIterator.putAllAsByteIterators(result, all.get(i).get());
+            }
+            else {
+                List<String> values = some.get(i).get();
+                for (int j = 0; j < fieldArray.length && j < values.size(); j++) {
+                    if (values.get(j) != null) {
+                        result.put(fieldArray[j], new StringByteIterator(values.get(j)));
+                    }
+                }
+            }
+            if (result.isEmpty()) {
+                ret = 1;
+            }
+        }
+        return ret;
+    }
+
+    /* Update the records in one round trip, by pipelining their writes. */
+    @Override
+    public int batchUpdate(String table, List<String> keys,
+            List<HashMap<String, ByteIterator>> values) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<String>> responses = new ArrayList<Response<String>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            responses.add(pipeline.hmset(keys.get(i), StringByteIterator.getStringMap(values.get(i))));
+        }
+        pipeline.sync();
+
+        int ret = 0;
+        for (Response<String> response : responses) {
+            if (!"OK".equals(response.get())) {
+                ret = 1;
+            }
+        }
+        return ret;
+    }
+
     @Override
     public int insert(String table, String key, HashMap<String, ByteIterator> values) {
         if (jedis.hmset(key, StringByteIterator.getStringMap(values)).equals("OK")) {